@@ -0,0 +1,282 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.benchmark;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.system.NativeLibraryLoader;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.logging.Logger;
+
+/**
+ * Utility methods to construct the standard scenes used by the benchmarks.
+ * Each scene is deterministic, so that results are comparable between runs
+ * and between Minie releases.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class BenchmarkScenes {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * half extent of the ground and terrain (in physics-space units)
+     */
+    final private static float groundHalfExtent = 50f;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(BenchmarkScenes.class.getName());
+    /**
+     * names of the standard scenes
+     */
+    final public static String[] sceneNames = {"boxes", "spheres", "terrain"};
+    // *************************************************************************
+    // fields
+
+    /**
+     * true once the native library has been loaded
+     */
+    private static boolean isLoaded = false;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private BenchmarkScenes() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add a pile of dynamic boxes, arranged in layers above the origin.
+     *
+     * @param space the space to add to (not null, modified)
+     * @param numBodies the number of boxes to add (&ge;0)
+     */
+    public static void addBoxPile(PhysicsSpace space, int numBodies) {
+        CollisionShape shape = new BoxCollisionShape(0.5f);
+        addPile(space, shape, numBodies);
+    }
+
+    /**
+     * Add a static box to serve as a flat ground, with its top surface at
+     * Y=0.
+     *
+     * @param space the space to add to (not null, modified)
+     */
+    public static void addGround(PhysicsSpace space) {
+        Vector3f halfExtents = new Vector3f(groundHalfExtent, 1f,
+                groundHalfExtent);
+        CollisionShape shape = new BoxCollisionShape(halfExtents);
+        PhysicsRigidBody ground
+                = new PhysicsRigidBody(shape, PhysicsRigidBody.massForStatic);
+        ground.setPhysicsLocation(new Vector3f(0f, -1f, 0f));
+        space.addCollisionObject(ground);
+    }
+
+    /**
+     * Add dynamic bodies with the specified shape, arranged in 10x10 layers
+     * above the origin.
+     *
+     * @param space the space to add to (not null, modified)
+     * @param shape the shape for each body (not null)
+     * @param numBodies the number of bodies to add (&ge;0)
+     */
+    public static void addPile(PhysicsSpace space, CollisionShape shape,
+            int numBodies) {
+        int bodiesPerLayer = 100;
+        for (int bodyIndex = 0; bodyIndex < numBodies; ++bodyIndex) {
+            int layer = bodyIndex / bodiesPerLayer;
+            int column = bodyIndex % bodiesPerLayer;
+            float x = 1.1f * (column % 10 - 4.5f);
+            float y = 2f + 1.1f * layer;
+            float z = 1.1f * (column / 10 - 4.5f);
+
+            PhysicsRigidBody body = new PhysicsRigidBody(shape, 1f);
+            body.setPhysicsLocation(new Vector3f(x, y, z));
+            space.addCollisionObject(body);
+        }
+    }
+
+    /**
+     * Add a pile of dynamic spheres, arranged in layers above the origin.
+     *
+     * @param space the space to add to (not null, modified)
+     * @param numBodies the number of spheres to add (&ge;0)
+     */
+    public static void addSpherePile(PhysicsSpace space, int numBodies) {
+        CollisionShape shape = new SphereCollisionShape(0.5f);
+        addPile(space, shape, numBodies);
+    }
+
+    /**
+     * Add a static, bumpy terrain based on a MeshCollisionShape.
+     *
+     * @param space the space to add to (not null, modified)
+     */
+    public static void addTerrain(PhysicsSpace space) {
+        Mesh mesh = createTerrainMesh(64);
+        CollisionShape shape = new MeshCollisionShape(mesh, true);
+        PhysicsRigidBody terrain
+                = new PhysicsRigidBody(shape, PhysicsRigidBody.massForStatic);
+        space.addCollisionObject(terrain);
+    }
+
+    /**
+     * Generate a square, triangulated grid with sinusoidal heights, centered
+     * on the origin in the X-Z plane.
+     *
+     * @param numLines the number of grid lines in each direction (&ge;2)
+     * @param halfExtent half the width of the grid (&gt;0)
+     * @param amplitude the maximum height of the bumps (&ge;0)
+     * @return a new Mesh (not null)
+     */
+    public static Mesh createGridMesh(int numLines, float halfExtent,
+            float amplitude) {
+        assert numLines >= 2 : numLines;
+        assert halfExtent > 0f : halfExtent;
+        assert amplitude >= 0f : amplitude;
+
+        float spacing = 2f * halfExtent / (numLines - 1);
+        int numVertices = numLines * numLines;
+        FloatBuffer positions = BufferUtils.createFloatBuffer(3 * numVertices);
+        for (int zIndex = 0; zIndex < numLines; ++zIndex) {
+            float z = zIndex * spacing - halfExtent;
+            for (int xIndex = 0; xIndex < numLines; ++xIndex) {
+                float x = xIndex * spacing - halfExtent;
+                float y = amplitude
+                        * FastMath.sin(0.3f * x) * FastMath.cos(0.2f * z);
+                positions.put(x).put(y).put(z);
+            }
+        }
+        positions.flip();
+
+        int numTriangles = 2 * (numLines - 1) * (numLines - 1);
+        IntBuffer indices = BufferUtils.createIntBuffer(3 * numTriangles);
+        for (int zIndex = 0; zIndex < numLines - 1; ++zIndex) {
+            for (int xIndex = 0; xIndex < numLines - 1; ++xIndex) {
+                int v0 = zIndex * numLines + xIndex;
+                int v1 = v0 + 1;
+                int v2 = v0 + numLines;
+                int v3 = v2 + 1;
+                indices.put(v0).put(v2).put(v1);
+                indices.put(v1).put(v2).put(v3);
+            }
+        }
+        indices.flip();
+
+        Mesh result = new Mesh();
+        result.setBuffer(VertexBuffer.Type.Position, 3, positions);
+        result.setBuffer(VertexBuffer.Type.Index, 3, indices);
+        result.updateBound();
+
+        return result;
+    }
+
+    /**
+     * Instantiate a standard scene.
+     *
+     * @param sceneName the name of the scene (one of {@link #sceneNames})
+     * @param numBodies the number of dynamic bodies (&ge;0)
+     * @return a new space containing the scene (not null)
+     */
+    public static PhysicsSpace createScene(String sceneName, int numBodies) {
+        PhysicsSpace result = createSpace();
+        switch (sceneName) {
+            case "boxes":
+                addGround(result);
+                addBoxPile(result, numBodies);
+                break;
+
+            case "spheres":
+                addGround(result);
+                addSpherePile(result, numBodies);
+                break;
+
+            case "terrain":
+                addTerrain(result);
+                addSpherePile(result, numBodies);
+                break;
+
+            default:
+                String message = "sceneName = " + sceneName;
+                throw new IllegalArgumentException(message);
+        }
+
+        return result;
+    }
+
+    /**
+     * Instantiate an empty space with a DBVT broadphase.
+     *
+     * @return a new space (not null)
+     */
+    public static PhysicsSpace createSpace() {
+        loadNativeLibrary();
+
+        Vector3f worldMin = new Vector3f(-1000f, -1000f, -1000f);
+        Vector3f worldMax = new Vector3f(1000f, 1000f, 1000f);
+        PhysicsSpace result = new PhysicsSpace(worldMin, worldMax,
+                PhysicsSpace.BroadphaseType.DBVT);
+
+        return result;
+    }
+
+    /**
+     * Generate a bumpy terrain grid that spans the ground.
+     *
+     * @param numLines the number of grid lines in each direction (&ge;2)
+     * @return a new Mesh (not null)
+     */
+    public static Mesh createTerrainMesh(int numLines) {
+        Mesh result = createGridMesh(numLines, groundHalfExtent, 1f);
+        return result;
+    }
+
+    /**
+     * Load the native library, if it hasn't already been loaded.
+     */
+    public static synchronized void loadNativeLibrary() {
+        if (!isLoaded) {
+            NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+            isLoaded = true;
+        }
+    }
+}
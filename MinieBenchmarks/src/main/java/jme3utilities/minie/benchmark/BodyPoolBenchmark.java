@@ -0,0 +1,157 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.benchmark;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsBodyPool;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare the per-frame cost of spawning and retiring projectiles with fresh
+ * bodies versus bodies recycled by a PhysicsBodyPool.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+public class BodyPoolBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(BodyPoolBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * projectiles spawned by the current invocation
+     */
+    private PhysicsRigidBody[] batch;
+    /**
+     * number of projectiles spawned and retired per invocation
+     */
+    @Param({"100", "1000"})
+    public int batchSize;
+    /**
+     * pool of recycled projectiles
+     */
+    private PhysicsBodyPool pool;
+    /**
+     * shape shared by all projectiles
+     */
+    private CollisionShape shape;
+    /**
+     * space the projectiles are added to
+     */
+    private PhysicsSpace space;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Create a fresh body for each projectile and discard it afterward.
+     *
+     * @return the number of projectiles retired (for the Blackhole)
+     */
+    @Benchmark
+    public int allocate() {
+        for (int i = 0; i < batchSize; ++i) {
+            batch[i] = new PhysicsRigidBody(shape, 1f);
+            space.addCollisionObject(batch[i]);
+        }
+        for (int i = 0; i < batchSize; ++i) {
+            space.removeCollisionObject(batch[i]);
+            batch[i] = null;
+        }
+
+        return batchSize;
+    }
+
+    /**
+     * Acquire each projectile from the pool and release it afterward.
+     *
+     * @return the number of projectiles retired (for the Blackhole)
+     */
+    @Benchmark
+    public int pooled() {
+        for (int i = 0; i < batchSize; ++i) {
+            batch[i] = pool.acquire();
+            space.addCollisionObject(batch[i]);
+        }
+        for (int i = 0; i < batchSize; ++i) {
+            pool.release(batch[i]);
+            batch[i] = null;
+        }
+
+        return batchSize;
+    }
+
+    /**
+     * Create the space and warm up the pool once per trial.
+     */
+    @Setup
+    public void setUp() {
+        space = BenchmarkScenes.createSpace();
+        shape = new SphereCollisionShape(0.1f);
+        batch = new PhysicsRigidBody[batchSize];
+        pool = new PhysicsBodyPool(shape, 1f, batchSize);
+        pool.warmUp(batchSize);
+    }
+
+    /**
+     * Report the pool's hit rate and destroy the space at the end of the
+     * trial.
+     */
+    @TearDown
+    public void tearDown() {
+        logger.info("hit rate = " + pool.hitRate());
+        space.destroy();
+        space = null;
+    }
+}
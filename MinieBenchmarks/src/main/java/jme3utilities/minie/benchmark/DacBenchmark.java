@@ -0,0 +1,195 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.benchmark;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.asset.ModelKey;
+import com.jme3.asset.plugins.ClasspathLocator;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.RotationOrder;
+import com.jme3.bullet.animation.CenterHeuristic;
+import com.jme3.bullet.animation.DynamicAnimControl;
+import com.jme3.bullet.animation.LinkConfig;
+import com.jme3.bullet.animation.MassHeuristic;
+import com.jme3.bullet.animation.RagUtils;
+import com.jme3.bullet.animation.RangeOfMotion;
+import com.jme3.bullet.animation.ShapeHeuristic;
+import com.jme3.export.binary.BinaryLoader;
+import com.jme3.material.plugins.J3MLoader;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.texture.plugins.AWTLoader;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the cost of setting up a DynamicAnimControl for the Jaime model:
+ * partitioning the mesh vertices among links, generating the link shapes,
+ * and adding the ragdoll to a PhysicsSpace.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+public class DacBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(DacBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * spatial to which the control is added
+     */
+    private Spatial controlledSpatial;
+    /**
+     * control being measured
+     */
+    private DynamicAnimControl dac;
+    /**
+     * loaded model, cloned for each invocation
+     */
+    private Node jaime;
+    /**
+     * shape heuristic for the links: "AABB" or "VertexHull"
+     */
+    @Param({"AABB", "VertexHull"})
+    public String shapeHeuristic;
+    /**
+     * space to which the ragdoll is added
+     */
+    private PhysicsSpace space;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Prepare a fresh clone of the model and an unattached control.
+     */
+    @Setup(Level.Invocation)
+    public void prepareInvocation() {
+        Node model = jaime.clone(true);
+        controlledSpatial = RagUtils.findSControl(model).getSpatial();
+        dac = createControl();
+    }
+
+    /**
+     * Remove the control and its ragdoll.
+     */
+    @TearDown(Level.Invocation)
+    public void removeControl() {
+        dac.setPhysicsSpace(null);
+        controlledSpatial.removeControl(dac);
+    }
+
+    /**
+     * Load the native library and the model, and create the space.
+     */
+    @Setup
+    public void setUp() {
+        space = BenchmarkScenes.createSpace();
+
+        AssetManager assetManager = new DesktopAssetManager();
+        assetManager.registerLoader(AWTLoader.class, "jpg", "png");
+        assetManager.registerLoader(BinaryLoader.class, "j3o");
+        assetManager.registerLoader(J3MLoader.class, "j3m", "j3md");
+        assetManager.registerLocator(null, ClasspathLocator.class);
+
+        ModelKey key = new ModelKey("Models/Jaime/Jaime.j3o");
+        jaime = (Node) assetManager.loadModel(key);
+    }
+
+    /**
+     * Add the control to the model and the ragdoll to the space.
+     */
+    @Benchmark
+    public void setUpDac() {
+        controlledSpatial.addControl(dac);
+        dac.setPhysicsSpace(space);
+    }
+
+    /**
+     * Destroy the space.
+     */
+    @TearDown
+    public void tearDown() {
+        space.destroy();
+        space = null;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Instantiate a control for Jaime, linking the principal bones.
+     *
+     * @return a new control (not null, not added to any spatial)
+     */
+    private DynamicAnimControl createControl() {
+        ShapeHeuristic heuristic = ShapeHeuristic.valueOf(shapeHeuristic);
+        LinkConfig config = new LinkConfig(0.005f, MassHeuristic.Mass,
+                heuristic, new Vector3f(1f, 1f, 1f), CenterHeuristic.Mean,
+                RotationOrder.XZY);
+        RangeOfMotion rom = new RangeOfMotion(0.5f);
+
+        DynamicAnimControl result = new DynamicAnimControl();
+        result.setConfig(DynamicAnimControl.torsoName, config);
+        String[] boneNames = {
+            "spine", "ribs", "head",
+            "upper_arm.L", "forearm.L", "hand.L",
+            "upper_arm.R", "forearm.R", "hand.R",
+            "thigh.L", "shin.L", "foot.L",
+            "thigh.R", "shin.R", "foot.R"
+        };
+        for (String boneName : boneNames) {
+            result.link(boneName, config, rom);
+        }
+
+        return result;
+    }
+}
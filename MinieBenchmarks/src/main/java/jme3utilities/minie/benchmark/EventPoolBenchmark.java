@@ -0,0 +1,151 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.benchmark;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.Activation;
+import com.jme3.bullet.collision.PhysicsCollisionEvent;
+import com.jme3.bullet.collision.PhysicsCollisionListener;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the cost (and especially the heap allocation) of simulating and
+ * distributing ongoing-collision events for a pile of 1000 boxes, with and
+ * without the event pool.
+ * <p>
+ * Run with the GC profiler (as the runBenchmarks task does) and compare the
+ * gc.alloc.rate.norm results: with the pool in use, steady-state allocation
+ * per step should be zero. Deactivation is disabled so that contacts (and
+ * hence events) persist after the pile settles.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+public class EventPoolBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of boxes in the pile
+     */
+    final private static int numBodies = 1000;
+    /**
+     * number of steps simulated during setup, to let the pile settle and the
+     * pool fill up
+     */
+    final private static int numSettlingSteps = 300;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(EventPoolBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * accumulated impulse, to keep the listener from being optimized away
+     */
+    private double totalImpulse = 0.0;
+    /**
+     * space being simulated
+     */
+    private PhysicsSpace space;
+    /**
+     * true to recycle collision events, false to allocate them
+     */
+    @Param({"false", "true"})
+    public boolean usePool;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Build the pile, register a listener, and let the pile settle, once per
+     * trial.
+     */
+    @Setup
+    public void setUp() {
+        space = BenchmarkScenes.createScene("boxes", numBodies);
+        for (PhysicsRigidBody body : space.getRigidBodyList()) {
+            body.setActivationState(Activation.exempt);
+        }
+
+        space.useEventPool(usePool);
+        space.addOngoingCollisionListener(new PhysicsCollisionListener() {
+            @Override
+            public void collision(PhysicsCollisionEvent event) {
+                totalImpulse += event.getAppliedImpulse();
+            }
+        });
+
+        float timeStep = space.getAccuracy();
+        for (int step = 0; step < numSettlingSteps; ++step) {
+            space.update(timeStep, 0);
+            space.distributeEvents();
+        }
+    }
+
+    /**
+     * Simulate a single step and distribute its events.
+     *
+     * @return the accumulated impulse (for the Blackhole)
+     */
+    @Benchmark
+    public double step() {
+        space.update(space.getAccuracy(), 0);
+        space.distributeEvents();
+
+        return totalImpulse;
+    }
+
+    /**
+     * Destroy the scene at the end of the trial.
+     */
+    @TearDown
+    public void tearDown() {
+        space.destroy();
+        space = null;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.benchmark;
+
+import com.jme3.bullet.util.ConcurrentLongMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare the ConcurrentHashMap&lt;Long, ...&gt; registries that Minie used to
+ * keep with the ConcurrentLongMap that replaced them.
+ * <p>
+ * Throughput is reported as average time per operation over all keys. For
+ * memory, run with "-prof gc": the normalized allocation rate
+ * (gc.alloc.rate.norm) of the fill benchmark approximates the footprint of a
+ * fully-populated map, and that of the other benchmarks shows how much
+ * garbage boxing generates. No native library is needed.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+public class LongMapBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(LongMapBenchmark.class.getName());
+    /**
+     * value stored in every mapping
+     */
+    final private static Object dummyValue = new Object();
+    // *************************************************************************
+    // fields
+
+    /**
+     * populated map for lookups, if mapType is "boxed"
+     */
+    private Map<Long, Object> boxedMap;
+    /**
+     * keys resembling native IDs: 16-byte aligned addresses, scattered
+     */
+    private long[] keys;
+    /**
+     * which implementation to measure: "boxed" for ConcurrentHashMap or
+     * "primitive" for ConcurrentLongMap
+     */
+    @Param({"boxed", "primitive"})
+    public String mapType;
+    /**
+     * number of mappings
+     */
+    @Param({"1000", "100000"})
+    public int numEntries;
+    /**
+     * populated map for lookups, if mapType is "primitive"
+     */
+    private ConcurrentLongMap<Object> primitiveMap;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add all keys to an empty map, then remove them, as happens when a scene
+     * is loaded and then unloaded.
+     *
+     * @return the final map size (for the Blackhole)
+     */
+    @Benchmark
+    public int addRemove() {
+        int result;
+        if (primitiveMap != null) {
+            ConcurrentLongMap<Object> map = new ConcurrentLongMap<>(64);
+            for (long key : keys) {
+                map.put(key, dummyValue);
+            }
+            for (long key : keys) {
+                map.remove(key);
+            }
+            result = map.size();
+
+        } else {
+            Map<Long, Object> map = new ConcurrentHashMap<>(64);
+            for (long key : keys) {
+                map.put(key, dummyValue);
+            }
+            for (long key : keys) {
+                map.remove(key);
+            }
+            result = map.size();
+        }
+
+        return result;
+    }
+
+    /**
+     * Build a fully-populated map. With "-prof gc", the bytes allocated per
+     * operation approximate the map's footprint.
+     *
+     * @return the new map (for the Blackhole)
+     */
+    @Benchmark
+    public Map<Long, Object> fill() {
+        Map<Long, Object> result;
+        if (primitiveMap != null) {
+            ConcurrentLongMap<Object> map = new ConcurrentLongMap<>(64);
+            for (long key : keys) {
+                map.put(key, dummyValue);
+            }
+            result = map;
+
+        } else {
+            result = new ConcurrentHashMap<>(64);
+            for (long key : keys) {
+                result.put(key, dummyValue);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Look up every key in a populated map.
+     *
+     * @return the number of keys found (for the Blackhole)
+     */
+    @Benchmark
+    public int get() {
+        int result = 0;
+        if (primitiveMap != null) {
+            for (long key : keys) {
+                if (primitiveMap.get(key) != null) {
+                    ++result;
+                }
+            }
+        } else {
+            for (long key : keys) {
+                if (boxedMap.get(key) != null) {
+                    ++result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Iterate over the values of a populated map.
+     *
+     * @return the number of values visited (for the Blackhole)
+     */
+    @Benchmark
+    public int iterate() {
+        int result = 0;
+        Map<Long, Object> map
+                = (primitiveMap != null) ? primitiveMap : boxedMap;
+        for (Object value : map.values()) {
+            if (value != null) {
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate the keys and populate the lookup map.
+     */
+    @Setup
+    public void setUp() {
+        keys = new long[numEntries];
+        long address = 0x7f3a_2000_0000L;
+        for (int i = 0; i < numEntries; ++i) {
+            address += 16L * (1 + (i * 7919) % 23);
+            keys[i] = address;
+        }
+
+        boxedMap = null;
+        primitiveMap = null;
+        switch (mapType) {
+            case "boxed":
+                boxedMap = new ConcurrentHashMap<>(64);
+                for (long key : keys) {
+                    boxedMap.put(key, dummyValue);
+                }
+                break;
+
+            case "primitive":
+                primitiveMap = new ConcurrentLongMap<>(64);
+                for (long key : keys) {
+                    primitiveMap.put(key, dummyValue);
+                }
+                break;
+
+            default:
+                throw new IllegalArgumentException("mapType = " + mapType);
+        }
+    }
+}
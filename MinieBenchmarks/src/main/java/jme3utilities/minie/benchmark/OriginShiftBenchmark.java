@@ -0,0 +1,128 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.benchmark;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.math.Vector3f;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the cost of PhysicsSpace.shiftOrigin() on large piles of boxes.
+ * <p>
+ * Successive invocations shift the origin back and forth, so the bodies
+ * never drift far from where they started.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+public class OriginShiftBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(OriginShiftBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * location of the new origin for forward shifts
+     */
+    final private Vector3f forwardOrigin = new Vector3f(1000f, 0f, -1000f);
+    /**
+     * number of dynamic bodies in the scene
+     */
+    @Param({"10000", "100000"})
+    public int numBodies;
+    /**
+     * true if the next shift should be in the negative direction
+     */
+    private boolean reverse = false;
+    /**
+     * location of the new origin for reverse shifts
+     */
+    final private Vector3f reverseOrigin = forwardOrigin.negate();
+    /**
+     * space being shifted
+     */
+    private PhysicsSpace space;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Build the scene once per trial, since large piles are slow to build.
+     */
+    @Setup
+    public void setUp() {
+        space = BenchmarkScenes.createSpace();
+        BenchmarkScenes.addGround(space);
+        BenchmarkScenes.addBoxPile(space, numBodies);
+    }
+
+    /**
+     * Shift the origin of the entire space.
+     *
+     * @return the number of objects relocated (for the Blackhole)
+     */
+    @Benchmark
+    public int shiftOrigin() {
+        Vector3f newOrigin = reverse ? reverseOrigin : forwardOrigin;
+        reverse = !reverse;
+        int result = space.shiftOrigin(newOrigin);
+
+        return result;
+    }
+
+    /**
+     * Destroy the scene at the end of the trial.
+     */
+    @TearDown
+    public void tearDown() {
+        space.destroy();
+        space = null;
+    }
+}
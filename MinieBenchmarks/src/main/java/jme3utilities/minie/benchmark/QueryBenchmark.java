@@ -0,0 +1,261 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.benchmark;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.PhysicsRayTestResult;
+import com.jme3.bullet.collision.PhysicsSweepTestResult;
+import com.jme3.bullet.collision.shapes.ConvexShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the cost of ray and sweep tests against the "terrain" scene.
+ * <p>
+ * The result lists are re-used, so the allocation rates reported by the GC
+ * profiler reflect allocations made by the queries themselves.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class QueryBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of distinct query paths to cycle through
+     */
+    final private static int numPaths = 256;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(QueryBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * starting and ending locations of all query paths, for batched ray tests
+     */
+    private FloatBuffer batchEndpoints;
+    /**
+     * closest hit fraction of each path, from batched ray tests
+     */
+    private FloatBuffer batchFractions;
+    /**
+     * ID of the closest object hit along each path, from batched ray tests
+     */
+    private LongBuffer batchIds;
+    /**
+     * ending location of each query path
+     */
+    final private Vector3f[] ends = new Vector3f[numPaths];
+    /**
+     * ending transform of each query path
+     */
+    final private Transform[] endTransforms = new Transform[numPaths];
+    /**
+     * index of the next query path to use
+     */
+    private int pathIndex = 0;
+    /**
+     * re-used list of ray-test results
+     */
+    final private List<PhysicsRayTestResult> rayResults = new ArrayList<>(16);
+    /**
+     * space being queried
+     */
+    private PhysicsSpace space;
+    /**
+     * starting location of each query path
+     */
+    final private Vector3f[] starts = new Vector3f[numPaths];
+    /**
+     * starting transform of each query path
+     */
+    final private Transform[] startTransforms = new Transform[numPaths];
+    /**
+     * re-used list of sweep-test results
+     */
+    final private List<PhysicsSweepTestResult> sweepResults
+            = new ArrayList<>(16);
+    /**
+     * convex shape for sweep tests
+     */
+    private SphereCollisionShape sweepShape;
+    /**
+     * the sweep shape, in an array for batched sweep tests
+     */
+    private ConvexShape[] sweepShapes;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Perform a ray test and sort the results.
+     *
+     * @return the results (for the Blackhole)
+     */
+    @Benchmark
+    public List<PhysicsRayTestResult> rayTest() {
+        int index = nextPath();
+        List<PhysicsRayTestResult> result
+                = space.rayTest(starts[index], ends[index], rayResults);
+
+        return result;
+    }
+
+    /**
+     * Perform a batch of ray tests, one per query path, recording only the
+     * closest hit of each.
+     *
+     * @return the number of hits (for the Blackhole)
+     */
+    @Benchmark
+    public int rayTestClosest() {
+        int result = space.rayTestClosest(batchEndpoints, numPaths, null,
+                batchFractions, null, batchIds);
+        return result;
+    }
+
+    /**
+     * Perform a ray test without sorting the results.
+     *
+     * @return the results (for the Blackhole)
+     */
+    @Benchmark
+    public List<PhysicsRayTestResult> rayTestRaw() {
+        int index = nextPath();
+        List<PhysicsRayTestResult> result
+                = space.rayTestRaw(starts[index], ends[index], rayResults);
+
+        return result;
+    }
+
+    /**
+     * Build the scene and generate the query paths: vertical segments that
+     * pass through the pile of spheres and end below the terrain.
+     */
+    @Setup
+    public void setUp() {
+        space = BenchmarkScenes.createScene("terrain", 1000);
+        sweepShape = new SphereCollisionShape(0.25f);
+        sweepShapes = new ConvexShape[]{sweepShape};
+
+        for (int index = 0; index < numPaths; ++index) {
+            float x = (index % 16 - 7.5f) * 0.7f;
+            float z = (index / 16 - 7.5f) * 0.7f;
+            starts[index] = new Vector3f(x, 20f, z);
+            ends[index] = new Vector3f(x, -5f, z);
+            startTransforms[index] = new Transform(starts[index]);
+            endTransforms[index] = new Transform(ends[index]);
+        }
+
+        batchEndpoints = BufferUtils.createFloatBuffer(6 * numPaths);
+        for (int index = 0; index < numPaths; ++index) {
+            batchEndpoints.put(starts[index].x).put(starts[index].y)
+                    .put(starts[index].z);
+            batchEndpoints.put(ends[index].x).put(ends[index].y)
+                    .put(ends[index].z);
+        }
+        batchFractions = BufferUtils.createFloatBuffer(numPaths);
+        batchIds = LongBuffer.allocate(numPaths);
+    }
+
+    /**
+     * Perform a sweep test with a sphere.
+     *
+     * @return the results (for the Blackhole)
+     */
+    @Benchmark
+    public List<PhysicsSweepTestResult> sweepTest() {
+        int index = nextPath();
+        List<PhysicsSweepTestResult> result = space.sweepTest(sweepShape,
+                startTransforms[index], endTransforms[index], sweepResults);
+
+        return result;
+    }
+
+    /**
+     * Perform a batch of sweep tests, one per query path, recording only the
+     * closest hit of each.
+     *
+     * @return the number of hits (for the Blackhole)
+     */
+    @Benchmark
+    public int sweepTestClosest() {
+        int result = space.sweepTestClosest(sweepShapes, startTransforms,
+                endTransforms, numPaths, null, 0f, batchFractions, null,
+                batchIds);
+        return result;
+    }
+
+    /**
+     * Destroy the scene.
+     */
+    @TearDown
+    public void tearDown() {
+        space.destroy();
+        space = null;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Select the next query path.
+     *
+     * @return the path index (&ge;0, &lt;numPaths)
+     */
+    private int nextPath() {
+        int result = pathIndex;
+        pathIndex = (pathIndex + 1) % numPaths;
+
+        return result;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.benchmark;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.HullCollisionShape;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.util.DebugShapeFactory;
+import com.jme3.scene.Mesh;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jme3utilities.mesh.Icosphere;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the cost of constructing mesh-based collision shapes and of
+ * generating their debug meshes.
+ * <p>
+ * Shapes created during measurement are freed by the Physics Cleaner thread
+ * once they become unreachable.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+public class ShapeBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ShapeBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * pre-built hull shape for debug-mesh generation
+     */
+    private CollisionShape hullShape;
+    /**
+     * source mesh for hull shapes
+     */
+    private Mesh hullSource;
+    /**
+     * pre-built mesh shape for debug-mesh generation
+     */
+    private CollisionShape meshShape;
+    /**
+     * source mesh for mesh shapes
+     */
+    private Mesh meshSource;
+    /**
+     * number of grid lines in each direction of the terrain mesh, which
+     * determines its complexity
+     */
+    @Param({"16", "64"})
+    public int numLines;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Generate a debug mesh for a hull shape.
+     *
+     * @return the new mesh (for the Blackhole)
+     */
+    @Benchmark
+    public Mesh hullDebugMesh() {
+        Mesh result = DebugShapeFactory.getDebugMesh(hullShape);
+        return result;
+    }
+
+    /**
+     * Construct a HullCollisionShape from a refined icosphere.
+     *
+     * @return the new shape (for the Blackhole)
+     */
+    @Benchmark
+    public CollisionShape hullShape() {
+        CollisionShape result = new HullCollisionShape(hullSource);
+        return result;
+    }
+
+    /**
+     * Generate a debug mesh for a mesh shape.
+     *
+     * @return the new mesh (for the Blackhole)
+     */
+    @Benchmark
+    public Mesh meshDebugMesh() {
+        Mesh result = DebugShapeFactory.getDebugMesh(meshShape);
+        return result;
+    }
+
+    /**
+     * Construct a compressed MeshCollisionShape from a terrain mesh, including
+     * its bounding-value hierarchy.
+     *
+     * @return the new shape (for the Blackhole)
+     */
+    @Benchmark
+    public CollisionShape meshShape() {
+        CollisionShape result = new MeshCollisionShape(meshSource, true);
+        return result;
+    }
+
+    /**
+     * Generate the source meshes and pre-build one shape of each type.
+     */
+    @Setup
+    public void setUp() {
+        BenchmarkScenes.loadNativeLibrary();
+
+        int numRefineSteps = (numLines > 16) ? 3 : 2;
+        hullSource = new Icosphere(numRefineSteps, 1f);
+        hullShape = new HullCollisionShape(hullSource);
+
+        meshSource = BenchmarkScenes.createTerrainMesh(numLines);
+        meshShape = new MeshCollisionShape(meshSource, true);
+    }
+}
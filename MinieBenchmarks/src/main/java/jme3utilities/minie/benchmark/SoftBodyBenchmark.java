@@ -0,0 +1,149 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.benchmark;
+
+import com.jme3.bullet.PhysicsSoftSpace;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.bullet.util.NativeSoftBodyUtil;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jme3utilities.mesh.Icosphere;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the cost of copying soft-body node locations (and optionally
+ * normals) into a JME mesh, as SoftBodyControl does once per frame.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class SoftBodyBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SoftBodyBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * soft body whose nodes are copied
+     */
+    private PhysicsSoftBody body;
+    /**
+     * mesh to update (vertex indices equal node indices)
+     */
+    private Mesh mesh;
+    /**
+     * number of icosphere refinement steps, which determines the node count
+     */
+    @Param({"2", "4"})
+    public int numRefineSteps;
+    /**
+     * space containing the soft body
+     */
+    private PhysicsSoftSpace space;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Build a deformed ball by dropping it onto the ground.
+     */
+    @Setup
+    public void setUp() {
+        BenchmarkScenes.loadNativeLibrary();
+        Vector3f worldMin = new Vector3f(-100f, -100f, -100f);
+        Vector3f worldMax = new Vector3f(100f, 100f, 100f);
+        space = new PhysicsSoftSpace(worldMin, worldMax,
+                PhysicsSpace.BroadphaseType.DBVT);
+        BenchmarkScenes.addGround(space);
+
+        mesh = new Icosphere(numRefineSteps, 1f);
+        if (mesh.getBuffer(VertexBuffer.Type.Normal) == null) {
+            int numFloats = 3 * mesh.getVertexCount();
+            FloatBuffer normals = BufferUtils.createFloatBuffer(numFloats);
+            mesh.setBuffer(VertexBuffer.Type.Normal, 3, normals);
+        }
+
+        body = new PhysicsSoftBody();
+        NativeSoftBodyUtil.appendFromTriMesh(mesh, body);
+        body.setPhysicsLocation(new Vector3f(0f, 2f, 0f));
+        space.addCollisionObject(body);
+        for (int step = 0; step < 60; ++step) {
+            space.update(1f / 60, 0);
+        }
+    }
+
+    /**
+     * Destroy the space.
+     */
+    @TearDown
+    public void tearDown() {
+        space.destroy();
+        space = null;
+    }
+
+    /**
+     * Update positions and normals in local coordinates.
+     */
+    @Benchmark
+    public void updateLocal() {
+        NativeSoftBodyUtil.updateMesh(body, null, mesh, true, true, null);
+    }
+
+    /**
+     * Update positions only, in physics-space coordinates.
+     */
+    @Benchmark
+    public void updatePositions() {
+        NativeSoftBodyUtil.updateMesh(body, null, mesh, false, false, null);
+    }
+}
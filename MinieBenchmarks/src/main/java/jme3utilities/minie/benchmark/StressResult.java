@@ -0,0 +1,226 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.benchmark;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Measurements from a single stress-test run. Package-private.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class StressResult {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * header line for CSV output
+     */
+    final static String csvHeader = "scene,scale,collisionObjects,joints,"
+            + "ticks,stepsPerSecond,meanMicros,p50Micros,p90Micros,p99Micros,"
+            + "maxMicros,allocatedBytesPerTick,nativeObjects,"
+            + "nativeObjectsAfter";
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(StressResult.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * bytes allocated on the simulating thread during measurement, or -1 if
+     * unknown
+     */
+    final private long allocatedBytes;
+    /**
+     * number of collision objects in the scene
+     */
+    final private int numCollisionObjects;
+    /**
+     * number of joints in the scene
+     */
+    final private int numJoints;
+    /**
+     * number of tracked native objects after the scene was simulated
+     */
+    final private int numTrackersAfter;
+    /**
+     * number of tracked native objects after the scene was built
+     */
+    final private int numTrackersBefore;
+    /**
+     * scale factor of the scene
+     */
+    final private int scale;
+    /**
+     * name of the scene
+     */
+    final private String sceneName;
+    /**
+     * duration of each measured step (in nanoseconds, sorted in ascending
+     * order)
+     */
+    final private long[] stepNanos;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a result.
+     *
+     * @param sceneName the name of the scene (not null)
+     * @param scale the scale factor of the scene (&ge;1)
+     * @param numCollisionObjects the number of collision objects (&ge;0)
+     * @param numJoints the number of joints (&ge;0)
+     * @param stepNanos the duration of each measured step (not null, not
+     * empty, modified)
+     * @param allocatedBytes bytes allocated during measurement, or -1 if
+     * unknown
+     * @param numTrackersBefore the number of tracked native objects before
+     * simulation (&ge;0)
+     * @param numTrackersAfter the number of tracked native objects after
+     * simulation (&ge;0)
+     */
+    StressResult(String sceneName, int scale, int numCollisionObjects,
+            int numJoints, long[] stepNanos, long allocatedBytes,
+            int numTrackersBefore, int numTrackersAfter) {
+        Validate.nonNull(sceneName, "scene name");
+        Validate.positive(stepNanos.length, "number of steps");
+
+        this.sceneName = sceneName;
+        this.scale = scale;
+        this.numCollisionObjects = numCollisionObjects;
+        this.numJoints = numJoints;
+        this.stepNanos = stepNanos;
+        Arrays.sort(stepNanos);
+        this.allocatedBytes = allocatedBytes;
+        this.numTrackersBefore = numTrackersBefore;
+        this.numTrackersAfter = numTrackersAfter;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Determine the mean number of bytes allocated per tick.
+     *
+     * @return the mean (&ge;0) or -1 if unknown
+     */
+    long allocatedBytesPerTick() {
+        long result = -1L;
+        if (allocatedBytes >= 0L) {
+            result = allocatedBytes / stepNanos.length;
+        }
+
+        return result;
+    }
+
+    /**
+     * Determine the mean step duration.
+     *
+     * @return the mean (in microseconds, &ge;0)
+     */
+    double meanMicros() {
+        double total = 0.0;
+        for (long nanos : stepNanos) {
+            total += nanos;
+        }
+        double result = total / stepNanos.length / 1000.0;
+
+        return result;
+    }
+
+    /**
+     * Determine the specified percentile of the step duration, using the
+     * nearest-rank method.
+     *
+     * @param fraction the fraction of steps at or below the result (&gt;0,
+     * &le;1)
+     * @return the duration (in microseconds, &ge;0)
+     */
+    double percentileMicros(double fraction) {
+        Validate.inRange(fraction, "fraction", Double.MIN_VALUE, 1.0);
+
+        int numSteps = stepNanos.length;
+        int rank = (int) Math.ceil(fraction * numSteps);
+        int index = Math.max(0, Math.min(numSteps, rank) - 1);
+        double result = stepNanos[index] / 1000.0;
+
+        return result;
+    }
+
+    /**
+     * Determine the simulation throughput.
+     *
+     * @return the number of steps per second of wall-clock time (&gt;0)
+     */
+    double stepsPerSecond() {
+        double result = 1e6 / meanMicros();
+        return result;
+    }
+
+    /**
+     * Represent this result as a line of comma-separated values, in the order
+     * of {@link #csvHeader}.
+     *
+     * @return a line of text (not null, no line terminator)
+     */
+    String toCsv() {
+        String result = String.format(Locale.ROOT,
+                "%s,%d,%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%d,%d",
+                sceneName, scale, numCollisionObjects, numJoints,
+                stepNanos.length, stepsPerSecond(), meanMicros(),
+                percentileMicros(0.5), percentileMicros(0.9),
+                percentileMicros(0.99), percentileMicros(1.0),
+                allocatedBytesPerTick(), numTrackersBefore, numTrackersAfter);
+
+        return result;
+    }
+
+    /**
+     * Represent this result as a JSON object.
+     *
+     * @return a string of text (not null, no line terminator)
+     */
+    String toJson() {
+        String result = String.format(Locale.ROOT, "{\"scene\": \"%s\", "
+                + "\"scale\": %d, \"collisionObjects\": %d, \"joints\": %d, "
+                + "\"ticks\": %d, \"stepsPerSecond\": %.1f, "
+                + "\"meanMicros\": %.1f, \"p50Micros\": %.1f, "
+                + "\"p90Micros\": %.1f, \"p99Micros\": %.1f, "
+                + "\"maxMicros\": %.1f, \"allocatedBytesPerTick\": %d, "
+                + "\"nativeObjects\": %d, \"nativeObjectsAfter\": %d}",
+                sceneName, scale, numCollisionObjects, numJoints,
+                stepNanos.length, stepsPerSecond(), meanMicros(),
+                percentileMicros(0.5), percentileMicros(0.9),
+                percentileMicros(0.99), percentileMicros(1.0),
+                allocatedBytesPerTick(), numTrackersBefore, numTrackersAfter);
+
+        return result;
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.benchmark;
+
+import com.jme3.bullet.MultiBody;
+import com.jme3.bullet.MultiBodyLink;
+import com.jme3.bullet.MultiBodySpace;
+import com.jme3.bullet.PhysicsSoftSpace;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.CapsuleCollisionShape;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.joints.ConeJoint;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.bullet.objects.PhysicsVehicle;
+import com.jme3.bullet.util.NativeSoftBodyUtil;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import java.util.logging.Logger;
+
+/**
+ * Utility methods to construct the scenes used by the headless stress test.
+ * The size of each scene is proportional to a scale factor, and each scene
+ * is deterministic, so that results are comparable between Minie releases.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class StressScenes {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(StressScenes.class.getName());
+    /**
+     * names of the stress-test scenes
+     */
+    final public static String[] sceneNames = {
+        "boxPile", "compoundStack", "ragdollCrowd", "clothGrid",
+        "vehicleFleet", "multibodyChain"
+    };
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private StressScenes() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add a pile of 100*scale dynamic boxes.
+     *
+     * @param space the space to add to (not null, modified)
+     * @param scale the scale factor (&ge;1)
+     */
+    public static void addBoxPile(PhysicsSpace space, int scale) {
+        BenchmarkScenes.addBoxPile(space, 100 * scale);
+    }
+
+    /**
+     * Add 4*scale pieces of cloth, each pinned at 2 corners.
+     *
+     * @param space the space to add to (not null, modified)
+     * @param scale the scale factor (&ge;1)
+     */
+    public static void addClothGrids(PhysicsSoftSpace space, int scale) {
+        int numLines = 16;
+        Mesh grid = BenchmarkScenes.createGridMesh(numLines, 1.5f, 0f);
+        int numCloths = 4 * scale;
+        for (int clothIndex = 0; clothIndex < numCloths; ++clothIndex) {
+            PhysicsSoftBody cloth = new PhysicsSoftBody();
+            NativeSoftBodyUtil.appendFromTriMesh(grid, cloth);
+            cloth.setMass(1f);
+            cloth.setNodeMass(0, PhysicsRigidBody.massForStatic);
+            cloth.setNodeMass(numLines - 1, PhysicsRigidBody.massForStatic);
+
+            float x = 4f * (clothIndex % 10 - 4.5f);
+            float z = 4f * (clothIndex / 10);
+            cloth.setPhysicsLocation(new Vector3f(x, 4f, z));
+            space.addCollisionObject(cloth);
+        }
+    }
+
+    /**
+     * Add 10*scale towers, each consisting of 10 table-shaped compound
+     * bodies.
+     *
+     * @param space the space to add to (not null, modified)
+     * @param scale the scale factor (&ge;1)
+     */
+    public static void addCompoundStacks(PhysicsSpace space, int scale) {
+        CompoundCollisionShape table = new CompoundCollisionShape(5);
+        CollisionShape top = new BoxCollisionShape(new Vector3f(1f, 0.1f, 1f));
+        table.addChildShape(top, 0f, 0.4f, 0f);
+        CollisionShape leg = new BoxCollisionShape(new Vector3f(0.1f, 0.3f,
+                0.1f));
+        table.addChildShape(leg, 0.8f, 0f, 0.8f);
+        table.addChildShape(leg, -0.8f, 0f, 0.8f);
+        table.addChildShape(leg, 0.8f, 0f, -0.8f);
+        table.addChildShape(leg, -0.8f, 0f, -0.8f);
+
+        int numTowers = 10 * scale;
+        for (int towerIndex = 0; towerIndex < numTowers; ++towerIndex) {
+            float x = 3f * (towerIndex % 10 - 4.5f);
+            float z = 3f * (towerIndex / 10);
+            for (int level = 0; level < 10; ++level) {
+                float y = 0.3f + 0.8f * level;
+                PhysicsRigidBody body = new PhysicsRigidBody(table, 1f);
+                body.setPhysicsLocation(new Vector3f(x, y, z));
+                space.addCollisionObject(body);
+            }
+        }
+    }
+
+    /**
+     * Add 5*scale chains, each consisting of a fixed base and 10 links
+     * connected by revolute joints.
+     *
+     * @param space the space to add to (not null, modified)
+     * @param scale the scale factor (&ge;1)
+     */
+    public static void addMultiBodyChains(MultiBodySpace space, int scale) {
+        int numLinks = 10;
+        float mass = 1f;
+        Vector3f inertia = new Vector3f(0.1f, 0.1f, 0.1f);
+        CollisionShape linkShape = new BoxCollisionShape(0.1f, 0.4f, 0.1f);
+        Vector3f axis = new Vector3f(0f, 0f, 1f);
+        Vector3f parent2Pivot = new Vector3f(0f, -0.45f, 0f);
+        Vector3f pivot2Link = new Vector3f(0f, -0.45f, 0f);
+        Quaternion tilt = new Quaternion().fromAngles(0f, 0f, 0.3f);
+
+        int numChains = 5 * scale;
+        for (int chainIndex = 0; chainIndex < numChains; ++chainIndex) {
+            MultiBody chain
+                    = new MultiBody(numLinks, mass, inertia, true, true);
+            chain.addBaseCollider(linkShape);
+            float x = 2f * (chainIndex % 10 - 4.5f);
+            float z = 2f * (chainIndex / 10);
+            chain.setBaseLocation(new Vector3f(x, 12f, z));
+
+            MultiBodyLink parent = null;
+            for (int linkIndex = 0; linkIndex < numLinks; ++linkIndex) {
+                Quaternion orientation
+                        = (linkIndex == 0) ? tilt : Quaternion.IDENTITY;
+                MultiBodyLink link = chain.configureRevoluteLink(mass,
+                        inertia, parent, orientation, axis, parent2Pivot,
+                        pivot2Link, true);
+                link.addCollider(linkShape);
+                parent = link;
+            }
+            space.add(chain);
+        }
+    }
+
+    /**
+     * Add 10*scale ragdolls, each consisting of 11 capsules connected by cone
+     * joints.
+     *
+     * @param space the space to add to (not null, modified)
+     * @param scale the scale factor (&ge;1)
+     */
+    public static void addRagdollCrowd(PhysicsSpace space, int scale) {
+        int numRagdolls = 10 * scale;
+        for (int index = 0; index < numRagdolls; ++index) {
+            float x = 2f * (index % 10 - 4.5f);
+            float z = 2f * (index / 10);
+            addRagdoll(space, new Vector3f(x, 3f, z));
+        }
+    }
+
+    /**
+     * Add 10*scale four-wheeled vehicles, each driving forward under
+     * constant engine force.
+     *
+     * @param space the space to add to (not null, modified)
+     * @param scale the scale factor (&ge;1)
+     */
+    public static void addVehicleFleet(PhysicsSpace space, int scale) {
+        CollisionShape chassis
+                = new BoxCollisionShape(new Vector3f(0.6f, 0.3f, 1.2f));
+        Vector3f direction = new Vector3f(0f, -1f, 0f);
+        Vector3f axle = new Vector3f(-1f, 0f, 0f);
+        float restLength = 0.3f;
+        float radius = 0.4f;
+
+        int numVehicles = 10 * scale;
+        for (int index = 0; index < numVehicles; ++index) {
+            PhysicsVehicle vehicle = new PhysicsVehicle(chassis, 400f);
+            float x = 3f * (index % 10 - 4.5f);
+            float z = 4f * (index / 10) - 40f;
+            vehicle.setPhysicsLocation(new Vector3f(x, 1.5f, z));
+            space.addCollisionObject(vehicle);
+
+            vehicle.addWheel(new Vector3f(0.7f, 0f, 1f), direction, axle,
+                    restLength, radius, true);
+            vehicle.addWheel(new Vector3f(-0.7f, 0f, 1f), direction, axle,
+                    restLength, radius, true);
+            vehicle.addWheel(new Vector3f(0.7f, 0f, -1f), direction, axle,
+                    restLength, radius, false);
+            vehicle.addWheel(new Vector3f(-0.7f, 0f, -1f), direction, axle,
+                    restLength, radius, false);
+            vehicle.accelerate(500f);
+        }
+    }
+
+    /**
+     * Instantiate a stress-test scene.
+     *
+     * @param sceneName the name of the scene (one of {@link #sceneNames})
+     * @param scale the scale factor (&ge;1)
+     * @return a new space containing the scene (not null)
+     */
+    public static PhysicsSpace createScene(String sceneName, int scale) {
+        BenchmarkScenes.loadNativeLibrary();
+
+        Vector3f worldMin = new Vector3f(-1000f, -1000f, -1000f);
+        Vector3f worldMax = new Vector3f(1000f, 1000f, 1000f);
+        PhysicsSpace.BroadphaseType broadphase
+                = PhysicsSpace.BroadphaseType.DBVT;
+        PhysicsSpace result;
+        switch (sceneName) {
+            case "boxPile":
+                result = BenchmarkScenes.createSpace();
+                BenchmarkScenes.addGround(result);
+                addBoxPile(result, scale);
+                break;
+
+            case "clothGrid":
+                PhysicsSoftSpace softSpace
+                        = new PhysicsSoftSpace(worldMin, worldMax, broadphase);
+                BenchmarkScenes.addGround(softSpace);
+                addClothGrids(softSpace, scale);
+                result = softSpace;
+                break;
+
+            case "compoundStack":
+                result = BenchmarkScenes.createSpace();
+                BenchmarkScenes.addGround(result);
+                addCompoundStacks(result, scale);
+                break;
+
+            case "multibodyChain":
+                MultiBodySpace multiBodySpace
+                        = new MultiBodySpace(worldMin, worldMax, broadphase);
+                BenchmarkScenes.addGround(multiBodySpace);
+                addMultiBodyChains(multiBodySpace, scale);
+                result = multiBodySpace;
+                break;
+
+            case "ragdollCrowd":
+                result = BenchmarkScenes.createSpace();
+                BenchmarkScenes.addGround(result);
+                addRagdollCrowd(result, scale);
+                break;
+
+            case "vehicleFleet":
+                result = BenchmarkScenes.createSpace();
+                BenchmarkScenes.addGround(result);
+                addVehicleFleet(result, scale);
+                break;
+
+            default:
+                String message = "sceneName = " + sceneName;
+                throw new IllegalArgumentException(message);
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add a single ragdoll part.
+     *
+     * @param space the space to add to (not null, modified)
+     * @param shape the shape of the part (not null)
+     * @param pelvisLocation the location of the pelvis (not null, unaffected)
+     * @param xOffset the X offset of the part relative to the pelvis
+     * @param yOffset the Y offset of the part relative to the pelvis
+     * @return the new body (not null)
+     */
+    private static PhysicsRigidBody addPart(PhysicsSpace space,
+            CollisionShape shape, Vector3f pelvisLocation, float xOffset,
+            float yOffset) {
+        PhysicsRigidBody result = new PhysicsRigidBody(shape, 1f);
+        Vector3f location = pelvisLocation.add(xOffset, yOffset, 0f);
+        result.setPhysicsLocation(location);
+        space.addCollisionObject(result);
+
+        return result;
+    }
+
+    /**
+     * Add a single ragdoll, standing with its pelvis at the specified
+     * location.
+     *
+     * @param space the space to add to (not null, modified)
+     * @param pelvisLocation the location of the pelvis (in physics-space
+     * coordinates, not null, unaffected)
+     */
+    private static void addRagdoll(PhysicsSpace space,
+            Vector3f pelvisLocation) {
+        CollisionShape limb = new CapsuleCollisionShape(0.1f, 0.3f);
+        CollisionShape trunk = new CapsuleCollisionShape(0.2f, 0.2f);
+        CollisionShape skull = new SphereCollisionShape(0.15f);
+
+        PhysicsRigidBody pelvis
+                = addPart(space, trunk, pelvisLocation, 0f, 0f);
+        PhysicsRigidBody chest
+                = addPart(space, trunk, pelvisLocation, 0f, 0.6f);
+        join(space, pelvis, chest, -0.3f);
+        PhysicsRigidBody head
+                = addPart(space, skull, pelvisLocation, 0f, 1.1f);
+        join(space, chest, head, -0.15f);
+
+        for (int side = -1; side <= 1; side += 2) {
+            PhysicsRigidBody upperArm
+                    = addPart(space, limb, pelvisLocation, 0.35f * side, 0.5f);
+            join(space, chest, upperArm, 0.15f);
+            PhysicsRigidBody forearm
+                    = addPart(space, limb, pelvisLocation, 0.35f * side, 0f);
+            join(space, upperArm, forearm, 0.25f);
+
+            float hipX = 0.12f * side;
+            PhysicsRigidBody thigh
+                    = addPart(space, limb, pelvisLocation, hipX, -0.55f);
+            join(space, pelvis, thigh, 0.3f);
+            PhysicsRigidBody shin
+                    = addPart(space, limb, pelvisLocation, hipX, -1.1f);
+            join(space, thigh, shin, 0.275f);
+        }
+    }
+
+    /**
+     * Join 2 ragdoll parts with a cone joint, the pivot being directly above
+     * or below the child's center.
+     *
+     * @param space the space to add to (not null, modified)
+     * @param parent the parent part (not null)
+     * @param child the child part (not null)
+     * @param pivotOffset the Y offset of the pivot relative to the child's
+     * center
+     */
+    private static void join(PhysicsSpace space, PhysicsRigidBody parent,
+            PhysicsRigidBody child, float pivotOffset) {
+        Vector3f parentLocation = parent.getPhysicsLocation(null);
+        Vector3f childLocation = child.getPhysicsLocation(null);
+        Vector3f pivot = childLocation.add(0f, pivotOffset, 0f);
+        Vector3f pivotInParent = pivot.subtract(parentLocation);
+        Vector3f pivotInChild = pivot.subtract(childLocation);
+
+        ConeJoint joint
+                = new ConeJoint(parent, child, pivotInParent, pivotInChild);
+        joint.setLimit(0.5f, 0.5f, 0.3f);
+        joint.setCollisionBetweenLinkedBodies(false);
+        space.addJoint(joint);
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.benchmark;
+
+import com.jme3.bullet.NativePhysicsObject;
+import com.jme3.bullet.PhysicsSpace;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Heart;
+import jme3utilities.MyString;
+import jme3utilities.Validate;
+
+/**
+ * A headless stress test: build each scene, step it for a fixed number of
+ * ticks, and report step-time percentiles, allocation, and native-object
+ * counts in CSV and/or JSON format. No Application or renderer is used, so
+ * it can run on build agents without a display.
+ * <p>
+ * Command-line arguments:
+ * <ul>
+ * <li>--ticks N : number of measured ticks per scene (default=600)</li>
+ * <li>--warmup N : number of unmeasured ticks per scene (default=120)</li>
+ * <li>--scale N : scale factor for scene size (default=1)</li>
+ * <li>--csv PATH : write CSV to the specified file</li>
+ * <li>--json PATH : write JSON to the specified file</li>
+ * <li>any other argument : the name of a scene to run (default=all)</li>
+ * </ul>
+ * If neither --csv nor --json is specified, CSV is written to System.out .
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class StressTest {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * simulation interval per tick (in seconds)
+     */
+    final private static float timeInterval = 1f / 60;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(StressTest.class.getName());
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private StressTest() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Main entry point for the stress test.
+     *
+     * @param arguments array of command-line arguments (not null)
+     * @throws FileNotFoundException if an output file can't be created
+     */
+    public static void main(String[] arguments) throws FileNotFoundException {
+        /*
+         * Mute the chatty loggers found in certain packages.
+         */
+        Heart.setLoggingLevels(Level.WARNING);
+
+        int numTicks = 600;
+        int numWarmupTicks = 120;
+        int scale = 1;
+        String csvPath = null;
+        String jsonPath = null;
+        List<String> sceneNames = new ArrayList<>(6);
+        /*
+         * Process any command-line arguments.
+         */
+        for (int argIndex = 0; argIndex < arguments.length; ++argIndex) {
+            String arg = arguments[argIndex];
+            switch (arg) {
+                case "--csv":
+                    csvPath = arguments[++argIndex];
+                    break;
+
+                case "--json":
+                    jsonPath = arguments[++argIndex];
+                    break;
+
+                case "--scale":
+                    scale = Integer.parseInt(arguments[++argIndex]);
+                    break;
+
+                case "--ticks":
+                    numTicks = Integer.parseInt(arguments[++argIndex]);
+                    break;
+
+                case "--warmup":
+                    numWarmupTicks = Integer.parseInt(arguments[++argIndex]);
+                    break;
+
+                default:
+                    if (Arrays.asList(StressScenes.sceneNames).contains(arg)) {
+                        sceneNames.add(arg);
+                    } else {
+                        logger.log(Level.WARNING,
+                                "Unknown command-line argument {0}",
+                                MyString.quote(arg));
+                    }
+            }
+        }
+        if (sceneNames.isEmpty()) {
+            sceneNames.addAll(Arrays.asList(StressScenes.sceneNames));
+        }
+
+        List<StressResult> results = new ArrayList<>(sceneNames.size());
+        for (String sceneName : sceneNames) {
+            StressResult result
+                    = runScene(sceneName, scale, numWarmupTicks, numTicks);
+            results.add(result);
+            logger.log(Level.INFO, "Finished scene {0}",
+                    MyString.quote(sceneName));
+        }
+
+        if (csvPath == null && jsonPath == null) {
+            writeCsv(results, System.out);
+        }
+        if (csvPath != null) {
+            try (PrintStream stream = new PrintStream(csvPath)) {
+                writeCsv(results, stream);
+            }
+        }
+        if (jsonPath != null) {
+            try (PrintStream stream = new PrintStream(jsonPath)) {
+                writeJson(results, stream);
+            }
+        }
+    }
+
+    /**
+     * Build the named scene, step it, and measure the results.
+     *
+     * @param sceneName the name of the scene (not null)
+     * @param scale the scale factor (&ge;1)
+     * @param numWarmupTicks the number of unmeasured ticks (&ge;0)
+     * @param numTicks the number of measured ticks (&gt;0)
+     * @return a new result (not null)
+     */
+    public static StressResult runScene(String sceneName, int scale,
+            int numWarmupTicks, int numTicks) {
+        Validate.positive(scale, "scale");
+        Validate.nonNegative(numWarmupTicks, "number of warmup ticks");
+        Validate.positive(numTicks, "number of ticks");
+
+        PhysicsSpace space = StressScenes.createScene(sceneName, scale);
+        int numCollisionObjects = space.countCollisionObjects();
+        int numJoints = space.countJoints();
+        int numTrackersBefore = NativePhysicsObject.countTrackers();
+
+        for (int tick = 0; tick < numWarmupTicks; ++tick) {
+            space.update(timeInterval, 0);
+        }
+
+        long[] stepNanos = new long[numTicks];
+        long allocatedBefore = allocatedBytes();
+        for (int tick = 0; tick < numTicks; ++tick) {
+            long startNanos = System.nanoTime();
+            space.update(timeInterval, 0);
+            stepNanos[tick] = System.nanoTime() - startNanos;
+        }
+        long allocatedAfter = allocatedBytes();
+        long allocated = -1L;
+        if (allocatedBefore >= 0L && allocatedAfter >= 0L) {
+            allocated = allocatedAfter - allocatedBefore;
+        }
+
+        int numTrackersAfter = NativePhysicsObject.countTrackers();
+        space.destroy();
+        System.gc();
+
+        StressResult result = new StressResult(sceneName, scale,
+                numCollisionObjects, numJoints, stepNanos, allocated,
+                numTrackersBefore, numTrackersAfter);
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Determine the number of bytes allocated by the current thread, if the
+     * JVM supports it.
+     *
+     * @return the count (&ge;0) or -1 if unsupported
+     */
+    private static long allocatedBytes() {
+        long result = -1L;
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean
+                    = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()
+                    && sunBean.isThreadAllocatedMemoryEnabled()) {
+                long threadId = Thread.currentThread().getId();
+                result = sunBean.getThreadAllocatedBytes(threadId);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Write the results in CSV format.
+     *
+     * @param results the results to write (not null, unaffected)
+     * @param stream the output stream (not null)
+     */
+    private static void writeCsv(List<StressResult> results,
+            PrintStream stream) {
+        stream.println(StressResult.csvHeader);
+        for (StressResult result : results) {
+            stream.println(result.toCsv());
+        }
+        stream.flush();
+    }
+
+    /**
+     * Write the results as a JSON array.
+     *
+     * @param results the results to write (not null, unaffected)
+     * @param stream the output stream (not null)
+     */
+    private static void writeJson(List<StressResult> results,
+            PrintStream stream) {
+        stream.println("[");
+        int numResults = results.size();
+        for (int index = 0; index < numResults; ++index) {
+            String line = "  " + results.get(index).toJson();
+            if (index < numResults - 1) {
+                line += ",";
+            }
+            stream.println(line);
+        }
+        stream.println("]");
+        stream.flush();
+    }
+}
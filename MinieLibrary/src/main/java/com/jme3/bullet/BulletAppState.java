@@ -77,7 +77,21 @@ public class BulletAppState
          * Parallel threaded mode: physics update and rendering are executed in
          * parallel, update order is maintained.
          */
-        PARALLEL
+        PARALLEL,
+        /**
+         * Pipelined mode: the physics update runs in parallel with rendering
+         * AND with the next frame's logical-state update. Each completed
+         * update publishes a snapshot of rigid-body transforms, which
+         * RigidBodyControl reads instead of the live physics state, so the
+         * render thread never waits for physics. Rendered transforms lag the
+         * simulation by up to one frame.
+         * <p>
+         * While the physics update runs, app code mustn't access physics
+         * objects directly: use PhysicsSpace.enqueue() or a tick listener
+         * instead. This rules out kinematic controls that follow their
+         * spatials, character controls, and debug visualization.
+         */
+        PIPELINED
     }
     // *************************************************************************
     // constants and loggers
@@ -118,6 +132,16 @@ public class BulletAppState
             return true;
         }
     };
+
+    final private Callable<Boolean> pipelinedPhysicsUpdate
+            = new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+            PhysicsSpace pSpace = debugConfig.getSpace();
+            pSpace.update(submittedInterval);
+            return true;
+        }
+    };
     /**
      * configuration for debug visualization
      */
@@ -130,6 +154,16 @@ public class BulletAppState
      * time interval between frames (in seconds) from the most recent update
      */
     private float tpf;
+    /**
+     * scaled time interval to simulate in the current pipelined task (in
+     * seconds, &ge;0)
+     */
+    private float submittedInterval = 0f;
+    /**
+     * scaled time that has elapsed since the last pipelined task was submitted
+     * (in seconds, &ge;0)
+     */
+    private float unsimulatedTime = 0f;
     /**
      * current physics task, or null if none
      */
@@ -575,6 +609,7 @@ public class BulletAppState
         PhysicsSpace pSpace;
         switch (threadingType) {
             case PARALLEL:
+            case PIPELINED:
                 boolean success = startPhysicsOnExecutor();
                 assert success;
 
@@ -591,6 +626,10 @@ public class BulletAppState
             default:
                 throw new IllegalStateException(threadingType.toString());
         }
+        if (threadingType == ThreadingType.PIPELINED) {
+            pSpace.useSnapshots(true);
+            unsimulatedTime = 0f;
+        }
 
         setRunning(true);
     }
@@ -603,6 +642,7 @@ public class BulletAppState
             return;
         }
 
+        joinPhysicsTask();
         if (executor != null) {
             executor.shutdown();
             executor = null;
@@ -769,13 +809,8 @@ public class BulletAppState
     public void postRender() {
         super.postRender();
 
-        if (physicsFuture != null) {
-            try {
-                physicsFuture.get();
-                physicsFuture = null;
-            } catch (InterruptedException | ExecutionException exception) {
-                throw new RuntimeException(exception);
-            }
+        if (threadingType != ThreadingType.PIPELINED) {
+            joinPhysicsTask();
         }
     }
 
@@ -792,6 +827,15 @@ public class BulletAppState
 
         if (threadingType == ThreadingType.PARALLEL) {
             physicsFuture = executor.submit(parallelPhysicsUpdate);
+        } else if (threadingType == ThreadingType.PIPELINED) {
+            if (isEnabled()) {
+                unsimulatedTime += tpf * speed;
+            }
+            if (physicsFuture == null) {
+                submittedInterval = unsimulatedTime;
+                unsimulatedTime = 0f;
+                physicsFuture = executor.submit(pipelinedPhysicsUpdate);
+            }
         } else if (threadingType == ThreadingType.SEQUENTIAL) {
             PhysicsSpace pSpace = debugConfig.getSpace();
             pSpace.update(isEnabled() ? tpf * speed : 0f);
@@ -812,7 +856,8 @@ public class BulletAppState
         if (!isRunning) {
             startPhysics();
         }
-        if (threadingType == ThreadingType.PARALLEL) {
+        if (threadingType == ThreadingType.PARALLEL
+                || threadingType == ThreadingType.PIPELINED) {
             PhysicsSpace pSpace = debugConfig.getSpace();
             PhysicsSpace.setLocalThreadPhysicsSpace(pSpace);
         }
@@ -847,7 +892,24 @@ public class BulletAppState
         }
 
         PhysicsSpace pSpace = debugConfig.getSpace();
-        pSpace.distributeEvents();
+        if (threadingType == ThreadingType.PIPELINED) {
+            /*
+             * Collect the latest snapshot. Distribute events only if
+             * the physics task has completed.
+             */
+            if (physicsFuture != null && physicsFuture.isDone()) {
+                joinPhysicsTask();
+            }
+            SnapshotBuffer snapshots = pSpace.getSnapshotBuffer();
+            if (snapshots != null) { // useSnapshots(false) since startPhysics()
+                snapshots.acquire();
+            }
+            if (physicsFuture == null) {
+                pSpace.distributeEvents();
+            }
+        } else {
+            pSpace.distributeEvents();
+        }
     }
     // *************************************************************************
     // PhysicsTickListener methods
@@ -875,4 +937,20 @@ public class BulletAppState
     public void prePhysicsTick(PhysicsSpace space, float timeStep) {
         // do nothing
     }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Wait for the current physics task (if any) to complete.
+     */
+    private void joinPhysicsTask() {
+        if (physicsFuture != null) {
+            try {
+                physicsFuture.get();
+                physicsFuture = null;
+            } catch (InterruptedException | ExecutionException exception) {
+                throw new RuntimeException(exception);
+            }
+        }
+    }
 }
@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Stream cells of static collision geometry into and out of a PhysicsSpace
+ * without stalling the physics thread.
+ * <p>
+ * Collision shapes (including their bounding-volume hierarchies) and bodies
+ * are constructed on a pool of background threads. Completed cells are then
+ * added to the space in bounded batches, at most maxBodiesPerStep bodies per
+ * simulation step, from a tick listener. Unloading works the same way in
+ * reverse; removals take priority over insertions. After a cell is unloaded,
+ * its native objects are freed by the cleaner thread rather than on the
+ * physics thread.
+ * <p>
+ * Cell states change asynchronously; poll {@link WorldCell#getState()} to
+ * track them.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class CellStreamer implements PhysicsTickListener {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(CellStreamer.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * pool of threads that construct shapes and bodies
+     */
+    final private ExecutorService builders;
+    /**
+     * cell currently being added, or null if none (accessed only by the
+     * physics thread)
+     */
+    private WorldCell insertingCell = null;
+    /**
+     * built cells waiting to be added, in order of completion
+     */
+    final private Queue<WorldCell> insertQueue
+            = new ConcurrentLinkedQueue<>();
+    /**
+     * maximum number of bodies added or removed per simulation step (&ge;1)
+     */
+    final private int maxBodiesPerStep;
+    /**
+     * cells waiting to be removed, in order of request
+     */
+    final private Queue<WorldCell> removeQueue
+            = new ConcurrentLinkedQueue<>();
+    /**
+     * cell currently being removed, or null if none (accessed only by the
+     * physics thread)
+     */
+    private WorldCell removingCell = null;
+    /**
+     * space into which cells are streamed (not null)
+     */
+    final private PhysicsSpace space;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a streamer for the specified space and register it as a
+     * tick listener.
+     *
+     * @param space the space to stream into (not null, alias created)
+     * @param numThreads the number of background threads for construction
+     * (&ge;1)
+     * @param maxBodiesPerStep the maximum number of bodies to add or remove
+     * per simulation step (&ge;1)
+     */
+    public CellStreamer(PhysicsSpace space, int numThreads,
+            int maxBodiesPerStep) {
+        Validate.nonNull(space, "space");
+        Validate.positive(numThreads, "number of threads");
+        Validate.positive(maxBodiesPerStep, "max bodies per step");
+
+        this.space = space;
+        this.maxBodiesPerStep = maxBodiesPerStep;
+        builders = Executors.newFixedThreadPool(numThreads,
+                new ThreadFactory() {
+            private int numCreated = 0;
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                String name = "Cell Builder-" + numCreated;
+                ++numCreated;
+                Thread result = new Thread(runnable, name);
+                result.setDaemon(true);
+                return result;
+            }
+        });
+        space.addTickListener(this);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the cells that have been built but not yet fully added to the
+     * space.
+     * The result is only a snapshot, since other threads may be streaming.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countPendingInsertions() {
+        int result = insertQueue.size();
+        if (insertingCell != null) {
+            ++result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Count the cells waiting to be (fully) removed from the space.
+     * The result is only a snapshot, since other threads may be streaming.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countPendingRemovals() {
+        int result = removeQueue.size();
+        if (removingCell != null) {
+            ++result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Unregister this streamer and terminate its background threads. Cells
+     * already added to the space remain there. The streamer cannot be used
+     * afterward.
+     */
+    public void destroy() {
+        space.removeTickListener(this);
+        builders.shutdownNow();
+    }
+
+    /**
+     * Begin streaming the specified cell into the space. Construction starts
+     * on a background thread; the bodies are added during later steps.
+     *
+     * @param cell the cell to load (not null, in the NEW state)
+     */
+    public void load(final WorldCell cell) {
+        Validate.nonNull(cell, "cell");
+        synchronized (cell) {
+            if (cell.getState() != WorldCell.State.NEW) {
+                throw new IllegalStateException("state = " + cell.getState());
+            }
+            cell.setState(WorldCell.State.BUILDING);
+        }
+
+        builders.execute(new Runnable() {
+            @Override
+            public void run() {
+                build(cell);
+            }
+        });
+    }
+
+    /**
+     * Begin streaming the specified cell out of the space. If the cell is
+     * still being constructed, it's discarded once construction completes.
+     * Requests for cells that aren't loading or loaded are ignored.
+     *
+     * @param cell the cell to unload (not null)
+     */
+    public void unload(WorldCell cell) {
+        Validate.nonNull(cell, "cell");
+
+        WorldCell.State state = cell.getState();
+        if (state == WorldCell.State.BUILDING
+                || state == WorldCell.State.INSERTING
+                || state == WorldCell.State.LOADED) {
+            cell.requestUnload();
+            removeQueue.add(cell);
+        }
+    }
+    // *************************************************************************
+    // PhysicsTickListener methods
+
+    /**
+     * Callback from Bullet, invoked just after the physics has been stepped.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void physicsTick(PhysicsSpace space, float timeStep) {
+        // do nothing
+    }
+
+    /**
+     * Callback from Bullet, invoked just before the physics is stepped. Remove
+     * and add bodies, up to the per-step limit.
+     *
+     * @param space the space that is about to be stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+        assert space == this.space;
+
+        int budget = maxBodiesPerStep;
+        budget -= processRemovals(budget);
+        processInsertions(budget);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Construct the specified cell's shapes and bodies. Invoked on a
+     * background thread.
+     *
+     * @param cell the cell to build (not null)
+     */
+    private void build(WorldCell cell) {
+        try {
+            cell.build();
+        } catch (RuntimeException exception) {
+            logger.log(Level.SEVERE, "Failed to build " + cell, exception);
+            cell.release();
+            cell.setState(WorldCell.State.FAILED);
+            return;
+        }
+
+        if (logger.isLoggable(Level.FINE)) {
+            double milliseconds = cell.buildNanos() * 1e-6;
+            long kibibytes = cell.estimatedBytes() / 1024L;
+            logger.log(Level.FINE, "Built {0} with {1} bodies in {2} ms, "
+                    + "about {3} KiB of shapes.", new Object[]{
+                        cell, cell.countBodies(), milliseconds, kibibytes
+                    });
+        }
+
+        cell.setState(WorldCell.State.INSERTING);
+        if (cell.isUnloadRequested()) {
+            /*
+             * The removal request may already have been skipped while the
+             * cell was building, so re-submit it.
+             */
+            removeQueue.add(cell);
+        } else {
+            insertQueue.add(cell);
+        }
+    }
+
+    /**
+     * Add bodies from built cells, up to the specified budget.
+     *
+     * @param budget the maximum number of bodies to add
+     */
+    private void processInsertions(int budget) {
+        int remaining = budget;
+        while (remaining > 0) {
+            if (insertingCell == null) {
+                insertingCell = insertQueue.poll();
+                if (insertingCell == null) {
+                    break;
+                }
+            }
+
+            WorldCell cell = insertingCell;
+            if (cell.isUnloadRequested()) {
+                /*
+                 * Let the removal logic deal with this cell.
+                 */
+                removeQueue.add(cell);
+                insertingCell = null;
+                continue;
+            }
+
+            remaining -= cell.insertBodies(space, remaining);
+            if (cell.isFullyInserted()) {
+                cell.setState(WorldCell.State.LOADED);
+                insertingCell = null;
+                logger.log(Level.FINE, "Loaded {0}.", cell);
+            }
+        }
+    }
+
+    /**
+     * Remove bodies of cells being unloaded, up to the specified budget.
+     *
+     * @param budget the maximum number of bodies to remove
+     * @return the number of bodies removed (&ge;0)
+     */
+    private int processRemovals(int budget) {
+        int remaining = budget;
+        while (remaining > 0) {
+            if (removingCell == null) {
+                removingCell = removeQueue.poll();
+                if (removingCell == null) {
+                    break;
+                }
+            }
+
+            WorldCell cell = removingCell;
+            WorldCell.State state = cell.getState();
+            if (state == WorldCell.State.BUILDING
+                    || state == WorldCell.State.UNLOADED
+                    || state == WorldCell.State.FAILED) {
+                /*
+                 * Either the builder will re-submit the request when it's
+                 * done, or there's nothing left to do.
+                 */
+                removingCell = null;
+                continue;
+            }
+
+            if (cell == insertingCell) {
+                insertingCell = null;
+            }
+            insertQueue.remove(cell);
+            cell.setState(WorldCell.State.UNLOADING);
+
+            remaining -= cell.removeBodies(space, remaining);
+            if (cell.isFullyRemoved()) {
+                cell.release();
+                cell.setState(WorldCell.State.UNLOADED);
+                removingCell = null;
+                logger.log(Level.FINE, "Unloaded {0}.", cell);
+            }
+        }
+
+        int result = budget - remaining;
+        return result;
+    }
+}
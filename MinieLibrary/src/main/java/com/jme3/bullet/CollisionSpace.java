@@ -31,6 +31,8 @@
  */
 package com.jme3.bullet;
 
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingVolume;
 import com.jme3.bullet.collision.PhysicsCollisionGroupListener;
 import com.jme3.bullet.collision.PhysicsCollisionListener;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
@@ -38,8 +40,12 @@ import com.jme3.bullet.collision.PhysicsRayTestResult;
 import com.jme3.bullet.collision.PhysicsSweepTestResult;
 import com.jme3.bullet.collision.shapes.ConvexShape;
 import com.jme3.bullet.objects.PhysicsGhostObject;
+import com.jme3.bullet.util.ConcurrentLongMap;
 import com.jme3.math.Transform;
 import com.jme3.math.Vector3f;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -93,6 +99,19 @@ public class CollisionSpace extends NativePhysicsObject {
      * flags used in ray tests
      */
     private int rayTestFlags = RayTestFlag.SubSimplexRaytest;
+    /**
+     * profiler to measure this space, or null if not profiling
+     */
+    private volatile PhysicsProfiler profiler = null;
+    /**
+     * read-only view for concurrent queries, or null if never created
+     */
+    private QueryPhase queryPhase = null;
+    /**
+     * lock to serialize native queries, which share broadphase and dispatcher
+     * scratch state unless Bullet is built with BT_THREADSAFE
+     */
+    final private Object nativeQueryLock = new Object();
     /**
      * map from collision groups to registered group listeners
      */
@@ -101,8 +120,24 @@ public class CollisionSpace extends NativePhysicsObject {
     /**
      * map ghost IDs to added objects
      */
-    final private Map<Long, PhysicsGhostObject> ghostMap
-            = new ConcurrentHashMap<>(64);
+    final private ConcurrentLongMap<PhysicsGhostObject> ghostMap
+            = new ConcurrentLongMap<>(64);
+    /**
+     * read-only view of all added collision objects (not null)
+     */
+    final private Collection<PhysicsCollisionObject> pcoView
+            = Collections.<PhysicsCollisionObject>unmodifiableCollection(
+                    ghostMap.values());
+    /**
+     * per-thread scratch lists for aabbTest()
+     */
+    final private static ThreadLocal<List<PhysicsCollisionObject>> aabbScratch
+            = new ThreadLocal<List<PhysicsCollisionObject>>() {
+        @Override
+        protected List<PhysicsCollisionObject> initialValue() {
+            return new ArrayList<>(64);
+        }
+    };
     /**
      * physics-space reference for each thread
      */
@@ -146,6 +181,60 @@ public class CollisionSpace extends NativePhysicsObject {
     // *************************************************************************
     // new methods exposed
 
+    /**
+     * Find all collision objects in this space whose axis-aligned bounding
+     * boxes overlap the specified region. No simulation step is required.
+     * <p>
+     * Each object's bounding box is tested in turn, so the cost is
+     * proportional to the number of objects in the space.
+     *
+     * @param region the region to test (not null, typically a BoundingBox or
+     * BoundingSphere in physics-space coordinates, unaffected)
+     * @param groupMask the collision groups to include (bitmask)
+     * @param storeResult storage for the overlapping objects (not null,
+     * cleared and then modified)
+     * @return the number of overlapping objects found (&ge;0)
+     */
+    public int aabbTest(BoundingVolume region, int groupMask,
+            Collection<? super PhysicsCollisionObject> storeResult) {
+        Validate.nonNull(region, "region");
+        Validate.nonNull(storeResult, "store result");
+
+        storeResult.clear();
+        int result = addOverlaps(ghostMap.values(), region, groupMask,
+                storeResult);
+
+        return result;
+    }
+
+    /**
+     * Find all collision objects in this space whose axis-aligned bounding
+     * boxes overlap the specified region, and store their native IDs. No
+     * simulation step is required.
+     *
+     * @param region the region to test (not null, typically a BoundingBox or
+     * BoundingSphere in physics-space coordinates, unaffected)
+     * @param groupMask the collision groups to include (bitmask)
+     * @param storeIds storage for the native IDs (not null, modified, excess
+     * IDs are discarded)
+     * @return the number of overlapping objects found (&ge;0, may exceed the
+     * length of storeIds)
+     */
+    public int aabbTest(BoundingVolume region, int groupMask,
+            long[] storeIds) {
+        Validate.nonNull(storeIds, "store IDs");
+
+        List<PhysicsCollisionObject> pcos = aabbScratch.get();
+        int result = aabbTest(region, groupMask, pcos);
+        int numStored = Math.min(result, storeIds.length);
+        for (int index = 0; index < numStored; ++index) {
+            storeIds[index] = pcos.get(index).nativeId();
+        }
+        pcos.clear();
+
+        return result;
+    }
+
     /**
      * Add the specified object to this space.
      *
@@ -191,6 +280,7 @@ public class CollisionSpace extends NativePhysicsObject {
      */
     public void addCollisionObject(PhysicsCollisionObject pco) {
         Validate.nonNull(pco, "collision object");
+        verifyMutable();
 
         if (pco instanceof PhysicsGhostObject) {
             addGhostObject((PhysicsGhostObject) pco);
@@ -201,6 +291,25 @@ public class CollisionSpace extends NativePhysicsObject {
         }
     }
 
+    /**
+     * Begin a query phase, during which ray, sweep, and contact tests may be
+     * issued from multiple threads through the returned view, and this space
+     * may not be stepped, nor may objects or joints be added or removed. Must
+     * be invoked on the designated physics thread, between steps.
+     *
+     * @return the view to query through (not null)
+     */
+    public QueryPhase beginQueryPhase() {
+        if (queryPhase == null) {
+            queryPhase = new QueryPhase(this);
+        } else if (queryPhase.isOpen()) {
+            throw new IllegalStateException("Already in a query phase.");
+        }
+        queryPhase.open();
+
+        return queryPhase;
+    }
+
     /**
      * Perform a contact test. This will not detect contacts with soft bodies.
      *
@@ -215,7 +324,10 @@ public class CollisionSpace extends NativePhysicsObject {
 
         long spaceId = nativeId();
         long pcoId = pco.nativeId();
-        int result = contactTest(spaceId, pcoId, listener);
+        int result;
+        synchronized (nativeQueryLock) {
+            result = contactTest(spaceId, pcoId, listener);
+        }
 
         return result;
     }
@@ -262,6 +374,17 @@ public class CollisionSpace extends NativePhysicsObject {
         return count;
     }
 
+    /**
+     * End the current query phase, waiting for any queries in progress to
+     * complete. Must be invoked on the designated physics thread.
+     */
+    public void endQueryPhase() {
+        if (queryPhase == null || !queryPhase.isOpen()) {
+            throw new IllegalStateException("Not in a query phase.");
+        }
+        queryPhase.close();
+    }
+
     /**
      * Read the type of acceleration structure used for broadphase collision
      * detection.
@@ -298,15 +421,38 @@ public class CollisionSpace extends NativePhysicsObject {
      * Enumerate collision objects that have been added to this space and not
      * yet removed.
      *
+     * @see #getPcoView()
      * @return a new modifiable collection of pre-existing instances (not null)
      */
     public Collection<PhysicsCollisionObject> getPcoList() {
         Set<PhysicsCollisionObject> result = new TreeSet<>();
-        result.addAll(ghostMap.values());
+        result.addAll(getPcoView());
 
         return result;
     }
 
+    /**
+     * Access a live view of the collision objects that have been added to
+     * this space and not yet removed, without copying them. The view is
+     * weakly consistent, so it's safe to add or remove objects while
+     * iterating, and its iteration order is unspecified.
+     *
+     * @see #getPcoList()
+     * @return an unmodifiable view of the pre-existing instances (not null)
+     */
+    public Collection<PhysicsCollisionObject> getPcoView() {
+        return pcoView;
+    }
+
+    /**
+     * Access the profiler attached to this space.
+     *
+     * @return the pre-existing instance, or null if not profiling
+     */
+    public PhysicsProfiler getProfiler() {
+        return profiler;
+    }
+
     /**
      * Read the flags used in ray tests (native field: m_flags).
      *
@@ -368,6 +514,18 @@ public class CollisionSpace extends NativePhysicsObject {
         return result;
     }
 
+    /**
+     * Test whether this space is in a query phase.
+     *
+     * @return true if in a query phase, otherwise false
+     */
+    public boolean isInQueryPhase() {
+        QueryPhase phase = queryPhase;
+        boolean result = (phase != null && phase.isOpen());
+
+        return result;
+    }
+
     /**
      * Perform a ray-collision test (raycast) and sort the results by ascending
      * hitFraction.
@@ -400,12 +558,97 @@ public class CollisionSpace extends NativePhysicsObject {
             List<PhysicsRayTestResult> results) {
         results.clear();
         long spaceId = nativeId();
-        rayTest_native(from, to, spaceId, results, rayTestFlags);
+        synchronized (nativeQueryLock) {
+            rayTest_native(from, to, spaceId, results, rayTestFlags);
+        }
+        PhysicsProfiler currentProfiler = profiler;
+        if (currentProfiler != null) {
+            currentProfiler.countRayTests(1);
+        }
 
         Collections.sort(results, hitFractionComparator);
         return results;
     }
 
+    /**
+     * Perform a batch of ray-collision tests, recording only the closest hit
+     * of each ray. Unlike rayTest(), no results are sorted and no per-ray
+     * lists or vectors are allocated.
+     * <p>
+     * The buffers are accessed using absolute indices starting at zero, so
+     * their positions and limits are ignored. A ray that hits nothing gets
+     * a hit fraction of 1, a zero normal, and an ID of zero.
+     *
+     * @param endpoints the starting and ending locations of each ray (in
+     * physics-space coordinates, 6 floats per ray, not null, unaffected)
+     * @param numRays the number of rays to test (&ge;0)
+     * @param groupMasks the collision groups each ray can hit (one int per
+     * ray) or null to hit all groups (unaffected)
+     * @param storeFractions storage for the closest hit fraction of each ray
+     * (one float per ray, not null, modified)
+     * @param storeNormals storage for the hit normal of each ray (3 floats
+     * per ray, modified) or null if normals aren't needed
+     * @param storeIds storage for the native ID of the object hit by each ray
+     * (one long per ray, modified) or null if IDs aren't needed
+     * @return the number of rays that hit something (&ge;0, &le;numRays)
+     */
+    public int rayTestClosest(FloatBuffer endpoints, int numRays,
+            IntBuffer groupMasks, FloatBuffer storeFractions,
+            FloatBuffer storeNormals, LongBuffer storeIds) {
+        Validate.nonNegative(numRays, "number of rays");
+        Validate.require(endpoints.capacity() >= 6 * numRays,
+                "6 floats per ray in endpoints");
+        Validate.require(storeFractions.capacity() >= numRays,
+                "1 float per ray in storeFractions");
+        if (groupMasks != null) {
+            Validate.require(groupMasks.capacity() >= numRays,
+                    "1 int per ray in groupMasks");
+        }
+        if (storeNormals != null) {
+            Validate.require(storeNormals.capacity() >= 3 * numRays,
+                    "3 floats per ray in storeNormals");
+        }
+        if (storeIds != null) {
+            Validate.require(storeIds.capacity() >= numRays,
+                    "1 long per ray in storeIds");
+        }
+
+        long spaceId = nativeId();
+        List<PhysicsRayTestResult> hits = new ArrayList<>(10);
+        Vector3f from = new Vector3f();
+        Vector3f to = new Vector3f();
+        Vector3f normal = new Vector3f();
+        int numHits = 0;
+
+        for (int rayIndex = 0; rayIndex < numRays; ++rayIndex) {
+            int floatIndex = 6 * rayIndex;
+            from.x = endpoints.get(floatIndex);
+            from.y = endpoints.get(floatIndex + 1);
+            from.z = endpoints.get(floatIndex + 2);
+            to.x = endpoints.get(floatIndex + 3);
+            to.y = endpoints.get(floatIndex + 4);
+            to.z = endpoints.get(floatIndex + 5);
+
+            hits.clear();
+            synchronized (nativeQueryLock) {
+                rayTest_native(from, to, spaceId, hits, rayTestFlags);
+            }
+
+            int mask = (groupMasks == null) ? ~0 : groupMasks.get(rayIndex);
+            if (storeClosestHit(hits, mask, rayIndex, storeFractions,
+                    storeNormals, storeIds, normal)) {
+                ++numHits;
+            }
+        }
+
+        PhysicsProfiler currentProfiler = profiler;
+        if (currentProfiler != null) {
+            currentProfiler.countRayTests(numRays);
+        }
+
+        return numHits;
+    }
+
     /**
      * Perform a ray-collision test (raycast) and return the results in
      * arbitrary order.
@@ -438,7 +681,13 @@ public class CollisionSpace extends NativePhysicsObject {
             List<PhysicsRayTestResult> results) {
         results.clear();
         long spaceId = nativeId();
-        rayTest_native(from, to, spaceId, results, rayTestFlags);
+        synchronized (nativeQueryLock) {
+            rayTest_native(from, to, spaceId, results, rayTestFlags);
+        }
+        PhysicsProfiler currentProfiler = profiler;
+        if (currentProfiler != null) {
+            currentProfiler.countRayTests(1);
+        }
 
         return results;
     }
@@ -486,6 +735,7 @@ public class CollisionSpace extends NativePhysicsObject {
      */
     public void removeCollisionObject(PhysicsCollisionObject pco) {
         Validate.nonNull(pco, "collision object");
+        verifyMutable();
 
         if (pco instanceof PhysicsGhostObject) {
             removeGhostObject((PhysicsGhostObject) pco);
@@ -505,6 +755,17 @@ public class CollisionSpace extends NativePhysicsObject {
         physicsSpaceTL.set(space);
     }
 
+    /**
+     * Attach a profiler to this space, replacing any previously attached one.
+     * Should be invoked only between updates.
+     *
+     * @param newProfiler the profiler to attach (alias created), or null to
+     * stop profiling (default=null)
+     */
+    public void setProfiler(PhysicsProfiler newProfiler) {
+        profiler = newProfiler;
+    }
+
     /**
      * Alter the m_flags used in ray tests.
      *
@@ -515,6 +776,38 @@ public class CollisionSpace extends NativePhysicsObject {
         rayTestFlags = flags;
     }
 
+    /**
+     * Shift the origin of physics space to the specified location, for
+     * example to preserve precision in a very large world. Every collision
+     * object in this space is relocated so that whatever was at newOrigin ends
+     * up at (0,0,0). Orientations, velocities, and contacts are preserved.
+     * Must be invoked on the physics thread, between updates.
+     * <p>
+     * The scene graph is unaffected, so the application should shift it (and
+     * any cached physics-space coordinates) by the same amount. The
+     * broadphase bounds (worldMin/worldMax) are also unaffected: they still
+     * apply to the shifted coordinates.
+     *
+     * @param newOrigin the location (in the old physics-space coordinates) to
+     * become the new origin (not null, finite, unaffected)
+     * @return the number of objects relocated (&ge;0)
+     */
+    public int shiftOrigin(Vector3f newOrigin) {
+        Validate.finite(newOrigin, "new origin");
+        verifyMutable();
+
+        Vector3f location = new Vector3f();
+        int result = 0;
+        for (PhysicsGhostObject ghost : ghostMap.values()) {
+            ghost.getPhysicsLocation(location);
+            location.subtractLocal(newOrigin);
+            ghost.setPhysicsLocation(location);
+            ++result;
+        }
+
+        return result;
+    }
+
     /**
      * For compatibility with the jme3-bullet library.
      *
@@ -572,14 +865,130 @@ public class CollisionSpace extends NativePhysicsObject {
         long shapeId = shape.nativeId();
         long spaceId = nativeId();
         results.clear();
-        sweepTest_native(shapeId, start, end, spaceId, results,
-                allowedCcdPenetration);
+        synchronized (nativeQueryLock) {
+            sweepTest_native(shapeId, start, end, spaceId, results,
+                    allowedCcdPenetration);
+        }
+        PhysicsProfiler currentProfiler = profiler;
+        if (currentProfiler != null) {
+            currentProfiler.countSweepTests(1);
+        }
 
         return results;
     }
+
+    /**
+     * Perform a batch of sweep tests, recording only the closest hit of each
+     * sweep. Unlike sweepTest(), no per-sweep lists or vectors are allocated.
+     * <p>
+     * The output buffers are accessed using absolute indices starting at
+     * zero, so their positions and limits are ignored. A sweep that hits
+     * nothing gets a hit fraction of 1, a zero normal, and an ID of zero.
+     *
+     * @param shapes the shape to sweep (one per sweep, or a single shape for
+     * all sweeps, not null, each convex, unaffected)
+     * @param starts the starting physics-space transform of each sweep (not
+     * null, unaffected)
+     * @param ends the ending physics-space transform of each sweep (not null,
+     * unaffected)
+     * @param numSweeps the number of sweeps to perform (&ge;0)
+     * @param groupMasks the collision groups each sweep can hit (one int per
+     * sweep) or null to hit all groups (unaffected)
+     * @param allowedCcdPenetration (in physics-space units)
+     * @param storeFractions storage for the closest hit fraction of each sweep
+     * (one float per sweep, not null, modified)
+     * @param storeNormals storage for the hit normal of each sweep (3 floats
+     * per sweep, modified) or null if normals aren't needed
+     * @param storeIds storage for the native ID of the object hit by each
+     * sweep (one long per sweep, modified) or null if IDs aren't needed
+     * @return the number of sweeps that hit something (&ge;0, &le;numSweeps)
+     */
+    public int sweepTestClosest(ConvexShape[] shapes, Transform[] starts,
+            Transform[] ends, int numSweeps, IntBuffer groupMasks,
+            float allowedCcdPenetration, FloatBuffer storeFractions,
+            FloatBuffer storeNormals, LongBuffer storeIds) {
+        Validate.nonNegative(numSweeps, "number of sweeps");
+        Validate.require(shapes.length == 1 || shapes.length >= numSweeps,
+                "a single shape or one shape per sweep");
+        Validate.require(starts.length >= numSweeps, "a start per sweep");
+        Validate.require(ends.length >= numSweeps, "an end per sweep");
+        Validate.require(storeFractions.capacity() >= numSweeps,
+                "1 float per sweep in storeFractions");
+        if (groupMasks != null) {
+            Validate.require(groupMasks.capacity() >= numSweeps,
+                    "1 int per sweep in groupMasks");
+        }
+        if (storeNormals != null) {
+            Validate.require(storeNormals.capacity() >= 3 * numSweeps,
+                    "3 floats per sweep in storeNormals");
+        }
+        if (storeIds != null) {
+            Validate.require(storeIds.capacity() >= numSweeps,
+                    "1 long per sweep in storeIds");
+        }
+
+        long spaceId = nativeId();
+        List<PhysicsSweepTestResult> hits = new ArrayList<>(10);
+        Vector3f normal = new Vector3f();
+        int numHits = 0;
+
+        for (int sweepIndex = 0; sweepIndex < numSweeps; ++sweepIndex) {
+            ConvexShape shape
+                    = (shapes.length == 1) ? shapes[0] : shapes[sweepIndex];
+            long shapeId = shape.nativeId();
+            hits.clear();
+            synchronized (nativeQueryLock) {
+                sweepTest_native(shapeId, starts[sweepIndex],
+                        ends[sweepIndex], spaceId, hits,
+                        allowedCcdPenetration);
+            }
+
+            int mask = (groupMasks == null) ? ~0 : groupMasks.get(sweepIndex);
+            if (storeClosestHit(hits, mask, sweepIndex, storeFractions,
+                    storeNormals, storeIds, normal)) {
+                ++numHits;
+            }
+        }
+
+        PhysicsProfiler currentProfiler = profiler;
+        if (currentProfiler != null) {
+            currentProfiler.countSweepTests(numSweeps);
+        }
+
+        return numHits;
+    }
     // *************************************************************************
     // new protected methods
 
+    /**
+     * Add each candidate that belongs to one of the specified collision groups
+     * and whose axis-aligned bounding box overlaps the specified region.
+     *
+     * @param candidates the objects to test (not null, unaffected)
+     * @param region the region to test (not null, unaffected)
+     * @param groupMask the collision groups to include (bitmask)
+     * @param storeResult storage for overlapping objects (not null, added to)
+     * @return the number of objects added (&ge;0)
+     */
+    protected static int addOverlaps(
+            Collection<? extends PhysicsCollisionObject> candidates,
+            BoundingVolume region, int groupMask,
+            Collection<? super PhysicsCollisionObject> storeResult) {
+        BoundingBox aabb = new BoundingBox();
+        int result = 0;
+        for (PhysicsCollisionObject pco : candidates) {
+            if ((pco.getCollisionGroup() & groupMask) != 0) {
+                pco.boundingBox(aabb);
+                if (region.intersects(aabb)) {
+                    storeResult.add(pco);
+                    ++result;
+                }
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Must be invoked on the designated physics thread.
      */
@@ -601,6 +1010,35 @@ public class CollisionSpace extends NativePhysicsObject {
         setNativeId(spaceId);
         physicsSpaceTL.set(this);
     }
+
+    /**
+     * Verify that this space may be modified, in other words, that it isn't
+     * in a query phase.
+     *
+     * @throws IllegalStateException if in a query phase
+     */
+    protected void verifyMutable() {
+        if (isInQueryPhase()) {
+            throw new IllegalStateException(
+                    "Can't modify or step the space during a query phase.");
+        }
+    }
+    // *************************************************************************
+    // NativePhysicsObject methods
+
+    /**
+     * Estimate how much native memory this space occupies, excluding the
+     * objects added to it.
+     *
+     * @return the estimate (in bytes, &ge;0)
+     */
+    @Override
+    public long estimateNativeBytes() {
+        /*
+         * dominated by the pools preallocated by btDefaultCollisionConfiguration
+         */
+        return 4L << 20;
+    }
     // *************************************************************************
     // Java private methods
 
@@ -679,6 +1117,73 @@ public class CollisionSpace extends NativePhysicsObject {
         long spaceId = nativeId();
         removeCollisionObject(spaceId, ghostId);
     }
+
+    /**
+     * Select the closest of the specified ray-test or sweep-test hits that
+     * belongs to one of the specified collision groups, and write its hit
+     * fraction, normal, and object ID at the specified index. Shared by
+     * rayTestClosest() and sweepTestClosest().
+     *
+     * @param hits the hits to select from (not null, each element a
+     * PhysicsRayTestResult or a PhysicsSweepTestResult, unaffected)
+     * @param groupMask the collision groups to include (bitmask)
+     * @param index the index of the ray or sweep (&ge;0)
+     * @param storeFractions storage for hit fractions (not null, modified)
+     * @param storeNormals storage for hit normals (modified) or null
+     * @param storeIds storage for object IDs (modified) or null
+     * @param tmpNormal temporary storage for a normal (not null, modified)
+     * @return true if a hit was selected, false if none qualified
+     */
+    private static boolean storeClosestHit(List<?> hits, int groupMask,
+            int index, FloatBuffer storeFractions, FloatBuffer storeNormals,
+            LongBuffer storeIds, Vector3f tmpNormal) {
+        Object closest = null;
+        PhysicsCollisionObject closestPco = null;
+        float closestFraction = Float.POSITIVE_INFINITY;
+        for (Object hit : hits) {
+            PhysicsCollisionObject pco;
+            float fraction;
+            if (hit instanceof PhysicsRayTestResult) {
+                PhysicsRayTestResult rayHit = (PhysicsRayTestResult) hit;
+                pco = rayHit.getCollisionObject();
+                fraction = rayHit.getHitFraction();
+            } else {
+                PhysicsSweepTestResult sweepHit = (PhysicsSweepTestResult) hit;
+                pco = sweepHit.getCollisionObject();
+                fraction = sweepHit.getHitFraction();
+            }
+            if ((pco.getCollisionGroup() & groupMask) != 0
+                    && fraction < closestFraction) {
+                closest = hit;
+                closestPco = pco;
+                closestFraction = fraction;
+            }
+        }
+
+        long pcoId = 0L;
+        if (closest == null) {
+            storeFractions.put(index, 1f);
+            tmpNormal.zero();
+        } else {
+            storeFractions.put(index, closestFraction);
+            if (closest instanceof PhysicsRayTestResult) {
+                ((PhysicsRayTestResult) closest).getHitNormalLocal(tmpNormal);
+            } else {
+                ((PhysicsSweepTestResult) closest).getHitNormalLocal(tmpNormal);
+            }
+            pcoId = closestPco.nativeId();
+        }
+        if (storeNormals != null) {
+            storeNormals.put(3 * index, tmpNormal.x);
+            storeNormals.put(3 * index + 1, tmpNormal.y);
+            storeNormals.put(3 * index + 2, tmpNormal.z);
+        }
+        if (storeIds != null) {
+            storeIds.put(index, pcoId);
+        }
+
+        return closest != null;
+    }
     // *************************************************************************
     // native private methods
 
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.logging.Logger;
+
+/**
+ * A single-producer, single-consumer ring of primitive physics commands,
+ * owned by one recording thread of a PhysicsCommandBuffer.
+ * <p>
+ * The producer writes a slot and then advances the (volatile) tail; the
+ * consumer executes slots up to the tail and then advances the (volatile)
+ * head. When the ring fills up, the producer links a larger ring via
+ * {@link #next} and continues there, so recording never blocks.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class CommandRing {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of float arguments per command
+     */
+    final static int argStride = 7;
+    /**
+     * message logger for this class
+     */
+    final static Logger logger
+            = Logger.getLogger(CommandRing.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * float arguments of each slot (length = argStride * capacity)
+     */
+    final float[] args;
+    /**
+     * sequence number of the next command to execute (written only by the
+     * consumer)
+     */
+    volatile long head = 0L;
+    /**
+     * bitmask for reducing sequence numbers to slot indices
+     */
+    final int mask;
+    /**
+     * larger ring that replaced this one when it filled up, or null if none
+     * (written only by the producer)
+     */
+    volatile CommandRing next = null;
+    /**
+     * operation code of each slot
+     */
+    final int[] opcodes;
+    /**
+     * thread that records into this ring (not null)
+     */
+    final Thread owner;
+    /**
+     * sequence number of the next command to record (written only by the
+     * producer)
+     */
+    volatile long tail = 0L;
+    /**
+     * target object of each slot, or null if the slot is free
+     */
+    final Object[] targets;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty ring.
+     *
+     * @param capacity the number of slots (a power of 2, &ge;2)
+     * @param owner the recording thread (not null, alias created)
+     */
+    CommandRing(int capacity, Thread owner) {
+        assert Integer.bitCount(capacity) == 1 : capacity;
+        assert capacity >= 2 : capacity;
+        assert owner != null;
+
+        args = new float[argStride * capacity];
+        opcodes = new int[capacity];
+        mask = capacity - 1;
+        targets = new Object[capacity];
+        this.owner = owner;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the slots in this ring.
+     *
+     * @return the count (a power of 2, &ge;2)
+     */
+    int capacity() {
+        int result = mask + 1;
+        return result;
+    }
+
+    /**
+     * Test whether this ring holds no pending commands.
+     *
+     * @return true if empty, otherwise false
+     */
+    boolean isEmpty() {
+        if (head == tail) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Record a command, if there's room. Must be invoked only by the owner.
+     *
+     * @param opcode the operation code
+     * @param target the target object (not null, alias created)
+     * @param a0 the first float argument
+     * @param a1 the 2nd float argument
+     * @param a2 the 3rd float argument
+     * @param a3 the 4th float argument
+     * @param a4 the 5th float argument
+     * @param a5 the 6th float argument
+     * @param a6 the 7th float argument
+     * @return true if recorded, false if the ring is full
+     */
+    boolean offer(int opcode, Object target, float a0, float a1, float a2,
+            float a3, float a4, float a5, float a6) {
+        assert Thread.currentThread() == owner;
+        assert target != null;
+
+        long sequence = tail;
+        if (sequence - head > mask) {
+            return false;
+        }
+
+        int slot = (int) sequence & mask;
+        int base = argStride * slot;
+        args[base] = a0;
+        args[base + 1] = a1;
+        args[base + 2] = a2;
+        args[base + 3] = a3;
+        args[base + 4] = a4;
+        args[base + 5] = a5;
+        args[base + 6] = a6;
+        opcodes[slot] = opcode;
+        targets[slot] = target;
+        /*
+         * Publish the slot to the consumer.
+         */
+        tail = sequence + 1;
+
+        return true;
+    }
+}
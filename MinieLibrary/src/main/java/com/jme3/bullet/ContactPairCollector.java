@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.ContactPair;
+import com.jme3.bullet.collision.PhysicsCollisionEvent;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.util.LongPairSet;
+import com.jme3.math.Vector3f;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Reduce the manifold points reported during a simulation step to one
+ * ContactPair per colliding pair of objects, and detect pairs that began or
+ * ceased to be in contact since the preceding step. Used internally by
+ * PhysicsSpace, on the physics thread.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class ContactPairCollector {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ContactPairCollector.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * distributed summaries available for reuse
+     */
+    final private Deque<ContactPair> pool = new ArrayDeque<>(20);
+    /**
+     * number of points reported during the current step
+     */
+    private int numPoints = 0;
+    /**
+     * summary for each pair seen during the current step, in dense-index
+     * order
+     */
+    final private List<ContactPair> summaries = new ArrayList<>(20);
+    /**
+     * native IDs of the pairs seen during the preceding step, each pair
+     * ordered with the lower ID first
+     */
+    private LongPairSet previousPairs = new LongPairSet(20);
+    /**
+     * native IDs of the pairs seen during the current step, each pair ordered
+     * with the lower ID first
+     */
+    private LongPairSet stepPairs = new LongPairSet(20);
+    /**
+     * native IDs of the points reported during the current step
+     */
+    private long[] pointIds = new long[64];
+    /**
+     * scratch event used to read manifold points, or null if not yet needed
+     */
+    private PhysicsCollisionEvent scratchEvent = null;
+    /**
+     * first object of each point reported during the current step
+     */
+    private PhysicsCollisionObject[] pcoAs = new PhysicsCollisionObject[64];
+    /**
+     * 2nd object of each point reported during the current step
+     */
+    private PhysicsCollisionObject[] pcoBs = new PhysicsCollisionObject[64];
+    /**
+     * first object of each pair seen during the preceding step, in the
+     * dense-index order of previousPairs
+     */
+    private PhysicsCollisionObject[] previousAs
+            = new PhysicsCollisionObject[20];
+    /**
+     * 2nd object of each pair seen during the preceding step, in the
+     * dense-index order of previousPairs
+     */
+    private PhysicsCollisionObject[] previousBs
+            = new PhysicsCollisionObject[20];
+    /**
+     * first object of each pair to be carried into the next step, in the
+     * dense-index order of stepPairs
+     */
+    private PhysicsCollisionObject[] nextAs = new PhysicsCollisionObject[20];
+    /**
+     * 2nd object of each pair to be carried into the next step, in the
+     * dense-index order of stepPairs
+     */
+    private PhysicsCollisionObject[] nextBs = new PhysicsCollisionObject[20];
+    /**
+     * temporary storage for contact normals
+     */
+    final private Vector3f tmpNormal = new Vector3f();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Record a manifold point reported during the current step.
+     *
+     * @param pcoA the first involved object (not null)
+     * @param pcoB the 2nd involved object (not null)
+     * @param manifoldPointId the native ID of the btManifoldPoint (not 0)
+     */
+    void addPoint(PhysicsCollisionObject pcoA, PhysicsCollisionObject pcoB,
+            long manifoldPointId) {
+        if (numPoints == pointIds.length) {
+            int newLength = 2 * numPoints;
+            pointIds = Arrays.copyOf(pointIds, newLength);
+            pcoAs = Arrays.copyOf(pcoAs, newLength);
+            pcoBs = Arrays.copyOf(pcoBs, newLength);
+        }
+        pointIds[numPoints] = manifoldPointId;
+        pcoAs[numPoints] = pcoA;
+        pcoBs[numPoints] = pcoB;
+        ++numPoints;
+    }
+
+    /**
+     * Reduce the points recorded during the current step to summaries, append
+     * the summaries to the specified queue, and prepare for the next step.
+     * Must be invoked after the constraint solver runs, while the manifold
+     * points are still valid.
+     * <p>
+     * For each pair that was in contact during the preceding step but not the
+     * current one, a summary with no points is also appended. Bullet skips
+     * the narrowphase for pairs in which neither object is active, so such a
+     * pair (if both objects remain in the space) is carried forward as still
+     * in contact, without a summary, until one of the objects wakes up.
+     *
+     * @param addSummaries the queue to append to (not null, modified)
+     */
+    void endStep(Deque<ContactPair> addSummaries) {
+        if (numPoints == 0 && previousPairs.isEmpty()) {
+            return;
+        }
+
+        for (int pointIndex = 0; pointIndex < numPoints; ++pointIndex) {
+            PhysicsCollisionObject pcoA = pcoAs[pointIndex];
+            PhysicsCollisionObject pcoB = pcoBs[pointIndex];
+            long idA = pcoA.nativeId();
+            long idB = pcoB.nativeId();
+            int pairIndex = (idA < idB)
+                    ? stepPairs.add(idA, idB) : stepPairs.add(idB, idA);
+
+            ContactPair summary;
+            if (pairIndex == summaries.size()) { // first point for this pair
+                summary = pool.isEmpty() ? new ContactPair() : pool.pop();
+                summary.reset(pcoA, pcoB);
+                summaries.add(summary);
+            } else {
+                summary = summaries.get(pairIndex);
+            }
+
+            long pointId = pointIds[pointIndex];
+            if (scratchEvent == null) {
+                scratchEvent = new PhysicsCollisionEvent(pcoA, pcoB, pointId);
+            } else {
+                scratchEvent.reinitialize(pcoA, pcoB, pointId);
+            }
+            float impulse = scratchEvent.getAppliedImpulse();
+            scratchEvent.getNormalWorldOnB(tmpNormal);
+            if (summary.getObjectA() != pcoA) { // A and B are swapped
+                tmpNormal.negateLocal();
+            }
+            summary.accumulate(impulse, tmpNormal);
+            /*
+             * Don't retain references to collision objects.
+             */
+            pcoAs[pointIndex] = null;
+            pcoBs[pointIndex] = null;
+        }
+
+        int numPairs = summaries.size();
+        for (int pairIndex = 0; pairIndex < numPairs; ++pairIndex) {
+            ContactPair summary = summaries.get(pairIndex);
+            long firstId = stepPairs.firstId(pairIndex);
+            long secondId = stepPairs.secondId(pairIndex);
+            boolean isBeginning = !previousPairs.contains(firstId, secondId);
+            summary.setBeginning(isBeginning);
+            addSummaries.add(summary);
+        }
+        /*
+         * Carry forward each sleeping pair, and summarize each pair
+         * whose contact ended.
+         */
+        int numPrevious = previousPairs.size();
+        for (int pairIndex = 0; pairIndex < numPrevious; ++pairIndex) {
+            long firstId = previousPairs.firstId(pairIndex);
+            long secondId = previousPairs.secondId(pairIndex);
+            if (!stepPairs.contains(firstId, secondId)) {
+                PhysicsCollisionObject pcoA = previousAs[pairIndex];
+                PhysicsCollisionObject pcoB = previousBs[pairIndex];
+                if (isSleeping(pcoA, pcoB)) {
+                    int nextIndex = stepPairs.add(firstId, secondId);
+                    setNext(nextIndex, pcoA, pcoB);
+                } else {
+                    ContactPair ended
+                            = pool.isEmpty() ? new ContactPair() : pool.pop();
+                    ended.reset(pcoA, pcoB);
+                    addSummaries.add(ended);
+                }
+            }
+        }
+        /*
+         * The current step becomes the preceding step.
+         */
+        for (int pairIndex = 0; pairIndex < numPairs; ++pairIndex) {
+            ContactPair summary = summaries.get(pairIndex);
+            setNext(pairIndex, summary.getObjectA(), summary.getObjectB());
+        }
+        PhysicsCollisionObject[] swapObjects = previousAs;
+        previousAs = nextAs;
+        nextAs = swapObjects;
+        swapObjects = previousBs;
+        previousBs = nextBs;
+        nextBs = swapObjects;
+        /*
+         * Don't retain references to collision objects.
+         */
+        Arrays.fill(nextAs, 0, Math.min(numPrevious, nextAs.length), null);
+        Arrays.fill(nextBs, 0, Math.min(numPrevious, nextBs.length), null);
+
+        LongPairSet swap = previousPairs;
+        previousPairs = stepPairs;
+        stepPairs = swap;
+
+        summaries.clear();
+        stepPairs.clear();
+        numPoints = 0;
+    }
+
+    /**
+     * Return a distributed summary to the pool for reuse.
+     *
+     * @param summary the summary to recycle (not null)
+     */
+    void recycle(ContactPair summary) {
+        assert summary != null;
+        pool.push(summary);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test whether the specified objects are a sleeping pair, whose contact
+     * persists even though the narrowphase reported no points.
+     *
+     * @param pcoA the first object (not null)
+     * @param pcoB the 2nd object (not null)
+     * @return true if neither is active and both remain in a space,
+     * otherwise false
+     */
+    private static boolean isSleeping(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB) {
+        boolean result = !pcoA.isActive() && !pcoB.isActive()
+                && pcoA.isInWorld() && pcoB.isInWorld();
+        return result;
+    }
+
+    /**
+     * Store the objects of a pair to be carried into the next step, growing
+     * the arrays if necessary.
+     *
+     * @param pairIndex the dense index of the pair in stepPairs (&ge;0)
+     * @param pcoA the first object (not null)
+     * @param pcoB the 2nd object (not null)
+     */
+    private void setNext(int pairIndex, PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB) {
+        if (pairIndex >= nextAs.length) {
+            int newLength = Math.max(2 * nextAs.length, pairIndex + 1);
+            nextAs = Arrays.copyOf(nextAs, newLength);
+            nextBs = Arrays.copyOf(nextBs, newLength);
+        }
+        nextAs[pairIndex] = pcoA;
+        nextBs[pairIndex] = pcoB;
+    }
+}
@@ -31,13 +31,17 @@
  */
 package com.jme3.bullet;
 
+import com.jme3.bounding.BoundingVolume;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
 import com.jme3.bullet.objects.MultiBodyCollider;
+import com.jme3.bullet.util.ConcurrentLongMap;
 import com.jme3.math.Vector3f;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -60,11 +64,16 @@ public class MultiBodySpace extends PhysicsSpace {
     // *************************************************************************
     // fields
 
+    /**
+     * read-only view of all added collision objects, or null if not yet
+     * created
+     */
+    private Collection<PhysicsCollisionObject> pcoView = null;
     /**
      * map multibody IDs to added multibodies
      */
-    final private Map<Long, MultiBody> multiBodyMap
-            = new ConcurrentHashMap<>(64);
+    final private ConcurrentLongMap<MultiBody> multiBodyMap
+            = new ConcurrentLongMap<>(64);
     // *************************************************************************
     // constructors
 
@@ -138,6 +147,29 @@ public class MultiBodySpace extends PhysicsSpace {
     // *************************************************************************
     // PhysicsSpace methods
 
+    /**
+     * Find all collision objects in this space whose axis-aligned bounding
+     * boxes overlap the specified region. No simulation step is required.
+     *
+     * @param region the region to test (not null, typically a BoundingBox or
+     * BoundingSphere in physics-space coordinates, unaffected)
+     * @param groupMask the collision groups to include (bitmask)
+     * @param storeResult storage for the overlapping objects (not null,
+     * cleared and then modified)
+     * @return the number of overlapping objects found (&ge;0)
+     */
+    @Override
+    public int aabbTest(BoundingVolume region, int groupMask,
+            Collection<? super PhysicsCollisionObject> storeResult) {
+        int result = super.aabbTest(region, groupMask, storeResult);
+        for (MultiBody multiBody : multiBodyMap.values()) {
+            Collection<MultiBodyCollider> colliders = multiBody.listColliders();
+            result += addOverlaps(colliders, region, groupMask, storeResult);
+        }
+
+        return result;
+    }
+
     /**
      * Activate all colliders and rigid bodies in this space.
      *
@@ -163,6 +195,7 @@ public class MultiBodySpace extends PhysicsSpace {
     @Override
     public void add(Object object) {
         Validate.nonNull(object, "object");
+        verifyMutable();
 
         if (object instanceof MultiBody) {
             addMultiBody((MultiBody) object);
@@ -215,21 +248,47 @@ public class MultiBodySpace extends PhysicsSpace {
     }
 
     /**
-     * Enumerate collision objects that have been added to this space and not
-     * yet removed.
+     * Access a live view of the collision objects that have been added to
+     * this space and not yet removed. Iterating over the multibody colliders
+     * copies them.
      *
-     * @return a new modifiable collection of pre-existing instances (not null)
+     * @return an unmodifiable view of the pre-existing instances (not null)
      */
     @Override
-    public Collection<PhysicsCollisionObject> getPcoList() {
-        Collection<PhysicsCollisionObject> result = super.getPcoList();
+    public Collection<PhysicsCollisionObject> getPcoView() {
+        if (pcoView == null) {
+            Collection<MultiBodyCollider> colliders
+                    = new AbstractCollection<MultiBodyCollider>() {
+                @Override
+                public Iterator<MultiBodyCollider> iterator() {
+                    List<MultiBodyCollider> list = new ArrayList<>(16);
+                    for (MultiBody multiBody : multiBodyMap.values()) {
+                        list.addAll(multiBody.listColliders());
+                    }
+                    Collection<MultiBodyCollider> result
+                            = Collections.unmodifiableCollection(list);
+
+                    return result.iterator();
+                }
 
-        for (MultiBody multiBody : multiBodyMap.values()) {
-            Collection<MultiBodyCollider> pcos = multiBody.listColliders();
-            result.addAll(pcos);
+                @Override
+                public int size() {
+                    int result = 0;
+                    for (MultiBody multiBody : multiBodyMap.values()) {
+                        result += multiBody.listColliders().size();
+                    }
+
+                    return result;
+                }
+            };
+            List<Collection<? extends PhysicsCollisionObject>> sources
+                    = new ArrayList<>(2);
+            sources.add(super.getPcoView());
+            sources.add(colliders);
+            pcoView = new PcoCollection(sources);
         }
 
-        return result;
+        return pcoView;
     }
 
     /**
@@ -252,6 +311,7 @@ public class MultiBodySpace extends PhysicsSpace {
      */
     @Override
     public void remove(Object object) {
+        verifyMutable();
         if (object instanceof MultiBody) {
             removeMultiBody((MultiBody) object);
         } else {
@@ -259,6 +319,38 @@ public class MultiBodySpace extends PhysicsSpace {
         }
     }
 
+    /**
+     * Shift the origin of physics space to the specified location, relocating
+     * all collision objects, including multibodies and their colliders.
+     *
+     * @param newOrigin the location (in the old physics-space coordinates) to
+     * become the new origin (not null, finite, unaffected)
+     * @return the number of objects relocated (&ge;0)
+     */
+    @Override
+    public int shiftOrigin(Vector3f newOrigin) {
+        int result = super.shiftOrigin(newOrigin);
+
+        Vector3f location = new Vector3f();
+        for (MultiBody multiBody : multiBodyMap.values()) {
+            multiBody.baseLocation(location);
+            location.subtractLocal(newOrigin);
+            multiBody.setBaseLocation(location);
+            /*
+             * Also relocate the colliders, so their bounding boxes are
+             * correct before the next step.
+             */
+            for (MultiBodyCollider collider : multiBody.listColliders()) {
+                collider.getPhysicsLocation(location);
+                location.subtractLocal(newOrigin);
+                collider.setPhysicsLocation(location);
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Replace the existing contact-and-constraint solver with a new one of the
      * correct type.
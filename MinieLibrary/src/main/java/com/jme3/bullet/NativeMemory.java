@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Accounting for the native memory used by tracked native objects, which the
+ * JVM's heap metrics don't reflect.
+ * <p>
+ * Each tracked object is charged an estimate obtained from
+ * {@link NativePhysicsObject#estimateNativeBytes()} when its native object is
+ * assigned, and credited when the native object is freed. Objects whose
+ * footprint grows after assignment (such as soft bodies) are re-estimated by
+ * {@link #refresh()}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class NativeMemory {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * index of the byte estimate in each statistics array
+     */
+    final private static int bytesIndex = 1;
+    /**
+     * index of the object count in each statistics array
+     */
+    final private static int countIndex = 0;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(NativeMemory.class.getName());
+    /**
+     * index of the high-water mark in each statistics array
+     */
+    final private static int peakIndex = 2;
+    // *************************************************************************
+    // fields
+
+    /**
+     * budget for the estimated native memory (in bytes) or 0 for no budget
+     */
+    private static volatile long budgetBytes = 0L;
+    /**
+     * listeners to notify when the budget is exceeded
+     */
+    final private static List<NativeMemoryListener> listeners
+            = new CopyOnWriteArrayList<>();
+    /**
+     * true if the estimate exceeded the budget when last checked
+     */
+    final private static AtomicBoolean overBudget = new AtomicBoolean(false);
+    /**
+     * map each tracked class to its statistics: object count, estimated bytes,
+     * and high-water mark
+     */
+    final private static ConcurrentHashMap<Class<?>, AtomicLongArray> statsMap
+            = new ConcurrentHashMap<>(64);
+    /**
+     * estimated native bytes of all tracked objects
+     */
+    final private static AtomicLong totalBytes = new AtomicLong();
+    /**
+     * high-water mark of totalBytes
+     */
+    final private static AtomicLong totalPeak = new AtomicLong();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private NativeMemory() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Register a listener to be notified when the budget is exceeded.
+     *
+     * @param listener the listener to add (not null, alias created)
+     */
+    public static void addListener(NativeMemoryListener listener) {
+        Validate.nonNull(listener, "listener");
+        listeners.add(listener);
+    }
+
+    /**
+     * Read the budget for estimated native memory.
+     *
+     * @return the budget (in bytes, &ge;0) or 0 for no budget
+     */
+    public static long budget() {
+        assert budgetBytes >= 0L : budgetBytes;
+        return budgetBytes;
+    }
+
+    /**
+     * Count all tracked objects.
+     *
+     * @return the count (&ge;0)
+     */
+    public static long countObjects() {
+        long result = 0L;
+        for (AtomicLongArray stats : statsMap.values()) {
+            result += stats.get(countIndex);
+        }
+
+        return result;
+    }
+
+    /**
+     * Count the tracked objects of the specified type, including subclasses.
+     *
+     * @param type the type to count (not null)
+     * @return the count (&ge;0)
+     */
+    public static long countObjects(Class<? extends NativePhysicsObject> type) {
+        Validate.nonNull(type, "type");
+
+        long result = 0L;
+        for (Map.Entry<Class<?>, AtomicLongArray> entry
+                : statsMap.entrySet()) {
+            if (type.isAssignableFrom(entry.getKey())) {
+                result += entry.getValue().get(countIndex);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Print a per-class summary of the estimated native memory, largest
+     * first, to the specified stream.
+     *
+     * @param stream the output stream (not null)
+     */
+    public static void dump(PrintStream stream) {
+        Validate.nonNull(stream, "stream");
+
+        List<Class<?>> classes = new ArrayList<>(listClasses());
+        Collections.sort(classes, new Comparator<Class<?>>() {
+            @Override
+            public int compare(Class<?> a, Class<?> b) {
+                long aBytes = statsMap.get(a).get(bytesIndex);
+                long bBytes = statsMap.get(b).get(bytesIndex);
+                return Long.compare(bBytes, aBytes);
+            }
+        });
+
+        stream.printf("Native memory: %d bytes estimated, peak=%d, budget=%d%n",
+                estimatedBytes(), highWaterMark(), budget());
+        for (Class<?> type : classes) {
+            AtomicLongArray stats = statsMap.get(type);
+            stream.printf(" %s: %d objects, %d bytes, peak=%d%n",
+                    type.getSimpleName(), stats.get(countIndex),
+                    stats.get(bytesIndex), stats.get(peakIndex));
+        }
+        stream.flush();
+    }
+
+    /**
+     * Read the estimated native memory of all tracked objects.
+     *
+     * @return the estimate (in bytes, &ge;0)
+     */
+    public static long estimatedBytes() {
+        long result = totalBytes.get();
+        return result;
+    }
+
+    /**
+     * Read the estimated native memory of the tracked objects of the
+     * specified type, including subclasses. For instance,
+     * {@code estimatedBytes(CollisionShape.class)} covers all shapes.
+     *
+     * @param type the type to query (not null)
+     * @return the estimate (in bytes, &ge;0)
+     */
+    public static long estimatedBytes(
+            Class<? extends NativePhysicsObject> type) {
+        Validate.nonNull(type, "type");
+
+        long result = 0L;
+        for (Map.Entry<Class<?>, AtomicLongArray> entry
+                : statsMap.entrySet()) {
+            if (type.isAssignableFrom(entry.getKey())) {
+                result += entry.getValue().get(bytesIndex);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the high-water mark of the estimated native memory of all tracked
+     * objects.
+     *
+     * @return the peak estimate (in bytes, &ge;0)
+     */
+    public static long highWaterMark() {
+        long result = totalPeak.get();
+        return result;
+    }
+
+    /**
+     * Read the high-water mark of the estimated native memory of the tracked
+     * objects of exactly the specified class, excluding subclasses.
+     *
+     * @param type the class to query (not null)
+     * @return the peak estimate (in bytes, &ge;0)
+     */
+    public static long highWaterMark(
+            Class<? extends NativePhysicsObject> type) {
+        Validate.nonNull(type, "type");
+
+        long result = 0L;
+        AtomicLongArray stats = statsMap.get(type);
+        if (stats != null) {
+            result = stats.get(peakIndex);
+        }
+
+        return result;
+    }
+
+    /**
+     * Enumerate the classes of objects tracked so far.
+     *
+     * @return a new set of classes (not null)
+     */
+    public static Set<Class<?>> listClasses() {
+        Set<Class<?>> result = new HashSet<>(statsMap.keySet());
+        return result;
+    }
+
+    /**
+     * Re-estimate every tracked object that's still reachable, to account for
+     * growth since its native object was assigned, and check the budget.
+     * Iterates over all tracked objects, so it's best invoked periodically
+     * rather than every frame.
+     *
+     * @return the updated estimate for all tracked objects (in bytes, &ge;0)
+     */
+    public static long refresh() {
+        for (NpoTracker tracker : NativePhysicsObject.map.values()) {
+            NativePhysicsObject referent = tracker.get();
+            if (referent != null) {
+                long bytes = referent.estimateNativeBytes();
+                long delta = tracker.adjustEstimate(bytes);
+                if (delta != 0L) {
+                    addBytes(tracker.referentClass(), delta);
+                }
+            }
+        }
+
+        long result = totalBytes.get();
+        return result;
+    }
+
+    /**
+     * De-register the specified listener.
+     *
+     * @param listener the listener to remove (not null)
+     */
+    public static void removeListener(NativeMemoryListener listener) {
+        Validate.nonNull(listener, "listener");
+        listeners.remove(listener);
+    }
+
+    /**
+     * Reset all high-water marks to the current estimates.
+     */
+    public static void resetHighWaterMarks() {
+        totalPeak.set(totalBytes.get());
+        for (AtomicLongArray stats : statsMap.values()) {
+            stats.set(peakIndex, stats.get(bytesIndex));
+        }
+    }
+
+    /**
+     * Alter the budget for estimated native memory. When the estimate first
+     * exceeds the budget, a warning is logged and all listeners are notified.
+     *
+     * @param newBudget the desired budget (in bytes, &ge;0) or 0 for no budget
+     * (default=0)
+     */
+    public static void setBudget(long newBudget) {
+        Validate.require(newBudget >= 0L, "a non-negative budget");
+
+        budgetBytes = newBudget;
+        overBudget.set(false);
+        checkBudget(totalBytes.get());
+    }
+
+    /**
+     * Credit the estimate of the specified tracker, whose native object is
+     * about to be freed.
+     *
+     * @param tracker the tracker (not null)
+     */
+    static void release(NpoTracker tracker) {
+        Class<? extends NativePhysicsObject> type = tracker.referentClass();
+        AtomicLongArray stats = statsMap.get(type);
+        assert stats != null : type;
+        stats.decrementAndGet(countIndex);
+
+        long bytes = tracker.releaseEstimate();
+        if (bytes != 0L) {
+            addBytes(type, -bytes);
+        }
+    }
+
+    /**
+     * Charge the specified estimate to a newly created tracker.
+     *
+     * @param tracker the tracker (not null)
+     * @param bytes the estimated native memory of its referent (in bytes,
+     * &ge;0)
+     */
+    static void track(NpoTracker tracker, long bytes) {
+        assert bytes >= 0L : bytes;
+
+        Class<? extends NativePhysicsObject> type = tracker.referentClass();
+        AtomicLongArray stats = statsMap.get(type);
+        if (stats == null) {
+            AtomicLongArray newStats = new AtomicLongArray(3);
+            stats = statsMap.putIfAbsent(type, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        stats.incrementAndGet(countIndex);
+
+        long delta = tracker.adjustEstimate(bytes);
+        if (delta != 0L) {
+            addBytes(type, delta);
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add the specified amount to the estimates of the specified class and
+     * the total, updating the high-water marks and checking the budget.
+     *
+     * @param type the class of the affected object (not null)
+     * @param delta the change in estimated bytes (may be negative)
+     */
+    private static void addBytes(Class<? extends NativePhysicsObject> type,
+            long delta) {
+        AtomicLongArray stats = statsMap.get(type);
+        long classBytes = stats.addAndGet(bytesIndex, delta);
+        long total = totalBytes.addAndGet(delta);
+
+        if (delta > 0L) {
+            long peak = stats.get(peakIndex);
+            while (classBytes > peak
+                    && !stats.compareAndSet(peakIndex, peak, classBytes)) {
+                peak = stats.get(peakIndex);
+            }
+
+            peak = totalPeak.get();
+            while (total > peak && !totalPeak.compareAndSet(peak, total)) {
+                peak = totalPeak.get();
+            }
+        }
+
+        checkBudget(total);
+    }
+
+    /**
+     * Compare the specified estimate with the budget, raising an alert if the
+     * budget has just been exceeded.
+     *
+     * @param total the estimated native memory (in bytes)
+     */
+    private static void checkBudget(long total) {
+        long budget = budgetBytes;
+        if (budget <= 0L || total <= budget) {
+            overBudget.set(false);
+
+        } else if (overBudget.compareAndSet(false, true)) {
+            logger.warning("Estimated native memory (" + total
+                    + " bytes) exceeds the budget of " + budget + " bytes.");
+            for (NativeMemoryListener listener : listeners) {
+                listener.nativeBudgetExceeded(total, budget);
+            }
+        }
+    }
+}
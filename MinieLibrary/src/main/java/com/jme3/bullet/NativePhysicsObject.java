@@ -31,9 +31,8 @@
  */
 package com.jme3.bullet;
 
+import com.jme3.bullet.util.ConcurrentLongMap;
 import java.lang.ref.ReferenceQueue;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
 
@@ -62,8 +61,8 @@ abstract public class NativePhysicsObject {
     /**
      * map native IDs to their trackers
      */
-    final private static Map<Long, NpoTracker> map
-            = new ConcurrentHashMap<>(999);
+    final static ConcurrentLongMap<NpoTracker> map
+            = new ConcurrentLongMap<>(999);
     /**
      * weak references to all instances whose assigned native objects are
      * tracked and known to be unused
@@ -95,7 +94,21 @@ abstract public class NativePhysicsObject {
     }
 
     /**
-     * Free any assigned native objects that are known to be unused.
+     * Estimate how much native memory the assigned native object occupies,
+     * including any native buffers it owns. Used for accounting by
+     * {@link NativeMemory}. Subclasses whose footprint depends on their
+     * content should override this method.
+     *
+     * @return the estimate (in bytes, &ge;0)
+     */
+    public long estimateNativeBytes() {
+        return 64L;
+    }
+
+    /**
+     * Free any assigned native objects that are known to be unused. Blocks
+     * until the current thread is interrupted. Normally the background thread
+     * managed by {@link NativeReclaimer} does this.
      */
     final public static void freeUnusedObjects() {
         while (true) {
@@ -160,6 +173,7 @@ abstract public class NativePhysicsObject {
             NpoTracker tracker = new NpoTracker(this);
             NpoTracker previous = map.put(nativeId, tracker);
             assert previous == null : id;
+            NativeMemory.track(tracker, estimateNativeBytes());
         }
     }
 
@@ -177,6 +191,7 @@ abstract public class NativePhysicsObject {
         NpoTracker tracker = new NpoTracker(this);
         NpoTracker previous = map.put(nativeId, tracker);
         assert previous == null : id;
+        NativeMemory.track(tracker, estimateNativeBytes());
     }
 
     /**
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Frees native objects whose Java counterparts have been garbage collected.
+ * <p>
+ * By default, a daemon thread named "Physics Cleaner" is started when the
+ * native library initializes. It wakes whenever an unused object is
+ * detected, frees up to batchSize objects, and then (optionally) sleeps for
+ * pauseMillis to limit its impact on other threads. Applications that prefer
+ * to reclaim memory on their own schedule can stop the thread and invoke
+ * {@link #drain(int)} instead, for instance once per frame.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class NativeReclaimer {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(NativeReclaimer.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * maximum number of objects freed by the thread per wake-up (&ge;1)
+     */
+    private static volatile int batchSize = 256;
+    /**
+     * total number of native objects freed by this class
+     */
+    final private static AtomicLong numFreed = new AtomicLong();
+    /**
+     * duration the thread sleeps after each batch (in milliseconds, &ge;0)
+     */
+    private static volatile long pauseMillis = 0L;
+    /**
+     * the background thread, or null if not running
+     */
+    private static Thread thread = null;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private NativeReclaimer() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the maximum number of objects the thread frees per wake-up.
+     *
+     * @return the batch size (&ge;1)
+     */
+    public static int batchSize() {
+        assert batchSize >= 1 : batchSize;
+        return batchSize;
+    }
+
+    /**
+     * Count the native objects freed so far by the thread and by drain().
+     *
+     * @return the count (&ge;0)
+     */
+    public static long countFreed() {
+        long result = numFreed.get();
+        return result;
+    }
+
+    /**
+     * Free native objects known to be unused, without blocking. May be
+     * invoked on any thread, whether or not the background thread is running.
+     *
+     * @param maxObjects the maximum number of objects to free (&ge;0)
+     * @return the number of objects freed (&ge;0)
+     */
+    public static int drain(int maxObjects) {
+        Validate.nonNegative(maxObjects, "max objects");
+
+        int result = 0;
+        while (result < maxObjects) {
+            NpoTracker tracker
+                    = (NpoTracker) NativePhysicsObject.weakReferenceQueue.poll();
+            if (tracker == null) {
+                break;
+            }
+            free(tracker);
+            ++result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Test whether the background thread is running.
+     *
+     * @return true if running, otherwise false
+     */
+    public static synchronized boolean isRunning() {
+        if (thread == null) {
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Read how long the thread sleeps after each batch.
+     *
+     * @return the duration (in milliseconds, &ge;0)
+     */
+    public static long pauseMillis() {
+        assert pauseMillis >= 0L : pauseMillis;
+        return pauseMillis;
+    }
+
+    /**
+     * Alter the maximum number of objects the thread frees per wake-up.
+     *
+     * @param newSize the desired batch size (&ge;1, default=256)
+     */
+    public static void setBatchSize(int newSize) {
+        Validate.positive(newSize, "new size");
+        batchSize = newSize;
+    }
+
+    /**
+     * Alter how long the thread sleeps after each batch.
+     *
+     * @param newMillis the desired duration (in milliseconds, &ge;0,
+     * default=0)
+     */
+    public static void setPauseMillis(long newMillis) {
+        Validate.require(newMillis >= 0L, "a non-negative duration");
+        pauseMillis = newMillis;
+    }
+
+    /**
+     * Start the background thread, if it isn't already running.
+     */
+    public static synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+
+        thread = new Thread("Physics Cleaner") {
+            @Override
+            public void run() {
+                reclaimUntilInterrupted();
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the background thread, if it's running. Objects that become unused
+     * afterward are freed only by drain() or a later start().
+     */
+    public static synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Free the native object of the specified tracker, logging any exception.
+     *
+     * @param tracker the tracker to free (not null)
+     */
+    private static void free(NpoTracker tracker) {
+        try {
+            tracker.freeTrackedObject();
+            numFreed.incrementAndGet();
+        } catch (RuntimeException exception) {
+            logger.log(Level.SEVERE, "Failed to free " + tracker, exception);
+        }
+    }
+
+    /**
+     * Body of the background thread: wait for an unused object, free it along
+     * with up to batchSize-1 others, optionally pause, and repeat.
+     */
+    private static void reclaimUntilInterrupted() {
+        Thread currentThread = Thread.currentThread();
+        while (!currentThread.isInterrupted()) {
+            try {
+                NpoTracker tracker = (NpoTracker) NativePhysicsObject
+                        .weakReferenceQueue.remove();
+                free(tracker);
+                drain(batchSize - 1);
+
+                long sleepMillis = pauseMillis;
+                if (sleepMillis > 0L) {
+                    Thread.sleep(sleepMillis);
+                }
+            } catch (InterruptedException exception) {
+                break;
+            }
+        }
+    }
+}
@@ -31,13 +31,16 @@
  */
 package com.jme3.bullet;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.ref.WeakReference;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 
 /**
- * Metadata used to track and free a NativePhysicsObject. Immutable.
+ * Metadata used to track, account for, and free a NativePhysicsObject.
  *
  * @author Stephen Gold sgold@sonic.net
  */
@@ -53,10 +56,30 @@ class NpoTracker extends WeakReference<NativePhysicsObject> {
     // *************************************************************************
     // fields
 
+    /**
+     * true once the estimate has been credited back to NativeMemory
+     */
+    private boolean released = false;
+    /**
+     * handles for the freeNativeObject(long) methods of each class, looked up
+     * once per class, starting with the class itself and proceeding through
+     * its superclasses
+     */
+    final private static ClassValue<MethodHandle[]> freeHandles
+            = new ClassValue<MethodHandle[]>() {
+        @Override
+        protected MethodHandle[] computeValue(Class<?> type) {
+            return findFreeHandles(type);
+        }
+    };
     /**
      * type of the referent (not null)
      */
     final private Class<? extends NativePhysicsObject> referentClass;
+    /**
+     * estimated native memory charged to NativeMemory (in bytes, &ge;0)
+     */
+    private long estimatedBytes = 0L;
     /**
      * identifier of the referent's native object (not zero)
      */
@@ -80,41 +103,67 @@ class NpoTracker extends WeakReference<NativePhysicsObject> {
     // new methods exposed
 
     /**
-     * Free the tracked native object by attempting to invoke
-     * freeNativeObject(id) on its class and superclasses thereof.
+     * Replace the charged estimate, unless it has already been released.
+     *
+     * @param newBytes the new estimate (in bytes, &ge;0)
+     * @return the change in the charged estimate (in bytes)
+     */
+    synchronized long adjustEstimate(long newBytes) {
+        assert newBytes >= 0L : newBytes;
+
+        long result = 0L;
+        if (!released) {
+            result = newBytes - estimatedBytes;
+            estimatedBytes = newBytes;
+        }
+
+        return result;
+    }
+
+    /**
+     * Free the tracked native object by invoking freeNativeObject(id) on its
+     * class and superclasses thereof, using cached method handles.
      */
     void freeTrackedObject() {
-        int invocationCount = 0;
         /*
          * Remove this tracker from the map BEFORE freeing the native object.
          */
         NativePhysicsObject.removeTracker(id);
+        NativeMemory.release(this);
 
-        Class<? extends Object> c;
-        for (c = referentClass; c != Object.class; c = c.getSuperclass()) {
-            Method method;
+        MethodHandle[] handles = freeHandles.get(referentClass);
+        assert handles.length > 0 : referentClass;
+        for (MethodHandle handle : handles) {
             try {
-                method = c.getDeclaredMethod("freeNativeObject", long.class);
-
-            } catch (NoSuchMethodException exception) {
-                continue;
-
-            } catch (IllegalArgumentException exception) {
-                throw new RuntimeException(exception);
+                handle.invokeExact(id);
+            } catch (RuntimeException | Error exception) {
+                throw exception;
+            } catch (Throwable throwable) {
+                throw new RuntimeException(throwable);
             }
+        }
+    }
 
-            try {
-                method.setAccessible(true);
-                method.invoke(null, id);
+    /**
+     * Access the type of the referent.
+     *
+     * @return the pre-existing class (not null)
+     */
+    Class<? extends NativePhysicsObject> referentClass() {
+        return referentClass;
+    }
 
-                ++invocationCount;
-            } catch (IllegalAccessException | IllegalArgumentException
-                    | SecurityException | InvocationTargetException exception) {
-                throw new RuntimeException(exception);
-            }
-        }
+    /**
+     * Release the charged estimate. Subsequent adjustments are ignored.
+     *
+     * @return the released estimate (in bytes, &ge;0)
+     */
+    synchronized long releaseEstimate() {
+        long result = estimatedBytes;
+        estimatedBytes = 0L;
+        released = true;
 
-        assert invocationCount > 0 : invocationCount;
+        return result;
     }
     // *************************************************************************
     // Object methods
@@ -129,6 +178,44 @@ class NpoTracker extends WeakReference<NativePhysicsObject> {
         String result = referentClass.getSimpleName();
         result += "_" + Long.toHexString(id);
 
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Look up the freeNativeObject(long) methods declared by the specified
+     * class and its superclasses, and convert them to method handles.
+     *
+     * @param type the class to search (not null)
+     * @return a new array of handles, in order from subclass to superclass
+     */
+    private static MethodHandle[] findFreeHandles(Class<?> type) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<MethodHandle> list = new ArrayList<>(4);
+
+        Class<?> c;
+        for (c = type; c != Object.class; c = c.getSuperclass()) {
+            Method method;
+            try {
+                method = c.getDeclaredMethod("freeNativeObject", long.class);
+            } catch (NoSuchMethodException exception) {
+                continue;
+            }
+
+            try {
+                method.setAccessible(true);
+                MethodHandle handle = lookup.unreflect(method);
+                list.add(handle);
+            } catch (IllegalAccessException | SecurityException exception) {
+                throw new RuntimeException(exception);
+            }
+        }
+
+        int numHandles = list.size();
+        MethodHandle[] result = new MethodHandle[numHandles];
+        list.toArray(result);
+
         return result;
     }
 }
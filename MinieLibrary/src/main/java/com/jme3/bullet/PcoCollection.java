@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+/**
+ * A read-only view that chains several collections of collision objects
+ * together, so that a space can enumerate its objects without copying them.
+ * The view is only as consistent as its sources.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class PcoCollection extends AbstractCollection<PhysicsCollisionObject> {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final static Logger logger
+            = Logger.getLogger(PcoCollection.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * the underlying collections, in iteration order (not null)
+     */
+    final private List<Collection<? extends PhysicsCollisionObject>> sources;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a view of the specified collections.
+     *
+     * @param sources the collections to chain (not null, unaffected)
+     */
+    PcoCollection(
+            List<Collection<? extends PhysicsCollisionObject>> sources) {
+        this.sources = new ArrayList<>(sources);
+    }
+    // *************************************************************************
+    // AbstractCollection methods
+
+    /**
+     * Test whether the specified object is contained in any of the sources.
+     *
+     * @param object the object to search for (may be null)
+     * @return true if found, otherwise false
+     */
+    @Override
+    public boolean contains(Object object) {
+        for (Collection<? extends PhysicsCollisionObject> source : sources) {
+            if (source.contains(object)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Test whether all the sources are empty.
+     *
+     * @return true if empty, otherwise false
+     */
+    @Override
+    public boolean isEmpty() {
+        for (Collection<? extends PhysicsCollisionObject> source : sources) {
+            if (!source.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Create an iterator over the sources, in order.
+     *
+     * @return a new read-only iterator
+     */
+    @Override
+    public Iterator<PhysicsCollisionObject> iterator() {
+        Iterator<PhysicsCollisionObject> result
+                = new Iterator<PhysicsCollisionObject>() {
+            private int sourceIndex = -1;
+            private Iterator<? extends PhysicsCollisionObject> current;
+
+            @Override
+            public boolean hasNext() {
+                while (current == null || !current.hasNext()) {
+                    if (sourceIndex + 1 >= sources.size()) {
+                        return false;
+                    }
+                    ++sourceIndex;
+                    current = sources.get(sourceIndex).iterator();
+                }
+
+                return true;
+            }
+
+            @Override
+            public PhysicsCollisionObject next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                PhysicsCollisionObject pco = current.next();
+
+                return pco;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("read-only view");
+            }
+        };
+
+        return result;
+    }
+
+    /**
+     * Count the objects in all the sources.
+     *
+     * @return the count (&ge;0)
+     */
+    @Override
+    public int size() {
+        int result = 0;
+        for (Collection<? extends PhysicsCollisionObject> source : sources) {
+            result += source.size();
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,478 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Records mutations of physics objects on any thread for execution on the
+ * physics thread at the start of the next simulation step. Obtain one using
+ * {@link PhysicsSpace#getCommandBuffer()}.
+ * <p>
+ * Unlike {@link PhysicsSpace#enqueue(java.util.concurrent.Callable)}, recording
+ * a command allocates nothing and takes no locks: each recording thread owns a
+ * ring of primitive commands, which the physics thread drains in a single
+ * pass. A ring that fills up is replaced by a larger one, so recording never
+ * blocks, but sizing the rings generously avoids allocation altogether.
+ * <p>
+ * Commands recorded by the same thread execute in the order recorded. No
+ * order is guaranteed between commands recorded by different threads, nor
+ * between commands and enqueued tasks. Vector arguments are copied, so the
+ * caller may re-use them immediately.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class PhysicsCommandBuffer {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * operation code to activate a collision object
+     */
+    final private static int activateOp = 0;
+    /**
+     * operation code to add an object to the space
+     */
+    final private static int addOp = 1;
+    /**
+     * operation code to apply a force to a rigid body
+     */
+    final private static int forceOp = 2;
+    /**
+     * operation code to apply an impulse to a rigid body
+     */
+    final private static int impulseOp = 3;
+    /**
+     * operation code to remove an object from the space
+     */
+    final private static int removeOp = 4;
+    /**
+     * operation code to alter the angular velocity of a rigid body
+     */
+    final private static int setAngularVelocityOp = 5;
+    /**
+     * operation code to alter the linear velocity of a rigid body
+     */
+    final private static int setLinearVelocityOp = 6;
+    /**
+     * operation code to alter the location and orientation of a rigid body
+     */
+    final private static int setTransformOp = 7;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PhysicsCommandBuffer.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * the ring each thread is currently recording into
+     */
+    final private ThreadLocal<CommandRing> currentRing
+            = new ThreadLocal<CommandRing>() {
+        @Override
+        protected CommandRing initialValue() {
+            Thread thread = Thread.currentThread();
+            CommandRing ring = new CommandRing(initialCapacity, thread);
+            rings.add(ring);
+
+            return ring;
+        }
+    };
+    /**
+     * number of slots in each newly-created ring (a power of 2)
+     */
+    final private int initialCapacity;
+    /**
+     * rings of all recording threads, in registration order (accessed by the
+     * consumer, added to by producers)
+     */
+    final private List<CommandRing> rings = new CopyOnWriteArrayList<>();
+    /**
+     * space in which commands execute (not null)
+     */
+    final private PhysicsSpace space;
+    /**
+     * scratch orientation for the consumer
+     */
+    final private Quaternion tmpRotation = new Quaternion();
+    /**
+     * first scratch vector for the consumer
+     */
+    final private Vector3f tmpVector1 = new Vector3f();
+    /**
+     * 2nd scratch vector for the consumer
+     */
+    final private Vector3f tmpVector2 = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty buffer for the specified space.
+     *
+     * @param space the space in which commands will execute (not null, alias
+     * created)
+     * @param initialCapacity the number of commands each recording thread can
+     * have pending before its ring must grow (&ge;2, rounded up to a power of
+     * 2)
+     */
+    PhysicsCommandBuffer(PhysicsSpace space, int initialCapacity) {
+        assert space != null;
+        Validate.inRange(initialCapacity, "initial capacity", 2, 1 << 24);
+
+        this.space = space;
+        this.initialCapacity = Integer.highestOneBit(initialCapacity - 1) << 1;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Record a command to activate the specified collision object.
+     *
+     * @param pco the object to activate (not null)
+     * @param forceFlag true to force activation
+     */
+    public void activate(PhysicsCollisionObject pco, boolean forceFlag) {
+        Validate.nonNull(pco, "collision object");
+        float flag = forceFlag ? 1f : 0f;
+        record(activateOp, pco, flag, 0f, 0f, 0f, 0f, 0f, 0f);
+    }
+
+    /**
+     * Record a command to add the specified object to the space, as if by
+     * {@link PhysicsSpace#add(java.lang.Object)}.
+     *
+     * @param object the object to add (not null)
+     */
+    public void add(Object object) {
+        Validate.nonNull(object, "object");
+        record(addOp, object, 0f, 0f, 0f, 0f, 0f, 0f, 0f);
+    }
+
+    /**
+     * Record a command to apply a force to the specified rigid body during the
+     * next simulation step.
+     *
+     * @param body the body to push (not null)
+     * @param force the force vector (in physics-space coordinates, not null,
+     * unaffected)
+     * @param offset the location where the force is applied (relative to the
+     * body's center, in physics-space coordinates) or null for its center
+     */
+    public void applyForce(PhysicsRigidBody body, Vector3f force,
+            Vector3f offset) {
+        Validate.nonNull(body, "body");
+        recordVectors(forceOp, body, force, offset);
+    }
+
+    /**
+     * Record a command to apply an impulse to the specified rigid body.
+     *
+     * @param body the body to push (not null)
+     * @param impulse the impulse vector (in physics-space coordinates, not
+     * null, unaffected)
+     * @param offset the location where the impulse is applied (relative to
+     * the body's center, in physics-space coordinates) or null for its center
+     */
+    public void applyImpulse(PhysicsRigidBody body, Vector3f impulse,
+            Vector3f offset) {
+        Validate.nonNull(body, "body");
+        recordVectors(impulseOp, body, impulse, offset);
+    }
+
+    /**
+     * Count the commands recorded but not yet executed. The result is only a
+     * snapshot, since other threads may be recording.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countPending() {
+        long result = 0L;
+        for (CommandRing ring : rings) {
+            for (CommandRing r = ring; r != null; r = r.next) {
+                result += r.tail - r.head;
+            }
+        }
+
+        return (int) Math.min(result, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Count the rings currently registered, including those of threads that
+     * have died but whose rings haven't been pruned yet.
+     *
+     * @return the count (&ge;0)
+     */
+    int countRings() {
+        int result = rings.size();
+        return result;
+    }
+
+    /**
+     * Execute all commands recorded so far, in a single pass. Invoked by the
+     * space on its physics thread at the start of each simulation step.
+     *
+     * @return the number of commands executed (&ge;0)
+     */
+    int drain() {
+        int result = 0;
+        for (int index = rings.size() - 1; index >= 0; --index) {
+            CommandRing ring = rings.get(index);
+            result += drain(ring);
+            /*
+             * Once the producer has moved on to a larger ring and the old
+             * one is drained, switch to the larger ring.
+             */
+            while (ring.next != null) {
+                result += drain(ring);
+                ring = ring.next;
+                rings.set(index, ring);
+                result += drain(ring);
+            }
+            if (ring.isEmpty() && !ring.owner.isAlive()) {
+                rings.remove(index);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Record a command to remove the specified object from the space, as if by
+     * {@link PhysicsSpace#remove(java.lang.Object)}.
+     *
+     * @param object the object to remove (not null)
+     */
+    public void remove(Object object) {
+        Validate.nonNull(object, "object");
+        record(removeOp, object, 0f, 0f, 0f, 0f, 0f, 0f, 0f);
+    }
+
+    /**
+     * Record a command to alter the angular velocity of the specified rigid
+     * body.
+     *
+     * @param body the body to alter (not null)
+     * @param omega the desired angular velocity (in physics-space
+     * coordinates, not null, unaffected)
+     */
+    public void setAngularVelocity(PhysicsRigidBody body, Vector3f omega) {
+        Validate.nonNull(body, "body");
+        recordVectors(setAngularVelocityOp, body, omega, null);
+    }
+
+    /**
+     * Record a command to alter the linear velocity of the specified rigid
+     * body.
+     *
+     * @param body the body to alter (not null)
+     * @param velocity the desired velocity (in physics-space coordinates, not
+     * null, unaffected)
+     */
+    public void setLinearVelocity(PhysicsRigidBody body, Vector3f velocity) {
+        Validate.nonNull(body, "body");
+        recordVectors(setLinearVelocityOp, body, velocity, null);
+    }
+
+    /**
+     * Record a command to relocate and reorient the specified rigid body.
+     *
+     * @param body the body to alter (not null)
+     * @param location the desired location of the body's center (in
+     * physics-space coordinates, not null, unaffected)
+     * @param orientation the desired orientation (in physics-space
+     * coordinates, not null, unaffected)
+     */
+    public void setTransform(PhysicsRigidBody body, Vector3f location,
+            Quaternion orientation) {
+        Validate.nonNull(body, "body");
+        Validate.finite(location, "location");
+        Validate.nonNull(orientation, "orientation");
+
+        record(setTransformOp, body, location.x, location.y, location.z,
+                orientation.getX(), orientation.getY(), orientation.getZ(),
+                orientation.getW());
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Execute all published commands in the specified ring.
+     *
+     * @param ring the ring to drain (not null)
+     * @return the number of commands executed (&ge;0)
+     */
+    private int drain(CommandRing ring) {
+        long head = ring.head;
+        long tail = ring.tail;
+        for (long sequence = head; sequence < tail; ++sequence) {
+            int slot = (int) sequence & ring.mask;
+            Object target = ring.targets[slot];
+            ring.targets[slot] = null;
+            try {
+                execute(ring.opcodes[slot], target, ring.args,
+                        CommandRing.argStride * slot);
+            } catch (RuntimeException exception) {
+                logger.log(Level.SEVERE, null, exception);
+            }
+        }
+        /*
+         * Release the executed slots to the producer.
+         */
+        ring.head = tail;
+        int result = (int) (tail - head);
+
+        return result;
+    }
+
+    /**
+     * Execute a single command.
+     *
+     * @param opcode the operation code
+     * @param target the target object (not null)
+     * @param args the argument array (not null, unaffected)
+     * @param base the index of the command's first argument
+     */
+    private void execute(int opcode, Object target, float[] args, int base) {
+        tmpVector1.set(args[base], args[base + 1], args[base + 2]);
+        tmpVector2.set(args[base + 3], args[base + 4], args[base + 5]);
+
+        switch (opcode) {
+            case activateOp:
+                boolean forceFlag = (args[base] != 0f);
+                ((PhysicsCollisionObject) target).activate(forceFlag);
+                break;
+
+            case addOp:
+                space.add(target);
+                break;
+
+            case forceOp:
+                ((PhysicsRigidBody) target).applyForce(tmpVector1, tmpVector2);
+                break;
+
+            case impulseOp:
+                ((PhysicsRigidBody) target).applyImpulse(tmpVector1,
+                        tmpVector2);
+                break;
+
+            case removeOp:
+                space.remove(target);
+                break;
+
+            case setAngularVelocityOp:
+                ((PhysicsRigidBody) target).setAngularVelocity(tmpVector1);
+                break;
+
+            case setLinearVelocityOp:
+                ((PhysicsRigidBody) target).setLinearVelocity(tmpVector1);
+                break;
+
+            case setTransformOp:
+                tmpRotation.set(args[base + 3], args[base + 4],
+                        args[base + 5], args[base + 6]);
+                PhysicsRigidBody body = (PhysicsRigidBody) target;
+                body.setPhysicsLocation(tmpVector1);
+                body.setPhysicsRotation(tmpRotation);
+                break;
+
+            default:
+                throw new IllegalStateException("opcode = " + opcode);
+        }
+    }
+
+    /**
+     * Record a command in the current thread's ring, growing the ring if it's
+     * full.
+     *
+     * @param opcode the operation code
+     * @param target the target object (not null, alias created)
+     * @param a0 the first float argument
+     * @param a1 the 2nd float argument
+     * @param a2 the 3rd float argument
+     * @param a3 the 4th float argument
+     * @param a4 the 5th float argument
+     * @param a5 the 6th float argument
+     * @param a6 the 7th float argument
+     */
+    private void record(int opcode, Object target, float a0, float a1,
+            float a2, float a3, float a4, float a5, float a6) {
+        CommandRing ring = currentRing.get();
+        boolean success
+                = ring.offer(opcode, target, a0, a1, a2, a3, a4, a5, a6);
+        if (!success) {
+            int newCapacity = 2 * ring.capacity();
+            logger.log(Level.INFO, "Growing a command ring to {0} slots.",
+                    newCapacity);
+            CommandRing larger = new CommandRing(newCapacity, ring.owner);
+            success = larger.offer(opcode, target, a0, a1, a2, a3, a4, a5, a6);
+            assert success;
+            /*
+             * Hand the larger ring to the consumer, which will switch to it
+             * after draining this one.
+             */
+            ring.next = larger;
+            currentRing.set(larger);
+        }
+    }
+
+    /**
+     * Record a command with 2 vector arguments.
+     *
+     * @param opcode the operation code
+     * @param body the target body (not null, alias created)
+     * @param vector1 the first vector (not null, unaffected)
+     * @param vector2 the 2nd vector (unaffected) or null for zero
+     */
+    private void recordVectors(int opcode, PhysicsRigidBody body,
+            Vector3f vector1, Vector3f vector2) {
+        Validate.finite(vector1, "vector");
+
+        if (vector2 == null) {
+            record(opcode, body, vector1.x, vector1.y, vector1.z, 0f, 0f, 0f,
+                    0f);
+        } else {
+            Validate.finite(vector2, "offset");
+            record(opcode, body, vector1.x, vector1.y, vector1.z, vector2.x,
+                    vector2.y, vector2.z, 0f);
+        }
+    }
+}
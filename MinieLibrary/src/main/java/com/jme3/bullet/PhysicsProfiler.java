@@ -0,0 +1,424 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.util.SafeArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Measure where the time goes in a PhysicsSpace, frame by frame. A frame spans
+ * from the end of one update to the end of the next, so it includes the
+ * distributeEvents() in between.
+ * <p>
+ * Attach a profiler using {@link CollisionSpace#setProfiler(PhysicsProfiler)}.
+ * When no profiler is attached, the instrumentation costs a null check per
+ * phase. Measurements should be polled between updates, or from a
+ * PhysicsProfileListener.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class PhysicsProfiler {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * Enumerate the phases that are timed.
+     */
+    public enum Phase {
+        /**
+         * executing tasks enqueued using PhysicsSpace.enqueue()
+         */
+        TASKS,
+        /**
+         * invoking prePhysicsTick() on tick listeners
+         */
+        PRE_TICK,
+        /**
+         * native simulation steps, excluding the other phases
+         */
+        STEP,
+        /**
+         * summarizing contacts and invoking physicsTick() on tick listeners
+         */
+        POST_TICK,
+        /**
+         * distributing collision events to listeners
+         */
+        DISTRIBUTE
+    }
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of phases
+     */
+    final private static int numPhases = Phase.values().length;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PhysicsProfiler.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * ray tests performed during the current frame
+     */
+    final private AtomicInteger currentRayTests = new AtomicInteger();
+    /**
+     * sweep tests performed during the current frame
+     */
+    final private AtomicInteger currentSweepTests = new AtomicInteger();
+    /**
+     * contact points processed during the current frame
+     */
+    private int currentContacts = 0;
+    /**
+     * active rigid bodies at the end of the latest frame
+     */
+    private int lastActiveBodies = 0;
+    /**
+     * contact points processed during the latest frame
+     */
+    private int lastContacts = 0;
+    /**
+     * ray tests performed during the latest frame
+     */
+    private int lastRayTests = 0;
+    /**
+     * sweep tests performed during the latest frame
+     */
+    private int lastSweepTests = 0;
+    /**
+     * registered listeners
+     */
+    final private List<PhysicsProfileListener> listeners
+            = new SafeArrayList<>(PhysicsProfileListener.class);
+    /**
+     * nanoseconds spent in each phase during the current frame
+     */
+    final private long[] currentNanos = new long[numPhases];
+    /**
+     * nanoseconds spent in each phase during the latest frame
+     */
+    final private long[] lastNanos = new long[numPhases];
+    /**
+     * maximum nanoseconds spent in each phase during any frame since reset
+     */
+    final private long[] maxNanos = new long[numPhases];
+    /**
+     * total nanoseconds spent in each phase since reset
+     */
+    final private long[] totalNanos = new long[numPhases];
+    /**
+     * number of frames published since reset
+     */
+    private long numFrames = 0L;
+    /**
+     * System.nanoTime() at the start of the current update
+     */
+    private long updateStart = 0L;
+    /**
+     * nanoseconds spent in callback phases before the current update began
+     */
+    private long callbackNanosAtStart = 0L;
+    /**
+     * nanoseconds spent in each listener during the current frame (element
+     * 0) and the latest frame (element 1)
+     */
+    final private Map<Object, long[]> listenerNanos = new IdentityHashMap<>(32);
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the active rigid bodies at the end of the latest frame.
+     *
+     * @return the count (&ge;0)
+     */
+    public int activeBodies() {
+        return lastActiveBodies;
+    }
+
+    /**
+     * Register the specified listener.
+     *
+     * @param listener the listener to register (not null, alias created)
+     */
+    public void addListener(PhysicsProfileListener listener) {
+        Validate.nonNull(listener, "listener");
+        assert !listeners.contains(listener);
+
+        listeners.add(listener);
+    }
+
+    /**
+     * Add the time since the specified start to a callback listener.
+     *
+     * @param listener the listener that was invoked (not null)
+     * @param startNanos System.nanoTime() before the invocation
+     */
+    void addListenerNanos(Object listener, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        long[] nanos = listenerNanos.get(listener);
+        if (nanos == null) {
+            nanos = new long[2];
+            listenerNanos.put(listener, nanos);
+        }
+        nanos[0] += elapsed;
+    }
+
+    /**
+     * Add the time since the specified start to a phase.
+     *
+     * @param phase the phase (not null)
+     * @param startNanos System.nanoTime() at the start of the phase
+     */
+    void addPhaseNanos(Phase phase, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        currentNanos[phase.ordinal()] += elapsed;
+    }
+
+    /**
+     * Note the start of a space update.
+     */
+    void beginUpdate() {
+        callbackNanosAtStart = callbackNanos();
+        updateStart = System.nanoTime();
+    }
+
+    /**
+     * Count the contact points processed during the latest frame.
+     *
+     * @return the count (&ge;0)
+     */
+    public int contactEvents() {
+        return lastContacts;
+    }
+
+    /**
+     * Count a processed contact point.
+     */
+    void countContact() {
+        ++currentContacts;
+    }
+
+    /**
+     * Count the frames published since the profiler was reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countFrames() {
+        return numFrames;
+    }
+
+    /**
+     * Count one or more ray tests. May be invoked on any thread.
+     *
+     * @param numTests the number of tests to count (&ge;0)
+     */
+    void countRayTests(int numTests) {
+        currentRayTests.addAndGet(numTests);
+    }
+
+    /**
+     * Count one or more sweep tests. May be invoked on any thread.
+     *
+     * @param numTests the number of tests to count (&ge;0)
+     */
+    void countSweepTests(int numTests) {
+        currentSweepTests.addAndGet(numTests);
+    }
+
+    /**
+     * Note the end of a space update and publish the frame's measurements.
+     *
+     * @param space the space that was updated (not null)
+     */
+    void endUpdate(PhysicsSpace space) {
+        long elapsed = System.nanoTime() - updateStart;
+        long callbacks = callbackNanos() - callbackNanosAtStart;
+        currentNanos[Phase.STEP.ordinal()] += Math.max(0L, elapsed - callbacks);
+
+        int numActive = 0;
+        int numSlots = space.countRigidBodySlots();
+        for (int slot = 0; slot < numSlots; ++slot) {
+            PhysicsRigidBody body = space.rigidBodyInSlot(slot);
+            if (body != null && body.isActive()) {
+                ++numActive;
+            }
+        }
+        lastActiveBodies = numActive;
+
+        for (int phaseIndex = 0; phaseIndex < numPhases; ++phaseIndex) {
+            long nanos = currentNanos[phaseIndex];
+            lastNanos[phaseIndex] = nanos;
+            maxNanos[phaseIndex] = Math.max(maxNanos[phaseIndex], nanos);
+            totalNanos[phaseIndex] += nanos;
+            currentNanos[phaseIndex] = 0L;
+        }
+        for (long[] nanos : listenerNanos.values()) {
+            nanos[1] = nanos[0];
+            nanos[0] = 0L;
+        }
+        lastContacts = currentContacts;
+        currentContacts = 0;
+        lastRayTests = currentRayTests.getAndSet(0);
+        lastSweepTests = currentSweepTests.getAndSet(0);
+        ++numFrames;
+
+        for (PhysicsProfileListener listener : listeners) {
+            listener.frameProfiled(space, this);
+        }
+    }
+
+    /**
+     * Read the time spent in the specified listener during the latest frame.
+     *
+     * @param listener the listener to query (not null, unaffected)
+     * @return the time (in nanoseconds, &ge;0)
+     */
+    public long listenerNanos(Object listener) {
+        Validate.nonNull(listener, "listener");
+
+        long[] nanos = listenerNanos.get(listener);
+        long result = (nanos == null) ? 0L : nanos[1];
+
+        return result;
+    }
+
+    /**
+     * Read the time spent in the specified phase during the latest frame.
+     *
+     * @param phase the phase to query (not null)
+     * @return the time (in nanoseconds, &ge;0)
+     */
+    public long phaseNanos(Phase phase) {
+        long result = lastNanos[phase.ordinal()];
+        return result;
+    }
+
+    /**
+     * Read the maximum time spent in the specified phase during any frame
+     * since the profiler was reset.
+     *
+     * @param phase the phase to query (not null)
+     * @return the time (in nanoseconds, &ge;0)
+     */
+    public long phaseNanosMax(Phase phase) {
+        long result = maxNanos[phase.ordinal()];
+        return result;
+    }
+
+    /**
+     * Read the total time spent in the specified phase since the profiler was
+     * reset.
+     *
+     * @param phase the phase to query (not null)
+     * @return the time (in nanoseconds, &ge;0)
+     */
+    public long phaseNanosTotal(Phase phase) {
+        long result = totalNanos[phase.ordinal()];
+        return result;
+    }
+
+    /**
+     * Count the ray tests performed during the latest frame.
+     *
+     * @return the count (&ge;0)
+     */
+    public int rayTests() {
+        return lastRayTests;
+    }
+
+    /**
+     * De-register the specified listener.
+     *
+     * @param listener the listener to de-register (not null)
+     */
+    public void removeListener(PhysicsProfileListener listener) {
+        Validate.nonNull(listener, "listener");
+
+        boolean success = listeners.remove(listener);
+        assert success;
+    }
+
+    /**
+     * Discard all measurements.
+     */
+    public void reset() {
+        for (int phaseIndex = 0; phaseIndex < numPhases; ++phaseIndex) {
+            currentNanos[phaseIndex] = 0L;
+            lastNanos[phaseIndex] = 0L;
+            maxNanos[phaseIndex] = 0L;
+            totalNanos[phaseIndex] = 0L;
+        }
+        listenerNanos.clear();
+        currentContacts = 0;
+        currentRayTests.set(0);
+        currentSweepTests.set(0);
+        lastActiveBodies = 0;
+        lastContacts = 0;
+        lastRayTests = 0;
+        lastSweepTests = 0;
+        numFrames = 0L;
+    }
+
+    /**
+     * Count the sweep tests performed during the latest frame.
+     *
+     * @return the count (&ge;0)
+     */
+    public int sweepTests() {
+        return lastSweepTests;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Sum the current-frame times of the phases that run inside callbacks
+     * from the native step.
+     *
+     * @return the sum (in nanoseconds, &ge;0)
+     */
+    private long callbackNanos() {
+        long result = currentNanos[Phase.TASKS.ordinal()]
+                + currentNanos[Phase.PRE_TICK.ordinal()]
+                + currentNanos[Phase.POST_TICK.ordinal()];
+        return result;
+    }
+}
@@ -31,14 +31,17 @@
  */
 package com.jme3.bullet;
 
+import com.jme3.bounding.BoundingVolume;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
 import com.jme3.bullet.joints.PhysicsJoint;
 import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.bullet.util.ConcurrentLongMap;
 import com.jme3.math.Vector3f;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -60,11 +63,16 @@ public class PhysicsSoftSpace extends PhysicsSpace {
     // *************************************************************************
     // fields
 
+    /**
+     * read-only view of all added collision objects, or null if not yet
+     * created
+     */
+    private Collection<PhysicsCollisionObject> pcoView = null;
     /**
      * map soft-body IDs to added objects
      */
-    final private Map<Long, PhysicsSoftBody> softBodyMap
-            = new ConcurrentHashMap<>(64);
+    final private ConcurrentLongMap<PhysicsSoftBody> softBodyMap
+            = new ConcurrentLongMap<>(64);
     /**
      * parameters applied when soft bodies are added to this space
      */
@@ -112,6 +120,17 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         return count;
     }
 
+    /**
+     * Find the added soft body with the specified native ID.
+     *
+     * @param bodyId the native ID of the soft body
+     * @return the pre-existing instance, or null if not found
+     */
+    PhysicsSoftBody findSoftBody(long bodyId) {
+        PhysicsSoftBody result = softBodyMap.get(bodyId);
+        return result;
+    }
+
     /**
      * Enumerate soft bodies that have been added to this space and not yet
      * removed.
@@ -144,9 +163,41 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         assert worldInfo.nativeId() == getWorldInfo(nativeId());
         return worldInfo;
     }
+
+    /**
+     * Access the soft bodies that have been added to this space and not yet
+     * removed, without wrapping or copying.
+     *
+     * @return the internal view (not null, don't modify)
+     */
+    Collection<PhysicsSoftBody> softBodyView() {
+        Collection<PhysicsSoftBody> result = softBodyMap.values();
+        return result;
+    }
     // *************************************************************************
     // PhysicsSpace methods
 
+    /**
+     * Find all collision objects in this space whose axis-aligned bounding
+     * boxes overlap the specified region. No simulation step is required.
+     *
+     * @param region the region to test (not null, typically a BoundingBox or
+     * BoundingSphere in physics-space coordinates, unaffected)
+     * @param groupMask the collision groups to include (bitmask)
+     * @param storeResult storage for the overlapping objects (not null,
+     * cleared and then modified)
+     * @return the number of overlapping objects found (&ge;0)
+     */
+    @Override
+    public int aabbTest(BoundingVolume region, int groupMask,
+            Collection<? super PhysicsCollisionObject> storeResult) {
+        int result = super.aabbTest(region, groupMask, storeResult);
+        result += addOverlaps(softBodyMap.values(), region, groupMask,
+                storeResult);
+
+        return result;
+    }
+
     /**
      * Add the specified collision object to this space.
      *
@@ -154,6 +205,7 @@ public class PhysicsSoftSpace extends PhysicsSpace {
      */
     @Override
     public void addCollisionObject(PhysicsCollisionObject pco) {
+        verifyMutable();
         if (pco instanceof PhysicsSoftBody) {
             addSoftBody((PhysicsSoftBody) pco);
         } else {
@@ -211,17 +263,22 @@ public class PhysicsSoftSpace extends PhysicsSpace {
     }
 
     /**
-     * Enumerate collision objects that have been added to this space and not
-     * yet removed.
+     * Access a live view of the collision objects that have been added to
+     * this space and not yet removed, without copying them.
      *
-     * @return a new modifiable collection of pre-existing instances (not null)
+     * @return an unmodifiable view of the pre-existing instances (not null)
      */
     @Override
-    public Collection<PhysicsCollisionObject> getPcoList() {
-        Collection<PhysicsCollisionObject> result = super.getPcoList();
-        result.addAll(softBodyMap.values());
+    public Collection<PhysicsCollisionObject> getPcoView() {
+        if (pcoView == null) {
+            List<Collection<? extends PhysicsCollisionObject>> sources
+                    = new ArrayList<>(2);
+            sources.add(super.getPcoView());
+            sources.add(softBodyMap.values());
+            pcoView = new PcoCollection(sources);
+        }
 
-        return result;
+        return pcoView;
     }
 
     /**
@@ -244,6 +301,7 @@ public class PhysicsSoftSpace extends PhysicsSpace {
      */
     @Override
     public void removeCollisionObject(PhysicsCollisionObject pco) {
+        verifyMutable();
         if (pco instanceof PhysicsSoftBody) {
             removeSoftBody((PhysicsSoftBody) pco);
         } else {
@@ -266,6 +324,27 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         super.setGravity(gravity);
         worldInfo.setGravity(gravity);
     }
+
+    /**
+     * Shift the origin of physics space to the specified location, relocating
+     * all collision objects, including the nodes of soft bodies.
+     *
+     * @param newOrigin the location (in the old physics-space coordinates) to
+     * become the new origin (not null, finite, unaffected)
+     * @return the number of objects relocated (&ge;0)
+     */
+    @Override
+    public int shiftOrigin(Vector3f newOrigin) {
+        int result = super.shiftOrigin(newOrigin);
+
+        Vector3f offset = newOrigin.negate();
+        for (PhysicsSoftBody softBody : softBodyMap.values()) {
+            softBody.applyTranslation(offset);
+            ++result;
+        }
+
+        return result;
+    }
     // *************************************************************************
     // Java private methods
 
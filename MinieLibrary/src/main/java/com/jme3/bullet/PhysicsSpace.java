@@ -32,6 +32,10 @@
 package com.jme3.bullet;
 
 import com.jme3.app.AppTask;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.bullet.collision.ContactPair;
+import com.jme3.bullet.collision.ContactPairListener;
+import com.jme3.bullet.collision.ContactTransitionListener;
 import com.jme3.bullet.collision.PhysicsCollisionEvent;
 import com.jme3.bullet.collision.PhysicsCollisionListener;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
@@ -42,11 +46,16 @@ import com.jme3.bullet.objects.PhysicsBody;
 import com.jme3.bullet.objects.PhysicsCharacter;
 import com.jme3.bullet.objects.PhysicsRigidBody;
 import com.jme3.bullet.objects.PhysicsVehicle;
+import com.jme3.bullet.util.ConcurrentLongMap;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import com.jme3.util.SafeArrayList;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
@@ -54,7 +63,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
@@ -119,6 +127,15 @@ public class PhysicsSpace extends CollisionSpace {
     // *************************************************************************
     // fields
 
+    /**
+     * reducer for per-pair contact summaries
+     */
+    final private ContactPairCollector pairCollector
+            = new ContactPairCollector();
+    /**
+     * per-pair contact summaries not yet distributed to listeners
+     */
+    final private Deque<ContactPair> contactPairs = new ArrayDeque<>(20);
     /**
      * contact-processed events not yet distributed to listeners
      */
@@ -129,6 +146,25 @@ public class PhysicsSpace extends CollisionSpace {
      */
     final private Deque<PhysicsCollisionEvent> contactStartedEvents
             = new ArrayDeque<>(20);
+    /**
+     * distributed collision events available for reuse, or null if events
+     * aren't being recycled
+     */
+    private Deque<PhysicsCollisionEvent> eventPool = null;
+    /**
+     * buffer to publish rigid-body transforms after each update, or null if
+     * not publishing
+     */
+    private volatile SnapshotBuffer snapshotBuffer = null;
+    /**
+     * interpolator for rendering between steps, or null if not interpolating
+     */
+    private TransformInterpolator interpolator = null;
+    /**
+     * encoder/decoder for snapshots of the dynamic state, or null if not yet
+     * used
+     */
+    private SpaceStateCodec stateCodec = null;
     /**
      * time step (in seconds, &gt;0) ignored when maxSubSteps=0
      */
@@ -142,6 +178,16 @@ public class PhysicsSpace extends CollisionSpace {
      * (&ge;0)
      */
     private int maxSubSteps = 4;
+    /**
+     * list of registered listeners for per-pair contact summaries
+     */
+    final private List<ContactPairListener> contactPairListeners
+            = new SafeArrayList<>(ContactPairListener.class);
+    /**
+     * list of registered listeners for contact transitions
+     */
+    final private List<ContactTransitionListener> contactTransitionListeners
+            = new SafeArrayList<>(ContactTransitionListener.class);
     /**
      * list of registered listeners for ongoing contacts
      */
@@ -160,28 +206,43 @@ public class PhysicsSpace extends CollisionSpace {
     /**
      * map character IDs to added objects
      */
-    final private Map<Long, PhysicsCharacter> characterMap
-            = new ConcurrentHashMap<>(64);
+    final private ConcurrentLongMap<PhysicsCharacter> characterMap
+            = new ConcurrentLongMap<>(64);
     /**
      * map joint IDs to added objects
      */
-    final private Map<Long, PhysicsJoint> jointMap
-            = new ConcurrentHashMap<>(64);
+    final private ConcurrentLongMap<PhysicsJoint> jointMap
+            = new ConcurrentLongMap<>(64);
     /**
      * map rigid-body IDs to added objects (including vehicles)
      */
-    final private Map<Long, PhysicsRigidBody> rigidMap
-            = new ConcurrentHashMap<>(64);
+    final private ConcurrentLongMap<PhysicsRigidBody> rigidMap
+            = new ConcurrentLongMap<>(64);
     /**
      * map vehicle-controller IDs to added objects
      */
-    final private Map<Long, PhysicsVehicle> vehicleMap
-            = new ConcurrentHashMap<>(64);
+    final private ConcurrentLongMap<PhysicsVehicle> vehicleMap
+            = new ConcurrentLongMap<>(64);
+    /**
+     * read-only view of all added collision objects, or null if not yet
+     * created
+     */
+    private Collection<PhysicsCollisionObject> pcoView = null;
+    /**
+     * primitive commands recorded by other threads, drained at the start of
+     * each step
+     */
+    final private PhysicsCommandBuffer commandBuffer
+            = new PhysicsCommandBuffer(this, 256);
     /**
      * first-in/first-out (FIFO) queue of physics tasks
      */
     final private Queue<AppTask<?>> pQueue
             = new ConcurrentLinkedQueue<>();
+    /**
+     * slot assignments for all added rigid bodies (including vehicles)
+     */
+    final private RigidBodyBatch rigidBatch = new RigidBodyBatch();
     /**
      * parameters used by the contact-and-constraint solver
      */
@@ -318,6 +379,42 @@ public class PhysicsSpace extends CollisionSpace {
         contactStartedListeners.add(listener);
     }
 
+    /**
+     * Register the specified listener for per-pair contact summaries.
+     * <p>
+     * During each simulation step, the manifold points of each colliding pair
+     * of objects are reduced (on the physics thread) to a single ContactPair.
+     * During distributeEvents(), registered listeners are notified of all
+     * summaries since the previous distributeEvents().
+     *
+     * @param listener the listener object to register (not null, alias created)
+     */
+    public void addContactPairListener(ContactPairListener listener) {
+        Validate.nonNull(listener, "listener");
+        assert !contactPairListeners.contains(listener);
+
+        contactPairListeners.add(listener);
+    }
+
+    /**
+     * Register the specified listener for contact transitions.
+     * <p>
+     * Each simulation step, the colliding pairs of objects are compared with
+     * those of the preceding step (on the physics thread) to detect pairs that
+     * began, persisted, or ceased to be in contact. During distributeEvents(),
+     * registered listeners are notified of all transitions since the previous
+     * distributeEvents().
+     *
+     * @param listener the listener object to register (not null, alias created)
+     */
+    public void addContactTransitionListener(
+            ContactTransitionListener listener) {
+        Validate.nonNull(listener, "listener");
+        assert !contactTransitionListeners.contains(listener);
+
+        contactTransitionListeners.add(listener);
+    }
+
     /**
      * Add the specified PhysicsJoint to this space.
      *
@@ -325,6 +422,7 @@ public class PhysicsSpace extends CollisionSpace {
      */
     public void addJoint(PhysicsJoint joint) {
         Validate.nonNull(joint, "joint");
+        verifyMutable();
         if (contains(joint)) {
             logger.log(Level.WARNING, "{0} is already added to {1}.",
                     new Object[]{joint, this});
@@ -393,6 +491,41 @@ public class PhysicsSpace extends CollisionSpace {
         contactProcessedListeners.add(listener);
     }
 
+    /**
+     * Reposition and reorient many rigid bodies in this space at once,
+     * typically kinematic bodies before the next simulation step. Must be
+     * invoked on the physics thread, for example from
+     * {@link PhysicsTickListener#prePhysicsTick(com.jme3.bullet.PhysicsSpace, float)}.
+     * <p>
+     * Each entry consists of {@link RigidBodyBatch#transformStride} floats:
+     * location x/y/z followed by rotation x/y/z/w. Vacant slots are skipped.
+     *
+     * @see #rigidBodySlot(com.jme3.bullet.objects.PhysicsRigidBody)
+     * @param transforms the transform data, starting at its current position
+     * (not null, unaffected)
+     * @param slots the slot index for each entry (not null, unaffected)
+     * @param numEntries the number of entries to apply (&ge;0, &le;
+     * slots.length)
+     * @return the number of bodies modified (&ge;0)
+     */
+    public int applyRigidBodyTransforms(FloatBuffer transforms, int[] slots,
+            int numEntries) {
+        int result
+                = rigidBatch.applyTransforms(transforms, slots, numEntries);
+        return result;
+    }
+
+    /**
+     * Access the characters that have been added to this space and not yet
+     * removed, without wrapping or copying.
+     *
+     * @return the internal view (not null, don't modify)
+     */
+    Collection<PhysicsCharacter> characterView() {
+        Collection<PhysicsCharacter> result = characterMap.values();
+        return result;
+    }
+
     /**
      * Test whether the specified PhysicsJoint is added to this space.
      *
@@ -413,7 +546,9 @@ public class PhysicsSpace extends CollisionSpace {
      */
     public int countCollisionListeners() {
         int result = contactProcessedListeners.size()
-                + contactStartedListeners.size();
+                + contactStartedListeners.size()
+                + contactPairListeners.size()
+                + contactTransitionListeners.size();
         return result;
     }
 
@@ -430,6 +565,17 @@ public class PhysicsSpace extends CollisionSpace {
         return count;
     }
 
+    /**
+     * Count the rigid-body slots in this space, including vacant ones.
+     *
+     * @see #readRigidBodyTransforms(java.nio.FloatBuffer, boolean)
+     * @return the count (&ge;0)
+     */
+    public int countRigidBodySlots() {
+        int count = rigidBatch.countSlots();
+        return count;
+    }
+
     /**
      * Count the rigid bodies in this space, including vehicles.
      *
@@ -459,26 +605,90 @@ public class PhysicsSpace extends CollisionSpace {
 
     /**
      * Distribute each collision event to registered listeners.
+     * <p>
+     * If the event pool is in use, each event is recycled as soon as the
+     * listeners have been notified, so listeners mustn't retain references to
+     * events or access them after collision() returns.
+     *
+     * @see #useEventPool(boolean)
      */
     public void distributeEvents() {
+        PhysicsProfiler profiler = getProfiler();
+        long phaseStart = (profiler == null) ? 0L : System.nanoTime();
+
         while (!contactStartedEvents.isEmpty()) {
             PhysicsCollisionEvent event = contactStartedEvents.pop();
             for (PhysicsCollisionListener listener : contactStartedListeners) {
+                long start = (profiler == null) ? 0L : System.nanoTime();
                 listener.collision(event);
+                if (profiler != null) {
+                    profiler.addListenerNanos(listener, start);
+                }
+            }
+            if (eventPool != null) {
+                eventPool.push(event);
             }
         }
 
         while (!contactProcessedEvents.isEmpty()) {
             PhysicsCollisionEvent event = contactProcessedEvents.pop();
             for (PhysicsCollisionListener listener : contactProcessedListeners) {
+                long start = (profiler == null) ? 0L : System.nanoTime();
                 listener.collision(event);
+                if (profiler != null) {
+                    profiler.addListenerNanos(listener, start);
+                }
+            }
+            if (eventPool != null) {
+                eventPool.push(event);
+            }
+        }
+
+        while (!contactPairs.isEmpty()) {
+            ContactPair pair = contactPairs.pop();
+            if (pair.isEnding()) {
+                for (ContactTransitionListener listener
+                        : contactTransitionListeners) {
+                    long start = (profiler == null) ? 0L : System.nanoTime();
+                    listener.contactEnded(pair);
+                    if (profiler != null) {
+                        profiler.addListenerNanos(listener, start);
+                    }
+                }
+            } else {
+                for (ContactPairListener listener : contactPairListeners) {
+                    long start = (profiler == null) ? 0L : System.nanoTime();
+                    listener.pairCollision(pair);
+                    if (profiler != null) {
+                        profiler.addListenerNanos(listener, start);
+                    }
+                }
+                for (ContactTransitionListener listener
+                        : contactTransitionListeners) {
+                    long start = (profiler == null) ? 0L : System.nanoTime();
+                    if (pair.isBeginning()) {
+                        listener.contactBegan(pair);
+                    } else {
+                        listener.contactPersisted(pair);
+                    }
+                    if (profiler != null) {
+                        profiler.addListenerNanos(listener, start);
+                    }
+                }
             }
+            pairCollector.recycle(pair);
+        }
+
+        if (profiler != null) {
+            profiler.addPhaseNanos(PhysicsProfiler.Phase.DISTRIBUTE,
+                    phaseStart);
         }
-     }
+    }
 
     /**
      * Invoke the specified callable during the next physics tick. This is
-     * useful for applying forces.
+     * useful for applying forces. For simple mutations recorded at a high
+     * rate, {@link #getCommandBuffer()} avoids allocating a task for each.
      *
      * @param <V> the return type of the callable
      * @param callable which callable to invoke
@@ -505,6 +715,17 @@ public class PhysicsSpace extends CollisionSpace {
         return task;
     }
 
+    /**
+     * Find the added character with the specified native ID.
+     *
+     * @param characterId the native ID of the character
+     * @return the pre-existing instance, or null if not found
+     */
+    PhysicsCharacter findCharacter(long characterId) {
+        PhysicsCharacter result = characterMap.get(characterId);
+        return result;
+    }
+
     /**
      * Read the accuracy: the time step used when maxSubSteps&gt;0.
      *
@@ -526,6 +747,17 @@ public class PhysicsSpace extends CollisionSpace {
         return Collections.unmodifiableCollection(result);
     }
 
+    /**
+     * Access the buffer for recording mutations from other threads without
+     * locking or allocation. Recorded commands execute at the start of the
+     * next simulation step, before any enqueued tasks.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsCommandBuffer getCommandBuffer() {
+        return commandBuffer;
+    }
+
     /**
      * Copy the gravitational acceleration for newly-added bodies.
      *
@@ -541,6 +773,16 @@ public class PhysicsSpace extends CollisionSpace {
         return result;
     }
 
+    /**
+     * Access the interpolator used to blend rigid-body transforms between
+     * steps.
+     *
+     * @return the pre-existing instance, or null if not interpolating
+     */
+    public TransformInterpolator getInterpolator() {
+        return interpolator;
+    }
+
     /**
      * Enumerate physics joints that have been added to this space and not yet
      * removed.
@@ -575,6 +817,16 @@ public class PhysicsSpace extends CollisionSpace {
         return Collections.unmodifiableCollection(result);
     }
 
+    /**
+     * Access the buffer to which rigid-body transforms are published after
+     * each update.
+     *
+     * @return the pre-existing instance, or null if not publishing
+     */
+    public SnapshotBuffer getSnapshotBuffer() {
+        return snapshotBuffer;
+    }
+
     /**
      * Access parameters used by the contact-and-constraint solver.
      *
@@ -615,6 +867,17 @@ public class PhysicsSpace extends CollisionSpace {
         return Collections.unmodifiableCollection(result);
     }
 
+    /**
+     * Test whether this space recycles collision events.
+     *
+     * @see #useEventPool(boolean)
+     * @return true if recycling events, otherwise false
+     */
+    public boolean isUsingEventPool() {
+        boolean result = (eventPool != null);
+        return result;
+    }
+
     /**
      * Test whether this space uses Speculative Contact Restitution.
      *
@@ -647,6 +910,27 @@ public class PhysicsSpace extends CollisionSpace {
         return maxTimeStep;
     }
 
+    /**
+     * Copy the transforms (and optionally the velocities) of all rigid bodies
+     * in this space to the specified buffer, in slot order, without allocating
+     * any objects.
+     * <p>
+     * Each body is assigned a slot when it's added to the space. Its slot index
+     * remains valid until the body is removed. Vacated slots may be reused by
+     * bodies added later. See {@link RigidBodyBatch} for the buffer layout.
+     *
+     * @param storeBuffer the buffer to fill, starting at its current position
+     * (not null, modified, position unaffected)
+     * @param includeVelocities true to include linear and angular velocities,
+     * false to copy only locations and rotations
+     * @return the number of slots copied (&ge;0)
+     */
+    public int readRigidBodyTransforms(FloatBuffer storeBuffer,
+            boolean includeVelocities) {
+        int result = rigidBatch.readTransforms(storeBuffer, includeVelocities);
+        return result;
+    }
+
     /**
      * Remove all physics controls in the specified subtree of the scene graph
      * from this space (e.g. before saving to disk).
@@ -682,6 +966,35 @@ public class PhysicsSpace extends CollisionSpace {
         assert success;
     }
 
+    /**
+     * De-register the specified listener for per-pair contact summaries.
+     *
+     * @see
+     * #addContactPairListener(com.jme3.bullet.collision.ContactPairListener)
+     * @param listener the listener object to de-register (not null)
+     */
+    public void removeContactPairListener(ContactPairListener listener) {
+        Validate.nonNull(listener, "listener");
+
+        boolean success = contactPairListeners.remove(listener);
+        assert success;
+    }
+
+    /**
+     * De-register the specified listener for contact transitions.
+     *
+     * @see #addContactTransitionListener(
+     * com.jme3.bullet.collision.ContactTransitionListener)
+     * @param listener the listener object to de-register (not null)
+     */
+    public void removeContactTransitionListener(
+            ContactTransitionListener listener) {
+        Validate.nonNull(listener, "listener");
+
+        boolean success = contactTransitionListeners.remove(listener);
+        assert success;
+    }
+
     /**
      * Remove the specified PhysicsJoint from this space.
      *
@@ -689,6 +1002,7 @@ public class PhysicsSpace extends CollisionSpace {
      */
     public void removeJoint(PhysicsJoint joint) {
         Validate.nonNull(joint, "joint");
+        verifyMutable();
         long jointId = joint.nativeId();
         if (!jointMap.containsKey(jointId)) {
             logger.log(Level.WARNING, "{0} does not exist in {1}.",
@@ -735,6 +1049,55 @@ public class PhysicsSpace extends CollisionSpace {
         assert success;
     }
 
+    /**
+     * Restore the dynamic state of the objects in this space from a snapshot
+     * created by {@link #snapshot(java.nio.ByteBuffer)}. Records for objects
+     * no longer in the space (or replaced by different objects) are skipped.
+     * Should be invoked only between updates.
+     * <p>
+     * Soft-body deformations aren't restored: each soft body is translated so
+     * its center matches the snapshot, and its node velocities are restored.
+     *
+     * @param buffer the snapshot to read, starting at its current position
+     * (not null, same byte order as when written, position advanced)
+     * @return the number of objects restored (&ge;0)
+     */
+    public int restore(ByteBuffer buffer) {
+        Validate.nonNull(buffer, "buffer");
+
+        if (stateCodec == null) {
+            stateCodec = new SpaceStateCodec();
+        }
+        int result = stateCodec.decode(this, buffer);
+
+        return result;
+    }
+
+    /**
+     * Access the rigid body assigned to the indexed slot.
+     *
+     * @see #readRigidBodyTransforms(java.nio.FloatBuffer, boolean)
+     * @param slot the index of the slot (&ge;0, &lt;countRigidBodySlots())
+     * @return the pre-existing body, or null if the slot is vacant
+     */
+    public PhysicsRigidBody rigidBodyInSlot(int slot) {
+        PhysicsRigidBody result = rigidBatch.get(slot);
+        return result;
+    }
+
+    /**
+     * Find the slot assigned to the specified rigid body.
+     *
+     * @see #readRigidBodyTransforms(java.nio.FloatBuffer, boolean)
+     * @param rigidBody the body to find (not null, unaffected)
+     * @return the index of the slot (&ge;0) or -1 if not in this space
+     */
+    public int rigidBodySlot(PhysicsRigidBody rigidBody) {
+        Validate.nonNull(rigidBody, "rigid body");
+        int result = rigidBatch.indexOf(rigidBody);
+        return result;
+    }
+
     /**
      * Alter the accuracy (time step used when maxSubSteps&gt;0).
      * <p>
@@ -808,6 +1171,55 @@ public class PhysicsSpace extends CollisionSpace {
         solverInfo.setNumIterations(numIterations);
     }
 
+    /**
+     * Write the dynamic state of all rigid bodies (including vehicles),
+     * characters, and soft bodies in this space to the specified buffer, using
+     * a compact, versioned binary layout: locations, orientations, velocities,
+     * activation states, and applied forces, plus wheel states for vehicles
+     * and node velocities for soft bodies. Much faster than J3O export, and
+     * allocates no per-object garbage: only an iterator for the characters
+     * and another for the soft bodies. Should be invoked only between
+     * updates.
+     * <p>
+     * The buffer isn't checked for space in advance. If it overflows, a
+     * BufferOverflowException is thrown and its position is left unchanged,
+     * though some of its contents may have been overwritten. Use
+     * {@link #snapshotSize()} to size it.
+     * <p>
+     * Objects are identified by their native IDs (and rigid bodies also by
+     * their slots), so a snapshot can be restored only to the same space.
+     *
+     * @see #restore(java.nio.ByteBuffer)
+     * @see #snapshotSize()
+     * @param storeBuffer the buffer to write, starting at its current position
+     * (not null, position advanced)
+     */
+    public void snapshot(ByteBuffer storeBuffer) {
+        Validate.nonNull(storeBuffer, "store buffer");
+
+        if (stateCodec == null) {
+            stateCodec = new SpaceStateCodec();
+        }
+        int startPosition = storeBuffer.position();
+        try {
+            stateCodec.encode(this, storeBuffer);
+        } catch (BufferOverflowException exception) {
+            storeBuffer.position(startPosition);
+            throw exception;
+        }
+    }
+
+    /**
+     * Calculate the number of bytes needed to snapshot this space.
+     *
+     * @see #snapshot(java.nio.ByteBuffer)
+     * @return the number of bytes (&gt;0)
+     */
+    public int snapshotSize() {
+        int result = SpaceStateCodec.encodedSize(this);
+        return result;
+    }
+
     /**
      * Update this space. Invoked (by the BulletAppState) once per frame while
      * the app state is attached and enabled. Can also be used to single-step
@@ -819,6 +1231,7 @@ public class PhysicsSpace extends CollisionSpace {
      */
     public void update(float timeInterval) {
         Validate.nonNegative(timeInterval, "time interval");
+        verifyMutable();
 
         long spaceId = nativeId();
         assert maxSubSteps >= 0 : maxSubSteps;
@@ -827,7 +1240,21 @@ public class PhysicsSpace extends CollisionSpace {
         if (maxSubSteps == 0) {
             interval = Math.min(interval, maxTimeStep);
         }
+        PhysicsProfiler profiler = getProfiler();
+        if (profiler != null) {
+            profiler.beginUpdate();
+        }
+        if (interpolator != null) {
+            interpolator.beginUpdate(interval, accuracy, maxSubSteps);
+        }
         stepSimulation(spaceId, interval, maxSubSteps, accuracy);
+        if (interpolator != null) {
+            interpolator.endUpdate(this);
+        }
+        publishSnapshot();
+        if (profiler != null) {
+            profiler.endUpdate(this);
+        }
     }
 
     /**
@@ -840,10 +1267,73 @@ public class PhysicsSpace extends CollisionSpace {
     public void update(float timeInterval, int maxSteps) {
         Validate.nonNegative(timeInterval, "time interval");
         Validate.nonNegative(maxSteps, "max steps");
+        verifyMutable();
 
         long spaceId = nativeId();
         assert accuracy > 0f : accuracy;
+        PhysicsProfiler profiler = getProfiler();
+        if (profiler != null) {
+            profiler.beginUpdate();
+        }
+        if (interpolator != null) {
+            interpolator.beginUpdate(timeInterval, accuracy, maxSteps);
+        }
         stepSimulation(spaceId, timeInterval, maxSteps, accuracy);
+        if (interpolator != null) {
+            interpolator.endUpdate(this);
+        }
+        publishSnapshot();
+        if (profiler != null) {
+            profiler.endUpdate(this);
+        }
+    }
+
+    /**
+     * Alter whether this space recycles collision events. Recycling eliminates
+     * the allocation of a PhysicsCollisionEvent for each manifold point in each
+     * step, which can significantly reduce garbage when there are many
+     * contacts.
+     * <p>
+     * Lifetime contract: while the pool is in use, an event passed to a
+     * PhysicsCollisionListener during distributeEvents() is valid only until
+     * collision() returns. After that, the event may be re-initialized to
+     * describe a different contact, so listeners must copy any data they
+     * need and mustn't store references to events.
+     * <p>
+     * Should be invoked only while no events are pending, for instance just
+     * after distributeEvents().
+     *
+     * @param setting true to recycle events, false to allocate a new event for
+     * each contact (default=false)
+     */
+    public void useEventPool(boolean setting) {
+        if (setting && eventPool == null) {
+            eventPool = new ArrayDeque<>(20);
+        } else if (!setting) {
+            eventPool = null;
+        }
+    }
+
+    /**
+     * Alter whether this space interpolates rigid-body transforms between
+     * steps. When enabled, RigidBodyControl applies interpolated transforms to
+     * its spatial, so bodies move smoothly even when the frame rate exceeds
+     * the physics tick rate. Rendered transforms then trail the simulation by
+     * less than one step.
+     * <p>
+     * Interpolation captures the transforms of all rigid bodies before each
+     * step and after each update, so it adds a small per-body cost.
+     *
+     * @see #getInterpolator()
+     * @param setting true to interpolate, false to use the latest transforms
+     * (default=false)
+     */
+    public void useInterpolation(boolean setting) {
+        if (setting && interpolator == null) {
+            interpolator = new TransformInterpolator();
+        } else if (!setting) {
+            interpolator = null;
+        }
     }
 
     /**
@@ -855,6 +1345,24 @@ public class PhysicsSpace extends CollisionSpace {
         long spaceId = nativeId();
         setSpeculativeContactRestitution(spaceId, setting);
     }
+
+    /**
+     * Alter whether this space publishes rigid-body transforms to a
+     * SnapshotBuffer at the end of each update. This allows other threads to
+     * read a consistent set of transforms without waiting for the next update
+     * to complete.
+     *
+     * @see #getSnapshotBuffer()
+     * @param setting true to publish snapshots, false to stop publishing
+     * (default=false)
+     */
+    public void useSnapshots(boolean setting) {
+        if (setting && snapshotBuffer == null) {
+            snapshotBuffer = new SnapshotBuffer();
+        } else if (!setting) {
+            snapshotBuffer = null;
+        }
+    }
     // *************************************************************************
     // new protected methods
 
@@ -896,6 +1404,29 @@ public class PhysicsSpace extends CollisionSpace {
     // *************************************************************************
     // CollisionSpace methods
 
+    /**
+     * Find all collision objects in this space whose axis-aligned bounding
+     * boxes overlap the specified region. No simulation step is required.
+     *
+     * @param region the region to test (not null, typically a BoundingBox or
+     * BoundingSphere in physics-space coordinates, unaffected)
+     * @param groupMask the collision groups to include (bitmask)
+     * @param storeResult storage for the overlapping objects (not null,
+     * cleared and then modified)
+     * @return the number of overlapping objects found (&ge;0)
+     */
+    @Override
+    public int aabbTest(BoundingVolume region, int groupMask,
+            Collection<? super PhysicsCollisionObject> storeResult) {
+        int result = super.aabbTest(region, groupMask, storeResult);
+        result += addOverlaps(rigidMap.values(), region, groupMask,
+                storeResult);
+        result += addOverlaps(characterMap.values(), region, groupMask,
+                storeResult);
+
+        return result;
+    }
+
     /**
      * Add the specified object to this space.
      *
@@ -930,6 +1461,7 @@ public class PhysicsSpace extends CollisionSpace {
     @Override
     public void addCollisionObject(PhysicsCollisionObject pco) {
         Validate.nonNull(pco, "collision object");
+        verifyMutable();
 
         if (pco instanceof PhysicsRigidBody) {
             addRigidBody((PhysicsRigidBody) pco);
@@ -981,18 +1513,23 @@ public class PhysicsSpace extends CollisionSpace {
     }
 
     /**
-     * Enumerate collision objects that have been added to this space and not
-     * yet removed.
+     * Access a live view of the collision objects that have been added to
+     * this space and not yet removed, without copying them.
      *
-     * @return a new modifiable collection of pre-existing instances (not null)
+     * @return an unmodifiable view of the pre-existing instances (not null)
      */
     @Override
-    public Collection<PhysicsCollisionObject> getPcoList() {
-        Collection<PhysicsCollisionObject> result = super.getPcoList();
-        result.addAll(rigidMap.values());
-        result.addAll(characterMap.values());
+    public Collection<PhysicsCollisionObject> getPcoView() {
+        if (pcoView == null) {
+            List<Collection<? extends PhysicsCollisionObject>> sources
+                    = new ArrayList<>(3);
+            sources.add(super.getPcoView());
+            sources.add(rigidMap.values());
+            sources.add(characterMap.values());
+            pcoView = new PcoCollection(sources);
+        }
 
-        return result;
+        return pcoView;
     }
 
     /**
@@ -1042,6 +1579,7 @@ public class PhysicsSpace extends CollisionSpace {
     @Override
     public void removeCollisionObject(PhysicsCollisionObject pco) {
         Validate.nonNull(pco, "collision object");
+        verifyMutable();
 
         if (pco instanceof PhysicsRigidBody) {
             removeRigidBody((PhysicsRigidBody) pco);
@@ -1051,6 +1589,58 @@ public class PhysicsSpace extends CollisionSpace {
             super.removeCollisionObject(pco);
         }
     }
+
+    /**
+     * Shift the origin of physics space to the specified location, relocating
+     * all ghost objects, rigid bodies (including vehicles), and characters.
+     * Double-ended joints need no adjustment, since their pivots are
+     * body-relative. The pivots of single-ended constraints are fixed in
+     * physics space and can't be rebased, so a warning is logged if any exist.
+     * <p>
+     * If snapshots are enabled, a shifted snapshot is published, so readers
+     * never see pre-shift coordinates after the shift.
+     *
+     * @param newOrigin the location (in the old physics-space coordinates) to
+     * become the new origin (not null, finite, unaffected)
+     * @return the number of objects relocated (&ge;0)
+     */
+    @Override
+    public int shiftOrigin(Vector3f newOrigin) {
+        int result = super.shiftOrigin(newOrigin);
+
+        Vector3f location = new Vector3f();
+        for (PhysicsRigidBody rigidBody : rigidMap.values()) {
+            rigidBody.getPhysicsLocation(location);
+            location.subtractLocal(newOrigin);
+            rigidBody.setPhysicsLocation(location);
+            ++result;
+        }
+        for (PhysicsCharacter character : characterMap.values()) {
+            character.getPhysicsLocation(location);
+            location.subtractLocal(newOrigin);
+            character.setPhysicsLocation(location);
+            ++result;
+        }
+
+        int numSingleEnded = 0;
+        for (PhysicsJoint joint : jointMap.values()) {
+            if (joint instanceof Constraint && joint.countEnds() == 1) {
+                ++numSingleEnded;
+            }
+        }
+        if (numSingleEnded > 0) {
+            logger.log(Level.WARNING,
+                    "{0} single-ended constraint(s) in {1} weren''t rebased.",
+                    new Object[]{numSingleEnded, this});
+        }
+
+        if (interpolator != null) {
+            interpolator.shiftOrigin(newOrigin);
+        }
+        publishSnapshot();
+
+        return result;
+    }
     // *************************************************************************
     // Java private methods
 
@@ -1086,7 +1676,7 @@ public class PhysicsSpace extends CollisionSpace {
             PhysicsCollisionObject pcoB, long manifoldPointId) {
         if (!contactStartedListeners.isEmpty()) {
             PhysicsCollisionEvent event
-                    = new PhysicsCollisionEvent(pcoA, pcoB, manifoldPointId);
+                    = obtainEvent(pcoA, pcoB, manifoldPointId);
             contactStartedEvents.add(event);
         }
     }
@@ -1096,11 +1686,19 @@ public class PhysicsSpace extends CollisionSpace {
      */
     private void addContactProcessed(PhysicsCollisionObject pcoA,
             PhysicsCollisionObject pcoB, long manifoldPointId) {
+        PhysicsProfiler profiler = getProfiler();
+        if (profiler != null) {
+            profiler.countContact();
+        }
         if (!contactProcessedListeners.isEmpty()) {
             PhysicsCollisionEvent event
-                    = new PhysicsCollisionEvent(pcoA, pcoB, manifoldPointId);
+                    = obtainEvent(pcoA, pcoB, manifoldPointId);
             contactProcessedEvents.add(event);
         }
+        if (!contactPairListeners.isEmpty()
+                || !contactTransitionListeners.isEmpty()) {
+            pairCollector.addPoint(pcoA, pcoB, manifoldPointId);
+        }
     }
 
     /**
@@ -1123,6 +1721,7 @@ public class PhysicsSpace extends CollisionSpace {
                 new Object[]{rigidBody, this});
         long rigidBodyId = rigidBody.nativeId();
         rigidMap.put(rigidBodyId, rigidBody);
+        rigidBatch.add(rigidBody);
 
         //Workaround
         //It seems that adding a Kinematic RigidBody to the dynamicWorld
@@ -1172,14 +1771,50 @@ public class PhysicsSpace extends CollisionSpace {
         return result;
     }
 
+    /**
+     * Obtain a collision event for the specified contact, recycling a pooled
+     * event if possible.
+     *
+     * @param pcoA the first involved object (not null)
+     * @param pcoB the 2nd involved object (not null)
+     * @param manifoldPointId the native ID of the btManifoldPoint (not 0)
+     * @return an initialized event (not null)
+     */
+    private PhysicsCollisionEvent obtainEvent(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB, long manifoldPointId) {
+        PhysicsCollisionEvent result;
+        if (eventPool == null || eventPool.isEmpty()) {
+            result = new PhysicsCollisionEvent(pcoA, pcoB, manifoldPointId);
+        } else {
+            result = eventPool.pop();
+            result.reinitialize(pcoA, pcoB, manifoldPointId);
+        }
+
+        return result;
+    }
+
     /**
      * Callback invoked (by native code) just after the physics is stepped.
      *
      * @param timeStep the time per physics step (in seconds, &ge;0)
      */
     private void postTick_native(float timeStep) {
+        PhysicsProfiler profiler = getProfiler();
+        long phaseStart = (profiler == null) ? 0L : System.nanoTime();
+
+        pairCollector.endStep(contactPairs);
+
         for (PhysicsTickListener listener : tickListeners) {
+            long start = (profiler == null) ? 0L : System.nanoTime();
             listener.physicsTick(this, timeStep);
+            if (profiler != null) {
+                profiler.addListenerNanos(listener, start);
+            }
+        }
+
+        if (profiler != null) {
+            profiler.addPhaseNanos(PhysicsProfiler.Phase.POST_TICK,
+                    phaseStart);
         }
     }
 
@@ -1189,6 +1824,11 @@ public class PhysicsSpace extends CollisionSpace {
      * @param timeStep the time per physics step (in seconds, &ge;0)
      */
     private void preTick_native(float timeStep) {
+        PhysicsProfiler profiler = getProfiler();
+        long phaseStart = (profiler == null) ? 0L : System.nanoTime();
+
+        commandBuffer.drain();
+
         AppTask task;
         while ((task = pQueue.poll()) != null) {
             if (task.isCancelled()) {
@@ -1201,8 +1841,39 @@ public class PhysicsSpace extends CollisionSpace {
             }
         }
 
+        if (profiler != null) {
+            profiler.addPhaseNanos(PhysicsProfiler.Phase.TASKS, phaseStart);
+            phaseStart = System.nanoTime();
+        }
+
         for (PhysicsTickListener listener : tickListeners) {
+            long start = (profiler == null) ? 0L : System.nanoTime();
             listener.prePhysicsTick(this, timeStep);
+            if (profiler != null) {
+                profiler.addListenerNanos(listener, start);
+            }
+        }
+        /*
+         * Capture after commands, tasks, and listeners have run,
+         * so that teleports made during this tick aren't blended.
+         */
+        if (interpolator != null) {
+            interpolator.beginStep(this);
+        }
+
+        if (profiler != null) {
+            profiler.addPhaseNanos(PhysicsProfiler.Phase.PRE_TICK, phaseStart);
+        }
+    }
+
+    /**
+     * Publish the transforms of all rigid bodies, if a SnapshotBuffer is in
+     * use.
+     */
+    private void publishSnapshot() {
+        SnapshotBuffer buffer = snapshotBuffer;
+        if (buffer != null) {
+            buffer.publish(this);
         }
     }
 
@@ -1258,6 +1929,7 @@ public class PhysicsSpace extends CollisionSpace {
         logger.log(Level.FINE, "Removing {0} from {1}.",
                 new Object[]{rigidBody, this});
         rigidMap.remove(rigidBodyId);
+        rigidBatch.remove(rigidBody);
 
         removeRigidBody(spaceId, rigidBodyId);
     }
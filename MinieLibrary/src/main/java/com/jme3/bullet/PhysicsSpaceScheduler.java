@@ -0,0 +1,506 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Step many independent physics spaces at a fixed rate on a pool of threads,
+ * without an Application or BulletAppState. Intended for headless servers.
+ * <p>
+ * Each space is created on, and thereafter stepped by, a single thread (its
+ * "lane") so that CollisionSpace.getCollisionSpace() remains consistent.
+ * Spaces are assigned to the least-loaded lane. At each tick, every space in a
+ * lane is updated by the real time elapsed since its previous update, limited
+ * to maxCatchUpSteps simulation steps, after which its events are
+ * distributed.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class PhysicsSpaceScheduler {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PhysicsSpaceScheduler.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * maximum number of simulation steps per space per tick (&ge;1)
+     */
+    final private int maxCatchUpSteps;
+    /**
+     * interval between ticks (in nanoseconds, &gt;0)
+     */
+    final private long tickNanos;
+    /**
+     * spaces assigned to each lane, each list accessed only by its lane thread
+     */
+    final private List<List<ScheduledSpace>> laneSpaces;
+    /**
+     * pending tick task for each lane, or empty if not running
+     */
+    final private List<ScheduledFuture<?>> tickFutures = new ArrayList<>(4);
+    /**
+     * map managed spaces to their entries
+     */
+    final private Map<PhysicsSpace, ScheduledSpace> entries
+            = new ConcurrentHashMap<>(64);
+    /**
+     * single-thread executor for each lane
+     */
+    final private ScheduledThreadPoolExecutor[] lanes;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a scheduler with the specified number of threads, using the
+     * default thread factory.
+     *
+     * @param numThreads the number of threads (&ge;1)
+     * @param tickInterval the interval between ticks (in seconds, &gt;0)
+     * @param maxCatchUpSteps the maximum number of simulation steps per space
+     * per tick (&ge;1)
+     */
+    public PhysicsSpaceScheduler(int numThreads, float tickInterval,
+            int maxCatchUpSteps) {
+        this(numThreads, tickInterval, maxCatchUpSteps, new ThreadFactory() {
+            private int numCreated = 0;
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                String name = "PhysicsSpaceScheduler-" + numCreated;
+                ++numCreated;
+                Thread result = new Thread(runnable, name);
+                result.setDaemon(true);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Instantiate a scheduler with the specified number of threads, using the
+     * specified thread factory.
+     *
+     * @param numThreads the number of threads (&ge;1)
+     * @param tickInterval the interval between ticks (in seconds, &gt;0)
+     * @param maxCatchUpSteps the maximum number of simulation steps per space
+     * per tick (&ge;1)
+     * @param threadFactory the factory for lane threads (not null)
+     */
+    public PhysicsSpaceScheduler(int numThreads, float tickInterval,
+            int maxCatchUpSteps, ThreadFactory threadFactory) {
+        Validate.positive(numThreads, "number of threads");
+        Validate.positive(tickInterval, "tick interval");
+        Validate.positive(maxCatchUpSteps, "max catch-up steps");
+        Validate.nonNull(threadFactory, "thread factory");
+
+        this.maxCatchUpSteps = maxCatchUpSteps;
+        tickNanos = Math.max(1L, Math.round(1e9 * tickInterval));
+
+        lanes = new ScheduledThreadPoolExecutor[numThreads];
+        laneSpaces = new ArrayList<>(numThreads);
+        for (int laneIndex = 0; laneIndex < numThreads; ++laneIndex) {
+            lanes[laneIndex]
+                    = new ScheduledThreadPoolExecutor(1, threadFactory);
+            List<ScheduledSpace> list = new ArrayList<>(16);
+            laneSpaces.add(list);
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Create a PhysicsSpace on the least-loaded lane and begin managing it.
+     * The factory is invoked on the lane's thread, which blocks the caller
+     * until the space exists.
+     *
+     * @param factory the factory to create the space (not null)
+     * @return the new space (not null)
+     */
+    public synchronized PhysicsSpace add(
+            final Callable<? extends PhysicsSpace> factory) {
+        Validate.nonNull(factory, "factory");
+
+        int[] loads = new int[lanes.length];
+        for (ScheduledSpace entry : entries.values()) {
+            ++loads[entry.laneIndex()];
+        }
+        int bestLane = 0;
+        for (int laneIndex = 1; laneIndex < lanes.length; ++laneIndex) {
+            if (loads[laneIndex] < loads[bestLane]) {
+                bestLane = laneIndex;
+            }
+        }
+
+        final int laneIndex = bestLane;
+        Callable<ScheduledSpace> call = new Callable<ScheduledSpace>() {
+            @Override
+            public ScheduledSpace call() throws Exception {
+                PhysicsSpace space = factory.call();
+                ScheduledSpace entry = new ScheduledSpace(space, laneIndex);
+                laneSpaces.get(laneIndex).add(entry);
+                return entry;
+            }
+        };
+        ScheduledSpace entry = getFrom(lanes[laneIndex].submit(call));
+        PhysicsSpace result = entry.space();
+        entries.put(result, entry);
+
+        return result;
+    }
+
+    /**
+     * Test whether the specified space is managed by this scheduler.
+     *
+     * @param space the space to test (not null, unaffected)
+     * @return true if managed, otherwise false
+     */
+    public boolean contains(PhysicsSpace space) {
+        Validate.nonNull(space, "space");
+        boolean result = entries.containsKey(space);
+        return result;
+    }
+
+    /**
+     * Count the spaces managed by this scheduler.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countSpaces() {
+        int result = entries.size();
+        return result;
+    }
+
+    /**
+     * Count the simulation steps performed on the specified space since its
+     * metrics were reset.
+     *
+     * @param space the space to query (not null, managed, unaffected)
+     * @return the count (&ge;0)
+     */
+    public long countSteps(PhysicsSpace space) {
+        long result = findEntry(space).countSteps();
+        return result;
+    }
+
+    /**
+     * Count the threads (lanes) used by this scheduler.
+     *
+     * @return the count (&ge;1)
+     */
+    public int countThreads() {
+        int result = lanes.length;
+        return result;
+    }
+
+    /**
+     * Count the updates of the specified space since its metrics were reset.
+     *
+     * @param space the space to query (not null, managed, unaffected)
+     * @return the count (&ge;0)
+     */
+    public long countUpdates(PhysicsSpace space) {
+        long result = findEntry(space).countUpdates();
+        return result;
+    }
+
+    /**
+     * Invoke the specified callable on the thread of the specified space,
+     * between updates. Use this to add, remove, or modify collision objects.
+     *
+     * @param <V> the type of result
+     * @param space the space to access (not null, managed)
+     * @param callable the code to invoke (not null)
+     * @return a Future to obtain the result
+     */
+    public <V> Future<V> enqueue(final PhysicsSpace space,
+            final Callable<V> callable) {
+        Validate.nonNull(callable, "callable");
+
+        ScheduledSpace entry = findEntry(space);
+        Callable<V> call = new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                CollisionSpace.setLocalThreadPhysicsSpace(space);
+                V result = callable.call();
+                return result;
+            }
+        };
+        Future<V> result = lanes[entry.laneIndex()].submit(call);
+
+        return result;
+    }
+
+    /**
+     * Test whether the scheduler is ticking.
+     *
+     * @return true if started and not stopped, otherwise false
+     */
+    public synchronized boolean isRunning() {
+        boolean result = !tickFutures.isEmpty();
+        return result;
+    }
+
+    /**
+     * Read the duration of the latest update of the specified space.
+     *
+     * @param space the space to query (not null, managed, unaffected)
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long lastUpdateNanos(PhysicsSpace space) {
+        long result = findEntry(space).lastNanos();
+        return result;
+    }
+
+    /**
+     * Read the maximum number of simulation steps per space per tick.
+     *
+     * @return the limit (&ge;1)
+     */
+    public int maxCatchUpSteps() {
+        assert maxCatchUpSteps >= 1 : maxCatchUpSteps;
+        return maxCatchUpSteps;
+    }
+
+    /**
+     * Read the duration of the slowest update of the specified space since
+     * its metrics were reset.
+     *
+     * @param space the space to query (not null, managed, unaffected)
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long maxUpdateNanos(PhysicsSpace space) {
+        long result = findEntry(space).maxNanos();
+        return result;
+    }
+
+    /**
+     * Stop managing the specified space. The space is neither emptied nor
+     * destroyed. Blocks the caller until any update in progress completes.
+     *
+     * @param space the space to remove (not null, managed)
+     */
+    public synchronized void remove(PhysicsSpace space) {
+        final ScheduledSpace entry = findEntry(space);
+        Callable<Boolean> call = new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                int laneIndex = entry.laneIndex();
+                boolean success = laneSpaces.get(laneIndex).remove(entry);
+                entry.detach();
+                return success;
+            }
+        };
+        boolean success = getFrom(lanes[entry.laneIndex()].submit(call));
+        assert success;
+
+        entries.remove(space);
+    }
+
+    /**
+     * Reset the step-time metrics of all managed spaces.
+     */
+    public void resetMetrics() {
+        for (int laneIndex = 0; laneIndex < lanes.length; ++laneIndex) {
+            final List<ScheduledSpace> list = laneSpaces.get(laneIndex);
+            lanes[laneIndex].execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (ScheduledSpace entry : list) {
+                        entry.resetMetrics();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Stop ticking and terminate all threads. The managed spaces are neither
+     * emptied nor destroyed. The scheduler cannot be used afterward.
+     */
+    public synchronized void shutdown() {
+        stop();
+        for (ScheduledThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        entries.clear();
+    }
+
+    /**
+     * Start ticking, if not already running.
+     */
+    public synchronized void start() {
+        if (!tickFutures.isEmpty()) {
+            return;
+        }
+
+        for (int laneIndex = 0; laneIndex < lanes.length; ++laneIndex) {
+            final List<ScheduledSpace> list = laneSpaces.get(laneIndex);
+            Runnable tick = new Runnable() {
+                @Override
+                public void run() {
+                    tick(list);
+                }
+            };
+            ScheduledFuture<?> future = lanes[laneIndex].scheduleAtFixedRate(
+                    tick, 0L, tickNanos, TimeUnit.NANOSECONDS);
+            tickFutures.add(future);
+        }
+    }
+
+    /**
+     * Stop ticking, if running. Blocks the caller until any update in progress
+     * completes. When restarted, the spaces won't catch up on the time
+     * elapsed while stopped.
+     */
+    public synchronized void stop() {
+        if (tickFutures.isEmpty()) {
+            return;
+        }
+
+        for (ScheduledFuture<?> future : tickFutures) {
+            future.cancel(false);
+        }
+        tickFutures.clear();
+
+        for (int laneIndex = 0; laneIndex < lanes.length; ++laneIndex) {
+            final List<ScheduledSpace> list = laneSpaces.get(laneIndex);
+            Callable<Boolean> call = new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    for (ScheduledSpace entry : list) {
+                        entry.pause();
+                    }
+                    return true;
+                }
+            };
+            getFrom(lanes[laneIndex].submit(call));
+        }
+    }
+
+    /**
+     * Read the interval between ticks.
+     *
+     * @return the interval (in seconds, &gt;0)
+     */
+    public float tickInterval() {
+        float result = 1e-9f * tickNanos;
+        return result;
+    }
+
+    /**
+     * Read the total duration of all updates of the specified space since its
+     * metrics were reset.
+     *
+     * @param space the space to query (not null, managed, unaffected)
+     * @return the total (in nanoseconds, &ge;0)
+     */
+    public long totalUpdateNanos(PhysicsSpace space) {
+        long result = findEntry(space).totalNanos();
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Find the entry for the specified space.
+     *
+     * @param space the space to find (not null, managed, unaffected)
+     * @return the pre-existing entry (not null)
+     */
+    private ScheduledSpace findEntry(PhysicsSpace space) {
+        Validate.nonNull(space, "space");
+
+        ScheduledSpace result = entries.get(space);
+        if (result == null) {
+            String message = "The space isn't managed by this scheduler.";
+            throw new IllegalArgumentException(message);
+        }
+
+        return result;
+    }
+
+    /**
+     * Wait for the specified Future to complete and return its result.
+     *
+     * @param <V> the type of result
+     * @param future the Future to wait for (not null)
+     * @return the result
+     */
+    private static <V> V getFrom(Future<V> future) {
+        try {
+            V result = future.get();
+            return result;
+        } catch (InterruptedException | ExecutionException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    /**
+     * Update each space in a lane. Invoked on the lane's thread. A space whose
+     * update throws an exception is logged and dropped, so that the remaining
+     * spaces continue to tick.
+     *
+     * @param list the spaces assigned to the lane (not null)
+     */
+    private void tick(List<ScheduledSpace> list) {
+        for (int listIndex = list.size() - 1; listIndex >= 0; --listIndex) {
+            ScheduledSpace entry = list.get(listIndex);
+            try {
+                entry.update(maxCatchUpSteps);
+            } catch (RuntimeException exception) {
+                logger.log(Level.SEVERE, "Dropping " + entry.space(),
+                        exception);
+                list.remove(listIndex);
+                entries.remove(entry.space());
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.bullet.collision.PhysicsCollisionListener;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.PhysicsRayTestResult;
+import com.jme3.bullet.collision.PhysicsSweepTestResult;
+import com.jme3.bullet.collision.shapes.ConvexShape;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * A read-only view of a CollisionSpace, through which ray, sweep, and contact
+ * tests may be issued from any number of threads.
+ * <p>
+ * Obtain one by invoking {@link CollisionSpace#beginQueryPhase()} on the
+ * physics thread between steps. Until
+ * {@link CollisionSpace#endQueryPhase()} is invoked, any attempt to step the
+ * space or to add/remove objects or joints throws an IllegalStateException.
+ * Other mutators (such as setPhysicsLocation() or setCollisionShape()) are not
+ * blocked; the application must not invoke them on objects in the space while
+ * the phase is open.
+ * <p>
+ * Bullet's query code isn't re-entrant unless built with BT_THREADSAFE: the
+ * broadphase ray test uses a shared traversal stack, and contact tests
+ * allocate collision algorithms from an unlocked pool. The space therefore
+ * serializes its native query calls. What proceeds in parallel is everything
+ * else: argument validation, sorting and filtering of results, and the
+ * callers' own processing of them.
+ * <p>
+ * Each querying thread gets its own result lists, which are re-used by that
+ * thread's subsequent queries of the same kind. Results must therefore be
+ * consumed (or copied) before the same thread issues another query.
+ * Listeners passed to contactTest() are invoked on the querying thread, while
+ * the native lock is held, so they shouldn't block.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class QueryPhase {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(QueryPhase.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true between beginQueryPhase() and endQueryPhase(), otherwise false
+     */
+    private volatile boolean isOpen = false;
+    /**
+     * lock held (shared) by each query in progress, and (exclusively) while
+     * the phase ends
+     */
+    final private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * per-thread lists for ray-test results
+     */
+    final private ThreadLocal<List<PhysicsRayTestResult>> rayResults
+            = new ThreadLocal<List<PhysicsRayTestResult>>() {
+        @Override
+        protected List<PhysicsRayTestResult> initialValue() {
+            return new ArrayList<>(10);
+        }
+    };
+    /**
+     * space being queried
+     */
+    final private CollisionSpace space;
+    /**
+     * per-thread lists for sweep-test results
+     */
+    final private ThreadLocal<List<PhysicsSweepTestResult>> sweepResults
+            = new ThreadLocal<List<PhysicsSweepTestResult>>() {
+        @Override
+        protected List<PhysicsSweepTestResult> initialValue() {
+            return new ArrayList<>(10);
+        }
+    };
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a closed phase for the specified space.
+     *
+     * @param space the space to query (not null, alias created)
+     */
+    QueryPhase(CollisionSpace space) {
+        assert space != null;
+        this.space = space;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Find all collision objects whose axis-aligned bounding boxes overlap
+     * the specified region. May be invoked on any thread while the phase is
+     * open.
+     *
+     * @param region the region to test (not null, unaffected)
+     * @param groupMask the collision groups to include (bitmask)
+     * @param storeResult storage for the overlapping objects (not null,
+     * cleared and then modified)
+     * @return the number of overlapping objects found (&ge;0)
+     * @see CollisionSpace#aabbTest(BoundingVolume, int, Collection)
+     */
+    public int aabbTest(BoundingVolume region, int groupMask,
+            Collection<? super PhysicsCollisionObject> storeResult) {
+        Lock readLock = beginQuery();
+        try {
+            int result = space.aabbTest(region, groupMask, storeResult);
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Close this phase, waiting for any queries in progress to complete.
+     * Invoked by {@link CollisionSpace#endQueryPhase()}.
+     */
+    void close() {
+        isOpen = false;
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        writeLock.unlock();
+    }
+
+    /**
+     * Perform a contact test. May be invoked on any thread while the phase is
+     * open.
+     *
+     * @param pco the collision object to test (not null, unaffected)
+     * @param listener the callback for reporting contacts (may be null)
+     * @return the number of times the listener was invoked, or would have been
+     * if it weren't null (&ge;0)
+     * @see CollisionSpace#contactTest(PhysicsCollisionObject,
+     * PhysicsCollisionListener)
+     */
+    public int contactTest(PhysicsCollisionObject pco,
+            PhysicsCollisionListener listener) {
+        Lock readLock = beginQuery();
+        try {
+            int result = space.contactTest(pco, listener);
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Access the space being queried.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public CollisionSpace getSpace() {
+        return space;
+    }
+
+    /**
+     * Test whether queries are currently allowed.
+     *
+     * @return true if open, otherwise false
+     */
+    public boolean isOpen() {
+        return isOpen;
+    }
+
+    /**
+     * Open this phase. Invoked by {@link CollisionSpace#beginQueryPhase()}.
+     */
+    void open() {
+        isOpen = true;
+    }
+
+    /**
+     * Perform a ray test and sort the results by ascending hit fraction. May
+     * be invoked on any thread while the phase is open.
+     *
+     * @param from the starting location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param to the ending location (in physics-space coordinates, not null,
+     * unaffected)
+     * @return the calling thread's ray-result list (sorted, not null)
+     */
+    public List<PhysicsRayTestResult> rayTest(Vector3f from, Vector3f to) {
+        Lock readLock = beginQuery();
+        try {
+            List<PhysicsRayTestResult> result
+                    = space.rayTest(from, to, rayResults.get());
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Perform a batch of ray tests, recording only the closest hit of each
+     * ray. May be invoked on any thread while the phase is open.
+     *
+     * @param endpoints the starting and ending locations of each ray (6
+     * floats per ray, not null, unaffected)
+     * @param numRays the number of rays to test (&ge;0)
+     * @param groupMasks the collision groups each ray can hit (one int per
+     * ray) or null to hit all groups (unaffected)
+     * @param storeFractions storage for the closest hit fraction of each ray
+     * (not null, modified)
+     * @param storeNormals storage for hit normals (modified) or null
+     * @param storeIds storage for hit-object IDs (modified) or null
+     * @return the number of rays that hit something (&ge;0, &le;numRays)
+     * @see CollisionSpace#rayTestClosest(FloatBuffer, int, IntBuffer,
+     * FloatBuffer, FloatBuffer, LongBuffer)
+     */
+    public int rayTestClosest(FloatBuffer endpoints, int numRays,
+            IntBuffer groupMasks, FloatBuffer storeFractions,
+            FloatBuffer storeNormals, LongBuffer storeIds) {
+        Lock readLock = beginQuery();
+        try {
+            int result = space.rayTestClosest(endpoints, numRays, groupMasks,
+                    storeFractions, storeNormals, storeIds);
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Perform a ray test and return the results in arbitrary order. May be
+     * invoked on any thread while the phase is open.
+     *
+     * @param from the starting location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param to the ending location (in physics-space coordinates, not null,
+     * unaffected)
+     * @return the calling thread's ray-result list (unsorted, not null)
+     */
+    public List<PhysicsRayTestResult> rayTestRaw(Vector3f from, Vector3f to) {
+        Lock readLock = beginQuery();
+        try {
+            List<PhysicsRayTestResult> result
+                    = space.rayTestRaw(from, to, rayResults.get());
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Perform a sweep test. May be invoked on any thread while the phase is
+     * open.
+     *
+     * @param shape the shape to sweep (not null, convex, unaffected)
+     * @param start the starting physics-space transform (not null, unaffected)
+     * @param end the ending physics-space transform (not null, unaffected)
+     * @param allowedCcdPenetration (in physics-space units)
+     * @return the calling thread's sweep-result list (not null)
+     */
+    public List<PhysicsSweepTestResult> sweepTest(ConvexShape shape,
+            Transform start, Transform end, float allowedCcdPenetration) {
+        Lock readLock = beginQuery();
+        try {
+            List<PhysicsSweepTestResult> result = space.sweepTest(shape,
+                    start, end, sweepResults.get(), allowedCcdPenetration);
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Perform a batch of sweep tests, recording only the closest hit of each
+     * sweep. May be invoked on any thread while the phase is open.
+     *
+     * @param shapes the shape to sweep (one per sweep, or a single shape for
+     * all sweeps, not null, unaffected)
+     * @param starts the starting transform of each sweep (not null,
+     * unaffected)
+     * @param ends the ending transform of each sweep (not null, unaffected)
+     * @param numSweeps the number of sweeps to perform (&ge;0)
+     * @param groupMasks the collision groups each sweep can hit (one int per
+     * sweep) or null to hit all groups (unaffected)
+     * @param allowedCcdPenetration (in physics-space units)
+     * @param storeFractions storage for the closest hit fraction of each
+     * sweep (not null, modified)
+     * @param storeNormals storage for hit normals (modified) or null
+     * @param storeIds storage for hit-object IDs (modified) or null
+     * @return the number of sweeps that hit something (&ge;0, &le;numSweeps)
+     * @see CollisionSpace#sweepTestClosest(ConvexShape[], Transform[],
+     * Transform[], int, IntBuffer, float, FloatBuffer, FloatBuffer,
+     * LongBuffer)
+     */
+    public int sweepTestClosest(ConvexShape[] shapes, Transform[] starts,
+            Transform[] ends, int numSweeps, IntBuffer groupMasks,
+            float allowedCcdPenetration, FloatBuffer storeFractions,
+            FloatBuffer storeNormals, LongBuffer storeIds) {
+        Lock readLock = beginQuery();
+        try {
+            int result = space.sweepTestClosest(shapes, starts, ends,
+                    numSweeps, groupMasks, allowedCcdPenetration,
+                    storeFractions, storeNormals, storeIds);
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Begin a query, verifying that the phase is open.
+     *
+     * @return the acquired read lock (not null)
+     */
+    private Lock beginQuery() {
+        Lock result = lock.readLock();
+        result.lock();
+        if (!isOpen) {
+            result.unlock();
+            throw new IllegalStateException(
+                    "Queries are allowed only during a query phase.");
+        }
+
+        return result;
+    }
+}
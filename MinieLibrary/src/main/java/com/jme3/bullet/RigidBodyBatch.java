@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.util.ConcurrentLongIntMap;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * An ordered collection of rigid bodies whose transforms can be copied to a
+ * FloatBuffer in a single pass.
+ * <p>
+ * Each body is assigned a slot index when it's added. The index remains
+ * valid until the body is removed or the batch is cleared. Vacated slots are
+ * reused by subsequent additions, most recently vacated first.
+ * <p>
+ * Each slot occupies {@link #transformStride} floats (location x/y/z followed
+ * by rotation x/y/z/w) or, if velocities are included, {@link #velocityStride}
+ * floats (location, rotation, linear velocity x/y/z, angular velocity x/y/z).
+ * Vacant slots are filled with zeros.
+ * <p>
+ * Transforms can also be applied to many bodies at once, typically to
+ * reposition kinematic bodies before a simulation step.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class RigidBodyBatch {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of floats per slot when velocities are excluded
+     */
+    final public static int transformStride = 7;
+    /**
+     * number of floats per slot when velocities are included
+     */
+    final public static int velocityStride = 13;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(RigidBodyBatch.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * indices of vacated slots, most recent last (entries for slots that have
+     * since been trimmed or reused are discarded when popped)
+     */
+    private int[] freeSlots = new int[16];
+    /**
+     * number of entries in freeSlots
+     */
+    private int numFree = 0;
+    /**
+     * number of vacant slots in the list
+     */
+    private int numVacant = 0;
+    /**
+     * bodies in slot order, with null for each vacant slot
+     */
+    final private List<PhysicsRigidBody> slotList = new ArrayList<>(64);
+    /**
+     * map body IDs to slot indices
+     */
+    final private ConcurrentLongIntMap slotMap
+            = new ConcurrentLongIntMap(64);
+    /**
+     * temporary storage for rotations
+     */
+    final private Quaternion tmpRotation = new Quaternion();
+    /**
+     * temporary storage for vectors
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add the specified body to this batch, assigning it a slot.
+     *
+     * @param body the body to add (not null, not already in this batch, alias
+     * created)
+     * @return the index of the assigned slot (&ge;0)
+     */
+    public int add(PhysicsRigidBody body) {
+        Validate.nonNull(body, "body");
+        long bodyId = body.nativeId();
+        Validate.require(!slotMap.containsKey(bodyId), "a new body");
+
+        int slot;
+        if (numVacant > 0) {
+            slot = popFreeSlot();
+            slotList.set(slot, body);
+            --numVacant;
+            if (numVacant == 0) {
+                numFree = 0;
+            }
+        } else {
+            slot = slotList.size();
+            slotList.add(body);
+        }
+        slotMap.put(bodyId, slot);
+
+        return slot;
+    }
+
+    /**
+     * Reposition and reorient the bodies in the specified slots, reading
+     * {@link #transformStride} floats per entry (location x/y/z followed by
+     * rotation x/y/z/w) from the specified buffer, starting at its current
+     * position. The position of the buffer is unaffected. Vacant slots are
+     * skipped. Must be invoked on the physics thread, between simulation
+     * steps, for example from a tick listener.
+     *
+     * @param transforms the transform data (not null, unaffected, at least
+     * numEntries * transformStride floats remaining)
+     * @param slots the slot index for each entry (not null, unaffected, each
+     * &ge;0 and &lt;countSlots())
+     * @param numEntries the number of entries to apply (&ge;0, &le;
+     * slots.length)
+     * @return the number of bodies modified (&ge;0)
+     */
+    public int applyTransforms(FloatBuffer transforms, int[] slots,
+            int numEntries) {
+        Validate.nonNull(transforms, "transforms");
+        Validate.nonNull(slots, "slots");
+        Validate.inRange(numEntries, "number of entries", 0, slots.length);
+        Validate.require(
+                transforms.remaining() >= numEntries * transformStride,
+                "enough data remaining in the buffer");
+
+        /*
+         * Validate every slot before moving any body,
+         * so that a bad entry can't leave the batch half-applied.
+         */
+        int numSlots = slotList.size();
+        for (int entryIndex = 0; entryIndex < numEntries; ++entryIndex) {
+            Validate.inRange(slots[entryIndex], "slot", 0, numSlots - 1);
+        }
+
+        int numModified = 0;
+        int index = transforms.position();
+        for (int entryIndex = 0; entryIndex < numEntries; ++entryIndex) {
+            int slot = slots[entryIndex];
+            PhysicsRigidBody body = slotList.get(slot);
+            if (body != null) {
+                tmpVector.set(transforms.get(index),
+                        transforms.get(index + 1), transforms.get(index + 2));
+                body.setPhysicsLocation(tmpVector);
+
+                tmpRotation.set(transforms.get(index + 3),
+                        transforms.get(index + 4), transforms.get(index + 5),
+                        transforms.get(index + 6));
+                body.setPhysicsRotation(tmpRotation);
+                ++numModified;
+            }
+            index += transformStride;
+        }
+
+        return numModified;
+    }
+
+    /**
+     * Remove all bodies from this batch and forget all slot assignments.
+     */
+    public void clear() {
+        slotList.clear();
+        slotMap.clear();
+        numFree = 0;
+        numVacant = 0;
+    }
+
+    /**
+     * Count how many bodies are in this batch.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countBodies() {
+        int result = slotMap.size();
+        return result;
+    }
+
+    /**
+     * Count the slots in this batch, including vacant ones.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countSlots() {
+        int result = slotList.size();
+        return result;
+    }
+
+    /**
+     * Access the body assigned to the indexed slot.
+     *
+     * @param slot the index of the slot (&ge;0, &lt;countSlots())
+     * @return the pre-existing body, or null if the slot is vacant
+     */
+    public PhysicsRigidBody get(int slot) {
+        Validate.inRange(slot, "slot", 0, slotList.size() - 1);
+        PhysicsRigidBody result = slotList.get(slot);
+        return result;
+    }
+
+    /**
+     * Find the slot assigned to the specified body.
+     *
+     * @param body the body to find (not null, unaffected)
+     * @return the index of the slot (&ge;0) or -1 if not in this batch
+     */
+    public int indexOf(PhysicsRigidBody body) {
+        long bodyId = body.nativeId();
+        int slot = slotMap.get(bodyId);
+        int result = (slot == ConcurrentLongIntMap.absent) ? -1 : slot;
+
+        return result;
+    }
+
+    /**
+     * Copy the transforms (and optionally the velocities) of all slots to the
+     * specified buffer, starting at its current position. The position of the
+     * buffer is unaffected. Must be invoked on the physics thread, between
+     * simulation steps.
+     *
+     * @param storeBuffer the buffer to fill (not null, modified, at least
+     * countSlots() * stride floats remaining)
+     * @param includeVelocities true to include linear and angular velocities,
+     * false to copy only locations and rotations
+     * @return the number of slots copied (&ge;0)
+     */
+    public int readTransforms(FloatBuffer storeBuffer,
+            boolean includeVelocities) {
+        Validate.nonNull(storeBuffer, "store buffer");
+        int stride = includeVelocities ? velocityStride : transformStride;
+        int numSlots = slotList.size();
+        Validate.require(storeBuffer.remaining() >= numSlots * stride,
+                "enough space remaining in the buffer");
+
+        int index = storeBuffer.position();
+        for (int slot = 0; slot < numSlots; ++slot) {
+            PhysicsRigidBody body = slotList.get(slot);
+            if (body == null) {
+                for (int i = 0; i < stride; ++i) {
+                    storeBuffer.put(index + i, 0f);
+                }
+                index += stride;
+                continue;
+            }
+
+            body.getPhysicsLocation(tmpVector);
+            index = put(tmpVector, storeBuffer, index);
+
+            body.getPhysicsRotation(tmpRotation);
+            storeBuffer.put(index, tmpRotation.getX());
+            storeBuffer.put(index + 1, tmpRotation.getY());
+            storeBuffer.put(index + 2, tmpRotation.getZ());
+            storeBuffer.put(index + 3, tmpRotation.getW());
+            index += 4;
+
+            if (includeVelocities) {
+                if (body.isDynamic()) {
+                    body.getLinearVelocity(tmpVector);
+                    index = put(tmpVector, storeBuffer, index);
+                    body.getAngularVelocity(tmpVector);
+                    index = put(tmpVector, storeBuffer, index);
+                } else {
+                    for (int i = 0; i < 6; ++i) {
+                        storeBuffer.put(index + i, 0f);
+                    }
+                    index += 6;
+                }
+            }
+        }
+
+        return numSlots;
+    }
+
+    /**
+     * Remove the specified body from this batch, vacating its slot. The slots
+     * of other bodies are unaffected.
+     *
+     * @param body the body to remove (not null, unaffected)
+     * @return true if the body was removed, false if it wasn't in this batch
+     */
+    public boolean remove(PhysicsRigidBody body) {
+        long bodyId = body.nativeId();
+        int slot = slotMap.remove(bodyId);
+        if (slot == ConcurrentLongIntMap.absent) {
+            return false;
+        }
+
+        int lastSlot = slotList.size() - 1;
+        if (slot == lastSlot) {
+            slotList.remove(lastSlot);
+            /*
+             * Trim any vacant slots at the end of the list.
+             */
+            while (!slotList.isEmpty()
+                    && slotList.get(slotList.size() - 1) == null) {
+                slotList.remove(slotList.size() - 1);
+                --numVacant;
+            }
+        } else {
+            slotList.set(slot, null);
+            ++numVacant;
+            if (numFree == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, 2 * numFree);
+            }
+            freeSlots[numFree] = slot;
+            ++numFree;
+        }
+        assert numVacant >= 0 : numVacant;
+        if (numVacant == 0) {
+            numFree = 0;
+        }
+
+        return true;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Pop vacated slot indices until one is found that's still vacant.
+     *
+     * @return the index of a vacant slot (&ge;0)
+     */
+    private int popFreeSlot() {
+        int numSlots = slotList.size();
+        while (numFree > 0) {
+            --numFree;
+            int slot = freeSlots[numFree];
+            if (slot < numSlots && slotList.get(slot) == null) {
+                return slot;
+            }
+        }
+        throw new IllegalStateException("no vacant slot was recorded");
+    }
+
+    /**
+     * Write the components of a vector to the specified buffer using absolute
+     * puts.
+     *
+     * @param vector the input vector (not null, unaffected)
+     * @param buffer the output buffer (not null, modified)
+     * @param index the index of the first float to write (&ge;0)
+     * @return the index following the last float written
+     */
+    private static int put(Vector3f vector, FloatBuffer buffer, int index) {
+        buffer.put(index, vector.x);
+        buffer.put(index + 1, vector.y);
+        buffer.put(index + 2, vector.z);
+
+        return index + 3;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.logging.Logger;
+
+/**
+ * A PhysicsSpace managed by a PhysicsSpaceScheduler, along with its step-time
+ * metrics. Used internally by PhysicsSpaceScheduler.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class ScheduledSpace implements PhysicsTickListener {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ScheduledSpace.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * index of the thread on which the space is stepped (&ge;0)
+     */
+    final private int laneIndex;
+    /**
+     * System.nanoTime() at the start of the latest update, or 0 if the space
+     * hasn't been updated since it was added or its scheduler was stopped
+     */
+    private long previousStart = 0L;
+    /**
+     * duration of the latest update (in nanoseconds, &ge;0)
+     */
+    private volatile long lastNanos = 0L;
+    /**
+     * duration of the slowest update since the metrics were reset (in
+     * nanoseconds, &ge;0)
+     */
+    private volatile long maxNanos = 0L;
+    /**
+     * number of simulation steps since the metrics were reset
+     */
+    private volatile long numSteps = 0L;
+    /**
+     * number of updates since the metrics were reset
+     */
+    private volatile long numUpdates = 0L;
+    /**
+     * total duration of all updates since the metrics were reset (in
+     * nanoseconds, &ge;0)
+     */
+    private volatile long totalNanos = 0L;
+    /**
+     * the managed space (not null)
+     */
+    final private PhysicsSpace space;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an entry for the specified space and register it as a tick
+     * listener.
+     *
+     * @param space the space to manage (not null, alias created)
+     * @param laneIndex the index of the thread on which the space will be
+     * stepped (&ge;0)
+     */
+    ScheduledSpace(PhysicsSpace space, int laneIndex) {
+        assert space != null;
+        assert laneIndex >= 0 : laneIndex;
+
+        this.space = space;
+        this.laneIndex = laneIndex;
+        space.addTickListener(this);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the simulation steps since the metrics were reset.
+     *
+     * @return the count (&ge;0)
+     */
+    long countSteps() {
+        return numSteps;
+    }
+
+    /**
+     * Count the updates since the metrics were reset.
+     *
+     * @return the count (&ge;0)
+     */
+    long countUpdates() {
+        return numUpdates;
+    }
+
+    /**
+     * Unregister this entry as a tick listener. Must be invoked on the
+     * space's thread.
+     */
+    void detach() {
+        space.removeTickListener(this);
+    }
+
+    /**
+     * Read the index of the thread on which the space is stepped.
+     *
+     * @return the index (&ge;0)
+     */
+    int laneIndex() {
+        return laneIndex;
+    }
+
+    /**
+     * Read the duration of the latest update.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    long lastNanos() {
+        return lastNanos;
+    }
+
+    /**
+     * Read the duration of the slowest update since the metrics were reset.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    long maxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Forget the time of the latest update, so the next update won't try to
+     * catch up on the time elapsed in between. Must be invoked on the space's
+     * thread.
+     */
+    void pause() {
+        previousStart = 0L;
+    }
+
+    /**
+     * Reset the metrics. Must be invoked on the space's thread.
+     */
+    void resetMetrics() {
+        lastNanos = 0L;
+        maxNanos = 0L;
+        numSteps = 0L;
+        numUpdates = 0L;
+        totalNanos = 0L;
+    }
+
+    /**
+     * Access the managed space.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    PhysicsSpace space() {
+        return space;
+    }
+
+    /**
+     * Read the total duration of all updates since the metrics were reset.
+     *
+     * @return the total (in nanoseconds, &ge;0)
+     */
+    long totalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Simulate the real time elapsed since the previous update and distribute
+     * the resulting events. Must be invoked on the space's thread.
+     *
+     * @param maxSteps the maximum number of simulation steps to perform
+     * (&ge;1)
+     */
+    void update(int maxSteps) {
+        assert maxSteps >= 1 : maxSteps;
+
+        long start = System.nanoTime();
+        float interval;
+        if (previousStart == 0L) {
+            interval = 0f;
+        } else {
+            interval = 1e-9f * (start - previousStart);
+        }
+        previousStart = start;
+
+        CollisionSpace.setLocalThreadPhysicsSpace(space);
+        space.update(interval, maxSteps);
+        space.distributeEvents();
+
+        long duration = System.nanoTime() - start;
+        lastNanos = duration;
+        if (duration > maxNanos) {
+            maxNanos = duration;
+        }
+        totalNanos += duration;
+        ++numUpdates;
+    }
+    // *************************************************************************
+    // PhysicsTickListener methods
+
+    /**
+     * Callback from Bullet, invoked just after the physics has been stepped.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void physicsTick(PhysicsSpace space, float timeStep) {
+        ++numSteps;
+    }
+
+    /**
+     * Callback from Bullet, invoked just before the physics is stepped.
+     *
+     * @param space the space that is about to be stepped (not null)
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+        // do nothing
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * A lock-free triple buffer of transform snapshots, written by the physics
+ * thread and read by the render thread. The writer never waits for the reader,
+ * and the reader never waits for the writer.
+ * <p>
+ * The physics thread publishes a snapshot at the end of each space update.
+ * Once per frame, the render thread invokes {@link #acquire()} to switch to
+ * the most recent snapshot, which then remains valid (and unmodified) until
+ * the next acquire().
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class SnapshotBuffer {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * flag bit indicating that the middle snapshot hasn't been acquired yet
+     */
+    final private static int freshBit = 0x4;
+    /**
+     * mask to extract a snapshot index
+     */
+    final private static int indexMask = 0x3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SnapshotBuffer.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * index of the middle snapshot, plus freshBit if it was published since
+     * the last acquire()
+     */
+    final private AtomicInteger middle = new AtomicInteger(1);
+    /**
+     * index of the snapshot being written (accessed only by the writer)
+     */
+    private int backIndex = 2;
+    /**
+     * index of the snapshot being read (accessed only by the reader)
+     */
+    private int frontIndex = 0;
+    /**
+     * sequence number of the latest capture (accessed only by the writer)
+     */
+    private long sequence = 0L;
+    /**
+     * the 3 snapshots
+     */
+    final private TransformSnapshot[] snapshots = new TransformSnapshot[]{
+        new TransformSnapshot(), new TransformSnapshot(),
+        new TransformSnapshot()
+    };
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Switch to the most recently published snapshot, if there is one the
+     * reader hasn't seen yet. Must be invoked only by the reader thread.
+     *
+     * @return the current snapshot (not null, don't modify)
+     */
+    public TransformSnapshot acquire() {
+        if ((middle.get() & freshBit) != 0) {
+            int previous = middle.getAndSet(frontIndex);
+            frontIndex = previous & indexMask;
+        }
+        TransformSnapshot result = snapshots[frontIndex];
+
+        return result;
+    }
+
+    /**
+     * Access the snapshot selected by the latest acquire(), without switching.
+     * Must be invoked only by the reader thread.
+     *
+     * @return the current snapshot (not null, don't modify)
+     */
+    public TransformSnapshot current() {
+        TransformSnapshot result = snapshots[frontIndex];
+        return result;
+    }
+
+    /**
+     * Capture the rigid-body transforms of the specified space and publish
+     * them. Must be invoked only by the space's physics thread.
+     *
+     * @param space the space to capture (not null, unaffected)
+     */
+    public void publish(PhysicsSpace space) {
+        ++sequence;
+        snapshots[backIndex].capture(space, sequence);
+        int previous = middle.getAndSet(backIndex | freshBit);
+        backIndex = previous & indexMask;
+    }
+}
@@ -0,0 +1,493 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.objects.PhysicsCharacter;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.bullet.objects.PhysicsVehicle;
+import com.jme3.bullet.objects.VehicleWheel;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Collection;
+import java.util.logging.Logger;
+
+/**
+ * Encode and decode the dynamic state of a PhysicsSpace using a compact,
+ * versioned binary layout. Used internally by PhysicsSpace.
+ * <p>
+ * Layout (version 1), using the byte order of the buffer:
+ * <ul>
+ * <li>int magic (0x4d6e5353), int version</li>
+ * <li>int number of rigid bodies, then for each rigid body (including
+ * vehicles): int slot, long native ID, byte isVehicle, int activation state,
+ * float deactivation time, 3 floats location, 4 floats orientation, 3 floats
+ * linear velocity, 3 floats angular velocity, 3 floats total force, 3 floats
+ * total torque, and (for vehicles only) int number of wheels, then for each
+ * wheel: floats rotation angle, steering angle, engine force, and brake
+ * impulse</li>
+ * <li>int number of characters, then for each: long native ID, 3 floats
+ * location, 3 floats linear velocity, 3 floats angular velocity, 3 floats walk
+ * offset</li>
+ * <li>int number of soft bodies, then for each: long native ID, int
+ * activation state, float deactivation time, 3 floats location, int number of
+ * nodes, then 3 floats velocity per node</li>
+ * </ul>
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class SpaceStateCodec {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * bytes per character record
+     */
+    final private static int characterBytes = 8 + 12 * 4;
+    /**
+     * magic number to identify encoded state
+     */
+    final static int magic = 0x4d6e5353;
+    /**
+     * bytes per rigid-body record, excluding wheels
+     */
+    final private static int rigidBytes = 4 + 8 + 1 + 4 + 4 + 19 * 4;
+    /**
+     * bytes per soft-body record, excluding nodes
+     */
+    final private static int softBytes = 8 + 4 + 4 + 3 * 4 + 4;
+    /**
+     * version of the layout written by encode()
+     */
+    final static int version = 1;
+    /**
+     * bytes per vehicle-wheel record
+     */
+    final private static int wheelBytes = 4 * 4;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SpaceStateCodec.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * temporary storage for soft-body node velocities
+     */
+    private FloatBuffer tmpFloats = BufferUtils.createFloatBuffer(0);
+    /**
+     * temporary storage for an orientation
+     */
+    final private Quaternion tmpRotation = new Quaternion();
+    /**
+     * temporary storage for vectors
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Decode state from the specified buffer and apply it to the objects in
+     * the specified space. Records for objects that are no longer in the space
+     * are skipped.
+     *
+     * @param space the space to modify (not null)
+     * @param buffer the buffer to read, starting at its current position (not
+     * null, position advanced)
+     * @return the number of objects restored (&ge;0)
+     */
+    int decode(PhysicsSpace space, ByteBuffer buffer) {
+        int readMagic = buffer.getInt();
+        if (readMagic != magic) {
+            String message = "Not a space snapshot: magic = "
+                    + Integer.toHexString(readMagic);
+            throw new IllegalArgumentException(message);
+        }
+        int readVersion = buffer.getInt();
+        if (readVersion != version) {
+            String message = "Unsupported snapshot version: " + readVersion;
+            throw new IllegalArgumentException(message);
+        }
+
+        int numRestored = 0;
+        int numSlots = space.countRigidBodySlots();
+        int numRigid = buffer.getInt();
+        for (int recordIndex = 0; recordIndex < numRigid; ++recordIndex) {
+            int slot = buffer.getInt();
+            long id = buffer.getLong();
+            PhysicsRigidBody body = null;
+            if (slot < numSlots) {
+                body = space.rigidBodyInSlot(slot);
+                if (body != null && body.nativeId() != id) {
+                    body = null;
+                }
+            }
+            if (decodeRigidBody(body, buffer)) {
+                ++numRestored;
+            }
+        }
+
+        int numCharacters = buffer.getInt();
+        for (int recordIndex = 0; recordIndex < numCharacters; ++recordIndex) {
+            long id = buffer.getLong();
+            PhysicsCharacter character = space.findCharacter(id);
+            if (character == null) {
+                buffer.position(buffer.position() + characterBytes - 8);
+            } else {
+                get(buffer, tmpVector);
+                character.setPhysicsLocation(tmpVector);
+                get(buffer, tmpVector);
+                character.setLinearVelocity(tmpVector);
+                get(buffer, tmpVector);
+                character.setAngularVelocity(tmpVector);
+                get(buffer, tmpVector);
+                character.setWalkDirection(tmpVector);
+                ++numRestored;
+            }
+        }
+
+        int numSoft = buffer.getInt();
+        for (int recordIndex = 0; recordIndex < numSoft; ++recordIndex) {
+            long id = buffer.getLong();
+            PhysicsSoftBody softBody = null;
+            if (space instanceof PhysicsSoftSpace) {
+                softBody = ((PhysicsSoftSpace) space).findSoftBody(id);
+            }
+            if (decodeSoftBody(softBody, buffer)) {
+                ++numRestored;
+            }
+        }
+
+        return numRestored;
+    }
+
+    /**
+     * Encode the dynamic state of the specified space to the specified
+     * buffer.
+     *
+     * @param space the space to encode (not null, unaffected)
+     * @param buffer the buffer to write, starting at its current position (not
+     * null, position advanced)
+     */
+    void encode(PhysicsSpace space, ByteBuffer buffer) {
+        buffer.putInt(magic);
+        buffer.putInt(version);
+
+        int numSlots = space.countRigidBodySlots();
+        int numRigid = 0;
+        for (int slot = 0; slot < numSlots; ++slot) {
+            if (space.rigidBodyInSlot(slot) != null) {
+                ++numRigid;
+            }
+        }
+        buffer.putInt(numRigid);
+        for (int slot = 0; slot < numSlots; ++slot) {
+            PhysicsRigidBody body = space.rigidBodyInSlot(slot);
+            if (body != null) {
+                encodeRigidBody(slot, body, buffer);
+            }
+        }
+
+        Collection<PhysicsCharacter> characters = space.characterView();
+        buffer.putInt(characters.size());
+        for (PhysicsCharacter character : characters) {
+            buffer.putLong(character.nativeId());
+            put(buffer, character.getPhysicsLocation(tmpVector));
+            put(buffer, character.getLinearVelocity(tmpVector));
+            put(buffer, character.getAngularVelocity(tmpVector));
+            put(buffer, character.getWalkDirection(tmpVector));
+        }
+
+        if (space instanceof PhysicsSoftSpace) {
+            Collection<PhysicsSoftBody> softBodies
+                    = ((PhysicsSoftSpace) space).softBodyView();
+            buffer.putInt(softBodies.size());
+            for (PhysicsSoftBody softBody : softBodies) {
+                encodeSoftBody(softBody, buffer);
+            }
+        } else {
+            buffer.putInt(0);
+        }
+    }
+
+    /**
+     * Calculate the number of bytes needed to encode the specified space.
+     *
+     * @param space the space to measure (not null, unaffected)
+     * @return the number of bytes (&gt;0)
+     */
+    static int encodedSize(PhysicsSpace space) {
+        int result = 5 * 4; // magic, version, and 3 counts
+
+        int numSlots = space.countRigidBodySlots();
+        for (int slot = 0; slot < numSlots; ++slot) {
+            PhysicsRigidBody body = space.rigidBodyInSlot(slot);
+            if (body instanceof PhysicsVehicle) {
+                int numWheels = ((PhysicsVehicle) body).getNumWheels();
+                result += rigidBytes + 4 + numWheels * wheelBytes;
+            } else if (body != null) {
+                result += rigidBytes;
+            }
+        }
+
+        result += space.characterView().size() * characterBytes;
+
+        if (space instanceof PhysicsSoftSpace) {
+            Collection<PhysicsSoftBody> softBodies
+                    = ((PhysicsSoftSpace) space).softBodyView();
+            for (PhysicsSoftBody softBody : softBodies) {
+                result += softBytes + 3 * 4 * softBody.countNodes();
+            }
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Decode a rigid-body record (after its slot and ID) and apply it.
+     *
+     * @param body the body to modify, or null to skip the record
+     * @param buffer the buffer to read (not null, position advanced)
+     * @return true if the body was modified, otherwise false
+     */
+    private boolean decodeRigidBody(PhysicsRigidBody body, ByteBuffer buffer) {
+        boolean isVehicle = (buffer.get() != 0);
+        if (body == null || isVehicle != (body instanceof PhysicsVehicle)) {
+            int skipBytes = rigidBytes - 4 - 8 - 1;
+            buffer.position(buffer.position() + skipBytes);
+            if (isVehicle) {
+                int numWheels = buffer.getInt();
+                skipBytes = numWheels * wheelBytes;
+                buffer.position(buffer.position() + skipBytes);
+            }
+            return false;
+        }
+
+        int activationState = buffer.getInt();
+        float deactivationTime = buffer.getFloat();
+
+        get(buffer, tmpVector);
+        body.setPhysicsLocation(tmpVector);
+        tmpRotation.set(buffer.getFloat(), buffer.getFloat(),
+                buffer.getFloat(), buffer.getFloat());
+        body.setPhysicsRotation(tmpRotation);
+
+        get(buffer, tmpVector);
+        if (body.isDynamic()) {
+            body.setLinearVelocity(tmpVector);
+        }
+        get(buffer, tmpVector);
+        if (body.isDynamic()) {
+            body.setAngularVelocity(tmpVector);
+        }
+
+        body.clearForces();
+        get(buffer, tmpVector);
+        body.applyCentralForce(tmpVector);
+        get(buffer, tmpVector);
+        body.applyTorque(tmpVector);
+
+        if (isVehicle) {
+            PhysicsVehicle vehicle = (PhysicsVehicle) body;
+            int numWheels = buffer.getInt();
+            int numCurrent = vehicle.getNumWheels();
+            for (int wheelIndex = 0; wheelIndex < numWheels; ++wheelIndex) {
+                float rotationAngle = buffer.getFloat();
+                float steerAngle = buffer.getFloat();
+                float engineForce = buffer.getFloat();
+                float brake = buffer.getFloat();
+                if (wheelIndex < numCurrent) {
+                    VehicleWheel wheel = vehicle.getWheel(wheelIndex);
+                    wheel.setRotationAngle(rotationAngle);
+                    vehicle.steer(wheelIndex, steerAngle);
+                    vehicle.accelerate(wheelIndex, engineForce);
+                    vehicle.brake(wheelIndex, brake);
+                }
+            }
+        }
+
+        body.setDeactivationTime(deactivationTime);
+        body.setActivationState(activationState);
+
+        return true;
+    }
+
+    /**
+     * Decode a soft-body record (after its ID) and apply it.
+     *
+     * @param softBody the body to modify, or null to skip the record
+     * @param buffer the buffer to read (not null, position advanced)
+     * @return true if the body was modified, otherwise false
+     */
+    private boolean decodeSoftBody(PhysicsSoftBody softBody,
+            ByteBuffer buffer) {
+        int activationState = buffer.getInt();
+        float deactivationTime = buffer.getFloat();
+        get(buffer, tmpVector);
+        int numNodes = buffer.getInt();
+        int numFloats = 3 * numNodes;
+        if (softBody == null || softBody.countNodes() != numNodes) {
+            buffer.position(buffer.position() + 4 * numFloats);
+            return false;
+        }
+
+        softBody.setPhysicsLocation(tmpVector);
+
+        FloatBuffer velocities = reserveFloats(numFloats);
+        for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+            velocities.put(floatIndex, buffer.getFloat());
+        }
+        softBody.setVelocities(velocities);
+
+        softBody.setDeactivationTime(deactivationTime);
+        softBody.setActivationState(activationState);
+
+        return true;
+    }
+
+    /**
+     * Encode a rigid-body record.
+     *
+     * @param slot the body's slot index (&ge;0)
+     * @param body the body to encode (not null, unaffected)
+     * @param buffer the buffer to write (not null, position advanced)
+     */
+    private void encodeRigidBody(int slot, PhysicsRigidBody body,
+            ByteBuffer buffer) {
+        buffer.putInt(slot);
+        buffer.putLong(body.nativeId());
+        boolean isVehicle = body instanceof PhysicsVehicle;
+        buffer.put(isVehicle ? (byte) 1 : (byte) 0);
+        buffer.putInt(body.getActivationState());
+        buffer.putFloat(body.getDeactivationTime());
+
+        put(buffer, body.getPhysicsLocation(tmpVector));
+        body.getPhysicsRotation(tmpRotation);
+        buffer.putFloat(tmpRotation.getX());
+        buffer.putFloat(tmpRotation.getY());
+        buffer.putFloat(tmpRotation.getZ());
+        buffer.putFloat(tmpRotation.getW());
+
+        if (body.isDynamic()) {
+            put(buffer, body.getLinearVelocity(tmpVector));
+            put(buffer, body.getAngularVelocity(tmpVector));
+        } else {
+            tmpVector.zero();
+            put(buffer, tmpVector);
+            put(buffer, tmpVector);
+        }
+        put(buffer, body.totalAppliedForce(tmpVector));
+        put(buffer, body.totalAppliedTorque(tmpVector));
+
+        if (isVehicle) {
+            PhysicsVehicle vehicle = (PhysicsVehicle) body;
+            int numWheels = vehicle.getNumWheels();
+            buffer.putInt(numWheels);
+            for (int wheelIndex = 0; wheelIndex < numWheels; ++wheelIndex) {
+                VehicleWheel wheel = vehicle.getWheel(wheelIndex);
+                buffer.putFloat(wheel.getRotationAngle());
+                buffer.putFloat(wheel.getSteerAngle());
+                buffer.putFloat(wheel.getEngineForce());
+                buffer.putFloat(wheel.getBrake());
+            }
+        }
+    }
+
+    /**
+     * Encode a soft-body record.
+     *
+     * @param softBody the body to encode (not null, unaffected)
+     * @param buffer the buffer to write (not null, position advanced)
+     */
+    private void encodeSoftBody(PhysicsSoftBody softBody, ByteBuffer buffer) {
+        buffer.putLong(softBody.nativeId());
+        buffer.putInt(softBody.getActivationState());
+        buffer.putFloat(softBody.getDeactivationTime());
+        put(buffer, softBody.getPhysicsLocation(tmpVector));
+
+        int numNodes = softBody.countNodes();
+        buffer.putInt(numNodes);
+        int numFloats = 3 * numNodes;
+        FloatBuffer velocities = reserveFloats(numFloats);
+        softBody.copyVelocities(velocities);
+        for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+            buffer.putFloat(velocities.get(floatIndex));
+        }
+    }
+
+    /**
+     * Read a vector from the specified buffer.
+     *
+     * @param buffer the buffer to read (not null, position advanced)
+     * @param storeResult storage for the vector (not null, modified)
+     */
+    private static void get(ByteBuffer buffer, Vector3f storeResult) {
+        storeResult.x = buffer.getFloat();
+        storeResult.y = buffer.getFloat();
+        storeResult.z = buffer.getFloat();
+    }
+
+    /**
+     * Write a vector to the specified buffer.
+     *
+     * @param buffer the buffer to write (not null, position advanced)
+     * @param vector the vector to write (not null, unaffected)
+     */
+    private static void put(ByteBuffer buffer, Vector3f vector) {
+        buffer.putFloat(vector.x);
+        buffer.putFloat(vector.y);
+        buffer.putFloat(vector.z);
+    }
+
+    /**
+     * Access a temporary FloatBuffer with the specified limit, growing it if
+     * necessary.
+     *
+     * @param numFloats the desired limit (&ge;0)
+     * @return the temporary buffer (not null, position=0)
+     */
+    private FloatBuffer reserveFloats(int numFloats) {
+        if (tmpFloats.capacity() < numFloats) {
+            tmpFloats = BufferUtils.createFloatBuffer(numFloats);
+        }
+        tmpFloats.clear();
+        tmpFloats.limit(numFloats);
+
+        return tmpFloats;
+    }
+}
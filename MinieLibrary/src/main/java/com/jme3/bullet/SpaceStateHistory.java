@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.util.BufferUtils;
+import java.nio.ByteBuffer;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A ring buffer of the most recent snapshots of a PhysicsSpace, each labeled
+ * with a frame number, for rewinding the simulation (for instance in rollback
+ * netcode). Buffers are allocated once and reused, growing only when a
+ * snapshot doesn't fit.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class SpaceStateHistory {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SpaceStateHistory.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * buffer for each snapshot
+     */
+    final private ByteBuffer[] buffers;
+    /**
+     * number of snapshots retained (&ge;0)
+     */
+    private int numSnapshots = 0;
+    /**
+     * index of the newest snapshot, or -1 if none
+     */
+    private int newestIndex = -1;
+    /**
+     * frame number of each snapshot
+     */
+    final private long[] frames;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty history.
+     *
+     * @param capacity the maximum number of snapshots to retain (&ge;1)
+     * @param initialBytes the initial size of each buffer (in bytes, &ge;0)
+     */
+    public SpaceStateHistory(int capacity, int initialBytes) {
+        Validate.positive(capacity, "capacity");
+        Validate.nonNegative(initialBytes, "initial bytes");
+
+        buffers = new ByteBuffer[capacity];
+        for (int index = 0; index < capacity; ++index) {
+            buffers[index] = BufferUtils.createByteBuffer(initialBytes);
+        }
+        frames = new long[capacity];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the maximum number of snapshots retained.
+     *
+     * @return the count (&ge;1)
+     */
+    public int capacity() {
+        int result = buffers.length;
+        return result;
+    }
+
+    /**
+     * Snapshot the specified space, replacing the oldest snapshot if the
+     * history is full. Should be invoked only between updates.
+     *
+     * @param space the space to snapshot (not null, unaffected)
+     * @param frame the frame number (greater than that of the newest
+     * snapshot)
+     */
+    public void capture(PhysicsSpace space, long frame) {
+        Validate.nonNull(space, "space");
+        if (numSnapshots > 0) {
+            Validate.require(frame > frames[newestIndex],
+                    "a frame number after the newest snapshot");
+        }
+
+        int capacity = buffers.length;
+        newestIndex = (newestIndex + 1) % capacity;
+        numSnapshots = Math.min(numSnapshots + 1, capacity);
+
+        int numBytes = space.snapshotSize();
+        ByteBuffer buffer = buffers[newestIndex];
+        if (buffer.capacity() < numBytes) {
+            buffer = BufferUtils.createByteBuffer(2 * numBytes);
+            buffers[newestIndex] = buffer;
+        }
+        buffer.clear();
+        space.snapshot(buffer);
+        buffer.flip();
+        frames[newestIndex] = frame;
+    }
+
+    /**
+     * Discard all snapshots.
+     */
+    public void clear() {
+        numSnapshots = 0;
+        newestIndex = -1;
+    }
+
+    /**
+     * Test whether a snapshot of the specified frame is retained.
+     *
+     * @param frame the frame number
+     * @return true if retained, otherwise false
+     */
+    public boolean contains(long frame) {
+        int index = findIndex(frame);
+        if (index == -1) {
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Count the snapshots retained.
+     *
+     * @return the count (&ge;0, &le;capacity)
+     */
+    public int countSnapshots() {
+        assert numSnapshots >= 0 : numSnapshots;
+        return numSnapshots;
+    }
+
+    /**
+     * Discard all snapshots of frames after the specified one, typically after
+     * rewinding to that frame.
+     *
+     * @param frame the frame number
+     * @return the number of snapshots discarded (&ge;0)
+     */
+    public int discardAfter(long frame) {
+        int capacity = buffers.length;
+        int numDiscarded = 0;
+        while (numSnapshots > 0 && frames[newestIndex] > frame) {
+            newestIndex = (newestIndex + capacity - 1) % capacity;
+            --numSnapshots;
+            ++numDiscarded;
+        }
+        if (numSnapshots == 0) {
+            newestIndex = -1;
+        }
+
+        return numDiscarded;
+    }
+
+    /**
+     * Read the frame number of the newest snapshot.
+     *
+     * @return the frame number
+     */
+    public long newestFrame() {
+        Validate.require(numSnapshots > 0, "at least one snapshot");
+        long result = frames[newestIndex];
+        return result;
+    }
+
+    /**
+     * Read the frame number of the oldest snapshot.
+     *
+     * @return the frame number
+     */
+    public long oldestFrame() {
+        Validate.require(numSnapshots > 0, "at least one snapshot");
+
+        int capacity = buffers.length;
+        int oldestIndex
+                = (newestIndex + capacity + 1 - numSnapshots) % capacity;
+        long result = frames[oldestIndex];
+
+        return result;
+    }
+
+    /**
+     * Restore the specified space from the snapshot of the specified frame,
+     * if retained. Newer snapshots are retained. Should be invoked only
+     * between updates.
+     *
+     * @param space the space to modify (not null)
+     * @param frame the frame number
+     * @return true if the snapshot was found and applied, otherwise false
+     */
+    public boolean restore(PhysicsSpace space, long frame) {
+        Validate.nonNull(space, "space");
+
+        int index = findIndex(frame);
+        if (index == -1) {
+            return false;
+        }
+
+        ByteBuffer buffer = buffers[index];
+        buffer.rewind();
+        space.restore(buffer);
+
+        return true;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Find the snapshot of the specified frame.
+     *
+     * @param frame the frame number
+     * @return the buffer index, or -1 if not retained
+     */
+    private int findIndex(long frame) {
+        int capacity = buffers.length;
+        int index = newestIndex;
+        for (int count = 0; count < numSnapshots; ++count) {
+            if (frames[index] == frame) {
+                return index;
+            }
+            index = (index + capacity - 1) % capacity;
+        }
+
+        return -1;
+    }
+}
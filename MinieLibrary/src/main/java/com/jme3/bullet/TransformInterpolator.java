@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Blend the rigid-body transforms from before and after the latest simulation
+ * step, so that bodies move smoothly when rendered at a higher frame rate than
+ * the physics tick rate.
+ * <p>
+ * A space that uses an interpolator captures the transforms of its rigid
+ * bodies just before the final step of each update and again at the end of
+ * each update that performed a step. Before the step, only awake dynamic bodies
+ * are read; the others can't move during the step, so their transforms are
+ * carried back from the later capture. The interpolator also tracks the
+ * simulated time left over after the final step of each update. Interpolating
+ * by the ratio of the leftover time to the step size yields transforms that
+ * trail the simulation by less than one step but advance at a steady rate.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TransformInterpolator {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(TransformInterpolator.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if a step has begun since the end of the previous update
+     */
+    private boolean hasStepped = false;
+    /**
+     * true if the previous transforms have been captured since the end of the
+     * previous update
+     */
+    private boolean previousCaptured = false;
+    /**
+     * blending parameter (&ge;0, &le;1, 0&rarr;previous, 1&rarr;current)
+     */
+    private float fraction = 1f;
+    /**
+     * simulated time not yet consumed by a step (in seconds, &ge;0)
+     */
+    private float leftoverTime = 0f;
+    /**
+     * number of steps expected before the end of the current update
+     */
+    private int stepsRemaining = 0;
+    /**
+     * number of captures performed
+     */
+    private long sequence = 0L;
+    /**
+     * temporary storage for orientations
+     */
+    final private Quaternion tmpCurrentOrientation = new Quaternion();
+    final private Quaternion tmpPreviousOrientation = new Quaternion();
+    /**
+     * transforms after the latest step
+     */
+    final private TransformSnapshot current = new TransformSnapshot();
+    /**
+     * transforms before the latest step
+     */
+    final private TransformSnapshot previous = new TransformSnapshot();
+    /**
+     * temporary storage for locations
+     */
+    final private Vector3f tmpCurrentLocation = new Vector3f();
+    final private Vector3f tmpPreviousLocation = new Vector3f();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Capture the transforms from before a step, unless further steps are
+     * expected in the current update. Invoked by the space at the beginning
+     * of each step.
+     *
+     * @param space the space being stepped (not null, unaffected)
+     */
+    void beginStep(PhysicsSpace space) {
+        --stepsRemaining;
+        if (stepsRemaining <= 0) {
+            ++sequence;
+            previous.captureMoving(space, sequence);
+            previousCaptured = true;
+        }
+        hasStepped = true;
+    }
+
+    /**
+     * Predict the number of steps in an update and update the blending
+     * parameter. Invoked by the space at the beginning of each update.
+     *
+     * @param timeInterval the time interval to simulate (in seconds, &ge;0)
+     * @param stepSize the size of each step (in seconds, &gt;0)
+     * @param maxSteps the maximum number of steps (&ge;1) or 0 for a single
+     * step of variable size
+     */
+    void beginUpdate(float timeInterval, float stepSize, int maxSteps) {
+        assert stepSize > 0f : stepSize;
+
+        if (maxSteps == 0) {
+            leftoverTime = 0f;
+            fraction = 1f;
+            stepsRemaining = 1;
+        } else {
+            /*
+             * Track the leftover time the same way btDiscreteDynamicsWorld
+             * does: whole steps are consumed, even those skipped due to
+             * the maxSteps limit.
+             */
+            int numSteps = 0;
+            leftoverTime += timeInterval;
+            if (leftoverTime >= stepSize) {
+                numSteps = (int) (leftoverTime / stepSize);
+                leftoverTime -= numSteps * stepSize;
+            }
+            fraction = Math.min(leftoverTime / stepSize, 1f);
+            stepsRemaining = Math.min(numSteps, maxSteps);
+        }
+    }
+
+    /**
+     * Capture the transforms from after the latest step, if any. Invoked by
+     * the space at the end of each update.
+     *
+     * @param space the space that was updated (not null, unaffected)
+     */
+    void endUpdate(PhysicsSpace space) {
+        if (hasStepped) {
+            ++sequence;
+            current.capture(space, sequence);
+            if (previousCaptured) {
+                previous.carryForward(current);
+            } else {
+                /*
+                 * The native library took fewer steps than predicted,
+                 * so there's nothing valid to blend from.
+                 */
+                fraction = 1f;
+            }
+            hasStepped = false;
+            previousCaptured = false;
+        }
+    }
+
+    /**
+     * Read the blending parameter computed at the end of the latest update.
+     *
+     * @return the fraction of a step (&ge;0, &le;1) by which to blend the
+     * previous and current transforms
+     */
+    public float fraction() {
+        assert fraction >= 0f && fraction <= 1f : fraction;
+        return fraction;
+    }
+
+    /**
+     * Calculate the interpolated location and orientation of the specified
+     * body. A body that was added during the latest step isn't interpolated.
+     *
+     * @param body the body to look up (not null, unaffected)
+     * @param storeLocation storage for the location (not null, modified only
+     * if successful)
+     * @param storeOrientation storage for the orientation (not null, modified
+     * only if successful)
+     * @return true if successful, false if the body wasn't captured
+     */
+    public boolean interpolateTransform(PhysicsRigidBody body,
+            Vector3f storeLocation, Quaternion storeOrientation) {
+        Validate.nonNull(storeLocation, "store location");
+        Validate.nonNull(storeOrientation, "store orientation");
+
+        boolean success = current.copyTransform(body, tmpCurrentLocation,
+                tmpCurrentOrientation);
+        if (!success) {
+            return false;
+        }
+
+        success = previous.copyTransform(body, tmpPreviousLocation,
+                tmpPreviousOrientation);
+        if (success && fraction < 1f) {
+            storeLocation.interpolateLocal(tmpPreviousLocation,
+                    tmpCurrentLocation, fraction);
+            storeOrientation.slerp(tmpPreviousOrientation,
+                    tmpCurrentOrientation, fraction);
+        } else {
+            storeLocation.set(tmpCurrentLocation);
+            storeOrientation.set(tmpCurrentOrientation);
+        }
+
+        return true;
+    }
+
+    /**
+     * Shift the captured locations to match a shift of the origin, so that
+     * interpolation remains continuous. Invoked by the space.
+     *
+     * @param newOrigin the location (in the old physics-space coordinates) of
+     * the new origin (not null, unaffected)
+     */
+    void shiftOrigin(Vector3f newOrigin) {
+        previous.shiftOrigin(newOrigin);
+        current.shiftOrigin(newOrigin);
+    }
+}
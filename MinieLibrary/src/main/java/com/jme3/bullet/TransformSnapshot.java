@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * The locations and orientations of all rigid bodies in a PhysicsSpace, as
+ * captured at the end of a space update. Once published by a SnapshotBuffer, a
+ * snapshot isn't modified until the reader releases it, so it can be read
+ * without locking while the next update runs.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TransformSnapshot {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(TransformSnapshot.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * transforms in slot order, laid out as in RigidBodyBatch
+     */
+    private FloatBuffer transforms = BufferUtils.createFloatBuffer(0);
+    /**
+     * number of slots captured (&ge;0)
+     */
+    private int numSlots = 0;
+    /**
+     * sequence number of the capture, or 0 if never captured
+     */
+    private long sequence = 0L;
+    /**
+     * true for each slot whose transform awaits carryForward() (elements
+     * beyond numSlots are false)
+     */
+    private boolean[] stale = new boolean[0];
+    /**
+     * body in each captured slot (elements may be null)
+     */
+    private PhysicsRigidBody[] bodies = new PhysicsRigidBody[0];
+    /**
+     * space from which the snapshot was captured, or null if never captured
+     */
+    private PhysicsSpace space = null;
+    /**
+     * temporary storage for an orientation
+     */
+    final private Quaternion tmpOrientation = new Quaternion();
+    /**
+     * temporary storage for a location
+     */
+    final private Vector3f tmpLocation = new Vector3f();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Capture the transforms of all rigid bodies in the specified space. Must
+     * be invoked on the space's physics thread.
+     *
+     * @param space the space to capture (not null, unaffected)
+     * @param sequence the sequence number to assign (&gt;0)
+     */
+    void capture(PhysicsSpace space, long sequence) {
+        assert sequence > 0L : sequence;
+
+        int slotCount = prepare(space);
+        transforms.clear();
+        space.readRigidBodyTransforms(transforms, false);
+        for (int slot = 0; slot < slotCount; ++slot) {
+            bodies[slot] = space.rigidBodyInSlot(slot);
+            stale[slot] = false;
+        }
+        finish(space, slotCount, sequence);
+    }
+
+    /**
+     * Capture the transforms of the awake dynamic bodies in the specified
+     * space. Bodies that can't move during a step are only recorded; their
+     * transforms must be supplied later by {@link #carryForward}. Must be
+     * invoked on the space's physics thread.
+     *
+     * @param space the space to capture (not null, unaffected)
+     * @param sequence the sequence number to assign (&gt;0)
+     */
+    void captureMoving(PhysicsSpace space, long sequence) {
+        assert sequence > 0L : sequence;
+
+        int slotCount = prepare(space);
+        for (int slot = 0; slot < slotCount; ++slot) {
+            PhysicsRigidBody body = space.rigidBodyInSlot(slot);
+            bodies[slot] = body;
+            int index = slot * RigidBodyBatch.transformStride;
+            if (body != null && body.isDynamic() && body.isActive()) {
+                body.getPhysicsLocation(tmpLocation);
+                body.getPhysicsRotation(tmpOrientation);
+                put(index, tmpLocation, tmpOrientation);
+                stale[slot] = false;
+            } else if (body == null) {
+                for (int i = 0; i < RigidBodyBatch.transformStride; ++i) {
+                    transforms.put(index + i, 0f);
+                }
+                stale[slot] = false;
+            } else {
+                stale[slot] = true;
+            }
+        }
+        finish(space, slotCount, sequence);
+    }
+
+    /**
+     * Fill in the transforms that {@link #captureMoving} skipped, using a
+     * later capture of the same space. A body that has changed slots in the
+     * meantime is dropped from this snapshot.
+     *
+     * @param source the later capture (not null, unaffected)
+     */
+    void carryForward(TransformSnapshot source) {
+        for (int slot = 0; slot < numSlots; ++slot) {
+            if (stale[slot]) {
+                PhysicsRigidBody body = bodies[slot];
+                if (source.copyTransform(body, tmpLocation, tmpOrientation)
+                        && source.findSlot(body) == slot) {
+                    int index = slot * RigidBodyBatch.transformStride;
+                    put(index, tmpLocation, tmpOrientation);
+                } else {
+                    bodies[slot] = null;
+                }
+                stale[slot] = false;
+            }
+        }
+    }
+
+    /**
+     * Copy the location and orientation of the specified body, as captured.
+     *
+     * @param body the body to look up (not null, unaffected)
+     * @param storeLocation storage for the location (not null, modified only
+     * if successful)
+     * @param storeOrientation storage for the orientation (not null, modified
+     * only if successful)
+     * @return true if the body was captured, otherwise false
+     */
+    public boolean copyTransform(PhysicsRigidBody body, Vector3f storeLocation,
+            Quaternion storeOrientation) {
+        Validate.nonNull(body, "body");
+        Validate.nonNull(storeLocation, "store location");
+        Validate.nonNull(storeOrientation, "store orientation");
+
+        int slot = findSlot(body);
+        if (slot == -1) {
+            return false;
+        }
+
+        int index = slot * RigidBodyBatch.transformStride;
+        storeLocation.set(transforms.get(index), transforms.get(index + 1),
+                transforms.get(index + 2));
+        storeOrientation.set(transforms.get(index + 3),
+                transforms.get(index + 4), transforms.get(index + 5),
+                transforms.get(index + 6));
+
+        return true;
+    }
+
+    /**
+     * Count the captured slots, including vacant ones.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countSlots() {
+        assert numSlots >= 0 : numSlots;
+        return numSlots;
+    }
+
+    /**
+     * Find the captured slot of the specified body.
+     *
+     * @param body the body to look up (not null, unaffected)
+     * @return the slot index (&ge;0) or -1 if the body wasn't captured
+     */
+    public int findSlot(PhysicsRigidBody body) {
+        Validate.nonNull(body, "body");
+
+        int result = -1;
+        if (space != null) {
+            int slot = space.rigidBodySlot(body);
+            if (slot >= 0 && slot < numSlots && bodies[slot] == body) {
+                result = slot;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Access the captured transforms, in slot order, laid out as in
+     * {@link RigidBodyBatch}. Vacant slots are filled with zeros.
+     *
+     * @return a new read-only view of the captured buffer (not null,
+     * position=0)
+     */
+    public FloatBuffer getTransforms() {
+        FloatBuffer result = transforms.asReadOnlyBuffer();
+        result.rewind();
+        return result;
+    }
+
+    /**
+     * Read the sequence number of this snapshot. Later captures have higher
+     * numbers.
+     *
+     * @return the sequence number, or 0 if never captured
+     */
+    public long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Shift the captured locations to match a shift of the origin. Must be
+     * invoked on the space's physics thread.
+     *
+     * @param newOrigin the location (in the old physics-space coordinates) of
+     * the new origin (not null, unaffected)
+     */
+    void shiftOrigin(Vector3f newOrigin) {
+        for (int slot = 0; slot < numSlots; ++slot) {
+            if (bodies[slot] != null && !stale[slot]) {
+                int index = slot * RigidBodyBatch.transformStride;
+                transforms.put(index, transforms.get(index) - newOrigin.x);
+                transforms.put(index + 1,
+                        transforms.get(index + 1) - newOrigin.y);
+                transforms.put(index + 2,
+                        transforms.get(index + 2) - newOrigin.z);
+            }
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Complete a capture.
+     *
+     * @param space the captured space (not null)
+     * @param slotCount the number of slots captured (&ge;0)
+     * @param sequence the sequence number to assign (&gt;0)
+     */
+    private void finish(PhysicsSpace space, int slotCount, long sequence) {
+        for (int slot = slotCount; slot < numSlots; ++slot) {
+            bodies[slot] = null;
+            stale[slot] = false;
+        }
+
+        numSlots = slotCount;
+        this.sequence = sequence;
+        this.space = space;
+    }
+
+    /**
+     * Ensure that the buffers can hold all slots of the specified space.
+     *
+     * @param space the space to capture (not null, unaffected)
+     * @return the number of slots to capture (&ge;0)
+     */
+    private int prepare(PhysicsSpace space) {
+        int slotCount = space.countRigidBodySlots();
+        int numFloats = slotCount * RigidBodyBatch.transformStride;
+        if (transforms.capacity() < numFloats) {
+            transforms = BufferUtils.createFloatBuffer(2 * numFloats);
+        }
+        if (bodies.length < slotCount) {
+            bodies = new PhysicsRigidBody[2 * slotCount];
+            stale = new boolean[2 * slotCount];
+        }
+
+        return slotCount;
+    }
+
+    /**
+     * Write a location and orientation to the specified slot.
+     *
+     * @param index the index of the slot's first float (&ge;0)
+     * @param location the location to write (not null, unaffected)
+     * @param orientation the orientation to write (not null, unaffected)
+     */
+    private void put(int index, Vector3f location, Quaternion orientation) {
+        transforms.put(index, location.x);
+        transforms.put(index + 1, location.y);
+        transforms.put(index + 2, location.z);
+        transforms.put(index + 3, orientation.getX());
+        transforms.put(index + 4, orientation.getY());
+        transforms.put(index + 5, orientation.getZ());
+        transforms.put(index + 6, orientation.getW());
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.IndexedMesh;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Transform;
+import com.jme3.scene.Mesh;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A cell of static collision geometry that can be streamed into and out of a
+ * PhysicsSpace using a CellStreamer.
+ * <p>
+ * Each mesh added to the cell becomes a static PhysicsRigidBody with a
+ * compressed MeshCollisionShape. The shapes and bodies are constructed on a
+ * background thread; afterward the cell reports how long construction took and
+ * roughly how much native memory its shapes occupy.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class WorldCell {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * Enumerate the stages in a cell's life cycle.
+     */
+    public enum State {
+        /**
+         * accepting meshes, not yet submitted for loading
+         */
+        NEW,
+        /**
+         * shapes and bodies being constructed on a background thread
+         */
+        BUILDING,
+        /**
+         * constructed and waiting to be (fully) added to the space
+         */
+        INSERTING,
+        /**
+         * all bodies added to the space
+         */
+        LOADED,
+        /**
+         * bodies being removed from the space
+         */
+        UNLOADING,
+        /**
+         * removed from the space, with native objects left for the cleaner
+         */
+        UNLOADED,
+        /**
+         * construction failed
+         */
+        FAILED
+    }
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(WorldCell.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * static bodies, in insertion order (empty until built)
+     */
+    private List<PhysicsRigidBody> bodies = new ArrayList<>(0);
+    /**
+     * time spent constructing shapes and bodies (in nanoseconds)
+     */
+    private volatile long buildNanos = 0L;
+    /**
+     * estimated native memory used by the cell's shapes (in bytes)
+     */
+    private volatile long estimatedBytes = 0L;
+    /**
+     * source meshes, one per body (cleared once built)
+     */
+    final private List<Mesh> meshes = new ArrayList<>(16);
+    /**
+     * name for identification and logging (not null)
+     */
+    final private String name;
+    /**
+     * number of bodies currently added to the space (accessed only by the
+     * physics thread)
+     */
+    private int numInserted = 0;
+    /**
+     * current stage in the life cycle (not null)
+     */
+    private volatile State state = State.NEW;
+    /**
+     * physics-space transform for each source mesh (cleared once built)
+     */
+    final private List<Transform> transforms = new ArrayList<>(16);
+    /**
+     * true if unloading has been requested
+     */
+    private volatile boolean unloadRequested = false;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty cell.
+     *
+     * @param name the desired name (not null)
+     */
+    public WorldCell(String name) {
+        Validate.nonNull(name, "name");
+        this.name = name;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add a mesh to this cell, which must not yet have been submitted for
+     * loading.
+     *
+     * @param mesh the source mesh (not null, at least one triangle, alias
+     * created, shouldn't be modified until the cell is built)
+     * @param transform the mesh's physics-space transform (not null,
+     * unaffected, scale applied to the mesh's private shape)
+     */
+    public synchronized void addMesh(Mesh mesh, Transform transform) {
+        Validate.nonNull(mesh, "mesh");
+        Validate.nonNull(transform, "transform");
+        if (state != State.NEW) {
+            throw new IllegalStateException("state = " + state);
+        }
+
+        meshes.add(mesh);
+        transforms.add(transform.clone());
+    }
+
+    /**
+     * Construct the shapes and bodies. Invoked on a background thread. The
+     * cell's lock is held only while reading the sources and publishing the
+     * bodies, not during construction.
+     */
+    void build() {
+        assert state == State.BUILDING : state;
+
+        long startNanos = System.nanoTime();
+        List<Mesh> sourceMeshes;
+        List<Transform> sourceTransforms;
+        synchronized (this) {
+            sourceMeshes = new ArrayList<>(meshes);
+            sourceTransforms = new ArrayList<>(transforms);
+        }
+
+        int numMeshes = sourceMeshes.size();
+        List<PhysicsRigidBody> builtBodies = new ArrayList<>(numMeshes);
+        long numBytes = 0L;
+        for (int meshIndex = 0; meshIndex < numMeshes; ++meshIndex) {
+            Mesh mesh = sourceMeshes.get(meshIndex);
+            Transform transform = sourceTransforms.get(meshIndex);
+            /*
+             * Rescaling a mesh shape rebuilds its BVH,
+             * so bake the scale into the vertex positions instead.
+             */
+            Transform scaling = new Transform();
+            scaling.setScale(transform.getScale());
+            IndexedMesh submesh = new IndexedMesh(mesh, scaling);
+            MeshCollisionShape shape = new MeshCollisionShape(true, submesh);
+            numBytes += shape.estimateNativeBytes()
+                    + submesh.estimateNativeBytes();
+
+            PhysicsRigidBody body = new PhysicsRigidBody(shape,
+                    PhysicsRigidBody.massForStatic);
+            body.setPhysicsLocation(transform.getTranslation());
+            body.setPhysicsRotation(transform.getRotation());
+            builtBodies.add(body);
+        }
+
+        synchronized (this) {
+            bodies = builtBodies;
+            meshes.clear();
+            transforms.clear();
+        }
+        estimatedBytes = numBytes;
+        buildNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Read the time spent constructing this cell's shapes and bodies.
+     *
+     * @return the duration (in nanoseconds, &ge;0), or 0 if not yet built
+     */
+    public long buildNanos() {
+        assert buildNanos >= 0L : buildNanos;
+        return buildNanos;
+    }
+
+    /**
+     * Count the bodies in this cell.
+     *
+     * @return the count (&ge;0), or 0 if not yet built
+     */
+    public synchronized int countBodies() {
+        int result = bodies.size();
+        return result;
+    }
+
+    /**
+     * Estimate how much native memory this cell's shapes occupy, including
+     * mesh data and bounding-volume hierarchies.
+     *
+     * @return the estimate (in bytes, &ge;0), or 0 if not yet built
+     */
+    public long estimatedBytes() {
+        assert estimatedBytes >= 0L : estimatedBytes;
+        return estimatedBytes;
+    }
+
+    /**
+     * Read this cell's name.
+     *
+     * @return the name (not null)
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Determine this cell's stage in the life cycle.
+     *
+     * @return an enum value (not null)
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Add as many bodies as the budget allows to the specified space. Invoked
+     * on the physics thread.
+     *
+     * @param space the space to add to (not null)
+     * @param budget the maximum number of bodies to add (&ge;1)
+     * @return the number of bodies added (&ge;0)
+     */
+    synchronized int insertBodies(PhysicsSpace space, int budget) {
+        int numBodies = bodies.size();
+        int endIndex = Math.min(numBodies, numInserted + budget);
+        int result = endIndex - numInserted;
+        for (int index = numInserted; index < endIndex; ++index) {
+            PhysicsRigidBody body = bodies.get(index);
+            space.addCollisionObject(body);
+        }
+        numInserted = endIndex;
+
+        return result;
+    }
+
+    /**
+     * Test whether all bodies have been added to the space.
+     *
+     * @return true if all added, otherwise false
+     */
+    synchronized boolean isFullyInserted() {
+        if (numInserted == bodies.size()) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Test whether all bodies have been removed from the space.
+     *
+     * @return true if none remain, otherwise false
+     */
+    synchronized boolean isFullyRemoved() {
+        if (numInserted == 0) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Test whether unloading has been requested.
+     *
+     * @return true if requested, otherwise false
+     */
+    boolean isUnloadRequested() {
+        return unloadRequested;
+    }
+
+    /**
+     * Drop all references to shapes and bodies, leaving their native objects
+     * to be freed by the cleaner thread once they become unreachable.
+     */
+    synchronized void release() {
+        assert numInserted == 0 : numInserted;
+
+        bodies = new ArrayList<>(0);
+        meshes.clear();
+        transforms.clear();
+    }
+
+    /**
+     * Remove as many bodies as the budget allows from the specified space, in
+     * reverse order of insertion. Invoked on the physics thread.
+     *
+     * @param space the space to remove from (not null)
+     * @param budget the maximum number of bodies to remove (&ge;1)
+     * @return the number of bodies removed (&ge;0)
+     */
+    synchronized int removeBodies(PhysicsSpace space, int budget) {
+        int endIndex = Math.max(0, numInserted - budget);
+        int result = numInserted - endIndex;
+        for (int index = numInserted - 1; index >= endIndex; --index) {
+            PhysicsRigidBody body = bodies.get(index);
+            space.removeCollisionObject(body);
+        }
+        numInserted = endIndex;
+
+        return result;
+    }
+
+    /**
+     * Record that unloading has been requested.
+     */
+    void requestUnload() {
+        unloadRequested = true;
+    }
+
+    /**
+     * Alter this cell's stage in the life cycle.
+     *
+     * @param newState the desired stage (not null)
+     */
+    void setState(State newState) {
+        assert newState != null;
+        state = newState;
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Represent this cell as a String.
+     *
+     * @return a descriptive string of text (not null, not empty)
+     */
+    @Override
+    public String toString() {
+        String result = "WorldCell[" + name + "]";
+        return result;
+    }
+}
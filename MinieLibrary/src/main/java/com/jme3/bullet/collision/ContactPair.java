@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.collision;
+
+import com.jme3.math.Vector3f;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Summarize the contact points between 2 collision objects during a single
+ * simulation step. A summary with no points indicates that the objects ceased
+ * to be in contact. Instances are reused by PhysicsSpace.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class ContactPair {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ContactPair.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if the objects weren't in contact during the preceding step
+     */
+    private boolean isBeginning;
+    /**
+     * largest impulse applied at any single point
+     */
+    private float maxImpulse;
+    /**
+     * sum of the impulses applied at all points
+     */
+    private float totalImpulse;
+    /**
+     * number of contact points summarized
+     */
+    private int numPoints;
+    /**
+     * first collision object involved
+     */
+    private PhysicsCollisionObject pcoA;
+    /**
+     * 2nd collision object involved
+     */
+    private PhysicsCollisionObject pcoB;
+    /**
+     * sum of the contact normals (on B, in physics-space coordinates)
+     */
+    final private Vector3f normalSum = new Vector3f();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Accumulate a contact point into this summary.
+     *
+     * @param impulse the impulse applied at the point
+     * @param normalWorldOnB the contact normal on object B (in physics-space
+     * coordinates, not null, unaffected)
+     */
+    public void accumulate(float impulse, Vector3f normalWorldOnB) {
+        if (numPoints == 0 || impulse > maxImpulse) {
+            maxImpulse = impulse;
+        }
+        totalImpulse += impulse;
+        normalSum.addLocal(normalWorldOnB);
+        ++numPoints;
+    }
+
+    /**
+     * Calculate the average contact normal on object B.
+     *
+     * @param storeResult storage for the result (modified if not null)
+     * @return a unit vector (in physics-space coordinates, either storeResult
+     * or a new vector, not null) or a zero vector if the normals cancel out
+     */
+    public Vector3f averageNormal(Vector3f storeResult) {
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        result.set(normalSum);
+        float length = result.length();
+        if (length > 0f) {
+            result.divideLocal(length);
+        }
+
+        return result;
+    }
+
+    /**
+     * Count how many contact points are summarized.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countPoints() {
+        assert numPoints >= 0 : numPoints;
+        return numPoints;
+    }
+
+    /**
+     * Access the first collision object involved.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsCollisionObject getObjectA() {
+        assert pcoA != null;
+        return pcoA;
+    }
+
+    /**
+     * Access the 2nd collision object involved.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsCollisionObject getObjectB() {
+        assert pcoB != null;
+        return pcoB;
+    }
+
+    /**
+     * Test whether the objects came into contact during this step, having not
+     * been in contact during the preceding step.
+     *
+     * @return true if the contact began, otherwise false
+     */
+    public boolean isBeginning() {
+        return isBeginning;
+    }
+
+    /**
+     * Test whether the objects ceased to be in contact, having been in contact
+     * during the preceding step but not during this one.
+     *
+     * @return true if the contact ended, otherwise false
+     */
+    public boolean isEnding() {
+        if (numPoints == 0) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Determine the largest impulse applied at any single point.
+     *
+     * @return the impulse (&ge;0)
+     */
+    public float maxImpulse() {
+        return maxImpulse;
+    }
+
+    /**
+     * Reset this summary to describe a new pair with no contact points.
+     *
+     * @param pcoA the first involved object (not null, alias created)
+     * @param pcoB the 2nd involved object (not null, alias created)
+     */
+    public void reset(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB) {
+        Validate.nonNull(pcoA, "object A");
+        Validate.nonNull(pcoB, "object B");
+
+        this.pcoA = pcoA;
+        this.pcoB = pcoB;
+        isBeginning = false;
+        maxImpulse = 0f;
+        totalImpulse = 0f;
+        numPoints = 0;
+        normalSum.zero();
+    }
+
+    /**
+     * Alter whether the objects came into contact during this step.
+     *
+     * @param setting true if the contact began, otherwise false
+     * (default=false)
+     */
+    public void setBeginning(boolean setting) {
+        isBeginning = setting;
+    }
+
+    /**
+     * Determine the sum of the impulses applied at all points.
+     *
+     * @return the total impulse (&ge;0)
+     */
+    public float totalImpulse() {
+        return totalImpulse;
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Represent this summary as a String.
+     *
+     * @return a descriptive string of text (not null, not empty)
+     */
+    @Override
+    public String toString() {
+        String result = "ContactPair[" + pcoA + ", " + pcoB + ", numPoints="
+                + numPoints + ", maxImpulse=" + maxImpulse + "]";
+        return result;
+    }
+}
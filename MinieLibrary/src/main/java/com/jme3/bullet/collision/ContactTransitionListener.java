@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.collision;
+
+/**
+ * Interface to receive notifications when pairs of collision objects begin,
+ * continue, and cease to be in contact. Each transition is reported at most
+ * once per pair per simulation step.
+ * <p>
+ * Sphere-Sphere contacts generate no contact points, so such pairs are never
+ * reported. A pair in which neither object is active (for instance, a settled
+ * pile that has fallen asleep) remains in contact without being reported as
+ * persisting, until one of the objects wakes up or leaves the space.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public interface ContactTransitionListener {
+    /**
+     * Callback to report a pair that came into contact during the most recent
+     * simulation step. Typically invoked on the render thread (not the physics
+     * thread) during the BulletAppState update.
+     * <p>
+     * Implementors: don't retain a reference to the pair instance, as it will
+     * be reused after this method returns.
+     *
+     * @param pair summary of the contact points between the objects (not null,
+     * reusable)
+     */
+    void contactBegan(ContactPair pair);
+
+    /**
+     * Callback to report a pair that was in contact during the preceding
+     * simulation step but not the most recent one. Typically invoked on the
+     * render thread (not the physics thread) during the BulletAppState update.
+     * <p>
+     * Implementors: don't retain a reference to the pair instance, as it will
+     * be reused after this method returns.
+     *
+     * @param pair the objects involved, with no contact points (not null,
+     * reusable)
+     */
+    void contactEnded(ContactPair pair);
+
+    /**
+     * Callback to report a pair that was in contact during both the preceding
+     * simulation step and the most recent one. Typically invoked on the render
+     * thread (not the physics thread) during the BulletAppState update.
+     * <p>
+     * Implementors: don't retain a reference to the pair instance, as it will
+     * be reused after this method returns.
+     *
+     * @param pair summary of the contact points between the objects (not null,
+     * reusable)
+     */
+    void contactPersisted(ContactPair pair);
+}
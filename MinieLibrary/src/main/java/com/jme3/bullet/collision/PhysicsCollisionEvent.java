@@ -57,11 +57,11 @@ public class PhysicsCollisionEvent extends NativePhysicsObject {
     /**
      * first collision object involved
      */
-    final private PhysicsCollisionObject pcoA;
+    private PhysicsCollisionObject pcoA;
     /**
      * 2nd collision object involved
      */
-    final private PhysicsCollisionObject pcoB;
+    private PhysicsCollisionObject pcoB;
     // *************************************************************************
     // constructors
 
@@ -504,6 +504,28 @@ public class PhysicsCollisionEvent extends NativePhysicsObject {
         return result;
     }
 
+    /**
+     * Re-initialize this event so it can be reused to describe a different
+     * contact. Used internally by PhysicsSpace when recycling events.
+     *
+     * @param pcoA the first involved object (not null, alias created)
+     * @param pcoB the 2nd involved object (not null, alias created)
+     * @param manifoldPointId the native ID of the btManifoldPoint (not 0)
+     */
+    public void reinitialize(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB, long manifoldPointId) {
+        Validate.nonNull(pcoA, "object A");
+        Validate.nonNull(pcoB, "object B");
+        Validate.nonZero(manifoldPointId, "manifold point ID");
+
+        this.pcoA = pcoA;
+        this.pcoB = pcoB;
+        if (hasAssignedNativeObject()) {
+            unassignNativeObject();
+        }
+        setNativeIdNotTracked(manifoldPointId);
+    }
+
     /**
      * Alter how many points should be used to calculate the area of the convex
      * hull of a contact point.
@@ -921,6 +921,22 @@ abstract public class PhysicsCollisionObject
         }
     }
 
+    /**
+     * Alter the activation state of this object (native field:
+     * m_activationState1). Bullet won't alter the state of an object that's
+     * exempt from deactivation or disabled.
+     *
+     * @param desiredState the desired state (&ge;Activation.firstValue,
+     * &le;Activation.lastValue)
+     */
+    public void setActivationState(int desiredState) {
+        Validate.inRange(desiredState, "desired state", Activation.firstValue,
+                Activation.lastValue);
+
+        long objectId = nativeId();
+        setActivationState(objectId, desiredState);
+    }
+
     /**
      * Alter this object's anisotropic friction (native field:
      * m_anisotropicFriction).
@@ -357,6 +357,24 @@ public class HeightfieldCollisionShape extends CollisionShape {
         capsule.write(useZigzag, tagUseZigzag, false);
     }
     // *************************************************************************
+    // NativePhysicsObject methods
+
+    /**
+     * Estimate how much native memory this shape occupies, including the
+     * direct buffer of heights it references.
+     *
+     * @return the estimate (in bytes, &ge;0)
+     */
+    @Override
+    public long estimateNativeBytes() {
+        long result = super.estimateNativeBytes();
+        if (directBuffer != null) {
+            result += 4L * directBuffer.capacity();
+        }
+
+        return result;
+    }
+    // *************************************************************************
     // Java private methods
 
     /**
@@ -461,6 +461,24 @@ public class HullCollisionShape extends ConvexShape {
         capsule.write(vertices, tagPoints, new float[0]);
     }
     // *************************************************************************
+    // NativePhysicsObject methods
+
+    /**
+     * Estimate how much native memory this shape occupies, including its copy
+     * of the hull vertices and the direct buffer used to create it.
+     *
+     * @return the estimate (in bytes, &ge;0)
+     */
+    @Override
+    public long estimateNativeBytes() {
+        long result = super.estimateNativeBytes() + 16L * countHullVertices();
+        if (directBuffer != null) {
+            result += 4L * directBuffer.capacity();
+        }
+
+        return result;
+    }
+    // *************************************************************************
     // Java private methods
 
     /**
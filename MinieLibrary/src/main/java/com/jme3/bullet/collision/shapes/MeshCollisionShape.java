@@ -73,6 +73,11 @@ public class MeshCollisionShape extends CollisionShape {
     // *************************************************************************
     // fields
 
+    /**
+     * true if this shape built its own bounding-value hierarchy, which is
+     * therefore included in its native-memory estimate
+     */
+    private boolean ownsBvh;
     /**
      * if true, use quantized AABB compression (default=true)
      */
@@ -145,6 +150,21 @@ public class MeshCollisionShape extends CollisionShape {
      * least one triangle)
      */
     public MeshCollisionShape(byte[] bvhBytes, IndexedMesh... submeshes) {
+        this(bvhBytes, true, submeshes);
+    }
+
+    /**
+     * Instantiate a shape from the specified native mesh(es) and serialized
+     * BVH. The submeshes must be equivalent to those used to generate the BVH,
+     * and the compression flag must match the one used to generate it.
+     *
+     * @param bvhBytes the serialized BVH (not null, unaffected)
+     * @param useCompression true if the BVH uses quantized AABB compression
+     * @param submeshes the mesh(es) on which to base the shape (must contain at
+     * least one triangle)
+     */
+    public MeshCollisionShape(byte[] bvhBytes, boolean useCompression,
+            IndexedMesh... submeshes) {
         Validate.nonNull(bvhBytes, "BVH data");
         Validate.nonEmpty(submeshes, "submeshes");
         nativeMesh = new CompoundMesh();
@@ -154,7 +174,7 @@ public class MeshCollisionShape extends CollisionShape {
         Validate.require(nativeMesh.countTriangles() > 0,
                 "at least one triangle");
 
-        useCompression = true;
+        this.useCompression = useCompression;
         bvh = new BoundingValueHierarchy(bvhBytes);
         createShape();
     }
@@ -315,6 +335,30 @@ public class MeshCollisionShape extends CollisionShape {
         capsule.write(useCompression, tagUseCompression, true);
     }
     // *************************************************************************
+    // NativePhysicsObject methods
+
+    /**
+     * Estimate how much native memory this shape occupies, including any
+     * bounding-value hierarchy it built for itself. Meshes and deserialized
+     * hierarchies are accounted separately.
+     *
+     * @return the estimate (in bytes, &ge;0)
+     */
+    @Override
+    public long estimateNativeBytes() {
+        long result = super.estimateNativeBytes();
+        if (ownsBvh) {
+            /*
+             * A BVH has about 2 nodes per triangle: 16 bytes per node
+             * if quantized, 64 bytes otherwise.
+             */
+            long bytesPerNode = useCompression ? 16L : 64L;
+            result += 2L * nativeMesh.countTriangles() * bytesPerNode;
+        }
+
+        return result;
+    }
+    // *************************************************************************
     // Java private methods
 
     /**
@@ -325,6 +369,7 @@ public class MeshCollisionShape extends CollisionShape {
         assert numTriangles > 0 : numTriangles;
 
         boolean buildBvh = (bvh == null);
+        ownsBvh = buildBvh;
         long meshId = nativeMesh.nativeId();
         long shapeId = createShape(useCompression, buildBvh, meshId);
         setNativeId(shapeId);
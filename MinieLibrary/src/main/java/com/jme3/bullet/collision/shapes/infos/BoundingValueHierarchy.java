@@ -66,6 +66,14 @@ public class BoundingValueHierarchy
      */
     final private static String tagBytes = "bytes";
     // *************************************************************************
+    // fields
+
+    /**
+     * size of the serialized form, used to estimate the native footprint, or
+     * 0 if owned by a MeshCollisionShape
+     */
+    private int numBytes;
+    // *************************************************************************
     // constructors
 
     /**
@@ -96,6 +104,7 @@ public class BoundingValueHierarchy
     public BoundingValueHierarchy(byte[] bytes) {
         Validate.nonNull(bytes, "bytes");
 
+        numBytes = bytes.length;
         long bvhId = deSerialize(bytes);
         super.setNativeId(bvhId);
     }
@@ -131,6 +140,7 @@ public class BoundingValueHierarchy
         BoundingValueHierarchy originalBvh = (BoundingValueHierarchy) original;
 
         byte[] bytes = originalBvh.serialize();
+        numBytes = bytes.length;
         long bvhId = deSerialize(bytes);
         reassignNativeId(bvhId);
     }
@@ -165,6 +175,7 @@ public class BoundingValueHierarchy
         InputCapsule capsule = importer.getCapsule(this);
 
         byte[] bytes = capsule.readByteArray(tagBytes, null);
+        numBytes = bytes.length;
         long bvhId = deSerialize(bytes);
         super.setNativeId(bvhId);
     }
@@ -184,6 +195,20 @@ public class BoundingValueHierarchy
         capsule.write(bytes, tagBytes, null);
     }
     // *************************************************************************
+    // NativePhysicsObject methods
+
+    /**
+     * Estimate how much native memory this hierarchy occupies, based on the
+     * size of its serialized form.
+     *
+     * @return the estimate (in bytes, &ge;0)
+     */
+    @Override
+    public long estimateNativeBytes() {
+        long result = super.estimateNativeBytes() + numBytes;
+        return result;
+    }
+    // *************************************************************************
     // Java private methods
 
     /**
@@ -402,6 +402,22 @@ public class IndexedMesh
         capsule.write(floatArray, tagVertices, null);
     }
     // *************************************************************************
+    // NativePhysicsObject methods
+
+    /**
+     * Estimate how much native memory this mesh occupies, including its direct
+     * buffers of positions and indices.
+     *
+     * @return the estimate (in bytes, &ge;0)
+     */
+    @Override
+    public long estimateNativeBytes() {
+        long result = super.estimateNativeBytes()
+                + (long) numVertices * vertexStride
+                + (long) numTriangles * indexStride;
+        return result;
+    }
+    // *************************************************************************
     // Java private methods
 
     /**
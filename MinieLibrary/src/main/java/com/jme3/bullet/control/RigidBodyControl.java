@@ -32,6 +32,9 @@
 package com.jme3.bullet.control;
 
 import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.SnapshotBuffer;
+import com.jme3.bullet.TransformInterpolator;
+import com.jme3.bullet.TransformSnapshot;
 import com.jme3.bullet.collision.shapes.BoxCollisionShape;
 import com.jme3.bullet.collision.shapes.CollisionShape;
 import com.jme3.bullet.collision.shapes.SphereCollisionShape;
@@ -448,7 +451,35 @@ public class RigidBodyControl
             }
 
         } else if (!MySpatial.isIgnoringTransforms(spatial)) {
-            getMotionState().applyTransform(spatial);
+            SnapshotBuffer snapshots = null;
+            TransformInterpolator interpolator = null;
+            if (space != null) {
+                snapshots = space.getSnapshotBuffer();
+                interpolator = space.getInterpolator();
+            }
+            Vector3f location = spatial.getLocalTranslation();
+            Quaternion orientation = spatial.getLocalRotation();
+            if (snapshots != null) {
+                /*
+                 * The space may be updating on another thread, so read
+                 * the most recently published snapshot instead.
+                 */
+                TransformSnapshot snapshot = snapshots.current();
+                if (snapshot.copyTransform(this, location, orientation)) {
+                    getMotionState().applyTransform(spatial, location,
+                            orientation);
+                }
+            } else if (interpolator != null) {
+                if (interpolator.interpolateTransform(this, location,
+                        orientation)) {
+                    getMotionState().applyTransform(spatial, location,
+                            orientation);
+                } else { // not captured yet, perhaps added since
+                    getMotionState().applyTransform(spatial);
+                }
+            } else {
+                getMotionState().applyTransform(spatial);
+            }
             if (applyScale) {
                 applySpatialScale();
             }
@@ -840,7 +840,7 @@ public class BulletDebugAppState extends AbstractAppState {
         HashMap<PhysicsCollisionObject, Node> oldMap = pcoMap;
         pcoMap = new HashMap<>(oldMap.size());
         PhysicsSpace space = configuration.getSpace();
-        Collection<PhysicsCollisionObject> list = space.getPcoList();
+        Collection<PhysicsCollisionObject> list = space.getPcoView();
         for (PhysicsCollisionObject pco : list) {
             Node node = oldMap.remove(pco);
             if (node == null) {
@@ -567,6 +567,18 @@ abstract public class Constraint extends PhysicsJoint {
         capsule.write(getOverrideIterations(), tagNumIterations, -1);
     }
     // *************************************************************************
+    // NativePhysicsObject methods
+
+    /**
+     * Estimate how much native memory this constraint occupies.
+     *
+     * @return the estimate (in bytes, &ge;0)
+     */
+    @Override
+    public long estimateNativeBytes() {
+        return 768L; // typical size of a btTypedConstraint subclass
+    }
+    // *************************************************************************
     // Java private methods
 
     /**
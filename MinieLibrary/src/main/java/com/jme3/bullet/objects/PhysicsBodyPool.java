@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.objects;
+
+import com.jme3.bullet.CollisionSpace;
+import com.jme3.bullet.collision.Activation;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A pool of recycled dynamic rigid bodies that share a single CollisionShape,
+ * for scenes (such as projectiles and physics-driven particles) that would
+ * otherwise create and discard thousands of bodies per second.
+ * <p>
+ * Acquiring a pooled body avoids allocating a btRigidBody, a motion state,
+ * and a tracker, and releasing it avoids leaving their native objects for the
+ * cleaner thread to free. Use {@link #warmUp(int)} during loading so that body
+ * creation drops out of the per-frame cost.
+ * <p>
+ * Not thread-safe: acquire and release bodies on a single thread, typically
+ * the one that adds them to and removes them from the PhysicsSpace.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class PhysicsBodyPool {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PhysicsBodyPool.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * idle bodies, ready to be acquired
+     */
+    final private Deque<PhysicsRigidBody> idle = new ArrayDeque<>();
+    /**
+     * the same bodies as in idle, for detecting repeated releases (compared
+     * by identity)
+     */
+    final private Map<PhysicsRigidBody, Boolean> idleSet
+            = new IdentityHashMap<>();
+    /**
+     * mass of each body (&gt;0)
+     */
+    final private float mass;
+    /**
+     * maximum number of idle bodies retained (&gt;0)
+     */
+    final private int maxIdle;
+    /**
+     * number of bodies created by this pool
+     */
+    private long numCreated = 0L;
+    /**
+     * number of acquisitions satisfied by an idle body
+     */
+    private long numHits = 0L;
+    /**
+     * number of acquisitions that required a new body
+     */
+    private long numMisses = 0L;
+    /**
+     * shape shared by all bodies in this pool (not null)
+     */
+    final private CollisionShape shape;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty pool.
+     *
+     * @param shape the shape for all bodies (not null, alias created)
+     * @param mass the mass for all bodies (&gt;0)
+     * @param maxIdle the maximum number of idle bodies to retain; bodies
+     * released beyond this limit are discarded (&gt;0)
+     */
+    public PhysicsBodyPool(CollisionShape shape, float mass, int maxIdle) {
+        Validate.nonNull(shape, "shape");
+        Validate.positive(mass, "mass");
+        Validate.positive(maxIdle, "max idle");
+
+        this.shape = shape;
+        this.mass = mass;
+        this.maxIdle = maxIdle;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Obtain a body from this pool, creating one if none are idle. The body
+     * is located at the origin with identity orientation, is at rest with no
+     * applied forces, is active, and isn't in any space.
+     *
+     * @return a body (not null, not in any space)
+     */
+    public PhysicsRigidBody acquire() {
+        PhysicsRigidBody result = idle.pollFirst();
+        if (result == null) {
+            ++numMisses;
+            result = createBody();
+        } else {
+            ++numHits;
+            idleSet.remove(result);
+        }
+
+        assert !result.isInWorld();
+        return result;
+    }
+
+    /**
+     * Count the bodies created by this pool, including warm-up.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countCreated() {
+        assert numCreated >= 0L : numCreated;
+        return numCreated;
+    }
+
+    /**
+     * Count the acquisitions satisfied by an idle body.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countHits() {
+        assert numHits >= 0L : numHits;
+        return numHits;
+    }
+
+    /**
+     * Count the idle bodies.
+     *
+     * @return the count (&ge;0, &le;maxIdle)
+     */
+    public int countIdle() {
+        int result = idle.size();
+        return result;
+    }
+
+    /**
+     * Count the acquisitions that required a new body.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countMisses() {
+        assert numMisses >= 0L : numMisses;
+        return numMisses;
+    }
+
+    /**
+     * Access the shape shared by all bodies in this pool.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public CollisionShape getShape() {
+        assert shape != null;
+        return shape;
+    }
+
+    /**
+     * Calculate the fraction of acquisitions satisfied by an idle body.
+     *
+     * @return the hit rate (&ge;0, &le;1) or 0 if nothing has been acquired
+     */
+    public float hitRate() {
+        long numAcquired = numHits + numMisses;
+        float result = 0f;
+        if (numAcquired > 0L) {
+            result = numHits / (float) numAcquired;
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the mass of each body in this pool.
+     *
+     * @return the mass (&gt;0)
+     */
+    public float mass() {
+        assert mass > 0f : mass;
+        return mass;
+    }
+
+    /**
+     * Return a body to this pool. If it's in a space, it is removed. Its
+     * location, orientation, velocities, applied forces, and activation state
+     * are reset; other properties altered since acquisition are not. The body
+     * shouldn't be used after release.
+     *
+     * @param body a body acquired from this pool (not null, not released
+     * since it was acquired)
+     */
+    public void release(PhysicsRigidBody body) {
+        Validate.nonNull(body, "body");
+        Validate.require(body.getCollisionShape() == shape
+                && body.getMass() == mass, "a body from this pool");
+        Validate.require(!idleSet.containsKey(body),
+                "a body not already released");
+
+        CollisionSpace space = body.getCollisionSpace();
+        if (space != null) {
+            space.removeCollisionObject(body);
+        }
+
+        if (idle.size() < maxIdle) {
+            reset(body);
+            idle.addFirst(body);
+            idleSet.put(body, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Reset the hit and miss counts.
+     */
+    public void resetStatistics() {
+        numHits = 0L;
+        numMisses = 0L;
+    }
+
+    /**
+     * Create bodies until the specified number are idle, or the limit on idle
+     * bodies is reached.
+     *
+     * @param targetSize the desired number of idle bodies (&ge;0)
+     * @return the number of bodies created (&ge;0)
+     */
+    public int warmUp(int targetSize) {
+        Validate.nonNegative(targetSize, "target size");
+
+        int limit = Math.min(targetSize, maxIdle);
+        int result = 0;
+        while (idle.size() < limit) {
+            PhysicsRigidBody body = createBody();
+            idle.addLast(body);
+            idleSet.put(body, Boolean.TRUE);
+            ++result;
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create a new body for this pool.
+     *
+     * @return a new body (not in any space)
+     */
+    private PhysicsRigidBody createBody() {
+        PhysicsRigidBody result = new PhysicsRigidBody(shape, mass);
+        ++numCreated;
+
+        return result;
+    }
+
+    /**
+     * Restore the specified body to its initial state.
+     *
+     * @param body the body to reset (not null, not in any space)
+     */
+    private static void reset(PhysicsRigidBody body) {
+        body.clearForces();
+        body.setPhysicsLocation(Vector3f.ZERO);
+        body.setPhysicsRotation(Quaternion.IDENTITY);
+        body.setLinearVelocity(Vector3f.ZERO);
+        body.setAngularVelocity(Vector3f.ZERO);
+        body.setDeactivationTime(0f);
+        body.setActivationState(Activation.active);
+    }
+}
@@ -1273,6 +1273,19 @@ public class PhysicsRigidBody extends PhysicsBody {
         writeJoints(capsule);
     }
     // *************************************************************************
+    // NativePhysicsObject methods
+
+    /**
+     * Estimate how much native memory this body occupies, excluding its shape
+     * and motion state.
+     *
+     * @return the estimate (in bytes, &ge;0)
+     */
+    @Override
+    public long estimateNativeBytes() {
+        return 704L; // approximate size of a btRigidBody
+    }
+    // *************************************************************************
     // Java private methods
 
     /**
@@ -1804,6 +1804,24 @@ public class PhysicsSoftBody extends PhysicsBody {
         writeJoints(capsule);
     }
     // *************************************************************************
+    // NativePhysicsObject methods
+
+    /**
+     * Estimate how much native memory this body occupies, based on its numbers
+     * of nodes, links, faces, tetrahedra, and clusters. Since the footprint
+     * grows as the body is populated, {@link com.jme3.bullet.NativeMemory}
+     * re-estimates it during refresh().
+     *
+     * @return the estimate (in bytes, &ge;0)
+     */
+    @Override
+    public long estimateNativeBytes() {
+        long result = 1536L + 128L * countNodes() + 72L * countLinks()
+                + 64L * countFaces() + 160L * countTetras()
+                + 512L * countClusters();
+        return result;
+    }
+    // *************************************************************************
     // native private methods
 
     native private static void addForce(long bodyId, Vector3f forceVector);
@@ -42,6 +42,7 @@ import com.jme3.util.clone.Cloner;
 import com.jme3.util.clone.JmeCloneable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import jme3utilities.Validate;
 
 /**
  * The motion state (transform) of a rigid body, with thread-safe access.
@@ -105,27 +106,31 @@ public class RigidBodyMotionState
         if (!physicsLocationDirty) {
             return false;
         }
-        if (!applyPhysicsLocal && spatial.getParent() != null) {
-            localLocation.subtractLocal(
-                    spatial.getParent().getWorldTranslation());
-            localLocation.divideLocal(spatial.getParent().getWorldScale());
-            tmp_inverseWorldRotation.set(spatial.getParent().getWorldRotation())
-                    .inverseLocal().multLocal(localLocation);
-            tmp_inverseWorldRotation.mult(localRotationQuat, localRotationQuat);
-
-            spatial.setLocalTranslation(localLocation);
-            spatial.setLocalRotation(localRotationQuat);
-        } else {
-            spatial.setLocalTranslation(localLocation);
-            spatial.setLocalRotation(localRotationQuat);
-        }
-        if (vehicle != null) {
-            vehicle.updateWheels();
-        }
+        applyToSpatial(spatial);
 
         return true;
     }
 
+    /**
+     * Apply the specified physics transform to the specified Spatial, for
+     * instance one obtained from a TransformSnapshot.
+     *
+     * @param spatial where to apply the transform (not null, modified)
+     * @param location the desired location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param orientation the desired orientation (in physics-space
+     * coordinates, not null, unaffected)
+     */
+    public void applyTransform(Spatial spatial, Vector3f location,
+            Quaternion orientation) {
+        Validate.nonNull(location, "location");
+        Validate.nonNull(orientation, "orientation");
+
+        spatial.getLocalTranslation().set(location);
+        spatial.getLocalRotation().set(orientation);
+        applyToSpatial(spatial);
+    }
+
     /**
      * Copy the location from this motion state.
      *
@@ -276,6 +281,30 @@ public class RigidBodyMotionState
     // *************************************************************************
     // Java private methods
 
+    /**
+     * Convert the physics transform stored in the local translation and local
+     * rotation of the specified Spatial (if necessary) and apply it.
+     *
+     * @param spatial the Spatial to modify (not null)
+     */
+    private void applyToSpatial(Spatial spatial) {
+        Vector3f localLocation = spatial.getLocalTranslation();
+        Quaternion localRotationQuat = spatial.getLocalRotation();
+        if (!applyPhysicsLocal && spatial.getParent() != null) {
+            localLocation.subtractLocal(
+                    spatial.getParent().getWorldTranslation());
+            localLocation.divideLocal(spatial.getParent().getWorldScale());
+            tmp_inverseWorldRotation.set(spatial.getParent().getWorldRotation())
+                    .inverseLocal().multLocal(localLocation);
+            tmp_inverseWorldRotation.mult(localRotationQuat, localRotationQuat);
+        }
+        spatial.setLocalTranslation(localLocation);
+        spatial.setLocalRotation(localRotationQuat);
+        if (vehicle != null) {
+            vehicle.updateWheels();
+        }
+    }
+
     /**
      * Free the identified tracked native object. Invoked by reflection.
      *
@@ -0,0 +1,607 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.IndexedMesh;
+import com.jme3.scene.Mesh;
+import com.jme3.system.JmeSystem;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import jme3utilities.Validate;
+
+/**
+ * A persistent, on-disk cache of serialized bounding-value hierarchies (BVHs)
+ * for mesh shapes, so that BVHs of unchanged geometry needn't be rebuilt each
+ * time an application loads.
+ * <p>
+ * Each entry is a file named by a SHA-256 digest of the submeshes' vertex
+ * positions and indices, the compression flag, the native library version, and
+ * the platform. Each entry is read with a single channel read and validated
+ * (magic number, format, digest, and CRC) before use; invalid entries are
+ * deleted and the BVH is rebuilt. (Entries aren't memory-mapped: the native
+ * deserializer requires a byte array anyway, and on some platforms a mapped
+ * file can't be deleted or replaced until the mapping is garbage collected.)
+ * When the directory exceeds its size budget, the least recently used entries
+ * are evicted. I/O errors are logged but never prevent a shape from being
+ * created.
+ * <p>
+ * Instances may be shared between threads.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class BvhCache {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * version of the entry format
+     */
+    final private static int formatVersion = 1;
+    /**
+     * maximum size of an entry's header (in bytes)
+     */
+    final private static int maxHeaderBytes = 512;
+    /**
+     * magic number at the start of each entry ("MBVH")
+     */
+    final private static int magic = 0x4d425648;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(BvhCache.class.getName());
+    /**
+     * filename suffix of each entry
+     */
+    final private static String suffix = ".bvh";
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of entries found invalid and deleted
+     */
+    final private AtomicLong numRejected = new AtomicLong();
+    /**
+     * number of shapes created using a cached BVH
+     */
+    final private AtomicLong numHits = new AtomicLong();
+    /**
+     * number of shapes whose BVH had to be built
+     */
+    final private AtomicLong numMisses = new AtomicLong();
+    /**
+     * approximate total size of all entries (in bytes)
+     */
+    final private AtomicLong totalBytes = new AtomicLong();
+    /**
+     * directory containing the entries (not null)
+     */
+    final private File directory;
+    /**
+     * size budget for the directory (in bytes, &gt;0)
+     */
+    final private long maxBytes;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a cache in the specified directory, creating the directory
+     * if it doesn't exist, and prune any invalid or excess entries.
+     *
+     * @param directory the directory for entries (not null)
+     * @param maxBytes the size budget for the directory (in bytes, &gt;0)
+     */
+    public BvhCache(File directory, long maxBytes) {
+        Validate.nonNull(directory, "directory");
+        Validate.require(maxBytes > 0L, "a positive size budget");
+
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.log(Level.WARNING, "Unable to create directory {0}",
+                    directory);
+        }
+        prune();
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Delete all entries and reset the statistics.
+     */
+    public synchronized void clear() {
+        for (File file : listEntries()) {
+            delete(file);
+        }
+        totalBytes.set(0L);
+        numHits.set(0L);
+        numMisses.set(0L);
+        numRejected.set(0L);
+    }
+
+    /**
+     * Count the shapes created using a cached BVH.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countHits() {
+        long result = numHits.get();
+        return result;
+    }
+
+    /**
+     * Count the shapes whose BVH had to be built.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countMisses() {
+        long result = numMisses.get();
+        return result;
+    }
+
+    /**
+     * Count the entries found invalid and deleted.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countRejected() {
+        long result = numRejected.get();
+        return result;
+    }
+
+    /**
+     * Create a mesh shape from the specified JME mesh(es), using quantized
+     * AABB compression and reusing a cached BVH if possible. Equivalent to
+     * {@link MeshCollisionShape#MeshCollisionShape(Mesh...)}.
+     *
+     * @param jmeMeshes the mesh(es) on which to base the shape (must contain
+     * at least one triangle, unaffected)
+     * @return a new shape (not null)
+     */
+    public MeshCollisionShape createMeshShape(Mesh... jmeMeshes) {
+        Validate.nonEmpty(jmeMeshes, "JME meshes");
+
+        int numMeshes = jmeMeshes.length;
+        IndexedMesh[] submeshes = new IndexedMesh[numMeshes];
+        for (int i = 0; i < numMeshes; ++i) {
+            submeshes[i] = new IndexedMesh(jmeMeshes[i]);
+        }
+        MeshCollisionShape result = createMeshShape(true, submeshes);
+
+        return result;
+    }
+
+    /**
+     * Create a mesh shape from the specified native mesh(es), reusing a cached
+     * BVH if possible. Equivalent to
+     * {@link MeshCollisionShape#MeshCollisionShape(boolean, IndexedMesh...)}.
+     *
+     * @param useCompression true to use quantized AABB compression
+     * @param submeshes the mesh(es) on which to base the shape (must contain at
+     * least one triangle)
+     * @return a new shape (not null)
+     */
+    public MeshCollisionShape createMeshShape(boolean useCompression,
+            IndexedMesh... submeshes) {
+        Validate.nonEmpty(submeshes, "submeshes");
+
+        byte[] digest = digest(useCompression, submeshes);
+        File file = new File(directory, toHex(digest) + suffix);
+
+        MeshCollisionShape result = null;
+        if (file.isFile()) {
+            byte[] bvhBytes = read(file, digest, useCompression);
+            if (bvhBytes == null) {
+                numRejected.incrementAndGet();
+                totalBytes.addAndGet(-file.length());
+                delete(file);
+            } else {
+                result = new MeshCollisionShape(bvhBytes, useCompression,
+                        submeshes);
+                numHits.incrementAndGet();
+                file.setLastModified(System.currentTimeMillis());
+            }
+        }
+
+        if (result == null) {
+            result = new MeshCollisionShape(useCompression, submeshes);
+            numMisses.incrementAndGet();
+            byte[] bvhBytes = result.serializeBvh();
+            write(file, digest, useCompression, bvhBytes);
+        }
+
+        return result;
+    }
+
+    /**
+     * Access the directory containing the entries.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public File getDirectory() {
+        assert directory != null;
+        return directory;
+    }
+
+    /**
+     * Calculate the fraction of shapes created using a cached BVH.
+     *
+     * @return the hit rate (&ge;0, &le;1) or 0 if no shapes were created
+     */
+    public float hitRate() {
+        long hits = numHits.get();
+        long numCreated = hits + numMisses.get();
+        float result = 0f;
+        if (numCreated > 0L) {
+            result = hits / (float) numCreated;
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the size budget for the directory.
+     *
+     * @return the budget (in bytes, &gt;0)
+     */
+    public long maxBytes() {
+        assert maxBytes > 0L : maxBytes;
+        return maxBytes;
+    }
+
+    /**
+     * Delete entries that are invalid or were written by a different native
+     * library version, platform, or format, then evict the least recently used
+     * entries until the directory is within its size budget.
+     *
+     * @return the number of entries deleted (&ge;0)
+     */
+    public synchronized int prune() {
+        File[] entries = listEntries();
+        int result = 0;
+        long total = 0L;
+        for (int i = 0; i < entries.length; ++i) {
+            File file = entries[i];
+            if (readEntry(file, true) == null) {
+                delete(file);
+                entries[i] = null;
+                ++result;
+            } else {
+                total += file.length();
+            }
+        }
+
+        Arrays.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long aTime = (a == null) ? Long.MAX_VALUE : a.lastModified();
+                long bTime = (b == null) ? Long.MAX_VALUE : b.lastModified();
+                return Long.compare(aTime, bTime);
+            }
+        });
+        for (File file : entries) {
+            if (total <= maxBytes || file == null) {
+                break;
+            }
+            total -= file.length();
+            delete(file);
+            ++result;
+        }
+
+        totalBytes.set(total);
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Delete the specified file, logging any failure.
+     *
+     * @param file the file to delete (not null)
+     */
+    private static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            logger.log(Level.WARNING, "Unable to delete {0}", file);
+        }
+    }
+
+    /**
+     * Calculate the digest that identifies the BVH of the specified
+     * submeshes.
+     *
+     * @param useCompression the compression flag
+     * @param submeshes the submeshes (not null, unaffected)
+     * @return a new array of 32 bytes
+     */
+    private static byte[] digest(boolean useCompression,
+            IndexedMesh[] submeshes) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new RuntimeException(exception);
+        }
+
+        md.update(environment().getBytes(StandardCharsets.UTF_8));
+        md.update((byte) (useCompression ? 1 : 0));
+        for (IndexedMesh submesh : submeshes) {
+            FloatBuffer positions = submesh.copyVertexPositions();
+            IntBuffer indices = submesh.copyIndices();
+            int numFloats = positions.capacity();
+            int numInts = indices.capacity();
+
+            byte[] chunk = new byte[4 * (2 + numFloats + numInts)];
+            int j = putInt(chunk, 0, numFloats);
+            j = putInt(chunk, j, numInts);
+            for (int i = 0; i < numFloats; ++i) {
+                j = putInt(chunk, j, Float.floatToIntBits(positions.get(i)));
+            }
+            for (int i = 0; i < numInts; ++i) {
+                j = putInt(chunk, j, indices.get(i));
+            }
+            md.update(chunk);
+        }
+
+        byte[] result = md.digest();
+        return result;
+    }
+
+    /**
+     * Describe the environment in which BVHs are serialized, since serialized
+     * BVHs aren't portable between native library versions or platforms.
+     *
+     * @return a new String (not null)
+     */
+    private static String environment() {
+        String result = NativeLibrary.versionNumber() + " "
+                + JmeSystem.getPlatform();
+        return result;
+    }
+
+    /**
+     * Enumerate the entries in the directory.
+     *
+     * @return a new array of files (not null)
+     */
+    private File[] listEntries() {
+        File[] result = directory.listFiles();
+        if (result == null) {
+            result = new File[0];
+        } else {
+            int numEntries = 0;
+            for (File file : result) {
+                if (file.isFile() && file.getName().endsWith(suffix)) {
+                    result[numEntries] = file;
+                    ++numEntries;
+                }
+            }
+            result = Arrays.copyOf(result, numEntries);
+        }
+
+        return result;
+    }
+
+    /**
+     * Store a big-endian int in the specified array.
+     *
+     * @param array the array to modify (not null)
+     * @param offset the index of the first byte to write
+     * @param value the value to store
+     * @return the index following the last byte written
+     */
+    private static int putInt(byte[] array, int offset, int value) {
+        array[offset] = (byte) (value >>> 24);
+        array[offset + 1] = (byte) (value >>> 16);
+        array[offset + 2] = (byte) (value >>> 8);
+        array[offset + 3] = (byte) value;
+
+        return offset + 4;
+    }
+
+    /**
+     * Read and validate an entry.
+     *
+     * @param file the entry to read (not null)
+     * @param digest the expected digest (not null, unaffected)
+     * @param useCompression the expected compression flag
+     * @return a new array of serialized BVH bytes, or null if the entry is
+     * invalid
+     */
+    private static byte[] read(File file, byte[] digest,
+            boolean useCompression) {
+        ByteBuffer buffer = readEntry(file, false);
+        if (buffer == null) {
+            return null;
+        }
+
+        byte[] result = null;
+        try {
+            byte[] storedDigest = new byte[digest.length];
+            buffer.get(storedDigest);
+            boolean storedCompression = (buffer.get() != 0);
+            int numBytes = buffer.getInt();
+            long storedCrc = buffer.getLong();
+
+            if (Arrays.equals(storedDigest, digest)
+                    && storedCompression == useCompression
+                    && numBytes == buffer.remaining()) {
+                byte[] bvhBytes = new byte[numBytes];
+                buffer.get(bvhBytes);
+                CRC32 crc = new CRC32();
+                crc.update(bvhBytes);
+                if (crc.getValue() == storedCrc) {
+                    result = bvhBytes;
+                }
+            }
+        } catch (BufferUnderflowException exception) {
+            result = null;
+        }
+
+        if (result == null) {
+            logger.log(Level.WARNING, "Rejected invalid BVH entry {0}", file);
+        }
+        return result;
+    }
+
+    /**
+     * Read all or part of an entry and validate its header.
+     *
+     * @param file the entry to read (not null)
+     * @param headerOnly true to read only enough bytes to validate the header
+     * @return a buffer positioned after the header, or null if the entry
+     * can't be read or was written by a different format, native library
+     * version, or platform
+     */
+    private static ByteBuffer readEntry(File file, boolean headerOnly) {
+        ByteBuffer result = null;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            long fileSize = channel.size();
+            if (headerOnly) {
+                fileSize = Math.min(fileSize, maxHeaderBytes);
+            } else if (fileSize > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) fileSize);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full or EOF is reached
+            }
+            buffer.flip();
+
+            if (buffer.getInt() == magic && buffer.getInt() == formatVersion) {
+                int length = buffer.getShort() & 0xffff;
+                byte[] utf8 = new byte[length];
+                buffer.get(utf8);
+                String storedEnvironment
+                        = new String(utf8, StandardCharsets.UTF_8);
+                if (storedEnvironment.equals(environment())) {
+                    result = buffer;
+                }
+            }
+        } catch (IOException | BufferUnderflowException exception) {
+            result = null;
+        }
+
+        return result;
+    }
+
+    /**
+     * Encode the specified bytes as lowercase hexadecimal.
+     *
+     * @param bytes the bytes to encode (not null, unaffected)
+     * @return a new String
+     */
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b & 0xff));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Write an entry, atomically replacing any existing file. Failures are
+     * logged.
+     *
+     * @param file the entry to write (not null)
+     * @param digest the digest identifying the BVH (not null, unaffected)
+     * @param useCompression the compression flag
+     * @param bvhBytes the serialized BVH (not null, unaffected)
+     */
+    private void write(File file, byte[] digest, boolean useCompression,
+            byte[] bvhBytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bvhBytes);
+
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile("bvh", ".tmp", directory);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(magic);
+                out.writeInt(formatVersion);
+                out.writeUTF(environment());
+                out.write(digest);
+                out.writeBoolean(useCompression);
+                out.writeInt(bvhBytes.length);
+                out.writeLong(crc.getValue());
+                out.write(bvhBytes);
+            }
+
+            try {
+                Files.move(tempFile.toPath(), file.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(tempFile.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+
+        } catch (IOException exception) {
+            logger.log(Level.WARNING, "Unable to write BVH entry " + file,
+                    exception);
+            if (tempFile != null) {
+                delete(tempFile);
+            }
+            return;
+        }
+
+        long total = totalBytes.addAndGet(file.length());
+        if (total > maxBytes) {
+            prune();
+        }
+    }
+}
@@ -125,13 +125,32 @@ public class CollisionShapeFactory {
      * Node)
      */
     public static CollisionShape createDynamicMeshShape(Spatial subtree) {
+        CollisionShape result = createDynamicMeshShape(subtree, null);
+        return result;
+    }
+
+    /**
+     * Create a shape for a movable object, based on the specified Spatial,
+     * re-using hull shapes interned in the specified cache.
+     *
+     * @param subtree the Spatial on which to base the shape (not null,
+     * unaffected)
+     * @param cache the cache of interned shapes, or null to generate new
+     * shapes
+     * @return a shared HullCollisionShape (if spatial is a Geometry) or a new
+     * CompoundCollisionShape with hull shapes as children (if spatial is a
+     * Node)
+     */
+    public static CollisionShape createDynamicMeshShape(Spatial subtree,
+            ShapeCache cache) {
         if (subtree instanceof Geometry) {
-            return createSingleHullShape((Geometry) subtree, subtree);
+            return createSingleHullShape((Geometry) subtree, subtree, cache);
         } else if (subtree instanceof Node) {
             boolean meshAccurate = true;
             boolean dynamic = true;
             return createCompoundShape((Node) subtree, (Node) subtree,
-                    new CompoundCollisionShape(), meshAccurate, dynamic);
+                    new CompoundCollisionShape(), meshAccurate, dynamic,
+                    cache);
         } else {
             throw new IllegalArgumentException(
                     "The spatial must either be a Node or a Geometry!");
@@ -167,15 +186,35 @@ public class CollisionShapeFactory {
      * (if spatial is a Node)
      */
     public static CollisionShape createMeshShape(Spatial subtree) {
+        CollisionShape result = createMeshShape(subtree, null);
+        return result;
+    }
+
+    /**
+     * Create a shape for an immovable object, based on the specified Spatial,
+     * re-using mesh shapes interned in the specified cache. This version
+     * handles terrain.
+     *
+     * @param subtree the Spatial on which to base the shape (not null,
+     * unaffected)
+     * @param cache the cache of interned shapes, or null to generate new
+     * shapes
+     * @return a shared MeshCollisionShape (if spatial is a Geometry) or a new
+     * HeightfieldCollisionShape (if spatial is a TerrainQuad or TerrainPatch)
+     * or a new CompoundCollisionShape with mesh/heightfield shapes as children
+     * (if spatial is a Node)
+     */
+    public static CollisionShape createMeshShape(Spatial subtree,
+            ShapeCache cache) {
         if (subtree instanceof Terrain) {
             return new HeightfieldCollisionShape((Terrain) subtree,
                     subtree.getLocalScale());
 
         } else if (subtree instanceof Geometry) {
-            return createSingleMeshShape((Geometry) subtree, subtree);
+            return createSingleMeshShape((Geometry) subtree, subtree, cache);
 
         } else if (subtree instanceof Node) {
-            return createMeshCompoundShape((Node) subtree);
+            return createMeshCompoundShape((Node) subtree, cache);
 
         } else {
             throw new IllegalArgumentException(
@@ -291,19 +330,20 @@ public class CollisionShapeFactory {
             Node modelRoot) {
         boolean meshAccurate = false;
         return createCompoundShape(modelRoot, new CompoundCollisionShape(),
-                meshAccurate);
+                meshAccurate, null);
     }
 
     private static CompoundCollisionShape createCompoundShape(Node modelRoot,
-            CompoundCollisionShape shape, boolean meshAccurate) {
+            CompoundCollisionShape shape, boolean meshAccurate,
+            ShapeCache cache) {
         boolean dynamic = false;
         return createCompoundShape(modelRoot, modelRoot, shape, meshAccurate,
-                dynamic);
+                dynamic, cache);
     }
 
     private static CompoundCollisionShape createCompoundShape(Node modelRoot,
             Node parent, CompoundCollisionShape shape, boolean meshAccurate,
-            boolean dynamic) {
+            boolean dynamic, ShapeCache cache) {
         for (Spatial child : parent.getChildren()) {
             Boolean skipChild = child.getUserData(UserData.JME_PHYSICSIGNORE);
             if (skipChild != null && skipChild) {
@@ -319,15 +359,17 @@ public class CollisionShapeFactory {
 
             } else if (child instanceof Node) {
                 createCompoundShape(modelRoot, (Node) child, shape,
-                        meshAccurate, dynamic);
+                        meshAccurate, dynamic, cache);
 
             } else if (child instanceof Geometry) {
                 Geometry geometry = (Geometry) child;
                 if (meshAccurate) {
                     if (dynamic) {
-                        childShape = createSingleHullShape(geometry, modelRoot);
+                        childShape = createSingleHullShape(geometry, modelRoot,
+                                cache);
                     } else {
-                        childShape = createSingleMeshShape(geometry, modelRoot);
+                        childShape = createSingleMeshShape(geometry, modelRoot,
+                                cache);
                     }
                 } else {
                     childShape = createSingleBoxShape(geometry);
@@ -345,13 +387,15 @@ public class CollisionShapeFactory {
      * Create a mesh-accurate CollisionShape for an immovable object.
      *
      * @param rootNode the Node on which to base the shape (not null)
+     * @param cache the cache of interned shapes, or null to generate new
+     * shapes
      * @return a new shape (not null)
      */
     private static CompoundCollisionShape createMeshCompoundShape(
-            Node rootNode) {
+            Node rootNode, ShapeCache cache) {
         boolean meshAccurate = true;
         return createCompoundShape(rootNode, new CompoundCollisionShape(),
-                meshAccurate);
+                meshAccurate, cache);
     }
 
     /**
@@ -376,15 +420,20 @@ public class CollisionShapeFactory {
      * @param geometry the Geometry on which to base the shape (not null)
      * @param modelRoot the ancestor for which the shape is being generated (not
      * null, unaffected)
+     * @param cache the cache of interned shapes, or null to generate a new
+     * shape
      */
     private static HullCollisionShape createSingleHullShape(Geometry geometry,
-            Spatial modelRoot) {
+            Spatial modelRoot, ShapeCache cache) {
         Mesh mesh = geometry.getMesh();
         if (mesh == null) {
             return null;
         }
 
         Transform transform = getTransform(geometry, modelRoot);
+        if (cache != null) {
+            return cache.hullShape(mesh, transform.getScale());
+        }
         // TODO recognize AbstractBox, Cylinder, Quad, and Sphere from com.jme3.scene.shape package
         HullCollisionShape hullShape = new HullCollisionShape(mesh);
         hullShape.setScale(transform.getScale());
@@ -398,15 +447,20 @@ public class CollisionShapeFactory {
      * @param geometry the Geometry on which to base the shape (not null)
      * @param modelRoot the ancestor for which the shape is being generated (not
      * null, unaffected)
+     * @param cache the cache of interned shapes, or null to generate a new
+     * shape
      */
     private static MeshCollisionShape createSingleMeshShape(Geometry geometry,
-            Spatial modelRoot) {
+            Spatial modelRoot, ShapeCache cache) {
         Mesh mesh = geometry.getMesh();
         if (mesh == null) {
             return null;
         }
 
         Transform transform = getTransform(geometry, modelRoot);
+        if (cache != null) {
+            return cache.meshShape(mesh, transform.getScale());
+        }
         // TODO recognize AbstractBox, Cylinder, Quad, and Sphere from com.jme3.scene.shape package
         MeshCollisionShape meshShape = new MeshCollisionShape(mesh);
         meshShape.setScale(transform.getScale());
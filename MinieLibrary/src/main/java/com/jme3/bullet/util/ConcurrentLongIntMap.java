@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A thread-safe map from non-zero 64-bit keys (such as native IDs) to
+ * non-negative ints, implemented as an open-addressed hash table without
+ * boxing. The primitive counterpart of {@link ConcurrentLongMap}.
+ * <p>
+ * Reads (get, containsKey, and size) are lock-free. Modifications are
+ * serialized by a lock on the map.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class ConcurrentLongIntMap {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * value returned for keys that aren't mapped
+     */
+    final public static int absent = -1;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ConcurrentLongIntMap.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of mappings in the map
+     */
+    private volatile int size = 0;
+    /**
+     * the current hash table (not null)
+     */
+    private volatile Table table;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty map with the specified initial capacity.
+     *
+     * @param initialCapacity the number of mappings to allocate space for
+     * (&ge;1)
+     */
+    public ConcurrentLongIntMap(int initialCapacity) {
+        Validate.positive(initialCapacity, "initial capacity");
+
+        int numBuckets = LongMapTable.tableSize(initialCapacity);
+        table = new Table(numBuckets);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Remove all mappings from this map.
+     */
+    public synchronized void clear() {
+        table = new Table(LongMapTable.tableSize(1));
+        size = 0;
+    }
+
+    /**
+     * Test whether the specified key is mapped to a value.
+     *
+     * @param key the key to test
+     * @return true if mapped, otherwise false
+     */
+    public boolean containsKey(long key) {
+        boolean result = (get(key) != absent);
+        return result;
+    }
+
+    /**
+     * Read the value mapped to the specified key, without locking.
+     *
+     * @param key the key to look up
+     * @return the pre-existing value (&ge;0) or {@link #absent} if none
+     */
+    public int get(long key) {
+        int result = absent;
+        if (key != 0L) {
+            Table current = table;
+            int bucket = current.findBucket(key);
+            if (bucket >= 0 && current.keys.get(bucket) == key) {
+                result = current.values.get(bucket);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Map the specified key to the specified value.
+     *
+     * @param key the key to map (not zero)
+     * @param value the value to map it to (&ge;0)
+     * @return the value previously mapped to the key (&ge;0) or
+     * {@link #absent} if none
+     */
+    public synchronized int put(long key, int value) {
+        Validate.nonZero(key, "key");
+        Validate.nonNegative(value, "value");
+
+        Table current = table;
+        int bucket = current.findBucket(key);
+        if (bucket >= 0 && current.keys.get(bucket) == key) {
+            int result = current.values.getAndSet(bucket, value);
+            if (result == absent) {
+                ++size;
+            }
+            return result;
+        }
+
+        if (LongMapTable.isFull(current.numAssigned, current.capacity())) {
+            current = rehash(size + 1);
+            bucket = current.findBucket(key);
+        }
+        assert current.keys.get(bucket) == 0L;
+        /*
+         * Assign the value before the key, so that any reader that sees the
+         * key also sees the value.
+         */
+        current.values.set(bucket, value);
+        current.keys.set(bucket, key);
+        ++current.numAssigned;
+        ++size;
+
+        return absent;
+    }
+
+    /**
+     * Remove the mapping for the specified key, if any.
+     *
+     * @param key the key to unmap
+     * @return the value previously mapped to the key (&ge;0) or
+     * {@link #absent} if none
+     */
+    public synchronized int remove(long key) {
+        int result = absent;
+        if (key != 0L) {
+            Table current = table;
+            int bucket = current.findBucket(key);
+            if (bucket >= 0 && current.keys.get(bucket) == key) {
+                result = current.values.getAndSet(bucket, absent);
+                if (result != absent) {
+                    --size;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Count the mappings in this map.
+     *
+     * @return the count (&ge;0)
+     */
+    public int size() {
+        assert size >= 0 : size;
+        return size;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Copy the live mappings into a new table sized for the specified number
+     * of mappings, then publish it. Readers still probing the old table
+     * remain safe, because it's never modified after being replaced.
+     *
+     * @param numMappings the number of mappings to provide for (&ge;size)
+     * @return the new table (not null)
+     */
+    private Table rehash(int numMappings) {
+        assert Thread.holdsLock(this);
+
+        Table oldTable = table;
+        int numBuckets = LongMapTable.tableSize(numMappings);
+        Table newTable = new Table(numBuckets);
+        int oldCapacity = oldTable.capacity();
+        for (int oldBucket = 0; oldBucket < oldCapacity; ++oldBucket) {
+            int value = oldTable.values.get(oldBucket);
+            if (value != absent) {
+                long key = oldTable.keys.get(oldBucket);
+                int bucket = newTable.findBucket(key);
+                newTable.values.set(bucket, value);
+                newTable.keys.set(bucket, key);
+                ++newTable.numAssigned;
+            }
+        }
+        table = newTable;
+
+        return newTable;
+    }
+    // *************************************************************************
+    // Table
+
+    /**
+     * An open-addressed hash table of ints. Once a bucket has been assigned
+     * a key, that key never changes. Removing a mapping sets the bucket's
+     * value to {@link #absent} but leaves its key in place until the next
+     * rehash.
+     */
+    private static class Table {
+        /**
+         * key of each bucket, or 0 for an unassigned bucket
+         */
+        final AtomicLongArray keys;
+        /**
+         * value of each bucket, or absent if unassigned or removed
+         */
+        final AtomicIntegerArray values;
+        /**
+         * bitmask for reducing hash codes to bucket indices
+         */
+        final int mask;
+        /**
+         * number of buckets with assigned keys, including removed mappings
+         * (guarded by the owning map)
+         */
+        int numAssigned = 0;
+
+        /**
+         * Instantiate an empty table with the specified number of buckets.
+         *
+         * @param numBuckets the desired number of buckets (a power of 2,
+         * &ge;2)
+         */
+        Table(int numBuckets) {
+            assert Integer.bitCount(numBuckets) == 1 : numBuckets;
+
+            keys = new AtomicLongArray(numBuckets);
+            values = new AtomicIntegerArray(numBuckets);
+            for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                values.set(bucket, absent);
+            }
+            mask = numBuckets - 1;
+        }
+
+        /**
+         * Count the buckets in this table.
+         *
+         * @return the count (a power of 2, &ge;2)
+         */
+        int capacity() {
+            int result = mask + 1;
+            return result;
+        }
+
+        /**
+         * Find the bucket that is (or would be) assigned the specified key.
+         *
+         * @param key the key to find (not zero)
+         * @return the index of the bucket whose key matches, or the index of
+         * the unassigned bucket that ends the probe sequence, or -1 if the
+         * table is full and the key isn't found
+         */
+        int findBucket(long key) {
+            int bucket = LongMapTable.hash(key) & mask;
+            for (int probe = 0; probe <= mask; ++probe) {
+                long bucketKey = keys.get(bucket);
+                if (bucketKey == key || bucketKey == 0L) {
+                    return bucket;
+                }
+                bucket = (bucket + 1) & mask;
+            }
+
+            return -1;
+        }
+    }
+}
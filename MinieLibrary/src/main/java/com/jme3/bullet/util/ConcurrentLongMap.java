@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A thread-safe map from non-zero 64-bit keys (such as native IDs) to
+ * objects, implemented as an open-addressed hash table without boxing.
+ * <p>
+ * Reads (get, containsKey, size, and iteration) are lock-free. Modifications
+ * are serialized by a lock on the map. Iteration is weakly consistent, as
+ * with ConcurrentHashMap. The collections returned by values(), keySet(), and
+ * entrySet() are read-only views, allocated once per map.
+ * <p>
+ * Null values aren't permitted. The boxing methods of the Map interface are
+ * provided for compatibility; use the primitive overloads to avoid garbage.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @param <V> the type of value
+ */
+public class ConcurrentLongMap<V> extends AbstractMap<Long, V> {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ConcurrentLongMap.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * read-only view of the mappings (not null)
+     */
+    final private Set<Map.Entry<Long, V>> entryView;
+    /**
+     * number of mappings in the map
+     */
+    private volatile int size = 0;
+    /**
+     * the current hash table (not null)
+     */
+    private volatile LongMapTable table;
+    /**
+     * read-only view of the values (not null)
+     */
+    final private Collection<V> valueView;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty map with the default initial capacity.
+     */
+    public ConcurrentLongMap() {
+        this(4);
+    }
+
+    /**
+     * Instantiate an empty map with the specified initial capacity.
+     *
+     * @param initialCapacity the number of mappings to allocate space for
+     * (&ge;1)
+     */
+    public ConcurrentLongMap(int initialCapacity) {
+        Validate.positive(initialCapacity, "initial capacity");
+
+        int numBuckets = LongMapTable.tableSize(initialCapacity);
+        table = new LongMapTable(numBuckets);
+        valueView = new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new LongMapIterator<>(table);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+        entryView = new AbstractSet<Map.Entry<Long, V>>() {
+            @Override
+            public Iterator<Map.Entry<Long, V>> iterator() {
+                final LongMapIterator<V> iterator
+                        = new LongMapIterator<>(table);
+                return new Iterator<Map.Entry<Long, V>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<Long, V> next() {
+                        V value = iterator.next();
+                        long key = iterator.lastKey();
+                        return new SimpleImmutableEntry<>(key, value);
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test whether the specified key is mapped to a value.
+     *
+     * @param key the key to test
+     * @return true if mapped, otherwise false
+     */
+    public boolean containsKey(long key) {
+        boolean result = (get(key) != null);
+        return result;
+    }
+
+    /**
+     * Read the value mapped to the specified key, without locking.
+     *
+     * @param key the key to look up
+     * @return the pre-existing value, or null if none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        V result = null;
+        if (key != 0L) {
+            result = (V) table.get(key);
+        }
+
+        return result;
+    }
+
+    /**
+     * Map the specified key to the specified value.
+     *
+     * @param key the key to map (not zero)
+     * @param value the value to map it to (not null, alias created)
+     * @return the value previously mapped to the key, or null if none
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V put(long key, V value) {
+        Validate.nonZero(key, "key");
+        Validate.nonNull(value, "value");
+
+        LongMapTable current = table;
+        int bucket = current.findBucket(key);
+        if (bucket >= 0 && current.keys.get(bucket) == key) {
+            V result = (V) current.values.getAndSet(bucket, value);
+            if (result == null) {
+                ++size;
+            }
+            return result;
+        }
+
+        if (current.isFull()) {
+            current = rehash(size + 1);
+            bucket = current.findBucket(key);
+        }
+        assert current.keys.get(bucket) == 0L;
+        /*
+         * Assign the key before the value, so that any reader that sees the
+         * value also sees the key.
+         */
+        current.keys.set(bucket, key);
+        current.values.set(bucket, value);
+        ++current.numAssigned;
+        ++size;
+
+        return null;
+    }
+
+    /**
+     * Remove the mapping for the specified key, if any.
+     *
+     * @param key the key to unmap
+     * @return the value previously mapped to the key, or null if none
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(long key) {
+        V result = null;
+        if (key != 0L) {
+            LongMapTable current = table;
+            int bucket = current.findBucket(key);
+            if (bucket >= 0 && current.keys.get(bucket) == key) {
+                result = (V) current.values.getAndSet(bucket, null);
+                if (result != null) {
+                    --size;
+                }
+            }
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // AbstractMap methods
+
+    /**
+     * Remove all mappings from this map.
+     */
+    @Override
+    public synchronized void clear() {
+        table = new LongMapTable(LongMapTable.tableSize(1));
+        size = 0;
+    }
+
+    /**
+     * Test whether the specified key is mapped to a value. Boxed version of
+     * {@link #containsKey(long)}.
+     *
+     * @param key the key to test (may be null)
+     * @return true if mapped, otherwise false
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        boolean result = (get(key) != null);
+        return result;
+    }
+
+    /**
+     * Access a read-only view of the mappings in this map.
+     *
+     * @return the pre-existing view (not null)
+     */
+    @Override
+    public Set<Map.Entry<Long, V>> entrySet() {
+        return entryView;
+    }
+
+    /**
+     * Read the value mapped to the specified key. Boxed version of
+     * {@link #get(long)}.
+     *
+     * @param key the key to look up (may be null)
+     * @return the pre-existing value, or null if none
+     */
+    @Override
+    public V get(Object key) {
+        V result = null;
+        if (key instanceof Long) {
+            result = get(((Long) key).longValue());
+        }
+
+        return result;
+    }
+
+    /**
+     * Test whether this map is empty.
+     *
+     * @return true if empty, otherwise false
+     */
+    @Override
+    public boolean isEmpty() {
+        if (size == 0) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Map the specified key to the specified value. Boxed version of the
+     * primitive put() method.
+     *
+     * @param key the key to map (not null, not zero)
+     * @param value the value to map it to (not null, alias created)
+     * @return the value previously mapped to the key, or null if none
+     */
+    @Override
+    public V put(Long key, V value) {
+        Validate.nonNull(key, "key");
+        V result = put(key.longValue(), value);
+
+        return result;
+    }
+
+    /**
+     * Remove the mapping for the specified key, if any. Boxed version of
+     * {@link #remove(long)}.
+     *
+     * @param key the key to unmap (may be null)
+     * @return the value previously mapped to the key, or null if none
+     */
+    @Override
+    public V remove(Object key) {
+        V result = null;
+        if (key instanceof Long) {
+            result = remove(((Long) key).longValue());
+        }
+
+        return result;
+    }
+
+    /**
+     * Count the mappings in this map.
+     *
+     * @return the count (&ge;0)
+     */
+    @Override
+    public int size() {
+        assert size >= 0 : size;
+        return size;
+    }
+
+    /**
+     * Access a read-only view of the values in this map.
+     *
+     * @return the pre-existing view (not null)
+     */
+    @Override
+    public Collection<V> values() {
+        return valueView;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Copy the live mappings into a new table sized for the specified number
+     * of mappings, then publish it. Readers still probing the old table
+     * remain safe, because it's never modified after being replaced.
+     *
+     * @param numMappings the number of mappings to provide for (&ge;size)
+     * @return the new table (not null)
+     */
+    private LongMapTable rehash(int numMappings) {
+        assert Thread.holdsLock(this);
+
+        LongMapTable oldTable = table;
+        int numBuckets = LongMapTable.tableSize(numMappings);
+        LongMapTable newTable = new LongMapTable(numBuckets);
+        int oldCapacity = oldTable.capacity();
+        for (int oldBucket = 0; oldBucket < oldCapacity; ++oldBucket) {
+            Object value = oldTable.values.get(oldBucket);
+            if (value != null) {
+                long key = oldTable.keys.get(oldBucket);
+                int bucket = newTable.findBucket(key);
+                newTable.keys.set(bucket, key);
+                newTable.values.set(bucket, value);
+                ++newTable.numAssigned;
+            }
+        }
+        table = newTable;
+
+        return newTable;
+    }
+}
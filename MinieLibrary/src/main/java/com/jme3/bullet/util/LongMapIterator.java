@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+/**
+ * A read-only iterator over the mappings in a snapshot of a LongMapTable. The
+ * iteration is weakly consistent: it never throws a
+ * ConcurrentModificationException and it reflects some (but not necessarily
+ * all) of the modifications made after the iterator was created.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @param <V> the type of value
+ */
+class LongMapIterator<V> implements Iterator<V> {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final static Logger logger
+            = Logger.getLogger(LongMapIterator.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * key of the mapping most recently returned, or 0 if none
+     */
+    private long lastKey = 0L;
+    /**
+     * index of the bucket containing the next mapping, or the table's capacity
+     * if there are no more mappings
+     */
+    private int nextBucket = -1;
+    /**
+     * value of the next mapping, or null if there are no more mappings
+     */
+    private Object nextValue;
+    /**
+     * the table being iterated (not null)
+     */
+    final private LongMapTable table;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an iterator over the specified table.
+     *
+     * @param table the table to iterate (not null, alias created)
+     */
+    LongMapIterator(LongMapTable table) {
+        this.table = table;
+        advance();
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the key of the mapping most recently returned by next().
+     *
+     * @return the key (not zero)
+     */
+    long lastKey() {
+        assert lastKey != 0L;
+        return lastKey;
+    }
+    // *************************************************************************
+    // Iterator methods
+
+    /**
+     * Test whether the iteration has more mappings.
+     *
+     * @return true if there's another mapping, otherwise false
+     */
+    @Override
+    public boolean hasNext() {
+        if (nextValue == null) {
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Return the value of the next mapping.
+     *
+     * @return the value (not null)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V next() {
+        if (nextValue == null) {
+            throw new NoSuchElementException();
+        }
+
+        V result = (V) nextValue;
+        lastKey = table.keys.get(nextBucket);
+        advance();
+
+        return result;
+    }
+
+    /**
+     * Unsupported, since the collections this iterates are read-only.
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("read-only iterator");
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Advance to the next bucket that contains a mapping.
+     */
+    private void advance() {
+        int capacity = table.capacity();
+        nextValue = null;
+        while (nextValue == null && nextBucket < capacity - 1) {
+            ++nextBucket;
+            nextValue = table.values.get(nextBucket);
+        }
+        if (nextValue == null) {
+            nextBucket = capacity;
+        }
+    }
+}
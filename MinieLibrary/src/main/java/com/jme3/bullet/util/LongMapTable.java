@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+
+/**
+ * The open-addressed hash table behind a ConcurrentLongMap.
+ * <p>
+ * Once a bucket has been assigned a key, that key never changes, so readers
+ * can probe without locking. Removing a mapping clears the bucket's value but
+ * leaves its key in place until the next rehash.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class LongMapTable {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final static Logger logger
+            = Logger.getLogger(LongMapTable.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * key of each bucket, or 0 for an unassigned bucket (length a power of 2)
+     */
+    final AtomicLongArray keys;
+    /**
+     * bitmask for reducing hash codes to bucket indices
+     */
+    final int mask;
+    /**
+     * number of buckets with assigned keys, including removed mappings
+     * (guarded by the owning map)
+     */
+    int numAssigned = 0;
+    /**
+     * value of each bucket, or null if unassigned or removed
+     */
+    final AtomicReferenceArray<Object> values;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty table with the specified number of buckets.
+     *
+     * @param numBuckets the desired number of buckets (a power of 2, &ge;2)
+     */
+    LongMapTable(int numBuckets) {
+        assert Integer.bitCount(numBuckets) == 1 : numBuckets;
+        assert numBuckets >= 2 : numBuckets;
+
+        keys = new AtomicLongArray(numBuckets);
+        values = new AtomicReferenceArray<>(numBuckets);
+        mask = numBuckets - 1;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the buckets in this table.
+     *
+     * @return the count (a power of 2, &ge;2)
+     */
+    int capacity() {
+        int result = mask + 1;
+        return result;
+    }
+
+    /**
+     * Find the bucket that is (or would be) assigned the specified key.
+     *
+     * @param key the key to find (not zero)
+     * @return the index of the bucket whose key matches, or the index of the
+     * unassigned bucket that ends the probe sequence, or -1 if the table is
+     * full and the key isn't found
+     */
+    int findBucket(long key) {
+        assert key != 0L;
+
+        int bucket = hash(key) & mask;
+        for (int probe = 0; probe <= mask; ++probe) {
+            long bucketKey = keys.get(bucket);
+            if (bucketKey == key || bucketKey == 0L) {
+                return bucket;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Read the value mapped to the specified key.
+     *
+     * @param key the key to look up (not zero)
+     * @return the value, or null if none
+     */
+    Object get(long key) {
+        int bucket = findBucket(key);
+        Object result = null;
+        if (bucket >= 0 && keys.get(bucket) == key) {
+            result = values.get(bucket);
+        }
+
+        return result;
+    }
+
+    /**
+     * Test whether assigning another key would push this table past its
+     * maximum load factor of 0.75.
+     *
+     * @return true if the table should be rehashed first, otherwise false
+     */
+    boolean isFull() {
+        boolean result = isFull(numAssigned, capacity());
+        return result;
+    }
+
+    /**
+     * Test whether assigning another key would push a table with the
+     * specified number of assigned buckets past the maximum load factor of
+     * 0.75.
+     *
+     * @param numAssigned the number of assigned buckets (&ge;0)
+     * @param numBuckets the number of buckets (&ge;2)
+     * @return true if the table should be rehashed first, otherwise false
+     */
+    static boolean isFull(int numAssigned, int numBuckets) {
+        boolean result = 4L * (numAssigned + 1) > 3L * numBuckets;
+        return result;
+    }
+
+    /**
+     * Determine how many buckets are needed to hold the specified number of
+     * mappings at a load factor of 0.5 or less, so that the table can fill to
+     * 0.75 before the next rehash.
+     *
+     * @param numMappings the number of mappings (&ge;0)
+     * @return a power of 2 (&ge;8)
+     */
+    static int tableSize(int numMappings) {
+        int result = 8;
+        while (result < 2 * numMappings) {
+            result <<= 1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Hash the specified key.
+     *
+     * @param key the key to hash
+     * @return a 32-bit hash code
+     */
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        int result = (int) (h ^ (h >>> 32));
+
+        return result;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A set of ordered pairs of 64-bit identifiers, implemented as an
+ * open-addressed hash table without boxing.
+ * <p>
+ * Members are assigned dense indices in the order they're added, which makes
+ * it easy to associate data with each pair using parallel arrays. Individual
+ * members can't be removed; instead, the entire set is cleared.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class LongPairSet {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(LongPairSet.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of pairs in the set
+     */
+    private int size = 0;
+    /**
+     * hash table: dense index plus one for each occupied bucket, or 0 for an
+     * empty bucket (length a power of 2)
+     */
+    private int[] table;
+    /**
+     * first identifier of each pair, in dense-index order
+     */
+    private long[] firstIds;
+    /**
+     * 2nd identifier of each pair, in dense-index order
+     */
+    private long[] secondIds;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty set with the specified initial capacity.
+     *
+     * @param initialCapacity the number of pairs to allocate space for
+     * (&ge;1)
+     */
+    public LongPairSet(int initialCapacity) {
+        Validate.positive(initialCapacity, "initial capacity");
+
+        firstIds = new long[initialCapacity];
+        secondIds = new long[initialCapacity];
+        int numBuckets = tableSize(initialCapacity);
+        table = new int[numBuckets];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add the specified pair to this set, if it's not already a member.
+     *
+     * @param firstId the first identifier of the pair
+     * @param secondId the 2nd identifier of the pair
+     * @return the dense index of the pair (&ge;0): if the pair was newly
+     * added, this equals the size of the set before the addition
+     */
+    public int add(long firstId, long secondId) {
+        int mask = table.length - 1;
+        int bucket = hash(firstId, secondId) & mask;
+        while (table[bucket] != 0) {
+            int index = table[bucket] - 1;
+            if (firstIds[index] == firstId && secondIds[index] == secondId) {
+                return index;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+
+        int result = size;
+        if (result == firstIds.length) {
+            int newCapacity = 2 * firstIds.length;
+            firstIds = Arrays.copyOf(firstIds, newCapacity);
+            secondIds = Arrays.copyOf(secondIds, newCapacity);
+        }
+        firstIds[result] = firstId;
+        secondIds[result] = secondId;
+        ++size;
+
+        if (tableSize(size) > table.length) {
+            rehash(tableSize(size));
+        } else {
+            table[bucket] = result + 1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Remove all pairs from this set. The capacity is unaffected.
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(table, 0);
+            size = 0;
+        }
+    }
+
+    /**
+     * Test whether the specified pair is a member of this set.
+     *
+     * @param firstId the first identifier of the pair
+     * @param secondId the 2nd identifier of the pair
+     * @return true if it's a member, otherwise false
+     */
+    public boolean contains(long firstId, long secondId) {
+        int index = find(firstId, secondId);
+        if (index == -1) {
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Find the dense index of the specified pair.
+     *
+     * @param firstId the first identifier of the pair
+     * @param secondId the 2nd identifier of the pair
+     * @return the index (&ge;0) or -1 if it isn't a member
+     */
+    public int find(long firstId, long secondId) {
+        int mask = table.length - 1;
+        int bucket = hash(firstId, secondId) & mask;
+        while (table[bucket] != 0) {
+            int index = table[bucket] - 1;
+            if (firstIds[index] == firstId && secondIds[index] == secondId) {
+                return index;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Read the first identifier of the indexed pair.
+     *
+     * @param index the dense index of the pair (&ge;0, &lt;size())
+     * @return the identifier
+     */
+    public long firstId(int index) {
+        Validate.inRange(index, "index", 0, size - 1);
+        long result = firstIds[index];
+        return result;
+    }
+
+    /**
+     * Test whether this set is empty.
+     *
+     * @return true if empty, otherwise false
+     */
+    public boolean isEmpty() {
+        if (size == 0) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Read the 2nd identifier of the indexed pair.
+     *
+     * @param index the dense index of the pair (&ge;0, &lt;size())
+     * @return the identifier
+     */
+    public long secondId(int index) {
+        Validate.inRange(index, "index", 0, size - 1);
+        long result = secondIds[index];
+        return result;
+    }
+
+    /**
+     * Count the pairs in this set.
+     *
+     * @return the count (&ge;0)
+     */
+    public int size() {
+        assert size >= 0 : size;
+        return size;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Hash the specified pair of identifiers.
+     *
+     * @param firstId the first identifier of the pair
+     * @param secondId the 2nd identifier of the pair
+     * @return a 32-bit hash code
+     */
+    private static int hash(long firstId, long secondId) {
+        long h = firstId * 0x9E3779B97F4A7C15L + secondId;
+        h *= 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 29;
+        int result = (int) (h ^ (h >>> 32));
+
+        return result;
+    }
+
+    /**
+     * Rebuild the hash table with the specified number of buckets.
+     *
+     * @param numBuckets the desired number of buckets (a power of 2, &gt;size)
+     */
+    private void rehash(int numBuckets) {
+        assert Integer.bitCount(numBuckets) == 1 : numBuckets;
+        assert numBuckets > size : numBuckets;
+
+        table = new int[numBuckets];
+        int mask = numBuckets - 1;
+        for (int index = 0; index < size; ++index) {
+            int bucket = hash(firstIds[index], secondIds[index]) & mask;
+            while (table[bucket] != 0) {
+                bucket = (bucket + 1) & mask;
+            }
+            table[bucket] = index + 1;
+        }
+    }
+
+    /**
+     * Determine how many buckets are needed to hold the specified number of
+     * pairs at a load factor of 0.5 or less.
+     *
+     * @param numPairs the number of pairs (&ge;0)
+     * @return a power of 2 (&ge;2)
+     */
+    private static int tableSize(int numPairs) {
+        int result = 2;
+        while (result < 2 * numPairs) {
+            result <<= 1;
+        }
+
+        return result;
+    }
+}
@@ -31,7 +31,7 @@
  */
 package com.jme3.bullet.util;
 
-import com.jme3.bullet.NativePhysicsObject;
+import com.jme3.bullet.NativeReclaimer;
 
 /**
  * Static interface to the Libbulletjme native library.
@@ -119,14 +119,7 @@ public class NativeLibrary {
      * native library, to start the Physics Cleaner thread.
      */
     private static void postInitialization() {
-        Thread physicsCleaner = new Thread("Physics Cleaner") {
-            @Override
-            public void run() {
-                NativePhysicsObject.freeUnusedObjects();
-            }
-        };
-        physicsCleaner.setDaemon(true);
-        physicsCleaner.start();
+        NativeReclaimer.start();
     }
 
     /**
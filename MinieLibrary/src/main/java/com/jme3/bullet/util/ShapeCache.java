@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.HullCollisionShape;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.IndexedMesh;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Intern collision shapes generated from meshes, so that identical geometry
+ * shares a single shape (along with its native mesh and BVH) no matter how
+ * many times it's instantiated. Pass an instance to
+ * {@link CollisionShapeFactory#createMeshShape(com.jme3.scene.Spatial,
+ * ShapeCache)} or to
+ * {@link CollisionShapeFactory#createDynamicMeshShape(com.jme3.scene.Spatial,
+ * ShapeCache)}, or use it directly.
+ * <p>
+ * Shapes are identified by a hash of the vertex positions (plus the mode and
+ * indices, for mesh shapes) and the scale, not by Mesh identity. The cache
+ * retains strong references to the lruCapacity most recently used shapes and
+ * weak references to all others, so shapes that are no longer used by any
+ * collision object can be garbage collected.
+ * <p>
+ * If a {@link BvhCache} is configured, new mesh shapes are created through
+ * it, so their BVHs are also reused across application runs.
+ * <p>
+ * Interned shapes are shared: altering the margin or scale of one affects all
+ * its users.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class ShapeCache {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ShapeCache.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * persistent cache for the BVHs of new mesh shapes, or null if none
+     */
+    private volatile BvhCache bvhCache = null;
+    /**
+     * maximum number of shapes retained by strong references (&ge;0)
+     */
+    final private int lruCapacity;
+    /**
+     * size of the weak map after the most recent purge
+     */
+    private int sizeAfterPurge = 0;
+    /**
+     * number of lookups that found an interned shape
+     */
+    private long numHits = 0L;
+    /**
+     * number of lookups that required a new shape
+     */
+    private long numMisses = 0L;
+    /**
+     * strong references to the most recently used shapes, in access order
+     */
+    final private Map<ShapeKey, CollisionShape> recent;
+    /**
+     * weak references to all interned shapes
+     */
+    final private Map<ShapeKey, WeakReference<CollisionShape>> weakMap
+            = new HashMap<>(64);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty cache.
+     *
+     * @param lruCapacity the number of recently used shapes to retain even
+     * when unused (&ge;0)
+     */
+    public ShapeCache(final int lruCapacity) {
+        Validate.nonNegative(lruCapacity, "LRU capacity");
+
+        this.lruCapacity = lruCapacity;
+        recent = new LinkedHashMap<ShapeKey, CollisionShape>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<ShapeKey, CollisionShape> eldest) {
+                return size() > lruCapacity;
+            }
+        };
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Discard all interned shapes and reset the statistics.
+     */
+    public synchronized void clear() {
+        recent.clear();
+        weakMap.clear();
+        sizeAfterPurge = 0;
+        numHits = 0L;
+        numMisses = 0L;
+    }
+
+    /**
+     * Count the lookups that found an interned shape.
+     *
+     * @return the count (&ge;0)
+     */
+    public synchronized long countHits() {
+        assert numHits >= 0L : numHits;
+        return numHits;
+    }
+
+    /**
+     * Count the lookups that required a new shape.
+     *
+     * @return the count (&ge;0)
+     */
+    public synchronized long countMisses() {
+        assert numMisses >= 0L : numMisses;
+        return numMisses;
+    }
+
+    /**
+     * Count the interned shapes that are still reachable.
+     *
+     * @return the count (&ge;0)
+     */
+    public synchronized int countShapes() {
+        purge();
+        int result = weakMap.size();
+
+        return result;
+    }
+
+    /**
+     * Access the persistent cache used for the BVHs of new mesh shapes.
+     *
+     * @return the pre-existing instance, or null if none
+     */
+    public BvhCache getBvhCache() {
+        return bvhCache;
+    }
+
+    /**
+     * Calculate the fraction of lookups that found an interned shape.
+     *
+     * @return the hit rate (&ge;0, &le;1) or 0 if there were no lookups
+     */
+    public synchronized float hitRate() {
+        long numLookups = numHits + numMisses;
+        float result = 0f;
+        if (numLookups > 0L) {
+            result = numHits / (float) numLookups;
+        }
+
+        return result;
+    }
+
+    /**
+     * Obtain a HullCollisionShape for the specified mesh and scale, creating
+     * and interning a new one only if no shape with identical vertex
+     * positions and scale has been interned.
+     *
+     * @param mesh the source mesh (not null, unaffected)
+     * @param scale the desired scale factors (not null, unaffected)
+     * @return a shared shape (not null)
+     */
+    public HullCollisionShape hullShape(Mesh mesh, Vector3f scale) {
+        Validate.nonNull(mesh, "mesh");
+        Validate.nonNull(scale, "scale");
+
+        boolean useIndices = false;
+        ShapeKey key = new ShapeKey(HullCollisionShape.class, mesh,
+                useIndices, scale);
+        CollisionShape result = lookUp(key);
+        if (result == null) {
+            HullCollisionShape hullShape = new HullCollisionShape(mesh);
+            hullShape.setScale(scale);
+            result = intern(key, hullShape);
+        }
+
+        return (HullCollisionShape) result;
+    }
+
+    /**
+     * Read the number of recently used shapes retained even when unused.
+     *
+     * @return the capacity (&ge;0)
+     */
+    public int lruCapacity() {
+        assert lruCapacity >= 0 : lruCapacity;
+        return lruCapacity;
+    }
+
+    /**
+     * Obtain a MeshCollisionShape for the specified mesh and scale, creating
+     * and interning a new one only if no shape with identical vertex
+     * positions, mode, indices, and scale has been interned.
+     * <p>
+     * The scale is applied to the vertex positions before the BVH is built
+     * (or looked up in the BvhCache), so the shape itself has unit scale.
+     *
+     * @param mesh the source mesh (not null, unaffected)
+     * @param scale the desired scale factors (not null, unaffected)
+     * @return a shared shape (not null)
+     */
+    public MeshCollisionShape meshShape(Mesh mesh, Vector3f scale) {
+        Validate.nonNull(mesh, "mesh");
+        Validate.nonNull(scale, "scale");
+
+        boolean useIndices = true;
+        ShapeKey key = new ShapeKey(MeshCollisionShape.class, mesh,
+                useIndices, scale);
+        CollisionShape result = lookUp(key);
+        if (result == null) {
+            /*
+             * Rescaling a BVH triangle-mesh shape rebuilds its BVH,
+             * so bake the scale into the vertex positions instead.
+             */
+            Transform scaling = new Transform();
+            scaling.setScale(scale);
+            IndexedMesh submesh = new IndexedMesh(mesh, scaling);
+
+            boolean useCompression = true;
+            BvhCache persistentCache = bvhCache;
+            MeshCollisionShape meshShape;
+            if (persistentCache == null) {
+                meshShape = new MeshCollisionShape(useCompression, submesh);
+            } else {
+                meshShape = persistentCache.createMeshShape(useCompression,
+                        submesh);
+            }
+            result = intern(key, meshShape);
+        }
+
+        return (MeshCollisionShape) result;
+    }
+
+    /**
+     * Reset the hit and miss counts.
+     */
+    public synchronized void resetStatistics() {
+        numHits = 0L;
+        numMisses = 0L;
+    }
+
+    /**
+     * Alter the persistent cache used for the BVHs of new mesh shapes.
+     *
+     * @param cache the desired cache (alias created) or null for none
+     * (default=null)
+     */
+    public void setBvhCache(BvhCache cache) {
+        bvhCache = cache;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Intern a newly generated shape, unless another thread interned an
+     * equivalent one while it was being generated.
+     *
+     * @param key the key of the new shape (not null)
+     * @param shape the new shape (not null)
+     * @return the interned shape (not null)
+     */
+    private synchronized CollisionShape intern(ShapeKey key,
+            CollisionShape shape) {
+        CollisionShape result = null;
+        WeakReference<CollisionShape> ref = weakMap.get(key);
+        if (ref != null) {
+            result = ref.get();
+        }
+        if (result == null) {
+            result = shape;
+            weakMap.put(key, new WeakReference<>(shape));
+            if (weakMap.size() > 2 * sizeAfterPurge + 16) {
+                purge();
+            }
+        }
+        if (lruCapacity > 0) {
+            recent.put(key, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Look up an interned shape and update the statistics.
+     *
+     * @param key the key to look up (not null)
+     * @return the pre-existing shape, or null if none was found
+     */
+    private synchronized CollisionShape lookUp(ShapeKey key) {
+        CollisionShape result = null;
+        WeakReference<CollisionShape> ref = weakMap.get(key);
+        if (ref != null) {
+            result = ref.get();
+        }
+
+        if (result == null) {
+            ++numMisses;
+        } else {
+            ++numHits;
+            if (lruCapacity > 0) {
+                recent.put(key, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Remove entries whose shapes have been garbage collected.
+     */
+    private void purge() {
+        assert Thread.holdsLock(this);
+
+        Iterator<WeakReference<CollisionShape>> iterator
+                = weakMap.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+        sizeAfterPurge = weakMap.size();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.mesh.IndexBuffer;
+import java.nio.FloatBuffer;
+import java.util.logging.Logger;
+
+/**
+ * Key used to locate interned collision shapes, based on the content of a
+ * Mesh rather than its identity. Note: immutable.
+ * <p>
+ * The content is reduced to a pair of independent 64-bit hashes, so distinct
+ * meshes with the same counts, mode, and scale collide only with negligible
+ * probability.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class ShapeKey {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ShapeKey.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * type of shape to be generated
+     */
+    final private Class<?> shapeType;
+    /**
+     * number of indices hashed, or 0 if indices were ignored
+     */
+    final private int numIndices;
+    /**
+     * ordinal of the mesh mode, or -1 if indices were ignored
+     */
+    final private int modeOrdinal;
+    /**
+     * number of vertices in the mesh
+     */
+    final private int numVertices;
+    /**
+     * FNV-1a hash of the mesh content
+     */
+    final private long hash1;
+    /**
+     * multiply-rotate hash of the mesh content
+     */
+    final private long hash2;
+    /**
+     * scale factors to be applied to the shape
+     */
+    final private Vector3f scale;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a new key.
+     *
+     * @param shapeType the type of shape to be generated (not null)
+     * @param mesh the source mesh (not null, unaffected)
+     * @param useIndices true to hash the mode and indices as well as the
+     * vertex positions, false to hash only the positions
+     * @param scale the scale factors to be applied to the shape (not null,
+     * unaffected)
+     */
+    ShapeKey(Class<?> shapeType, Mesh mesh, boolean useIndices,
+            Vector3f scale) {
+        assert shapeType != null;
+
+        this.shapeType = shapeType;
+        this.scale = scale.clone();
+        numVertices = mesh.getVertexCount();
+
+        long h1 = 0xcbf29ce484222325L;
+        long h2 = 0x9e3779b97f4a7c15L;
+
+        FloatBuffer positions = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        if (positions != null) {
+            int numFloats = positions.limit();
+            for (int i = 0; i < numFloats; ++i) {
+                int word = Float.floatToIntBits(positions.get(i));
+                h1 = (h1 ^ word) * 0x100000001b3L;
+                h2 = Long.rotateLeft(h2 + word * 0xc2b2ae3d27d4eb4fL, 31)
+                        * 0x9e3779b97f4a7c15L;
+            }
+        }
+
+        IndexBuffer indexBuffer = mesh.getIndexBuffer();
+        if (useIndices && indexBuffer != null) {
+            modeOrdinal = mesh.getMode().ordinal();
+            numIndices = indexBuffer.size();
+            for (int i = 0; i < numIndices; ++i) {
+                int word = indexBuffer.get(i);
+                h1 = (h1 ^ word) * 0x100000001b3L;
+                h2 = Long.rotateLeft(h2 + word * 0xc2b2ae3d27d4eb4fL, 31)
+                        * 0x9e3779b97f4a7c15L;
+            }
+        } else if (useIndices) {
+            modeOrdinal = mesh.getMode().ordinal();
+            numIndices = 0;
+        } else {
+            modeOrdinal = -1;
+            numIndices = 0;
+        }
+
+        hash1 = h1;
+        hash2 = h2;
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Test for exact equivalence with another Object.
+     *
+     * @param otherObject the object to compare to (may be null, unaffected)
+     * @return true if the objects are equivalent, otherwise false
+     */
+    @Override
+    public boolean equals(Object otherObject) {
+        boolean result;
+        if (otherObject == this) {
+            result = true;
+        } else if (otherObject != null
+                && otherObject.getClass() == getClass()) {
+            ShapeKey otherKey = (ShapeKey) otherObject;
+            result = (hash1 == otherKey.hash1)
+                    && (hash2 == otherKey.hash2)
+                    && (numVertices == otherKey.numVertices)
+                    && (numIndices == otherKey.numIndices)
+                    && (modeOrdinal == otherKey.modeOrdinal)
+                    && (shapeType == otherKey.shapeType)
+                    && scale.equals(otherKey.scale);
+        } else {
+            result = false;
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate the hash code for this key.
+     *
+     * @return a 32-bit value for use in hashing
+     */
+    @Override
+    public int hashCode() {
+        int hash = (int) (hash1 ^ (hash1 >>> 32));
+        hash = 7 * hash + scale.hashCode();
+        hash = 7 * hash + shapeType.hashCode();
+
+        return hash;
+    }
+
+    /**
+     * Represent this key as a text string.
+     *
+     * @return descriptive string of text (not null, not empty)
+     */
+    @Override
+    public String toString() {
+        String desc = String.format(
+                "%s hash=%016x%016x vertices=%d indices=%d scale=%s",
+                shapeType.getSimpleName(), hash1, hash2, numVertices,
+                numIndices, scale);
+        return desc;
+    }
+}
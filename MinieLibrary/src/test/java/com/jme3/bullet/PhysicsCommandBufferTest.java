@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.system.NativeLibraryLoader;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the PhysicsCommandBuffer class, in particular the hand-off between
+ * command rings when one fills up, and the pruning of rings owned by threads
+ * that have exited.
+ * <p>
+ * Each command adds a rigid body to the space, and since slots are assigned
+ * in order, the slot of each body reveals the order of execution.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class PhysicsCommandBufferTest {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * initial capacity of each ring, kept small to force growth
+     */
+    final private static int initialCapacity = 4;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Record from several threads while the physics thread drains, and
+     * verify that no command is lost and that each thread's commands execute
+     * in the order recorded.
+     *
+     * @throws InterruptedException if interrupted while joining
+     */
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        final PhysicsCommandBuffer buffer
+                = new PhysicsCommandBuffer(space, initialCapacity);
+        CollisionShape shape = new SphereCollisionShape(1f);
+        int numThreads = 4;
+        final int numPerThread = 300;
+        final PhysicsRigidBody[][] bodies
+                = new PhysicsRigidBody[numThreads][numPerThread];
+        for (int threadIndex = 0; threadIndex < numThreads; ++threadIndex) {
+            for (int i = 0; i < numPerThread; ++i) {
+                bodies[threadIndex][i] = new PhysicsRigidBody(shape, 1f);
+            }
+        }
+
+        final AtomicBoolean start = new AtomicBoolean(false);
+        Thread[] producers = new Thread[numThreads];
+        for (int threadIndex = 0; threadIndex < numThreads; ++threadIndex) {
+            final PhysicsRigidBody[] myBodies = bodies[threadIndex];
+            producers[threadIndex] = new Thread() {
+                @Override
+                public void run() {
+                    while (!start.get()) {
+                        Thread.yield();
+                    }
+                    for (PhysicsRigidBody body : myBodies) {
+                        buffer.add(body);
+                    }
+                }
+            };
+            producers[threadIndex].start();
+        }
+        /*
+         * Drain on this thread while the producers record.
+         */
+        start.set(true);
+        int numExecuted = 0;
+        boolean anyAlive = true;
+        while (anyAlive) {
+            numExecuted += buffer.drain();
+            anyAlive = false;
+            for (Thread producer : producers) {
+                anyAlive |= producer.isAlive();
+            }
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        numExecuted += buffer.drain();
+
+        Assert.assertEquals(numThreads * numPerThread, numExecuted);
+        Assert.assertEquals(0, buffer.countPending());
+        for (int threadIndex = 0; threadIndex < numThreads; ++threadIndex) {
+            int previousSlot = -1;
+            for (PhysicsRigidBody body : bodies[threadIndex]) {
+                Assert.assertTrue(space.contains(body));
+                int slot = space.rigidBodySlot(body);
+                Assert.assertTrue(slot > previousSlot);
+                previousSlot = slot;
+            }
+        }
+    }
+
+    /**
+     * Record more commands than the initial capacity from a single thread,
+     * and verify that they all execute, in order, across the ring switches.
+     */
+    @Test
+    public void testOverflow() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        PhysicsCommandBuffer buffer
+                = new PhysicsCommandBuffer(space, initialCapacity);
+        CollisionShape shape = new SphereCollisionShape(1f);
+        int numCommands = 10 * initialCapacity + 1;
+        PhysicsRigidBody[] bodies = new PhysicsRigidBody[numCommands];
+        for (int i = 0; i < numCommands; ++i) {
+            bodies[i] = new PhysicsRigidBody(shape, 1f);
+            buffer.add(bodies[i]);
+        }
+        Assert.assertEquals(numCommands, buffer.countPending());
+        Assert.assertEquals(1, buffer.countRings());
+
+        Assert.assertEquals(numCommands, buffer.drain());
+        Assert.assertEquals(0, buffer.countPending());
+        for (int i = 0; i < numCommands; ++i) {
+            Assert.assertEquals(i, space.rigidBodySlot(bodies[i]));
+        }
+        /*
+         * The current thread keeps recording into the largest ring.
+         */
+        PhysicsRigidBody last = new PhysicsRigidBody(shape, 1f);
+        buffer.add(last);
+        Assert.assertEquals(1, buffer.drain());
+        Assert.assertEquals(numCommands, space.rigidBodySlot(last));
+        Assert.assertEquals(1, buffer.countRings());
+    }
+
+    /**
+     * Verify that the ring of a thread that has exited is pruned once its
+     * commands have executed, while the rings of live threads are retained.
+     *
+     * @throws InterruptedException if interrupted while joining
+     */
+    @Test
+    public void testPruning() throws InterruptedException {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        final PhysicsCommandBuffer buffer
+                = new PhysicsCommandBuffer(space, initialCapacity);
+        CollisionShape shape = new SphereCollisionShape(1f);
+        final PhysicsRigidBody body1 = new PhysicsRigidBody(shape, 1f);
+        final PhysicsRigidBody body2 = new PhysicsRigidBody(shape, 1f);
+
+        buffer.add(body1);
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                buffer.add(body2);
+            }
+        };
+        producer.start();
+        producer.join();
+        Assert.assertEquals(2, buffer.countRings());
+        Assert.assertEquals(2, buffer.countPending());
+        /*
+         * A single drain executes the dead thread's command and prunes its
+         * ring, but keeps this thread's ring.
+         */
+        Assert.assertEquals(2, buffer.drain());
+        Assert.assertTrue(space.contains(body1));
+        Assert.assertTrue(space.contains(body2));
+        Assert.assertEquals(1, buffer.countRings());
+
+        Assert.assertEquals(0, buffer.drain());
+        Assert.assertEquals(1, buffer.countRings());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the ConcurrentLongIntMap class.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class ConcurrentLongIntMapTest {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test put, remove, and re-put of the same key, including the zero value.
+     */
+    @Test
+    public void testPutRemove() {
+        ConcurrentLongIntMap map = new ConcurrentLongIntMap(1);
+        long key = 0x7f0000001000L;
+        int absent = ConcurrentLongIntMap.absent;
+
+        Assert.assertEquals(absent, map.get(key));
+        Assert.assertEquals(absent, map.put(key, 0));
+        Assert.assertEquals(0, map.get(key));
+        Assert.assertTrue(map.containsKey(key));
+        Assert.assertEquals(1, map.size());
+
+        Assert.assertEquals(0, map.put(key, 500));
+        Assert.assertEquals(1, map.size());
+
+        Assert.assertEquals(500, map.remove(key));
+        Assert.assertEquals(absent, map.get(key));
+        Assert.assertFalse(map.containsKey(key));
+        Assert.assertEquals(absent, map.remove(key));
+        Assert.assertEquals(0, map.size());
+
+        Assert.assertEquals(absent, map.put(key, 7));
+        Assert.assertEquals(7, map.get(key));
+        Assert.assertEquals(1, map.size());
+
+        map.clear();
+        Assert.assertEquals(0, map.size());
+        Assert.assertEquals(absent, map.get(key));
+    }
+
+    /**
+     * Grow well past the initial table while churning keys, so that rehashes
+     * occur with removed mappings present.
+     */
+    @Test
+    public void testRehashWithChurn() {
+        ConcurrentLongIntMap map = new ConcurrentLongIntMap(1);
+        for (int value = 0; value < 10_000; ++value) {
+            long key = 1L + value;
+            map.put(key, value);
+            if (value % 3 == 2) {
+                Assert.assertEquals(value - 1, map.remove(key - 1L));
+            }
+        }
+        Assert.assertEquals(10_000 - 3_333, map.size());
+
+        for (int value = 0; value < 10_000; ++value) {
+            long key = 1L + value;
+            int expected = (value % 3 == 1) ? ConcurrentLongIntMap.absent
+                    : value;
+            Assert.assertEquals(expected, map.get(key));
+        }
+    }
+}
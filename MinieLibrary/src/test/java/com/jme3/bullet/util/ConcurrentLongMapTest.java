@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the ConcurrentLongMap class.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class ConcurrentLongMapTest {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test clear(), including re-use of the map afterward.
+     */
+    @Test
+    public void testClear() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(1);
+        for (long key = 1L; key <= 100L; ++key) {
+            map.put(key, "v" + key);
+        }
+        Assert.assertEquals(100, map.size());
+
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(0, map.size());
+        Assert.assertFalse(map.values().iterator().hasNext());
+        for (long key = 1L; key <= 100L; ++key) {
+            Assert.assertNull(map.get(key));
+        }
+
+        Assert.assertNull(map.put(7L, "seven"));
+        Assert.assertEquals("seven", map.get(7L));
+        Assert.assertEquals(1, map.size());
+    }
+
+    /**
+     * Iterate while other threads add and remove mappings. Mappings present
+     * throughout each iteration must be seen exactly once, and every mapping
+     * seen must be consistent.
+     *
+     * @throws InterruptedException if interrupted while joining
+     */
+    @Test
+    public void testConcurrentIteration() throws InterruptedException {
+        final ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(1);
+        final int numStable = 500;
+        for (long key = 1L; key <= numStable; ++key) {
+            map.put(key, Long.valueOf(key));
+        }
+
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        int numWriters = 3;
+        Thread[] writers = new Thread[numWriters];
+        for (int writerIndex = 0; writerIndex < numWriters; ++writerIndex) {
+            final long base = 10_000L * (writerIndex + 1);
+            writers[writerIndex] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        long count = 0L;
+                        while (!done.get()) {
+                            long key = base + (count % 1_000L);
+                            if ((count / 1_000L) % 2L == 0L) {
+                                map.put(key, Long.valueOf(key));
+                            } else {
+                                map.remove(key);
+                            }
+                            ++count;
+                        }
+                    } catch (Throwable throwable) {
+                        failure.compareAndSet(null, throwable);
+                    }
+                }
+            };
+            writers[writerIndex].start();
+        }
+
+        try {
+            for (int pass = 0; pass < 500; ++pass) {
+                boolean[] seen = new boolean[numStable + 1];
+                for (Map.Entry<Long, Long> entry : map.entrySet()) {
+                    long key = entry.getKey();
+                    Assert.assertEquals(key, entry.getValue().longValue());
+                    if (key <= numStable) {
+                        Assert.assertFalse("duplicate " + key, seen[(int) key]);
+                        seen[(int) key] = true;
+                    }
+                }
+                for (int key = 1; key <= numStable; ++key) {
+                    Assert.assertTrue("missed " + key, seen[key]);
+                }
+                for (Long value : map.values()) {
+                    Assert.assertNotNull(value);
+                }
+            }
+        } finally {
+            done.set(true);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+        Assert.assertNull(failure.get());
+
+        for (long key = 1L; key <= numStable; ++key) {
+            Assert.assertEquals(Long.valueOf(key), map.get(key));
+        }
+    }
+
+    /**
+     * Test put, remove, and re-put of the same key.
+     */
+    @Test
+    public void testPutRemove() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        long key = 0x7f0000001000L;
+
+        Assert.assertNull(map.put(key, "a"));
+        Assert.assertEquals("a", map.get(key));
+        Assert.assertTrue(map.containsKey(key));
+        Assert.assertEquals(1, map.size());
+
+        Assert.assertEquals("a", map.put(key, "b"));
+        Assert.assertEquals(1, map.size());
+
+        Assert.assertEquals("b", map.remove(key));
+        Assert.assertNull(map.get(key));
+        Assert.assertFalse(map.containsKey(key));
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.remove(key));
+        Assert.assertEquals(0, map.size());
+
+        Assert.assertNull(map.put(key, "c"));
+        Assert.assertEquals("c", map.get(key));
+        Assert.assertEquals(1, map.size());
+        /*
+         * The boxed methods should agree with the primitive ones.
+         */
+        Assert.assertEquals("c", map.get(Long.valueOf(key)));
+        Assert.assertEquals("c", map.remove(Long.valueOf(key)));
+        Assert.assertNull(map.get((Object) "not a key"));
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    /**
+     * Test that the views of the map are read-only.
+     */
+    @Test
+    public void testReadOnlyViews() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        map.put(1L, "one");
+
+        Iterator<String> valueIterator = map.values().iterator();
+        Assert.assertEquals("one", valueIterator.next());
+        try {
+            valueIterator.remove();
+            Assert.fail("expected an UnsupportedOperationException");
+        } catch (UnsupportedOperationException exception) {
+            // expected
+        }
+
+        Iterator<Map.Entry<Long, String>> entryIterator
+                = map.entrySet().iterator();
+        entryIterator.next();
+        try {
+            entryIterator.remove();
+            Assert.fail("expected an UnsupportedOperationException");
+        } catch (UnsupportedOperationException exception) {
+            // expected
+        }
+        Assert.assertEquals("one", map.get(1L));
+    }
+
+    /**
+     * Test rehashing while removed mappings (tombstones) occupy buckets, both
+     * by growth and by steady churn at a constant size.
+     */
+    @Test
+    public void testRehashWithTombstones() {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(1);
+        for (long key = 1L; key <= 7L; ++key) {
+            map.put(key, Long.valueOf(key));
+        }
+        for (long key = 1L; key <= 6L; ++key) {
+            map.remove(key);
+        }
+        Assert.assertEquals(1, map.size());
+        /*
+         * Grow past the initial table while the tombstones are present.
+         */
+        for (long key = 100L; key < 200L; ++key) {
+            map.put(key, Long.valueOf(key));
+        }
+        Assert.assertEquals(101, map.size());
+        for (long key = 1L; key <= 6L; ++key) {
+            Assert.assertNull(map.get(key));
+        }
+        Assert.assertEquals(Long.valueOf(7L), map.get(7L));
+        for (long key = 100L; key < 200L; ++key) {
+            Assert.assertEquals(Long.valueOf(key), map.get(key));
+        }
+        /*
+         * Re-put a key that was removed before the rehash.
+         */
+        Assert.assertNull(map.put(3L, Long.valueOf(3L)));
+        Assert.assertEquals(Long.valueOf(3L), map.get(3L));
+        Assert.assertEquals(102, map.size());
+        /*
+         * Churn distinct keys at a constant size; without rehashing away the
+         * tombstones, the table would fill up.
+         */
+        ConcurrentLongMap<Long> churned = new ConcurrentLongMap<>(1);
+        for (long key = 1L; key <= 100_000L; ++key) {
+            churned.put(key, Long.valueOf(key));
+            if (key > 5L) {
+                Assert.assertEquals(Long.valueOf(key - 5L),
+                        churned.remove(key - 5L));
+            }
+        }
+        Assert.assertEquals(5, churned.size());
+        int count = 0;
+        for (Long value : churned.values()) {
+            Assert.assertTrue(value > 100_000L - 5L);
+            ++count;
+        }
+        Assert.assertEquals(5, count);
+    }
+}
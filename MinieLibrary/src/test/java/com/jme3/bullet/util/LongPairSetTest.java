@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the LongPairSet class.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class LongPairSetTest {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test adding, finding, and clearing pairs, including growth beyond the
+     * initial capacity.
+     */
+    @Test
+    public void testLongPairSet() {
+        LongPairSet set = new LongPairSet(1);
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertEquals(-1, set.find(1L, 2L));
+
+        int numPairs = 1000;
+        for (int i = 0; i < numPairs; ++i) {
+            long first = 0x7f0000001000L + 16L * i;
+            long second = first + 0x80L;
+            int index = set.add(first, second);
+            Assert.assertEquals(i, index);
+            Assert.assertEquals(i + 1, set.size());
+        }
+        /*
+         * Re-adding an existing pair should return its original index.
+         */
+        long first = 0x7f0000001000L + 16L * 123;
+        Assert.assertEquals(123, set.add(first, first + 0x80L));
+        Assert.assertEquals(numPairs, set.size());
+        /*
+         * Pairs are ordered.
+         */
+        Assert.assertFalse(set.contains(first + 0x80L, first));
+
+        for (int i = 0; i < numPairs; ++i) {
+            first = 0x7f0000001000L + 16L * i;
+            Assert.assertEquals(i, set.find(first, first + 0x80L));
+            Assert.assertEquals(first, set.firstId(i));
+            Assert.assertEquals(first + 0x80L, set.secondId(i));
+        }
+
+        set.clear();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertFalse(set.contains(first, first + 0x80L));
+        Assert.assertEquals(0, set.add(5L, 6L));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ Copyright (c) 2019-2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.ContactPair;
+import com.jme3.bullet.collision.ContactTransitionListener;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Verify that a pair of bodies in contact doesn't report contactEnded when the
+ * dynamic body falls asleep.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestContactSleep {
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of contactBegan() callbacks received
+     */
+    private int numBegan = 0;
+    /**
+     * number of contactEnded() callbacks received
+     */
+    private int numEnded = 0;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Rest a box on the ground, let it fall asleep, and verify that the
+     * contact neither ends nor begins anew.
+     */
+    @Test
+    public void testContactSleep() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        space.addContactTransitionListener(new ContactTransitionListener() {
+            @Override
+            public void contactBegan(ContactPair pair) {
+                ++numBegan;
+            }
+
+            @Override
+            public void contactEnded(ContactPair pair) {
+                ++numEnded;
+            }
+
+            @Override
+            public void contactPersisted(ContactPair pair) {
+                // do nothing
+            }
+        });
+
+        BoxCollisionShape groundShape = new BoxCollisionShape(10f, 1f, 10f);
+        PhysicsRigidBody ground = new PhysicsRigidBody(
+                groundShape, PhysicsRigidBody.massForStatic);
+        ground.setPhysicsLocation(new Vector3f(0f, -1f, 0f));
+        space.addCollisionObject(ground);
+
+        PhysicsRigidBody box
+                = new PhysicsRigidBody(new BoxCollisionShape(0.5f), 1f);
+        box.setPhysicsLocation(new Vector3f(0f, 0.5f, 0f));
+        space.addCollisionObject(box);
+        /*
+         * Step until the box falls asleep, then for a while longer.
+         */
+        int numSteps = 0;
+        while (box.isActive()) {
+            space.update(1f / 60, 0);
+            space.distributeEvents();
+            ++numSteps;
+            Assert.assertTrue("box never fell asleep", numSteps < 1_000);
+        }
+        Assert.assertEquals(1, numBegan);
+        for (int i = 0; i < 120; ++i) {
+            space.update(1f / 60, 0);
+            space.distributeEvents();
+        }
+        Assert.assertFalse(box.isActive());
+        Assert.assertEquals(1, numBegan);
+        Assert.assertEquals(0, numEnded);
+        /*
+         * Waking the box resumes the same contact without a new transition.
+         */
+        box.activate();
+        for (int i = 0; i < 10; ++i) {
+            space.update(1f / 60, 0);
+            space.distributeEvents();
+        }
+        Assert.assertEquals(1, numBegan);
+        Assert.assertEquals(0, numEnded);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ Copyright (c) 2019-2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsBodyPool;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the PhysicsBodyPool class.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestPhysicsBodyPool {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test acquire(), release(), warmUp(), and hitRate(), including the
+     * detection of a repeated release.
+     */
+    @Test
+    public void testPhysicsBodyPool() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        SphereCollisionShape shape = new SphereCollisionShape(0.5f);
+        PhysicsBodyPool pool = new PhysicsBodyPool(shape, 2f, 3);
+        Assert.assertEquals(0f, pool.hitRate(), 0f);
+        /*
+         * Warm-up stops at the limit on idle bodies.
+         */
+        Assert.assertEquals(3, pool.warmUp(5));
+        Assert.assertEquals(3, pool.countIdle());
+        Assert.assertEquals(3L, pool.countCreated());
+        Assert.assertEquals(0, pool.warmUp(2));
+        /*
+         * Acquire 4 bodies: 3 hits and a miss.
+         */
+        PhysicsRigidBody[] bodies = new PhysicsRigidBody[4];
+        for (int i = 0; i < bodies.length; ++i) {
+            bodies[i] = pool.acquire();
+            Assert.assertSame(shape, bodies[i].getCollisionShape());
+            Assert.assertEquals(2f, bodies[i].getMass(), 0f);
+            Assert.assertFalse(bodies[i].isInWorld());
+        }
+        Assert.assertEquals(0, pool.countIdle());
+        Assert.assertEquals(3L, pool.countHits());
+        Assert.assertEquals(1L, pool.countMisses());
+        Assert.assertEquals(4L, pool.countCreated());
+        Assert.assertEquals(0.75f, pool.hitRate(), 0f);
+        /*
+         * Release a body that's in a space and has been moving.
+         */
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        PhysicsRigidBody body = bodies[0];
+        space.addCollisionObject(body);
+        body.setPhysicsLocation(new Vector3f(1f, 2f, 3f));
+        body.setLinearVelocity(new Vector3f(4f, 5f, 6f));
+        body.applyCentralForce(new Vector3f(7f, 8f, 9f));
+        pool.release(body);
+        Assert.assertFalse(body.isInWorld());
+        Assert.assertEquals(1, pool.countIdle());
+        /*
+         * Releasing it again must fail rather than pool it twice.
+         */
+        try {
+            pool.release(body);
+            Assert.fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        Assert.assertEquals(1, pool.countIdle());
+        /*
+         * Re-acquiring returns the same body, reset.
+         */
+        PhysicsRigidBody reused = pool.acquire();
+        Assert.assertSame(body, reused);
+        Assert.assertEquals(Vector3f.ZERO, reused.getPhysicsLocation(null));
+        Assert.assertEquals(Vector3f.ZERO, reused.getLinearVelocity(null));
+        Assert.assertEquals(Vector3f.ZERO, reused.totalAppliedForce(null));
+        Assert.assertTrue(reused.isActive());
+        Assert.assertEquals(0.8f, pool.hitRate(), 1e-6f);
+        /*
+         * After re-acquisition, the body may be released again.
+         */
+        pool.release(reused);
+        Assert.assertEquals(1, pool.countIdle());
+        /*
+         * Bodies released beyond the idle limit are discarded.
+         */
+        for (int i = 1; i < bodies.length; ++i) {
+            pool.release(bodies[i]);
+        }
+        Assert.assertEquals(3, pool.countIdle());
+
+        pool.resetStatistics();
+        Assert.assertEquals(0f, pool.hitRate(), 0f);
+        Assert.assertEquals(4L, pool.countCreated());
+    }
+}
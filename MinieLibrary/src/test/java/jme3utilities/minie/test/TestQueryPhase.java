@@ -0,0 +1,240 @@
+/*
+ Copyright (c) 2019-2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.QueryPhase;
+import com.jme3.bullet.collision.PhysicsRayTestResult;
+import com.jme3.bullet.collision.PhysicsSweepTestResult;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsGhostObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Issue ray, sweep, and contact tests from several threads during a query
+ * phase and verify that each thread sees the single-threaded results.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestQueryPhase {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of boxes in the row
+     */
+    final private static int numBoxes = 10;
+    /**
+     * number of rays/sweeps per round: one above each box, one between
+     */
+    final private static int numProbes = 2 * numBoxes;
+    /**
+     * number of query rounds per thread
+     */
+    final private static int numRounds = 200;
+    /**
+     * number of querying threads
+     */
+    final private static int numThreads = 8;
+    // *************************************************************************
+    // fields
+
+    /**
+     * shape to sweep
+     */
+    private SphereCollisionShape ball;
+    /**
+     * expected number of contacts for the ghost probe
+     */
+    private int expectedContacts;
+    /**
+     * expected closest hit fraction for each ray
+     */
+    final private float[] expectedRayFractions = new float[numProbes];
+    /**
+     * expected number of hits for each ray
+     */
+    final private int[] expectedRayHits = new int[numProbes];
+    /**
+     * expected number of hits for each sweep
+     */
+    final private int[] expectedSweepHits = new int[numProbes];
+    /**
+     * ghost used as a contact-test probe (never added to the space)
+     */
+    private PhysicsGhostObject probe;
+    /**
+     * space to query
+     */
+    private PhysicsSpace space;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Query from several threads at once.
+     *
+     * @throws Exception if a querying thread fails
+     */
+    @Test
+    public void testQueryPhase() throws Exception {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        BoxCollisionShape boxShape = new BoxCollisionShape(0.5f);
+        for (int boxIndex = 0; boxIndex < numBoxes; ++boxIndex) {
+            PhysicsRigidBody box = new PhysicsRigidBody(
+                    boxShape, PhysicsRigidBody.massForStatic);
+            box.setPhysicsLocation(new Vector3f(3f * boxIndex, 0f, 0f));
+            space.addCollisionObject(box);
+        }
+        probe = new PhysicsGhostObject(new BoxCollisionShape(2f));
+        ball = new SphereCollisionShape(0.25f);
+        /*
+         * Record the single-threaded results.
+         */
+        List<PhysicsRayTestResult> rayResults = new ArrayList<>(10);
+        List<PhysicsSweepTestResult> sweepResults = new ArrayList<>(10);
+        for (int probeIndex = 0; probeIndex < numProbes; ++probeIndex) {
+            space.rayTest(rayFrom(probeIndex), rayTo(probeIndex), rayResults);
+            expectedRayHits[probeIndex] = rayResults.size();
+            expectedRayFractions[probeIndex] = rayResults.isEmpty()
+                    ? 1f : rayResults.get(0).getHitFraction();
+
+            space.sweepTest(ball, new Transform(rayFrom(probeIndex)),
+                    new Transform(rayTo(probeIndex)), sweepResults, 0f);
+            expectedSweepHits[probeIndex] = sweepResults.size();
+        }
+        expectedContacts = space.contactTest(probe, null);
+        Assert.assertEquals(1, expectedRayHits[0]);
+        Assert.assertEquals(0, expectedRayHits[1]);
+        Assert.assertTrue(expectedContacts > 0);
+        /*
+         * Query concurrently during a phase.
+         */
+        final QueryPhase phase = space.beginQueryPhase();
+        try {
+            space.update(1f / 60, 0);
+            Assert.fail("expected an IllegalStateException");
+        } catch (IllegalStateException exception) {
+            // expected
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<Void>> futures = new ArrayList<>(numThreads);
+        for (int threadIndex = 0; threadIndex < numThreads; ++threadIndex) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    query(phase);
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get(); // rethrows any assertion failure
+            }
+        } finally {
+            executor.shutdown();
+            space.endQueryPhase();
+        }
+
+        Assert.assertFalse(phase.isOpen());
+        try {
+            phase.rayTest(rayFrom(0), rayTo(0));
+            Assert.fail("expected an IllegalStateException");
+        } catch (IllegalStateException exception) {
+            // expected
+        }
+        space.update(1f / 60, 0);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Issue all queries through the specified phase, repeatedly, and compare
+     * against the single-threaded results.
+     *
+     * @param phase the open phase (not null)
+     */
+    private void query(QueryPhase phase) {
+        for (int round = 0; round < numRounds; ++round) {
+            for (int probeIndex = 0; probeIndex < numProbes; ++probeIndex) {
+                Vector3f from = rayFrom(probeIndex);
+                Vector3f to = rayTo(probeIndex);
+
+                List<PhysicsRayTestResult> rays = phase.rayTest(from, to);
+                Assert.assertEquals(expectedRayHits[probeIndex], rays.size());
+                if (!rays.isEmpty()) {
+                    Assert.assertEquals(expectedRayFractions[probeIndex],
+                            rays.get(0).getHitFraction(), 0f);
+                }
+
+                List<PhysicsSweepTestResult> sweeps = phase.sweepTest(ball,
+                        new Transform(from), new Transform(to), 0f);
+                Assert.assertEquals(expectedSweepHits[probeIndex],
+                        sweeps.size());
+            }
+            Assert.assertEquals(expectedContacts,
+                    phase.contactTest(probe, null));
+        }
+    }
+
+    /**
+     * Determine the starting location of the indexed ray or sweep.
+     *
+     * @param probeIndex the index (&ge;0, &lt;numProbes)
+     * @return a new location vector
+     */
+    private static Vector3f rayFrom(int probeIndex) {
+        Vector3f result = new Vector3f(1.5f * probeIndex, 10f, 0f);
+        return result;
+    }
+
+    /**
+     * Determine the ending location of the indexed ray or sweep.
+     *
+     * @param probeIndex the index (&ge;0, &lt;numProbes)
+     * @return a new location vector
+     */
+    private static Vector3f rayTo(int probeIndex) {
+        Vector3f result = new Vector3f(1.5f * probeIndex, -10f, 0f);
+        return result;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ Copyright (c) 2019-2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSoftSpace;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.Activation;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.CapsuleCollisionShape;
+import com.jme3.bullet.objects.PhysicsCharacter;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.bullet.objects.PhysicsVehicle;
+import com.jme3.bullet.objects.VehicleWheel;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import com.jme3.util.BufferUtils;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test PhysicsSpace.snapshot() and PhysicsSpace.restore() on a space
+ * containing a rigid body, a vehicle, a character, and a soft body.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestSpaceSnapshot {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * tolerance for comparing values that pass through native conversions
+     */
+    final private static float tolerance = 1e-4f;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Snapshot a space, step it, restore the snapshot, and verify that the
+     * dynamic state matches what was captured.
+     */
+    @Test
+    public void testSpaceSnapshot() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSoftSpace space = new PhysicsSoftSpace(
+                new Vector3f(-1000f, -1000f, -1000f),
+                new Vector3f(1000f, 1000f, 1000f),
+                PhysicsSpace.BroadphaseType.DBVT);
+        /*
+         * a rigid body with velocities
+         */
+        PhysicsRigidBody box
+                = new PhysicsRigidBody(new BoxCollisionShape(0.5f), 2f);
+        box.setPhysicsLocation(new Vector3f(0f, 5f, 0f));
+        space.addCollisionObject(box);
+        box.setLinearVelocity(new Vector3f(1f, 2f, 3f));
+        box.setAngularVelocity(new Vector3f(0.1f, 0.2f, 0.3f));
+        /*
+         * a vehicle with a single wheel
+         */
+        PhysicsVehicle vehicle = new PhysicsVehicle(
+                new BoxCollisionShape(1f, 0.5f, 2f), 100f);
+        vehicle.setPhysicsLocation(new Vector3f(20f, 5f, 0f));
+        space.addCollisionObject(vehicle);
+        vehicle.addWheel(new Vector3f(1f, -0.5f, 1.5f),
+                new Vector3f(0f, -1f, 0f), new Vector3f(-1f, 0f, 0f),
+                0.3f, 0.4f, true);
+        vehicle.steer(0, 0.2f);
+        vehicle.accelerate(0, 50f);
+        vehicle.brake(0, 3f);
+        vehicle.setActivationState(Activation.exempt);
+        /*
+         * a character walking
+         */
+        PhysicsCharacter character = new PhysicsCharacter(
+                new CapsuleCollisionShape(0.5f, 1f), 0.3f);
+        character.setPhysicsLocation(new Vector3f(-20f, 5f, 0f));
+        space.addCollisionObject(character);
+        character.setWalkDirection(new Vector3f(0.01f, 0f, 0.02f));
+        /*
+         * a soft body with 3 free nodes
+         */
+        PhysicsSoftBody softBody = new PhysicsSoftBody();
+        FloatBuffer nodeLocations = BufferUtils.createFloatBuffer(
+                0f, 5f, 20f, 1f, 5f, 20f, 0f, 6f, 20f);
+        softBody.appendNodes(nodeLocations);
+        softBody.setMass(3f);
+        space.addCollisionObject(softBody);
+        softBody.setVelocity(new Vector3f(-1f, 0.5f, 0.25f));
+        /*
+         * Take a step (which clears forces), accumulate some force and
+         * torque, then record the expected state and take the snapshot.
+         */
+        space.update(1f / 60, 0);
+        box.applyCentralForce(new Vector3f(4f, 5f, 6f));
+        box.applyTorque(new Vector3f(0.4f, 0.5f, 0.6f));
+
+        Vector3f boxLocation = box.getPhysicsLocation(null);
+        Quaternion boxOrientation = box.getPhysicsRotation(null);
+        Vector3f boxVelocity = box.getLinearVelocity(null);
+        Vector3f boxSpin = box.getAngularVelocity(null);
+        Vector3f boxForce = box.totalAppliedForce(null);
+        Vector3f boxTorque = box.totalAppliedTorque(null);
+        int boxActivation = box.getActivationState();
+        float boxDeactivationTime = box.getDeactivationTime();
+
+        Vector3f vehicleLocation = vehicle.getPhysicsLocation(null);
+        Vector3f vehicleVelocity = vehicle.getLinearVelocity(null);
+        int vehicleActivation = vehicle.getActivationState();
+        VehicleWheel wheel = vehicle.getWheel(0);
+        float wheelRotation = wheel.getRotationAngle();
+        float wheelSteer = wheel.getSteerAngle();
+        float wheelEngineForce = wheel.getEngineForce();
+        float wheelBrake = wheel.getBrake();
+
+        Vector3f characterLocation = character.getPhysicsLocation(null);
+        Vector3f characterWalk = character.getWalkDirection(null);
+
+        Vector3f softLocation = softBody.getPhysicsLocation(null);
+        Vector3f softVelocity = softBody.nodeVelocity(1, null);
+        int softActivation = softBody.getActivationState();
+
+        int numBytes = space.snapshotSize();
+        ByteBuffer buffer = BufferUtils.createByteBuffer(numBytes);
+        space.snapshot(buffer);
+        Assert.assertEquals(numBytes, buffer.position());
+        /*
+         * Step the space and perturb the state.
+         */
+        for (int i = 0; i < 30; ++i) {
+            space.update(1f / 60, 0);
+        }
+        box.setActivationState(Activation.wantsDeactivation);
+        box.setDeactivationTime(5f);
+        vehicle.setActivationState(Activation.active);
+        vehicle.steer(0, -0.3f);
+        vehicle.accelerate(0, 0f);
+        vehicle.brake(0, 0f);
+        character.setWalkDirection(new Vector3f(0f, 0f, 0f));
+        softBody.setActivationState(Activation.wantsDeactivation);
+        Assert.assertNotEquals(boxLocation, box.getPhysicsLocation(null));
+        /*
+         * Restore the snapshot and compare.
+         */
+        buffer.flip();
+        int numRestored = space.restore(buffer);
+        Assert.assertEquals(4, numRestored);
+        Assert.assertEquals(numBytes, buffer.position());
+
+        assertEquals(boxLocation, box.getPhysicsLocation(null));
+        Quaternion orientation = box.getPhysicsRotation(null);
+        Assert.assertEquals(boxOrientation.getX(), orientation.getX(),
+                tolerance);
+        Assert.assertEquals(boxOrientation.getY(), orientation.getY(),
+                tolerance);
+        Assert.assertEquals(boxOrientation.getZ(), orientation.getZ(),
+                tolerance);
+        Assert.assertEquals(boxOrientation.getW(), orientation.getW(),
+                tolerance);
+        assertEquals(boxVelocity, box.getLinearVelocity(null));
+        assertEquals(boxSpin, box.getAngularVelocity(null));
+        assertEquals(boxForce, box.totalAppliedForce(null));
+        assertEquals(boxTorque, box.totalAppliedTorque(null));
+        Assert.assertEquals(boxActivation, box.getActivationState());
+        Assert.assertEquals(boxDeactivationTime, box.getDeactivationTime(),
+                0f);
+
+        assertEquals(vehicleLocation, vehicle.getPhysicsLocation(null));
+        assertEquals(vehicleVelocity, vehicle.getLinearVelocity(null));
+        Assert.assertEquals(vehicleActivation, vehicle.getActivationState());
+        Assert.assertEquals(wheelRotation, wheel.getRotationAngle(), 0f);
+        Assert.assertEquals(wheelSteer, wheel.getSteerAngle(), 0f);
+        Assert.assertEquals(wheelEngineForce, wheel.getEngineForce(), 0f);
+        Assert.assertEquals(wheelBrake, wheel.getBrake(), 0f);
+
+        assertEquals(characterLocation, character.getPhysicsLocation(null));
+        assertEquals(characterWalk, character.getWalkDirection(null));
+
+        assertEquals(softLocation, softBody.getPhysicsLocation(null));
+        assertEquals(softVelocity, softBody.nodeVelocity(1, null));
+        Assert.assertEquals(softActivation, softBody.getActivationState());
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that 2 vectors are equal, to within the tolerance.
+     *
+     * @param expected the expected vector (not null, unaffected)
+     * @param actual the actual vector (not null, unaffected)
+     */
+    private static void assertEquals(Vector3f expected, Vector3f actual) {
+        Assert.assertEquals(expected.x, actual.x, tolerance);
+        Assert.assertEquals(expected.y, actual.y, tolerance);
+        Assert.assertEquals(expected.z, actual.z, tolerance);
+    }
+}